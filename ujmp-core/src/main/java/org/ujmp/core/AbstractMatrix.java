@@ -23,6 +23,7 @@
 
 package org.ujmp.core;
 
+import static org.ujmp.core.util.VerifyUtil.verifyRegion;
 import static org.ujmp.core.util.VerifyUtil.verifyTrue;
 
 import java.io.File;
@@ -148,6 +149,7 @@ import org.ujmp.core.doublematrix.calculation.general.statistical.Prod;
 import org.ujmp.core.doublematrix.calculation.general.statistical.Std;
 import org.ujmp.core.doublematrix.calculation.general.statistical.Sum;
 import org.ujmp.core.doublematrix.calculation.general.statistical.Var;
+import org.ujmp.core.doublematrix.impl.AbstractCompressedSparseDoubleMatrix2D;
 import org.ujmp.core.enums.ValueType;
 import org.ujmp.core.export.destinationselector.DefaultMatrixExportDestinationSelector;
 import org.ujmp.core.export.destinationselector.MatrixExportDestinationSelector;
@@ -155,6 +157,7 @@ import org.ujmp.core.floatmatrix.FloatMatrix;
 import org.ujmp.core.floatmatrix.calculation.ToFloatMatrix;
 import org.ujmp.core.importer.sourceselector.DefaultMatrixImportSourceSelector;
 import org.ujmp.core.importer.sourceselector.MatrixImportSourceSelector;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
 import org.ujmp.core.interfaces.GUIObject;
 import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
 import org.ujmp.core.interfaces.HasLabel;
@@ -292,6 +295,47 @@ public abstract class AbstractMatrix extends Number implements Matrix {
 		}
 	}
 
+	public void forEachDouble(DoubleCellVisitor visitor) {
+		forEachDouble(visitor, 0, getRowCount());
+	}
+
+	public void forEachDouble(DoubleCellVisitor visitor, long startRow, long endRow) {
+		verifyTrue(getDimensionCount() == 2, "matrix must be 2d");
+		final long columnCount = getColumnCount();
+		for (long column = 0; column < columnCount; column++) {
+			for (long row = startRow; row < endRow; row++) {
+				visitor.visit(row, column, getAsDouble(row, column));
+			}
+		}
+	}
+
+	public void forEachNonZero(DoubleCellVisitor visitor) {
+		forEachNonZero(visitor, 0, getRowCount());
+	}
+
+	public void forEachNonZero(final DoubleCellVisitor visitor, long startRow, long endRow) {
+		verifyTrue(getDimensionCount() == 2, "matrix must be 2d");
+		if (isSparse()) {
+			for (long[] c : availableCoordinates()) {
+				if (c[ROW] >= startRow && c[ROW] < endRow) {
+					final double value = getAsDouble(c);
+					if (value != 0.0) {
+						visitor.visit(c[ROW], c[COLUMN], value);
+					}
+				}
+			}
+		} else {
+			// use the optimized traversal of the implementation
+			forEachDouble(new DoubleCellVisitor() {
+				public void visit(long row, long column, double value) {
+					if (value != 0.0) {
+						visitor.visit(row, column, value);
+					}
+				}
+			}, startRow, endRow);
+		}
+	}
+
 	public final long getCoreObjectId() {
 		return id;
 	}
@@ -304,6 +348,28 @@ public abstract class AbstractMatrix extends Number implements Matrix {
 		setAsObject(v, coordinates);
 	}
 
+	public void getDoubleBlock(long row, long column, int rows, int columns, double[] target,
+			int offset, int stride) {
+		verifyRegion(this, row, column, rows, columns);
+		for (int i = 0; i < rows; i++) {
+			final int start = offset + i * stride;
+			for (int j = 0; j < columns; j++) {
+				target[start + j] = getAsDouble(row + i, column + j);
+			}
+		}
+	}
+
+	public void setDoubleBlock(long row, long column, int rows, int columns, double[] source,
+			int offset, int stride) {
+		verifyRegion(this, row, column, rows, columns);
+		for (int i = 0; i < rows; i++) {
+			final int start = offset + i * stride;
+			for (int j = 0; j < columns; j++) {
+				setAsDouble(source[start + j], row + i, column + j);
+			}
+		}
+	}
+
 	public final Object getPreferredObject(long... coordinates) {
 		return MathUtil.getPreferredObject(getAsObject(coordinates));
 	}
@@ -529,26 +595,16 @@ public abstract class AbstractMatrix extends Number implements Matrix {
 		return new Princomp(this).calcNew();
 	}
 
+	public Matrix princomp(int k) {
+		return new Princomp(this, k).calcNew();
+	}
+
 	public Matrix pinv() {
 		return new Pinv(this).calcNew();
 	}
 
 	public Matrix pinv(int k) {
-		Matrix[] usv = svd(k);
-		Matrix u = usv[0];
-		Matrix s = usv[1];
-		Matrix v = usv[2];
-
-		for (int i = (int) Math.min(s.getRowCount(), s.getColumnCount()); --i >= 0;) {
-			double d = s.getAsDouble(i, i);
-			if (Math.abs(d) > UJMPSettings.getInstance().getTolerance()) {
-				s.setAsDouble(1.0 / d, i, i);
-			} else {
-				s.setAsDouble(0.0, i, i);
-			}
-		}
-
-		return v.mtimes(s.transpose()).mtimes(u.transpose());
+		return new Pinv(this, k).calcNew();
 	}
 
 	public Matrix center(Ret returnType, int dimension, boolean ignoreNaN) {
@@ -1003,6 +1059,12 @@ public abstract class AbstractMatrix extends Number implements Matrix {
 	}
 
 	public Matrix mtimes(Matrix matrix) {
+		if (getValueType() == ValueType.DOUBLE && matrix.getValueType() == ValueType.DOUBLE
+				&& AbstractCompressedSparseDoubleMatrix2D.isCompressible(this)
+				&& AbstractCompressedSparseDoubleMatrix2D.isCompressible(matrix)) {
+			// return the product in compressed format without copying it
+			return AbstractCompressedSparseDoubleMatrix2D.compressed(this, true).mtimes(matrix);
+		}
 		Matrix result = getFactory().zeros(getRowCount(), matrix.getColumnCount());
 		Matrix.mtimes.calc(this, matrix, result);
 		return result;
@@ -1439,10 +1501,20 @@ public abstract class AbstractMatrix extends Number implements Matrix {
 		if (getDimensionCount() != 2 || !isSquare()) {
 			throw new RuntimeException("only supported for 2d square matrices");
 		}
+		if (LU.BlockedLUMatrix.isApplicable(this)) {
+			return new LU.BlockedLUMatrix(this).det();
+		}
 		return new LU.LUMatrix(this).det();
 	}
 
 	public double pdet() {
+		// for a nonsingular matrix, the product of the singular values is |det|
+		if (isSquare() && LU.BlockedLUMatrix.isApplicable(this)) {
+			LU.BlockedLUMatrix lu = new LU.BlockedLUMatrix(this);
+			if (lu.isNonsingular()) {
+				return Math.abs(lu.det());
+			}
+		}
 		Matrix s = svd()[1];
 		double prod = 1;
 		for (int i = 0; i < s.getRowCount(); i++) {
@@ -1458,6 +1530,9 @@ public abstract class AbstractMatrix extends Number implements Matrix {
 		if (getDimensionCount() != 2 || !isSquare()) {
 			return false;
 		}
+		if (LU.BlockedLUMatrix.isApplicable(this)) {
+			return !new LU.BlockedLUMatrix(this).isNonsingular();
+		}
 		return !new LU.LUMatrix(this).isNonsingular();
 	}
 
@@ -1712,15 +1787,15 @@ public abstract class AbstractMatrix extends Number implements Matrix {
 		return StringUtil.convert(getAsObject(coordinates));
 	}
 
-	public final double getMaxValue() {
+	public double getMaxValue() {
 		return Max.calc(this);
 	}
 
-	public final double getMinValue() {
+	public double getMinValue() {
 		return Min.calc(this);
 	}
 
-	public final double getMeanValue() {
+	public double getMeanValue() {
 		return Mean.calc(this);
 	}
 
@@ -1728,7 +1803,7 @@ public abstract class AbstractMatrix extends Number implements Matrix {
 		return std(Ret.NEW, Matrix.ALL, true, true).getEuklideanValue();
 	}
 
-	public final double getValueSum() {
+	public double getValueSum() {
 		double sum = 0.0;
 		for (long[] c : allCoordinates()) {
 			sum += getAsDouble(c);
@@ -1736,7 +1811,7 @@ public abstract class AbstractMatrix extends Number implements Matrix {
 		return sum;
 	}
 
-	public final double getAbsoluteValueSum() {
+	public double getAbsoluteValueSum() {
 		double sum = 0.0;
 		for (long[] c : allCoordinates()) {
 			sum += Math.abs(getAsDouble(c));
@@ -1925,34 +2000,8 @@ public abstract class AbstractMatrix extends Number implements Matrix {
 	}
 
 	public final Matrix[] svd(int k) {
-
-		// how many iterations for self-multiplication, good values seem to be
-		// in the range 3 to 8
-		final int iterations = 3;
-
-		// self-multiplication
-		Matrix aSquared = this.mtimes(transpose());
-		for (int i = 0; i < iterations; i++) {
-			aSquared = aSquared.mtimes(aSquared);
-		}
-
-		// multiply with random matrix
-		Matrix o = Matrix.Factory.randn(getRowCount(), k);
-		Matrix y = aSquared.mtimes(this).mtimes(o);
-
-		// decompose
-		Matrix[] qr = y.qr();
-		Matrix q = qr[0];
-
-		// calculate low rank SVD
-		Matrix b = q.transpose().mtimes(this);
-		Matrix[] svd = b.svd();
-		Matrix uHat = svd[0];
-		Matrix s = svd[1];
-		Matrix v = svd[2];
-		Matrix u = q.mtimes(uHat);
-
-		return new Matrix[] { u, s, v };
+		SVD.RandomizedSVDMatrix svd = new SVD.RandomizedSVDMatrix(this, k);
+		return new Matrix[] { svd.getU(), svd.getS(), svd.getV() };
 	}
 
 	public Matrix[] eig() {
@@ -1963,6 +2012,16 @@ public abstract class AbstractMatrix extends Number implements Matrix {
 		return Eig.INSTANCE.calc(this);
 	}
 
+	public Matrix[] eigSymm(int k) {
+		Eig.SymmetricEigMatrix eig = new Eig.SymmetricEigMatrix(this, k);
+		return new Matrix[] { eig.getV(), eig.getD() };
+	}
+
+	public Matrix eigValuesSymm() {
+		Eig.SymmetricEigMatrix eig = new Eig.SymmetricEigMatrix(this, false);
+		return Matrix.Factory.linkToArray(eig.getRealEigenvalues());
+	}
+
 	public Matrix[] qr() {
 		return QR.INSTANCE.calc(this);
 	}
@@ -319,6 +319,86 @@ public class Coordinates implements Serializable, Comparable<Coordinates> {
 		return true;
 	}
 
+	/**
+	 * Returns true if the linear index of every coordinate of a matrix with
+	 * two or three dimensions and the given size fits into a long.
+	 */
+	public static final boolean isLinearIndexable(final long[] size) {
+		if (size.length < 2 || size.length > 3) {
+			return false;
+		}
+		long product = 1;
+		for (int i = 0; i < size.length; i++) {
+			if (size[i] < 0) {
+				return false;
+			} else if (size[i] > 0 && product > Long.MAX_VALUE / size[i]) {
+				return false;
+			}
+			product *= size[i];
+		}
+		return true;
+	}
+
+	private static final int packedBits(final int dimensionCount) {
+		return dimensionCount == 2 ? 31 : 21;
+	}
+
+	/**
+	 * Returns true if the coordinates of a matrix with two or three
+	 * dimensions and the given size can be packed into a long, see
+	 * {@link #toPackedIndex(long[], long...)}.
+	 */
+	public static final boolean isPackable(final long[] size) {
+		if (size.length < 2 || size.length > 3) {
+			return false;
+		}
+		final long limit = 1L << packedBits(size.length);
+		for (int i = 0; i < size.length; i++) {
+			if (size[i] < 0 || size[i] > limit) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Packs the coordinates into a non-negative long with a fixed number of
+	 * bits for every dimension, or returns -1 if they are outside of size. The
+	 * result does not depend on size, so it stays valid when a matrix grows,
+	 * and sorting packed indices sorts the coordinates lexicographically. The
+	 * size must be packable.
+	 */
+	public static final long toPackedIndex(final long[] size, final long... coordinates) {
+		if (coordinates.length != size.length) {
+			return -1;
+		}
+		final int bits = packedBits(size.length);
+		long index = 0;
+		for (int i = 0; i < size.length; i++) {
+			final long c = coordinates[i];
+			if (c < 0 || c >= size[i]) {
+				return -1;
+			}
+			index = (index << bits) | c;
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the coordinates for a packed index, see
+	 * {@link #toPackedIndex(long[], long...)}.
+	 */
+	public static final long[] fromPackedIndex(final int dimensionCount, long index) {
+		final int bits = packedBits(dimensionCount);
+		final long mask = (1L << bits) - 1;
+		final long[] coordinates = new long[dimensionCount];
+		for (int i = dimensionCount - 1; i >= 0; i--) {
+			coordinates[i] = index & mask;
+			index >>>= bits;
+		}
+		return coordinates;
+	}
+
 	public static final boolean isSmallerOrEqual(final long[] coordinates, final long[] size) {
 		for (int i = coordinates.length - 1; i != -1; i--) {
 			if (coordinates[i] > size[i])
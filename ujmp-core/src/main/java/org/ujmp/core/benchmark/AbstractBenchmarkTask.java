@@ -137,6 +137,11 @@ public abstract class AbstractBenchmarkTask {
 				if (!MathUtil.isNaNOrInfinite(meanDiff)) {
 					System.out.print(" diff:" + meanDiff + " ");
 				}
+				double flops = getFlopCount(size);
+				if (flops > 0.0 && meanTime > 0.0) {
+					System.out.print(" " + MathUtil.round(flops / meanTime / 1000000.0, 3)
+							+ " GFLOP/s");
+				}
 				System.out.print(" mem:" + (int) meanMem + " Bytes ");
 				if (percentStd > config.getMaxStd()) {
 					System.out.print(" standard deviation too large, result discarded");
@@ -184,6 +189,14 @@ public abstract class AbstractBenchmarkTask {
 
 	public abstract String getTaskName();
 
+	/**
+	 * Number of floating point operations for one run of this task, used to
+	 * report GFLOP/s. Returns 0 if not applicable.
+	 */
+	public double getFlopCount(long[] size) {
+		return 0.0;
+	}
+
 	public String getMatrixLabel() {
 		return matrixClass.getSimpleName();
 	}
@@ -25,7 +25,9 @@ package org.ujmp.core.benchmark;
 
 import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
 import org.ujmp.core.util.StringUtil;
 import org.ujmp.core.util.UJMPSettings;
 
@@ -51,6 +53,11 @@ public abstract class AbstractMatrix2DBenchmark implements MatrixBenchmark {
 		return createMatrix(1, 1).getClass();
 	}
 
+	private final boolean isUJMPDenseMatrix() {
+		return DenseDoubleMatrix2D.class.isAssignableFrom(getMatrixClass())
+				&& getMatrixClass().getName().startsWith("org.ujmp.core");
+	}
+
 	public final BenchmarkConfig getConfig() {
 		return config;
 	}
@@ -123,6 +130,12 @@ public abstract class AbstractMatrix2DBenchmark implements MatrixBenchmark {
 				new MtimesBenchmarkTask(benchmarkSeed, getMatrixClass(), getConfig()).run();
 			}
 
+			// compare packed GEMM with the previous column-wise implementation
+			if (config.isRunMtimesAxpy()
+					&& HasColumnMajorDoubleArray1D.class.isAssignableFrom(getMatrixClass())) {
+				new MtimesBenchmarkTask(benchmarkSeed, getMatrixClass(), getConfig(), false).run();
+			}
+
 			if (config.isRunInv()) {
 				new InvBenchmarkTask(benchmarkSeed, getMatrixClass(), getConfig()).run();
 			}
@@ -131,6 +144,11 @@ public abstract class AbstractMatrix2DBenchmark implements MatrixBenchmark {
 				new InvSPDBenchmarkTask(benchmarkSeed, getMatrixClass(), getConfig()).run();
 			}
 
+			// compare blocked inverse with solving for the identity matrix
+			if (config.isRunInvSPD() && config.isRunInvSPDUnblocked() && isUJMPDenseMatrix()) {
+				new InvSPDBenchmarkTask(benchmarkSeed, getMatrixClass(), getConfig(), false).run();
+			}
+
 			if (config.isRunSolveSquare()) {
 				new SolveSquareBenchmarkTask(benchmarkSeed, getMatrixClass(), getConfig()).run();
 			}
@@ -147,14 +165,29 @@ public abstract class AbstractMatrix2DBenchmark implements MatrixBenchmark {
 				new EigBenchmarkTask(benchmarkSeed, getMatrixClass(), getConfig()).run();
 			}
 
+			// compare the symmetric eigensolver with the previous implementation
+			if (config.isRunEig() && config.isRunEigUnblocked() && isUJMPDenseMatrix()) {
+				new EigBenchmarkTask(benchmarkSeed, getMatrixClass(), getConfig(), false).run();
+			}
+
 			if (config.isRunChol()) {
 				new CholBenchmarkTask(benchmarkSeed, getMatrixClass(), getConfig()).run();
 			}
 
+			// compare blocked Cholesky with the previous unblocked implementation
+			if (config.isRunChol() && config.isRunCholUnblocked() && isUJMPDenseMatrix()) {
+				new CholBenchmarkTask(benchmarkSeed, getMatrixClass(), getConfig(), false).run();
+			}
+
 			if (config.isRunLU()) {
 				new LUBenchmarkTask(benchmarkSeed, getMatrixClass(), getConfig()).run();
 			}
 
+			// compare blocked LU with the previous unblocked implementation
+			if (config.isRunLU() && config.isRunLUUnblocked() && isUJMPDenseMatrix()) {
+				new LUBenchmarkTask(benchmarkSeed, getMatrixClass(), getConfig(), false).run();
+			}
+
 			if (config.isRunQR()) {
 				new QRBenchmarkTask(benchmarkSeed, getMatrixClass(), getConfig()).run();
 			}
@@ -60,14 +60,19 @@ public class BenchmarkConfig extends DefaultMapMatrix<String, Object> {
 		put("runPlusMatrix", true);
 		put("runTranspose", true);
 		put("runMtimes", true);
+		put("runMtimesAxpy", true);
 		put("runInv", true);
 		put("runInvSPD", true);
+		put("runInvSPDUnblocked", true);
 		put("runSolveSquare", true);
 		put("runSolveTall", true);
 		put("runSVD", true);
 		put("runEig", true);
+		put("runEigUnblocked", true);
 		put("runChol", false);
+		put("runCholUnblocked", true);
 		put("runLU", false);
+		put("runLUUnblocked", true);
 		put("runQR", false);
 
 		put("runDefaultDenseDoubleMatrix2D", true);
@@ -139,6 +144,14 @@ public class BenchmarkConfig extends DefaultMapMatrix<String, Object> {
 		put("runMtimes", runMtimes);
 	}
 
+	public boolean isRunMtimesAxpy() {
+		return MathUtil.getBoolean(get("runMtimesAxpy"));
+	}
+
+	public void setRunMtimesAxpy(boolean runMtimesAxpy) {
+		put("runMtimesAxpy", runMtimesAxpy);
+	}
+
 	public boolean isRunInv() {
 		return MathUtil.getBoolean(get("runInv"));
 	}
@@ -155,6 +168,14 @@ public class BenchmarkConfig extends DefaultMapMatrix<String, Object> {
 		put("runInvSPD", runInv);
 	}
 
+	public boolean isRunInvSPDUnblocked() {
+		return MathUtil.getBoolean(get("runInvSPDUnblocked"));
+	}
+
+	public void setRunInvSPDUnblocked(boolean runInvSPDUnblocked) {
+		put("runInvSPDUnblocked", runInvSPDUnblocked);
+	}
+
 	public boolean isRunSolveSquare() {
 		return MathUtil.getBoolean(get("runSolveSquare"));
 	}
@@ -195,6 +216,14 @@ public class BenchmarkConfig extends DefaultMapMatrix<String, Object> {
 		put("runEig", runEig);
 	}
 
+	public boolean isRunEigUnblocked() {
+		return MathUtil.getBoolean(get("runEigUnblocked"));
+	}
+
+	public void setRunEigUnblocked(boolean runEigUnblocked) {
+		put("runEigUnblocked", runEigUnblocked);
+	}
+
 	public boolean isRunChol() {
 		return MathUtil.getBoolean(get("runChol"));
 	}
@@ -203,6 +232,14 @@ public class BenchmarkConfig extends DefaultMapMatrix<String, Object> {
 		put("runChol", runChol);
 	}
 
+	public boolean isRunCholUnblocked() {
+		return MathUtil.getBoolean(get("runCholUnblocked"));
+	}
+
+	public void setRunCholUnblocked(boolean runCholUnblocked) {
+		put("runCholUnblocked", runCholUnblocked);
+	}
+
 	public boolean isRunLU() {
 		return MathUtil.getBoolean(get("runLU"));
 	}
@@ -211,6 +248,14 @@ public class BenchmarkConfig extends DefaultMapMatrix<String, Object> {
 		put("runLU", runLU);
 	}
 
+	public boolean isRunLUUnblocked() {
+		return MathUtil.getBoolean(get("runLUUnblocked"));
+	}
+
+	public void setRunLUUnblocked(boolean runLUUnblocked) {
+		put("runLUUnblocked", runLUUnblocked);
+	}
+
 	public boolean isRunQR() {
 		return MathUtil.getBoolean(get("runQR"));
 	}
@@ -25,13 +25,22 @@ package org.ujmp.core.benchmark;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Chol;
 import org.ujmp.core.util.SerializationUtil;
 
 public class CholBenchmarkTask extends AbstractBenchmarkTask {
 
+	private final boolean blocked;
+
 	public CholBenchmarkTask(long benchmarkSeed, Class<? extends DoubleMatrix2D> matrixClass,
 			BenchmarkConfig config) {
+		this(benchmarkSeed, matrixClass, config, true);
+	}
+
+	public CholBenchmarkTask(long benchmarkSeed, Class<? extends DoubleMatrix2D> matrixClass,
+			BenchmarkConfig config, boolean blocked) {
 		super(benchmarkSeed, matrixClass, config.getCholSizes(), config);
+		this.blocked = blocked;
 	}
 
 	@Override
@@ -52,7 +61,7 @@ public class CholBenchmarkTask extends AbstractBenchmarkTask {
 			BenchmarkUtil.purgeMemory(getConfig());
 			m0 = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
 			t0 = System.nanoTime();
-			r = m.chol();
+			r = blocked ? m.chol() : Chol.UJMPUNBLOCKED.calc(m);
 			t1 = System.nanoTime();
 			m1 = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
 			if (r == null) {
@@ -75,7 +84,13 @@ public class CholBenchmarkTask extends AbstractBenchmarkTask {
 
 	@Override
 	public String getTaskName() {
-		return "chol";
+		return blocked ? "chol" : "chol-unblocked";
+	}
+
+	@Override
+	public double getFlopCount(long[] size) {
+		final double n = size[Matrix.ROW];
+		return n * n * n / 3.0;
 	}
 
 }
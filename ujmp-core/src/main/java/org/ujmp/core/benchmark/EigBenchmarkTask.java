@@ -25,13 +25,22 @@ package org.ujmp.core.benchmark;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Eig;
 import org.ujmp.core.util.SerializationUtil;
 
 public class EigBenchmarkTask extends AbstractBenchmarkTask {
 
+	private final boolean blocked;
+
 	public EigBenchmarkTask(long benchmarkSeed, Class<? extends DoubleMatrix2D> matrixClass,
 			BenchmarkConfig config) {
+		this(benchmarkSeed, matrixClass, config, true);
+	}
+
+	public EigBenchmarkTask(long benchmarkSeed, Class<? extends DoubleMatrix2D> matrixClass,
+			BenchmarkConfig config, boolean blocked) {
 		super(benchmarkSeed, matrixClass, config.getEigSizes(), config);
+		this.blocked = blocked;
 	}
 
 	@Override
@@ -52,7 +61,7 @@ public class EigBenchmarkTask extends AbstractBenchmarkTask {
 			BenchmarkUtil.purgeMemory(getConfig());
 			m0 = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
 			t0 = System.nanoTime();
-			r = m.eig();
+			r = blocked ? m.eig() : Eig.UJMPUNBLOCKED.calc(m);
 			t1 = System.nanoTime();
 			m1 = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
 			if (r == null) {
@@ -75,7 +84,13 @@ public class EigBenchmarkTask extends AbstractBenchmarkTask {
 
 	@Override
 	public String getTaskName() {
-		return "eig";
+		return blocked ? "eig" : "eig-unblocked";
+	}
+
+	@Override
+	public double getFlopCount(long[] size) {
+		final double n = size[Matrix.ROW];
+		return 9.0 * n * n * n;
 	}
 
 }
@@ -26,13 +26,22 @@ package org.ujmp.core.benchmark;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Chol;
 import org.ujmp.core.util.SerializationUtil;
 
 public class InvSPDBenchmarkTask extends AbstractBenchmarkTask {
 
+	private final boolean blocked;
+
 	public InvSPDBenchmarkTask(long benchmarkSeed, Class<? extends DoubleMatrix2D> matrixClass,
 			BenchmarkConfig config) {
+		this(benchmarkSeed, matrixClass, config, true);
+	}
+
+	public InvSPDBenchmarkTask(long benchmarkSeed, Class<? extends DoubleMatrix2D> matrixClass,
+			BenchmarkConfig config, boolean blocked) {
 		super(benchmarkSeed, matrixClass, config.getInvSizes(), config);
+		this.blocked = blocked;
 	}
 
 	@Override
@@ -49,11 +58,12 @@ public class InvSPDBenchmarkTask extends AbstractBenchmarkTask {
 				System.out.flush();
 				return BenchmarkResult.NOTAVAILABLE;
 			}
-			BenchmarkUtil.rand(benchmarkSeed, run, 0, m);
+			BenchmarkUtil.randPositiveDefinite(benchmarkSeed, run, 0, m);
 			BenchmarkUtil.purgeMemory(getConfig());
 			m0 = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
 			t0 = System.nanoTime();
-			r = m.inv();
+			r = blocked ? m.invSPD() : Chol.UJMPUNBLOCKED.solve(m,
+					DenseDoubleMatrix2D.Factory.eye(m.getRowCount(), m.getColumnCount()));
 			t1 = System.nanoTime();
 			m1 = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
 			if (r == null) {
@@ -77,7 +87,13 @@ public class InvSPDBenchmarkTask extends AbstractBenchmarkTask {
 
 	@Override
 	public String getTaskName() {
-		return "invSPD";
+		return blocked ? "invSPD" : "invSPD-unblocked";
+	}
+
+	@Override
+	public double getFlopCount(long[] size) {
+		final double n = size[Matrix.ROW];
+		return n * n * n;
 	}
 
 }
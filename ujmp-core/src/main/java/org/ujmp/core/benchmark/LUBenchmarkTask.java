@@ -25,13 +25,22 @@ package org.ujmp.core.benchmark;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.LU;
 import org.ujmp.core.util.SerializationUtil;
 
 public class LUBenchmarkTask extends AbstractBenchmarkTask {
 
+	private final boolean blocked;
+
 	public LUBenchmarkTask(long benchmarkSeed, Class<? extends DoubleMatrix2D> matrixClass,
 			BenchmarkConfig config) {
+		this(benchmarkSeed, matrixClass, config, true);
+	}
+
+	public LUBenchmarkTask(long benchmarkSeed, Class<? extends DoubleMatrix2D> matrixClass,
+			BenchmarkConfig config, boolean blocked) {
 		super(benchmarkSeed, matrixClass, config.getLUSizes(), config);
+		this.blocked = blocked;
 	}
 
 	@Override
@@ -52,7 +61,7 @@ public class LUBenchmarkTask extends AbstractBenchmarkTask {
 			BenchmarkUtil.purgeMemory(getConfig());
 			m0 = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
 			t0 = System.nanoTime();
-			r = m.lu();
+			r = blocked ? m.lu() : LU.UJMPUNBLOCKED.calc(m);
 			t1 = System.nanoTime();
 			m1 = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
 			if (r == null) {
@@ -75,7 +84,15 @@ public class LUBenchmarkTask extends AbstractBenchmarkTask {
 
 	@Override
 	public String getTaskName() {
-		return "LU";
+		return blocked ? "LU" : "LU-unblocked";
+	}
+
+	@Override
+	public double getFlopCount(long[] size) {
+		final double m = size[Matrix.ROW];
+		final double n = size[Matrix.COLUMN];
+		final double k = Math.min(m, n);
+		return 2.0 * (m * n * k - (m + n) * k * k / 2.0 + k * k * k / 3.0);
 	}
 
 }
@@ -27,12 +27,21 @@ import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.DoubleMatrix2D;
 import org.ujmp.core.util.SerializationUtil;
+import org.ujmp.core.util.UJMPSettings;
 
 public class MtimesBenchmarkTask extends AbstractBenchmarkTask {
 
+	private final boolean usePackedGemm;
+
 	public MtimesBenchmarkTask(long benchmarkSeed, Class<? extends DoubleMatrix2D> matrixClass,
 			BenchmarkConfig config) {
+		this(benchmarkSeed, matrixClass, config, true);
+	}
+
+	public MtimesBenchmarkTask(long benchmarkSeed, Class<? extends DoubleMatrix2D> matrixClass,
+			BenchmarkConfig config, boolean usePackedGemm) {
 		super(benchmarkSeed, matrixClass, config.getMtimesSizes(), config);
+		this.usePackedGemm = usePackedGemm;
 	}
 
 	@Override
@@ -53,11 +62,17 @@ public class MtimesBenchmarkTask extends AbstractBenchmarkTask {
 			BenchmarkUtil.rand(benchmarkSeed, run, 0, m0);
 			BenchmarkUtil.rand(benchmarkSeed, run, 1, m1);
 			BenchmarkUtil.purgeMemory(getConfig());
-			e0 = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
-			t0 = System.nanoTime();
-			r = m0.mtimes(m1);
-			t1 = System.nanoTime();
-			e1 = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+			final boolean previous = UJMPSettings.getInstance().isUsePackedGemm();
+			UJMPSettings.getInstance().setUsePackedGemm(usePackedGemm);
+			try {
+				e0 = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+				t0 = System.nanoTime();
+				r = m0.mtimes(m1);
+				t1 = System.nanoTime();
+				e1 = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+			} finally {
+				UJMPSettings.getInstance().setUsePackedGemm(previous);
+			}
 			if (r == null) {
 				System.out.print("e");
 				System.out.flush();
@@ -75,7 +90,12 @@ public class MtimesBenchmarkTask extends AbstractBenchmarkTask {
 
 	@Override
 	public String getTaskName() {
-		return "mtimes";
+		return usePackedGemm ? "mtimes" : "mtimes-axpy";
+	}
+
+	@Override
+	public double getFlopCount(long[] size) {
+		return 2.0 * size[Matrix.ROW] * size[Matrix.COLUMN] * size[Matrix.ROW];
 	}
 
 }
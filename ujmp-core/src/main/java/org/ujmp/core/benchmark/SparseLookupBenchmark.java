@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ * 
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.benchmark;
+
+import java.util.Random;
+
+import org.ujmp.core.doublematrix.impl.DefaultSparseDoubleMatrix;
+import org.ujmp.core.doublematrix.impl.IndexedSparseDoubleMatrix2D;
+import org.ujmp.core.util.GCUtil;
+
+/**
+ * Compares load time, lookup time and memory of
+ * {@link IndexedSparseDoubleMatrix2D} and {@link DefaultSparseDoubleMatrix}
+ * for a large lookup table. The number of entries can be given as first
+ * argument, the default is 10 million. Run with enough heap, e.g. -Xmx4g.
+ *
+ * @author Holger Arndt
+ */
+public class SparseLookupBenchmark {
+
+	private static final long SIZE = 1000000;
+
+	private static final int LOOKUPS = 10000000;
+
+	public static void main(String[] args) throws Exception {
+		final int entries = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		final Random random = new Random(1);
+		final double[] values = new double[entries];
+		final long[] rows = new long[entries];
+		final long[] columns = new long[entries];
+		for (int i = 0; i < entries; i++) {
+			values[i] = random.nextDouble() + 1.0;
+			rows[i] = (long) (random.nextDouble() * SIZE);
+			columns[i] = (long) (random.nextDouble() * SIZE);
+		}
+		final long[] lookupRows = new long[LOOKUPS];
+		final long[] lookupColumns = new long[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			// every second lookup hits an existing entry
+			final int j = random.nextInt(entries);
+			lookupRows[i] = i % 2 == 0 ? rows[j] : (long) (random.nextDouble() * SIZE);
+			lookupColumns[i] = i % 2 == 0 ? columns[j] : (long) (random.nextDouble() * SIZE);
+		}
+
+		System.out.println(entries + " entries, " + LOOKUPS + " lookups");
+
+		long memory = usedMemory();
+		long t0 = System.nanoTime();
+		IndexedSparseDoubleMatrix2D indexed = new IndexedSparseDoubleMatrix2D(SIZE, SIZE);
+		indexed.setDoubles(values, rows, columns);
+		indexed.trimToSize();
+		long t1 = System.nanoTime();
+		long indexedMemory = usedMemory() - memory;
+		double sum = 0.0;
+		long t2 = System.nanoTime();
+		for (int i = 0; i < LOOKUPS; i++) {
+			sum += indexed.getDouble(lookupRows[i], lookupColumns[i]);
+		}
+		long t3 = System.nanoTime();
+		print("IndexedSparseDoubleMatrix2D", t1 - t0, t3 - t2, indexedMemory, sum);
+		indexed = null;
+
+		memory = usedMemory();
+		t0 = System.nanoTime();
+		DefaultSparseDoubleMatrix map = new DefaultSparseDoubleMatrix(SIZE, SIZE);
+		for (int i = 0; i < entries; i++) {
+			map.setDouble(values[i], rows[i], columns[i]);
+		}
+		t1 = System.nanoTime();
+		long mapMemory = usedMemory() - memory;
+		sum = 0.0;
+		t2 = System.nanoTime();
+		for (int i = 0; i < LOOKUPS; i++) {
+			sum += map.getDouble(lookupRows[i], lookupColumns[i]);
+		}
+		t3 = System.nanoTime();
+		print("DefaultSparseDoubleMatrix", t1 - t0, t3 - t2, mapMemory, sum);
+	}
+
+	private static long usedMemory() {
+		GCUtil.gc();
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static void print(String label, long loadTime, long lookupTime, long memory,
+			double checksum) {
+		System.out.println(label + ": load " + loadTime / 1000000 + "ms, lookup "
+				+ lookupTime / LOOKUPS + "ns/op, memory " + memory / (1024 * 1024)
+				+ "MB, checksum " + checksum);
+	}
+
+}
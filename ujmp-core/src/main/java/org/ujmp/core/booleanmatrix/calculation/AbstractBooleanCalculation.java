@@ -26,6 +26,7 @@ package org.ujmp.core.booleanmatrix.calculation;
 import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.booleanmatrix.BooleanMatrix;
+import org.ujmp.core.booleanmatrix.impl.BitSetDenseBooleanMatrix2D;
 import org.ujmp.core.booleanmatrix.impl.BooleanCalculationMatrix;
 import org.ujmp.core.calculation.AbstractCalculation;
 import org.ujmp.core.enums.ValueType;
@@ -43,6 +44,15 @@ public abstract class AbstractBooleanCalculation extends AbstractCalculation imp
 	}
 
 	public final BooleanMatrix calcNew() {
+		if (canCalcBitwise()) {
+			BitSetDenseBooleanMatrix2D result = new BitSetDenseBooleanMatrix2D(
+					(int) getSize()[ROW], (int) getSize()[COLUMN]);
+			((BitwiseBooleanCalculation) this).calcBitwise(result);
+			if (getMetaData() != null) {
+				result.setMetaData(getMetaData().clone());
+			}
+			return result;
+		}
 		BooleanMatrix result = (BooleanMatrix) Matrix.Factory.zeros(ValueType.BOOLEAN, getSize());
 		for (long[] c : result.allCoordinates()) {
 			result.setAsBoolean(getBoolean(c), c);
@@ -62,6 +72,12 @@ public abstract class AbstractBooleanCalculation extends AbstractCalculation imp
 			throw new RuntimeException(
 					"Cannot change Matrix size. Use calc(Ret.NEW) or calc(Ret.LINK) instead.");
 		}
+		if (canCalcBitwise()) {
+			((BitwiseBooleanCalculation) this)
+					.calcBitwise((BitSetDenseBooleanMatrix2D) getSource());
+			getSource().fireValueChanged();
+			return getSource();
+		}
 		for (long[] c : getSource().allCoordinates()) {
 			getSource().setAsBoolean(getBoolean(c), c);
 		}
@@ -69,6 +85,11 @@ public abstract class AbstractBooleanCalculation extends AbstractCalculation imp
 		return getSource();
 	}
 
+	private boolean canCalcBitwise() {
+		return this instanceof BitwiseBooleanCalculation
+				&& ((BitwiseBooleanCalculation) this).isBitwise();
+	}
+
 	// this method is doing nothing, but it has to be there for submatrix or
 	// selection where it is overridden
 	public void setBoolean(boolean value, long... coordinates) {
@@ -25,8 +25,10 @@ package org.ujmp.core.booleanmatrix.calculation;
 
 import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
+import org.ujmp.core.booleanmatrix.impl.BitSetDenseBooleanMatrix2D;
 
-public class And extends AbstractBooleanCalculation {
+public class And extends AbstractBooleanCalculation implements
+		BitwiseBooleanCalculation {
 	private static final long serialVersionUID = -2181584777964801120L;
 
 	public And(Matrix m1, Matrix m2) {
@@ -49,4 +51,14 @@ public class And extends AbstractBooleanCalculation {
 	public boolean getBoolean(long... coordinates) {
 		return getSource().getAsBoolean(coordinates) && getSources()[1].getAsBoolean(coordinates);
 	}
+
+	public boolean isBitwise() {
+		return getSource() instanceof BitSetDenseBooleanMatrix2D
+				&& getSources()[1] instanceof BitSetDenseBooleanMatrix2D;
+	}
+
+	public void calcBitwise(BitSetDenseBooleanMatrix2D target) {
+		((BitSetDenseBooleanMatrix2D) getSource()).and(
+				(BitSetDenseBooleanMatrix2D) getSources()[1], target);
+	}
 }
@@ -24,8 +24,10 @@
 package org.ujmp.core.booleanmatrix.calculation;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.booleanmatrix.impl.BitSetDenseBooleanMatrix2D;
 
-public class Not extends AbstractBooleanCalculation {
+public class Not extends AbstractBooleanCalculation implements
+		BitwiseBooleanCalculation {
 	private static final long serialVersionUID = -6064819896020842750L;
 
 	public Not(Matrix m) {
@@ -35,4 +37,12 @@ public class Not extends AbstractBooleanCalculation {
 	public boolean getBoolean(long... coordinates) {
 		return !getSource().getAsBoolean(coordinates);
 	}
+
+	public boolean isBitwise() {
+		return getSource() instanceof BitSetDenseBooleanMatrix2D;
+	}
+
+	public void calcBitwise(BitSetDenseBooleanMatrix2D target) {
+		((BitSetDenseBooleanMatrix2D) getSource()).not(target);
+	}
 }
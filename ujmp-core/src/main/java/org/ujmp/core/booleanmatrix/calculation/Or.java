@@ -25,8 +25,10 @@ package org.ujmp.core.booleanmatrix.calculation;
 
 import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
+import org.ujmp.core.booleanmatrix.impl.BitSetDenseBooleanMatrix2D;
 
-public class Or extends AbstractBooleanCalculation {
+public class Or extends AbstractBooleanCalculation implements
+		BitwiseBooleanCalculation {
 	private static final long serialVersionUID = 4471028292294535432L;
 
 	public Or(Matrix m1, Matrix m2) {
@@ -49,4 +51,14 @@ public class Or extends AbstractBooleanCalculation {
 	public boolean getBoolean(long... coordinates) {
 		return getSource().getAsBoolean(coordinates) || getSources()[1].getAsBoolean(coordinates);
 	}
+
+	public boolean isBitwise() {
+		return getSource() instanceof BitSetDenseBooleanMatrix2D
+				&& getSources()[1] instanceof BitSetDenseBooleanMatrix2D;
+	}
+
+	public void calcBitwise(BitSetDenseBooleanMatrix2D target) {
+		((BitSetDenseBooleanMatrix2D) getSource()).or(
+				(BitSetDenseBooleanMatrix2D) getSources()[1], target);
+	}
 }
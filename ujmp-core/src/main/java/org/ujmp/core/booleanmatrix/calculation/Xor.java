@@ -25,9 +25,11 @@ package org.ujmp.core.booleanmatrix.calculation;
 
 import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
+import org.ujmp.core.booleanmatrix.impl.BitSetDenseBooleanMatrix2D;
 import org.ujmp.core.util.MathUtil;
 
-public class Xor extends AbstractBooleanCalculation {
+public class Xor extends AbstractBooleanCalculation implements
+		BitwiseBooleanCalculation {
 	private static final long serialVersionUID = -6373580510308593463L;
 
 	public Xor(Matrix m1, Matrix m2) {
@@ -51,4 +53,14 @@ public class Xor extends AbstractBooleanCalculation {
 		return MathUtil.xor(getSource().getAsBoolean(coordinates),
 				getSources()[1].getAsBoolean(coordinates));
 	}
+
+	public boolean isBitwise() {
+		return getSource() instanceof BitSetDenseBooleanMatrix2D
+				&& getSources()[1] instanceof BitSetDenseBooleanMatrix2D;
+	}
+
+	public void calcBitwise(BitSetDenseBooleanMatrix2D target) {
+		((BitSetDenseBooleanMatrix2D) getSource()).xor(
+				(BitSetDenseBooleanMatrix2D) getSources()[1], target);
+	}
 }
@@ -23,22 +23,60 @@
 
 package org.ujmp.core.booleanmatrix.impl;
 
-import java.util.BitSet;
-
+import org.ujmp.core.Matrix;
 import org.ujmp.core.booleanmatrix.stub.AbstractDenseBooleanMatrix2D;
+import org.ujmp.core.calculation.Calculation;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.interfaces.HasRowMajorDoubleArray2D;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+import org.ujmp.core.util.concurrent.RangeTask;
+import org.ujmp.core.util.concurrent.UJMPScheduler;
 
+/**
+ * Dense boolean matrix storing 64 entries in one <code>long</code>. The bits
+ * are stored column by column and every column starts at a new word, so that
+ * logical operations, counting and multiplication work on whole words.
+ *
+ * @author Holger Arndt
+ */
 public class BitSetDenseBooleanMatrix2D extends AbstractDenseBooleanMatrix2D {
 	private static final long serialVersionUID = -6441956386757378833L;
 
-	private final BitSet values;
-	private final long rows;
-	private final long columns;
+	/**
+	 * Minimum number of words for which a multiplication or closure is
+	 * executed in several threads.
+	 */
+	public static int PARALLELTHRESHOLD = 1 << 12;
+
+	private final long[] words;
+	private final int rows;
+	private final int columns;
+	private final int wordsPerColumn;
 
 	public BitSetDenseBooleanMatrix2D(int rows, int columns) {
 		super(rows, columns);
 		this.rows = rows;
 		this.columns = columns;
-		values = new BitSet(rows * columns);
+		this.wordsPerColumn = (rows + 63) >>> 6;
+		final long length = (long) wordsPerColumn * columns;
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("matrix is too large");
+		}
+		words = new long[(int) length];
+	}
+
+	public BitSetDenseBooleanMatrix2D(Matrix m) {
+		this((int) m.getRowCount(), (int) m.getColumnCount());
+		for (long[] c : m.availableCoordinates()) {
+			if (m.getAsBoolean(c)) {
+				setBoolean(true, c[ROW], c[COLUMN]);
+			}
+		}
+		if (m.getMetaData() != null) {
+			setMetaData(m.getMetaData().clone());
+		}
 	}
 
 	public boolean getBoolean(long row, long column) {
@@ -46,7 +84,23 @@ public class BitSetDenseBooleanMatrix2D extends AbstractDenseBooleanMatrix2D {
 	}
 
 	public boolean getBoolean(int row, int column) {
-		return values.get((int) (column * rows + row));
+		return (words[column * wordsPerColumn + (row >>> 6)] & (1L << row)) != 0;
+	}
+
+	/**
+	 * Returns the number of words which hold the bits of one column.
+	 */
+	final int getWordsPerColumn() {
+		return wordsPerColumn;
+	}
+
+	/**
+	 * Returns the bits of the rows <code>64 * word</code> to
+	 * <code>64 * word + 63</code> in a column, the lowest bit is the first
+	 * row.
+	 */
+	final long getWord(int column, int word) {
+		return words[column * wordsPerColumn + word];
 	}
 
 	public void setBoolean(boolean value, long row, long column) {
@@ -54,7 +108,260 @@ public class BitSetDenseBooleanMatrix2D extends AbstractDenseBooleanMatrix2D {
 	}
 
 	public void setBoolean(boolean value, int row, int column) {
-		values.set((int) (column * rows + row), value);
+		if (value) {
+			words[column * wordsPerColumn + (row >>> 6)] |= 1L << row;
+		} else {
+			words[column * wordsPerColumn + (row >>> 6)] &= ~(1L << row);
+		}
+	}
+
+	/**
+	 * Computes <code>this AND m</code> word by word and stores it in target,
+	 * which may be this or m.
+	 */
+	public BitSetDenseBooleanMatrix2D and(BitSetDenseBooleanMatrix2D m,
+			BitSetDenseBooleanMatrix2D target) {
+		verifySameSize(m, target);
+		final long[] a = words;
+		final long[] b = m.words;
+		final long[] t = target.words;
+		for (int i = t.length - 1; i != -1; i--) {
+			t[i] = a[i] & b[i];
+		}
+		return target;
+	}
+
+	/**
+	 * Computes <code>this OR m</code> word by word and stores it in target,
+	 * which may be this or m.
+	 */
+	public BitSetDenseBooleanMatrix2D or(BitSetDenseBooleanMatrix2D m,
+			BitSetDenseBooleanMatrix2D target) {
+		verifySameSize(m, target);
+		final long[] a = words;
+		final long[] b = m.words;
+		final long[] t = target.words;
+		for (int i = t.length - 1; i != -1; i--) {
+			t[i] = a[i] | b[i];
+		}
+		return target;
+	}
+
+	/**
+	 * Computes <code>this XOR m</code> word by word and stores it in target,
+	 * which may be this or m.
+	 */
+	public BitSetDenseBooleanMatrix2D xor(BitSetDenseBooleanMatrix2D m,
+			BitSetDenseBooleanMatrix2D target) {
+		verifySameSize(m, target);
+		final long[] a = words;
+		final long[] b = m.words;
+		final long[] t = target.words;
+		for (int i = t.length - 1; i != -1; i--) {
+			t[i] = a[i] ^ b[i];
+		}
+		return target;
+	}
+
+	/**
+	 * Computes <code>NOT this</code> word by word and stores it in target,
+	 * which may be this.
+	 */
+	public BitSetDenseBooleanMatrix2D not(BitSetDenseBooleanMatrix2D target) {
+		verifySameSize(this, target);
+		final long[] a = words;
+		final long[] t = target.words;
+		// the unused bits at the end of each column stay 0
+		final long lastMask = rows % 64 == 0 ? -1L : (1L << rows) - 1;
+		for (int i = t.length - 1; i != -1; i--) {
+			t[i] = ~a[i];
+		}
+		if (wordsPerColumn > 0) {
+			for (int i = wordsPerColumn - 1; i < t.length; i += wordsPerColumn) {
+				t[i] &= lastMask;
+			}
+		}
+		return target;
+	}
+
+	/**
+	 * Counts the true entries along the given dimension, like
+	 * <code>sum(Ret.NEW, dimension, false)</code>.
+	 */
+	public DoubleMatrix2D countTrue(int dimension) {
+		switch (dimension) {
+		case Calculation.ROW: {
+			final DoubleMatrix2D result = DoubleMatrix2D.Factory.zeros(1, columns);
+			for (int c = 0; c < columns; c++) {
+				int count = 0;
+				for (int w = c * wordsPerColumn, end = w + wordsPerColumn; w < end; w++) {
+					count += Long.bitCount(words[w]);
+				}
+				result.setDouble(count, 0, c);
+			}
+			return result;
+		}
+		case Calculation.COLUMN: {
+			final int[] counts = new int[rows];
+			for (int c = 0; c < columns; c++) {
+				for (int w = 0; w < wordsPerColumn; w++) {
+					long word = words[c * wordsPerColumn + w];
+					while (word != 0) {
+						counts[(w << 6) + Long.numberOfTrailingZeros(word)]++;
+						word &= word - 1;
+					}
+				}
+			}
+			final DoubleMatrix2D result = DoubleMatrix2D.Factory.zeros(rows, 1);
+			for (int r = 0; r < rows; r++) {
+				result.setDouble(counts[r], r, 0);
+			}
+			return result;
+		}
+		case Calculation.ALL: {
+			long count = 0;
+			for (int i = words.length - 1; i != -1; i--) {
+				count += Long.bitCount(words[i]);
+			}
+			final DoubleMatrix2D result = DoubleMatrix2D.Factory.zeros(1, 1);
+			result.setDouble(count, 0, 0);
+			return result;
+		}
+		default:
+			throw new RuntimeException("dimension not supported: " + dimension);
+		}
+	}
+
+	/**
+	 * Boolean matrix product: an entry of the result is true if row i of this
+	 * and column j of m have a common true entry. Column j of the result is
+	 * the OR of the columns of this selected by column j of m.
+	 */
+	public BitSetDenseBooleanMatrix2D booleanProduct(final BitSetDenseBooleanMatrix2D m) {
+		if (columns != m.rows) {
+			throw new RuntimeException("matrices have wrong sizes");
+		}
+		final BitSetDenseBooleanMatrix2D result = new BitSetDenseBooleanMatrix2D(rows, m.columns);
+		final long[] a = words;
+		final long[] b = m.words;
+		final long[] c = result.words;
+		final int wpc = wordsPerColumn;
+		final int bwpc = m.wordsPerColumn;
+		new PFor(getThreads((long) wpc * m.columns), 0, m.columns - 1) {
+
+			@Override
+			public void step(int j) {
+				final int target = j * wpc;
+				for (int w = 0; w < bwpc; w++) {
+					long word = b[j * bwpc + w];
+					while (word != 0) {
+						final int k = (w << 6) + Long.numberOfTrailingZeros(word);
+						word &= word - 1;
+						for (int i = 0, source = k * wpc; i < wpc; i++) {
+							c[target + i] |= a[source + i];
+						}
+					}
+				}
+			}
+		};
+		return result;
+	}
+
+	/**
+	 * Counts the common true entries of the rows of this and the columns of
+	 * m, which is the numeric product of both matrices. The rows of this are
+	 * packed into words first, every entry of the result is then computed
+	 * with <code>Long.bitCount</code>. The rows are computed in parallel only
+	 * if the target stores its entries in an array.
+	 */
+	public void countProduct(final BitSetDenseBooleanMatrix2D m, final Matrix target) {
+		if (columns != m.rows || target.getRowCount() != rows
+				|| target.getColumnCount() != m.columns) {
+			throw new RuntimeException("matrices have wrong sizes");
+		}
+		final int wordsPerRow = m.wordsPerColumn;
+		final long[] packedRows = new long[rows * wordsPerRow];
+		for (int c = 0; c < columns; c++) {
+			for (int w = 0; w < wordsPerColumn; w++) {
+				long word = words[c * wordsPerColumn + w];
+				while (word != 0) {
+					final int r = (w << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+					packedRows[r * wordsPerRow + (c >>> 6)] |= 1L << c;
+				}
+			}
+		}
+		final long[] b = m.words;
+		final boolean arrayBacked = target instanceof HasColumnMajorDoubleArray1D
+				|| target instanceof HasRowMajorDoubleArray2D;
+		final int threads = arrayBacked ? getThreads((long) rows * m.columns * wordsPerRow) : 1;
+		new PFor(threads, 0, rows - 1) {
+
+			@Override
+			public void step(int i) {
+				final int row = i * wordsPerRow;
+				for (int j = 0; j < m.columns; j++) {
+					final int column = j * wordsPerRow;
+					int count = 0;
+					for (int w = 0; w < wordsPerRow; w++) {
+						count += Long.bitCount(packedRows[row + w] & b[column + w]);
+					}
+					target.setAsDouble(count, i, j);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns the transitive closure: an entry (i, j) is true if j can be
+	 * reached from i along one or more true entries. Uses Warshall's
+	 * algorithm on whole columns: for every k, each column j with an entry in
+	 * row k is combined with column k. Every step depends on the previous
+	 * one, so only the columns of one step are processed in parallel.
+	 */
+	public BitSetDenseBooleanMatrix2D transitiveClosure() {
+		if (rows != columns) {
+			throw new RuntimeException("matrix must be square");
+		}
+		final BitSetDenseBooleanMatrix2D result = new BitSetDenseBooleanMatrix2D(rows, columns);
+		System.arraycopy(words, 0, result.words, 0, words.length);
+		final long[] r = result.words;
+		final int wpc = wordsPerColumn;
+		final int threads = getThreads(r.length);
+		final int[] pivot = new int[1];
+		final RangeTask step = new RangeTask() {
+
+			public void run(int start, int end) {
+				final int k = pivot[0];
+				final int kWord = k >>> 6;
+				final long kBit = 1L << k;
+				final int kColumn = k * wpc;
+				for (int column = start * wpc; column < end * wpc; column += wpc) {
+					if (column != kColumn && (r[column + kWord] & kBit) != 0) {
+						for (int w = 0; w < wpc; w++) {
+							r[column + w] |= r[kColumn + w];
+						}
+					}
+				}
+			}
+		};
+		for (int k = 0; k < columns; k++) {
+			pivot[0] = k;
+			UJMPScheduler.parallelFor(0, columns, threads, step);
+		}
+		return result;
+	}
+
+	private final int getThreads(long words) {
+		return words < PARALLELTHRESHOLD ? 1 : UJMPSettings.getInstance().getNumberOfThreads();
+	}
+
+	private final void verifySameSize(BitSetDenseBooleanMatrix2D m,
+			BitSetDenseBooleanMatrix2D target) {
+		if (rows != m.rows || columns != m.columns || rows != target.rows
+				|| columns != target.columns) {
+			throw new RuntimeException("matrices have different sizes");
+		}
 	}
 
 }
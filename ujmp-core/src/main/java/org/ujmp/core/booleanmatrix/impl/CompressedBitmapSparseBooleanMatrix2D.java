@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.booleanmatrix.impl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.booleanmatrix.stub.AbstractSparseBooleanMatrix2D;
+import org.ujmp.core.collections.set.CompressedBitmap;
+
+/**
+ * Sparse boolean matrix which stores the true columns of every row in a
+ * {@link CompressedBitmap}. Empty rows take no memory except for one
+ * reference, set-membership data with a low density takes about two bytes
+ * per true entry. Rows can be combined and counted without touching single
+ * entries.
+ * <p>
+ * A row can be used as mask for selecting or deleting the columns of another
+ * matrix, e.g. <code>mask.selectMaskedColumns(Ret.NEW, matrix, 0)</code>, a
+ * column as mask for its rows. The indices are read from the bitmap in
+ * ascending order, so no index set has to be built.
+ *
+ * @author Holger Arndt
+ */
+public class CompressedBitmapSparseBooleanMatrix2D extends AbstractSparseBooleanMatrix2D {
+	private static final long serialVersionUID = 3150409335281466734L;
+
+	private final CompressedBitmap[] rows;
+
+	public CompressedBitmapSparseBooleanMatrix2D(long rows, long columns) {
+		super(rows, columns);
+		if (rows > Integer.MAX_VALUE || columns > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("matrix is too large");
+		}
+		this.rows = new CompressedBitmap[(int) rows];
+	}
+
+	public CompressedBitmapSparseBooleanMatrix2D(Matrix m) {
+		this(m.getRowCount(), m.getColumnCount());
+		if (m instanceof BitSetDenseBooleanMatrix2D) {
+			final BitSetDenseBooleanMatrix2D b = (BitSetDenseBooleanMatrix2D) m;
+			// column by column, so that every row is filled in ascending order
+			final int columns = (int) b.getColumnCount();
+			final int wordsPerColumn = b.getWordsPerColumn();
+			for (int c = 0; c < columns; c++) {
+				for (int w = 0; w < wordsPerColumn; w++) {
+					long word = b.getWord(c, w);
+					while (word != 0) {
+						final int r = (w << 6) + Long.numberOfTrailingZeros(word);
+						word &= word - 1;
+						getOrCreateRow(r).add(c);
+					}
+				}
+			}
+		} else {
+			for (long[] c : m.availableCoordinates()) {
+				if (m.getAsBoolean(c)) {
+					setBoolean(true, c[ROW], c[COLUMN]);
+				}
+			}
+		}
+		if (m.getMetaData() != null) {
+			setMetaData(m.getMetaData().clone());
+		}
+	}
+
+	private final boolean isInside(long row, long column) {
+		return row >= 0 && row < rows.length && column >= 0 && column < getColumnCount();
+	}
+
+	private final CompressedBitmap getOrCreateRow(int row) {
+		CompressedBitmap bitmap = rows[row];
+		if (bitmap == null) {
+			bitmap = new CompressedBitmap();
+			rows[row] = bitmap;
+		}
+		return bitmap;
+	}
+
+	public boolean getBoolean(long row, long column) {
+		if (!isInside(row, column)) {
+			return false;
+		}
+		final CompressedBitmap bitmap = rows[(int) row];
+		return bitmap != null && bitmap.contains((int) column);
+	}
+
+	public boolean getBoolean(int row, int column) {
+		return getBoolean((long) row, (long) column);
+	}
+
+	/**
+	 * Stores a value. Coordinates outside the matrix are ignored.
+	 */
+	public void setBoolean(boolean value, long row, long column) {
+		if (!isInside(row, column)) {
+			return;
+		}
+		if (value) {
+			getOrCreateRow((int) row).add((int) column);
+		} else {
+			final CompressedBitmap bitmap = rows[(int) row];
+			if (bitmap != null) {
+				bitmap.remove((int) column);
+				if (bitmap.isEmpty()) {
+					rows[(int) row] = null;
+				}
+			}
+		}
+	}
+
+	public void setBoolean(boolean value, int row, int column) {
+		setBoolean(value, (long) row, (long) column);
+	}
+
+	/**
+	 * Returns the bitmap of a row, which is empty for rows without true
+	 * entries. Changes of the returned bitmap are not written back.
+	 */
+	public CompressedBitmap getRow(long row) {
+		final CompressedBitmap bitmap = rows[(int) row];
+		return bitmap == null ? new CompressedBitmap() : bitmap.clone();
+	}
+
+	/**
+	 * Replaces a row. Columns outside the matrix are not allowed.
+	 */
+	public void setRow(long row, CompressedBitmap bitmap) {
+		final int[] columns = bitmap.toArray();
+		if (columns.length > 0 && columns[columns.length - 1] >= getColumnCount()) {
+			throw new IllegalArgumentException("column is outside the matrix");
+		}
+		rows[(int) row] = bitmap.isEmpty() ? null : bitmap.clone();
+	}
+
+	public CompressedBitmap rowUnion(long row1, long row2) {
+		return CompressedBitmap.or(getRowOrEmpty(row1), getRowOrEmpty(row2));
+	}
+
+	public CompressedBitmap rowIntersection(long row1, long row2) {
+		return CompressedBitmap.and(getRowOrEmpty(row1), getRowOrEmpty(row2));
+	}
+
+	/**
+	 * Returns the number of columns which are true in both rows.
+	 */
+	public int rowIntersectionCount(long row1, long row2) {
+		return CompressedBitmap.andCardinality(getRowOrEmpty(row1), getRowOrEmpty(row2));
+	}
+
+	public int getRowCardinality(long row) {
+		final CompressedBitmap bitmap = rows[(int) row];
+		return bitmap == null ? 0 : bitmap.cardinality();
+	}
+
+	/**
+	 * Returns the number of true entries in the matrix.
+	 */
+	public long getCardinality() {
+		long cardinality = 0;
+		for (CompressedBitmap bitmap : rows) {
+			if (bitmap != null) {
+				cardinality += bitmap.cardinality();
+			}
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Returns the columns which are true in this row, in ascending order.
+	 */
+	public long[] getColumnIndices(long row) {
+		final int[] columns = getRowOrEmpty(row).toArray();
+		final long[] indices = new long[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			indices[i] = columns[i];
+		}
+		return indices;
+	}
+
+	/**
+	 * Returns the rows which are true in this column, in ascending order.
+	 */
+	public long[] getRowIndices(long column) {
+		int count = 0;
+		for (int r = 0; r < rows.length; r++) {
+			if (rows[r] != null && rows[r].contains((int) column)) {
+				count++;
+			}
+		}
+		final long[] indices = new long[count];
+		count = 0;
+		for (int r = 0; r < rows.length; r++) {
+			if (rows[r] != null && rows[r].contains((int) column)) {
+				indices[count++] = r;
+			}
+		}
+		return indices;
+	}
+
+	/**
+	 * Returns the columns of source for which this row is true.
+	 */
+	public Matrix selectMaskedColumns(Ret returnType, Matrix source, long row) {
+		verifyMaskLength(source.getColumnCount(), getColumnCount());
+		return source.selectColumns(returnType, getColumnIndices(row));
+	}
+
+	/**
+	 * Returns the columns of source for which this row is false.
+	 */
+	public Matrix deleteMaskedColumns(Ret returnType, Matrix source, long row) {
+		verifyMaskLength(source.getColumnCount(), getColumnCount());
+		return source.selectColumns(returnType,
+				complement(getColumnIndices(row), getColumnCount()));
+	}
+
+	/**
+	 * Returns the rows of source for which this column is true.
+	 */
+	public Matrix selectMaskedRows(Ret returnType, Matrix source, long column) {
+		verifyMaskLength(source.getRowCount(), getRowCount());
+		return source.selectRows(returnType, getRowIndices(column));
+	}
+
+	/**
+	 * Returns the rows of source for which this column is false.
+	 */
+	public Matrix deleteMaskedRows(Ret returnType, Matrix source, long column) {
+		verifyMaskLength(source.getRowCount(), getRowCount());
+		return source.selectRows(returnType, complement(getRowIndices(column), getRowCount()));
+	}
+
+	private static final void verifyMaskLength(long length, long maskLength) {
+		if (length != maskLength) {
+			throw new IllegalArgumentException("mask has " + maskLength
+					+ " entries, but the matrix has " + length);
+		}
+	}
+
+	// all indices from 0 to count - 1 which are not in the ascending array
+	private static final long[] complement(long[] indices, long count) {
+		final long[] result = new long[(int) count - indices.length];
+		int pos = 0;
+		int next = 0;
+		for (long i = 0; i < count; i++) {
+			if (pos < indices.length && indices[pos] == i) {
+				pos++;
+			} else {
+				result[next++] = i;
+			}
+		}
+		return result;
+	}
+
+	public BitSetDenseBooleanMatrix2D toBitSetDenseBooleanMatrix2D() {
+		final BitSetDenseBooleanMatrix2D result = new BitSetDenseBooleanMatrix2D(rows.length,
+				(int) getColumnCount());
+		for (int r = 0; r < rows.length; r++) {
+			if (rows[r] != null) {
+				for (int c : rows[r].toArray()) {
+					result.setBoolean(true, r, c);
+				}
+			}
+		}
+		if (getMetaData() != null) {
+			result.setMetaData(getMetaData().clone());
+		}
+		return result;
+	}
+
+	private final CompressedBitmap getRowOrEmpty(long row) {
+		final CompressedBitmap bitmap = rows[(int) row];
+		return bitmap == null ? new CompressedBitmap() : bitmap;
+	}
+
+	public final void clear() {
+		for (int r = 0; r < rows.length; r++) {
+			rows[r] = null;
+		}
+	}
+
+	public boolean containsCoordinates(long... coordinates) {
+		return getBoolean(coordinates[ROW], coordinates[COLUMN]);
+	}
+
+	/**
+	 * Returns the coordinates of all true entries in row-major order. Each
+	 * call of next() returns a new array.
+	 */
+	public Iterable<long[]> availableCoordinates() {
+		return new Iterable<long[]>() {
+
+			public Iterator<long[]> iterator() {
+				return new Iterator<long[]>() {
+					private int row = -1;
+
+					private int[] columns = new int[0];
+
+					private int pos = 0;
+
+					public boolean hasNext() {
+						while (pos == columns.length) {
+							do {
+								row++;
+							} while (row < rows.length && rows[row] == null);
+							if (row >= rows.length) {
+								return false;
+							}
+							columns = rows[row].toArray();
+							pos = 0;
+						}
+						return true;
+					}
+
+					public long[] next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return new long[] { row, columns[pos++] };
+					}
+
+					public void remove() {
+						throw new RuntimeException("cannot modify matrix");
+					}
+				};
+			}
+		};
+	}
+
+}
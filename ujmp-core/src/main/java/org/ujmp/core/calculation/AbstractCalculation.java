@@ -25,15 +25,39 @@ package org.ujmp.core.calculation;
 
 import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.impl.DoubleCalculationMatrix;
+import org.ujmp.core.interfaces.HasColumnMajorCharArray1D;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.interfaces.HasFloatArray;
+import org.ujmp.core.interfaces.HasIntArray;
+import org.ujmp.core.interfaces.HasLongArray;
+import org.ujmp.core.interfaces.HasObjectArray;
+import org.ujmp.core.interfaces.HasRowMajorDoubleArray2D;
+import org.ujmp.core.interfaces.HasShortArray;
+import org.ujmp.core.interfaces.HasStringArray;
+import org.ujmp.core.longmatrix.impl.LongCalculationMatrix;
 import org.ujmp.core.mapmatrix.MapMatrix;
+import org.ujmp.core.objectmatrix.impl.ObjectCalculationMatrix;
+import org.ujmp.core.stringmatrix.impl.StringCalculationMatrix;
 import org.ujmp.core.util.CoordinateIterator;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+import org.ujmp.core.util.concurrent.UJMPScheduler;
 
 public abstract class AbstractCalculation implements Calculation {
 
 	private static final long serialVersionUID = -36063772015381070L;
 
+	/**
+	 * Minimum number of entries per thread when a calculation is materialized
+	 * with calcNew() or calcOrig().
+	 */
+	public static int PARALLELTHRESHOLD = 1 << 16;
+
 	private final Matrix[] sources;
 
+	private int threadCount = 0;
+
 	private int dimension = NONE;
 
 	private MapMatrix<String, Object> annotation = null;
@@ -89,14 +113,151 @@ public abstract class AbstractCalculation implements Calculation {
 		return getSource().getColumnCount();
 	}
 
+	/**
+	 * Sets the maximum number of threads for this calculation, instead of the
+	 * number from UJMPSettings. Only calculations which implement
+	 * {@link CanUseMultipleThreads} use more than one thread. Inside
+	 * {@link #calc(Ret)}, the limit also applies to all parallel operations
+	 * which the calculation starts, see {@link UJMPScheduler#setThreadBudget(int)}.
+	 * 
+	 * @param threadCount
+	 *            maximum number of threads, 0 to use the default
+	 * @return this calculation
+	 */
+	public Calculation useThreads(int threadCount) {
+		this.threadCount = threadCount;
+		return this;
+	}
+
+	public int getThreadCount() {
+		return threadCount > 0 ? threadCount : UJMPSettings.getInstance().getNumberOfThreads();
+	}
+
+	/**
+	 * Returns true if the entries can be computed from several threads at the
+	 * same time. Computing an entry must not change any state and may only
+	 * read the same entry of the sources, so that the calculation also works
+	 * in place. Calculations declare this by implementing
+	 * {@link CanUseMultipleThreads}.
+	 */
+	public boolean isThreadSafe() {
+		return this instanceof CanUseMultipleThreads;
+	}
+
+	/**
+	 * Computes all entries of a two-dimensional target with
+	 * {@link #calcTile(Matrix, long, long, long, long)}. Thread-safe
+	 * calculations are split into tiles of columns, or rows for row-major
+	 * targets, which are computed in parallel if the target is large enough,
+	 * the target stores its entries in an array and all sources can be read
+	 * from several threads.
+	 */
+	protected final void calcTiles(final Matrix target) {
+		final long rows = target.getRowCount();
+		final long columns = target.getColumnCount();
+		final int maxThreads = getThreadCount();
+		final boolean byColumns = !(target instanceof HasRowMajorDoubleArray2D)
+				&& columns >= Math.min(rows, maxThreads);
+		final long length = byColumns ? columns : rows;
+		final int threads;
+		if (maxThreads > 1 && isThreadSafe() && isArrayBacked(target) && hasThreadSafeSources()) {
+			final long cells = rows * columns;
+			threads = (int) Math.min(Math.min(maxThreads, length), cells / Math.max(1, PARALLELTHRESHOLD));
+		} else {
+			threads = 1;
+		}
+		if (threads < 2) {
+			calcTile(target, 0, rows, 0, columns);
+		} else {
+			new PFor(threads, 0, threads - 1) {
+
+				@Override
+				public void step(int i) {
+					final long start = length * i / threads;
+					final long end = length * (i + 1) / threads;
+					if (byColumns) {
+						calcTile(target, 0, rows, start, end);
+					} else {
+						calcTile(target, start, end, 0, columns);
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Computes the entries from <code>startRow</code> to <code>endRow</code>
+	 * and from <code>startColumn</code> to <code>endColumn</code> (both
+	 * exclusive) into the target. Calculations which use
+	 * {@link #calcTiles(Matrix)} must override this method.
+	 */
+	protected void calcTile(Matrix target, long startRow, long endRow, long startColumn,
+			long endColumn) {
+		throw new RuntimeException("not implemented for " + getClass().getSimpleName());
+	}
+
+	/**
+	 * Returns true if all sources can be read from several threads at the same
+	 * time, i.e. they store their entries in an array or they are linked to
+	 * thread-safe calculations on such sources.
+	 */
+	private boolean hasThreadSafeSources() {
+		for (Matrix source : sources) {
+			if (!isThreadSafeSource(source)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isThreadSafeSource(Matrix source) {
+		if (isArrayBacked(source)) {
+			return true;
+		}
+		final Calculation calculation;
+		if (source instanceof DoubleCalculationMatrix) {
+			calculation = ((DoubleCalculationMatrix) source).getCalculation();
+		} else if (source instanceof ObjectCalculationMatrix) {
+			calculation = ((ObjectCalculationMatrix) source).getCalculation();
+		} else if (source instanceof StringCalculationMatrix) {
+			calculation = ((StringCalculationMatrix) source).getCalculation();
+		} else if (source instanceof LongCalculationMatrix) {
+			calculation = ((LongCalculationMatrix) source).getCalculation();
+		} else {
+			return false;
+		}
+		return calculation instanceof AbstractCalculation
+				&& ((AbstractCalculation) calculation).isThreadSafe()
+				&& ((AbstractCalculation) calculation).hasThreadSafeSources();
+	}
+
+	/**
+	 * Returns true if the matrix stores its entries in an array, so that
+	 * different entries can be written from different threads.
+	 */
+	private static boolean isArrayBacked(Matrix matrix) {
+		return matrix instanceof HasColumnMajorDoubleArray1D
+				|| matrix instanceof HasRowMajorDoubleArray2D || matrix instanceof HasObjectArray
+				|| matrix instanceof HasStringArray || matrix instanceof HasLongArray
+				|| matrix instanceof HasIntArray || matrix instanceof HasShortArray
+				|| matrix instanceof HasFloatArray || matrix instanceof HasColumnMajorCharArray1D;
+	}
+
 	public final Matrix calc(Ret returnType) {
-		switch (returnType) {
-		case ORIG:
-			return calcOrig();
-		case LINK:
+		if (returnType == Ret.LINK) {
 			return calcLink();
-		default: // must be NEW
-			return calcNew();
+		}
+		final int budget = threadCount > 0 ? UJMPScheduler.setThreadBudget(threadCount) : 0;
+		try {
+			if (returnType == Ret.ORIG) {
+				return calcOrig();
+			} else {
+				return calcNew();
+			}
+		} finally {
+			if (threadCount > 0) {
+				UJMPScheduler.setThreadBudget(budget);
+			}
 		}
 	}
 
@@ -29,25 +29,31 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 
 import org.ujmp.core.DenseMatrix;
 import org.ujmp.core.DenseMatrix2D;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.booleanmatrix.impl.BitSetDenseBooleanMatrix2D;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.AbstractCompressedSparseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.impl.BlockDenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.impl.BlockMatrixLayout;
 import org.ujmp.core.doublematrix.impl.BlockMatrixLayout.BlockOrder;
 import org.ujmp.core.doublematrix.impl.BlockMultiply;
+import org.ujmp.core.doublematrix.impl.PackedGemm;
+import org.ujmp.core.doublematrix.impl.RowMajorGemm;
+import org.ujmp.core.doublematrix.impl.StrassenMultiply;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
 import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
 import org.ujmp.core.interfaces.HasRowMajorDoubleArray2D;
 import org.ujmp.core.util.AbstractPlugin;
+import org.ujmp.core.util.Autotuner;
 import org.ujmp.core.util.UJMPSettings;
 import org.ujmp.core.util.VerifyUtil;
 import org.ujmp.core.util.concurrent.PFor;
-import org.ujmp.core.util.concurrent.UJMPThreadPoolExecutor;
+import org.ujmp.core.util.concurrent.RangeTask;
+import org.ujmp.core.util.concurrent.UJMPScheduler;
 
 public class Mtimes {
 	public static int THRESHOLD = 100;
@@ -58,7 +64,14 @@ public class Mtimes {
 
 	public static final MtimesCalculation<DenseMatrix2D, DenseMatrix2D, DenseMatrix2D> DENSEMATRIX2D = new MtimesDenseMatrix2D();
 
-	public static final MtimesCalculation<DenseDoubleMatrix2D, DenseDoubleMatrix2D, DenseDoubleMatrix2D> DENSEDOUBLEMATRIX2D = new MtimesDenseDoubleMatrix2D();
+	public static final MtimesCalculation<DenseDoubleMatrix2D, DenseDoubleMatrix2D, DenseDoubleMatrix2D> DENSEDOUBLEMATRIX2D = new MtimesDenseDoubleMatrix2D(
+			MtimesDenseDoubleMatrix2D.AUTO);
+
+	public static final MtimesCalculation<DenseDoubleMatrix2D, DenseDoubleMatrix2D, DenseDoubleMatrix2D> DENSEDOUBLEMATRIX2D_UJMP = new MtimesDenseDoubleMatrix2D(
+			MtimesDenseDoubleMatrix2D.UJMP);
+
+	public static final MtimesCalculation<DenseDoubleMatrix2D, DenseDoubleMatrix2D, DenseDoubleMatrix2D> DENSEDOUBLEMATRIX2D_BLOCK = new MtimesDenseDoubleMatrix2D(
+			MtimesDenseDoubleMatrix2D.BLOCK);
 
 	public static final MtimesCalculation<SparseMatrix, Matrix, Matrix> SPARSEMATRIX1 = new MtimesSparseMatrix1();
 
@@ -87,6 +100,40 @@ public class Mtimes {
 		}
 	}
 
+	/**
+	 * Returns true if the product of a compressed sparse matrix with this
+	 * dense matrix can be written into a column-major array.
+	 */
+	static final boolean isDenseOperand(Matrix dense, Matrix target) {
+		return !dense.isSparse() && dense.getDimensionCount() == 2
+				&& dense.getRowCount() * dense.getColumnCount() <= Integer.MAX_VALUE
+				&& target.getRowCount() * target.getColumnCount() <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the column-major array of the target or a new array, which has
+	 * to be copied with {@link #setColumnMajor(Matrix, double[])}.
+	 */
+	static final double[] getColumnMajor(Matrix target) {
+		if (target instanceof HasColumnMajorDoubleArray1D) {
+			return ((HasColumnMajorDoubleArray1D) target).getColumnMajorDoubleArray1D();
+		} else {
+			return new double[(int) (target.getRowCount() * target.getColumnCount())];
+		}
+	}
+
+	static final void setColumnMajor(Matrix target, double[] values) {
+		if (!(target instanceof HasColumnMajorDoubleArray1D)) {
+			final int rows = (int) target.getRowCount();
+			final int cols = (int) target.getColumnCount();
+			for (int c = 0; c < cols; c++) {
+				for (int r = 0; r < rows; r++) {
+					target.setAsDouble(values[c * rows + r], r, c);
+				}
+			}
+		}
+	}
+
 }
 
 class MtimesMatrix implements MtimesCalculation<Matrix, Matrix, Matrix> {
@@ -99,6 +146,10 @@ class MtimesMatrix implements MtimesCalculation<Matrix, Matrix, Matrix> {
 			Mtimes.SPARSEMATRIX1.calc((SparseMatrix) source1, source2, target);
 		} else if (source2.isSparse() && source2 instanceof SparseMatrix) {
 			Mtimes.SPARSEMATRIX2.calc(source1, (SparseMatrix) source2, target);
+		} else if (source1 instanceof BitSetDenseBooleanMatrix2D
+				&& source2 instanceof BitSetDenseBooleanMatrix2D) {
+			((BitSetDenseBooleanMatrix2D) source1).countProduct(
+					(BitSetDenseBooleanMatrix2D) source2, target);
 		} else if (source1 instanceof DenseDoubleMatrix2D && source2 instanceof DenseDoubleMatrix2D
 				&& target instanceof DenseDoubleMatrix2D) {
 			Mtimes.DENSEDOUBLEMATRIX2D.calc((DenseDoubleMatrix2D) source1,
@@ -245,6 +296,14 @@ class MtimesSparseMatrix1 implements MtimesCalculation<SparseMatrix, Matrix, Mat
 				"matrices have wrong sizes");
 		VerifyUtil.verifyEquals(target.getColumnCount(), source2.getColumnCount(),
 				"matrices have wrong sizes");
+		if (AbstractCompressedSparseDoubleMatrix2D.isCompressible(source1)
+				&& Mtimes.isDenseOperand(source2, target)) {
+			// gather or scatter on the compressed arrays
+			final double[] c = Mtimes.getColumnMajor(target);
+			AbstractCompressedSparseDoubleMatrix2D.compressed(source1, true).mtimes(source2, c);
+			Mtimes.setColumnMajor(target, c);
+			return;
+		}
 		target.clear();
 		for (long[] c1 : source1.availableCoordinates()) {
 			final double v1 = source1.getAsDouble(c1);
@@ -276,6 +335,18 @@ class MtimesSparseMatrixBoth implements MtimesCalculation<SparseMatrix, SparseMa
 		VerifyUtil.verifyEquals(target.getColumnCount(), source2.getColumnCount(),
 				"matrices have wrong sizes");
 		target.clear();
+		if (AbstractCompressedSparseDoubleMatrix2D.isCompressible(source1)
+				&& AbstractCompressedSparseDoubleMatrix2D.isCompressible(source2)) {
+			// row-wise product in compressed format, see SparseGemm
+			final Matrix c = AbstractCompressedSparseDoubleMatrix2D.compressed(source1, true)
+					.mtimes(source2);
+			c.forEachNonZero(new DoubleCellVisitor() {
+				public void visit(long row, long column, double value) {
+					target.setAsDouble(value, row, column);
+				}
+			});
+			return;
+		}
 		for (long[] c1 : source1.availableCoordinates()) {
 			final double v1 = source1.getAsDouble(c1);
 			if (v1 != 0.0) {
@@ -306,6 +377,15 @@ class MtimesSparseMatrix2 implements MtimesCalculation<Matrix, SparseMatrix, Mat
 				"matrices have wrong sizes");
 		VerifyUtil.verifyEquals(target.getColumnCount(), source2.getColumnCount(),
 				"matrices have wrong sizes");
+		if (AbstractCompressedSparseDoubleMatrix2D.isCompressible(source2)
+				&& Mtimes.isDenseOperand(source1, target)) {
+			// linear combinations of the columns of source1
+			final double[] c = Mtimes.getColumnMajor(target);
+			AbstractCompressedSparseDoubleMatrix2D.compressed(source2, false)
+					.leftMtimes(source1, c);
+			Mtimes.setColumnMajor(target, c);
+			return;
+		}
 		target.clear();
 		for (long[] c2 : source2.availableCoordinates()) {
 			final double v2 = source2.getAsDouble(c2);
@@ -398,6 +478,21 @@ class MtimesDenseMatrix2D implements MtimesCalculation<DenseMatrix2D, DenseMatri
 class MtimesDenseDoubleMatrix2D implements
 		MtimesCalculation<DenseDoubleMatrix2D, DenseDoubleMatrix2D, DenseDoubleMatrix2D> {
 
+	/** choose the implementation from settings, thresholds or autotuner */
+	public static final int AUTO = 0;
+
+	/** use only the implementations in UJMP without block matrices */
+	public static final int UJMP = 1;
+
+	/** always use block matrix multiplication */
+	public static final int BLOCK = 2;
+
+	private final int backend;
+
+	public MtimesDenseDoubleMatrix2D(final int backend) {
+		this.backend = backend;
+	}
+
 	public final void calc(final DenseDoubleMatrix2D source1, final DenseDoubleMatrix2D source2,
 			final DenseDoubleMatrix2D target) {
 		verifyTrue(source1 != null, "a == null");
@@ -406,13 +501,34 @@ class MtimesDenseDoubleMatrix2D implements
 		verifyTrue(source1.getColumnCount() == source2.getRowCount(), "a.cols!=b.rows");
 		verifyTrue(source1.getRowCount() == target.getRowCount(), "a.rows!=c.rows");
 		verifyTrue(source2.getColumnCount() == target.getColumnCount(), "a.cols!=c.cols");
-		if (source1.getRowCount() >= Mtimes.THRESHOLD
+		if (backend == BLOCK) {
+			calcBlockMatrixMultiThreaded(source1, source2, target);
+		} else if (backend == AUTO && UJMPSettings.getInstance().isUseAutotuner()) {
+			Autotuner.getInstance()
+					.getMtimes(source1.getRowCount(), source1.getColumnCount(),
+							source2.getColumnCount()).calc(source1, source2, target);
+		} else if (backend == AUTO && source1 instanceof BlockDenseDoubleMatrix2D
+				&& StrassenMultiply.isApplicable(source1.getRowCount(), source1.getColumnCount(),
+						source2.getColumnCount())) {
+			calcBlockMatrixMultiThreaded(source1, source2, target);
+		} else if (source1.getRowCount() >= Mtimes.THRESHOLD
 				&& source1.getColumnCount() >= Mtimes.THRESHOLD) {
-			if (Mtimes.MTIMES_JBLAS != null && UJMPSettings.getInstance().isUseJBlas()) {
+			if (backend == AUTO && Mtimes.MTIMES_JBLAS != null
+					&& UJMPSettings.getInstance().isUseJBlas()) {
 				Mtimes.MTIMES_JBLAS.calc((DenseDoubleMatrix2D) source1,
 						(DenseDoubleMatrix2D) source2, (DenseDoubleMatrix2D) target);
-			} else if (UJMPSettings.getInstance().isUseBlockMatrixMultiply()) {
+			} else if (backend == AUTO && UJMPSettings.getInstance().isUseBlockMatrixMultiply()) {
 				calcBlockMatrixMultiThreaded(source1, source2, target);
+			} else if (source1 instanceof HasColumnMajorDoubleArray1D
+					&& source2 instanceof HasColumnMajorDoubleArray1D
+					&& target instanceof HasColumnMajorDoubleArray1D
+					&& UJMPSettings.getInstance().isUsePackedGemm()) {
+				PackedGemm.gemm(
+						((HasColumnMajorDoubleArray1D) source1).getColumnMajorDoubleArray1D(),
+						(int) source1.getRowCount(), (int) source1.getColumnCount(),
+						((HasColumnMajorDoubleArray1D) source2).getColumnMajorDoubleArray1D(),
+						(int) source2.getColumnCount(),
+						((HasColumnMajorDoubleArray1D) target).getColumnMajorDoubleArray1D());
 			} else if (source1 instanceof HasColumnMajorDoubleArray1D
 					&& source2 instanceof HasColumnMajorDoubleArray1D
 					&& target instanceof HasColumnMajorDoubleArray1D) {
@@ -425,8 +541,7 @@ class MtimesDenseDoubleMatrix2D implements
 			} else if (source1 instanceof HasRowMajorDoubleArray2D
 					&& source2 instanceof HasRowMajorDoubleArray2D
 					&& target instanceof HasRowMajorDoubleArray2D) {
-				calcDoubleArray2DMultiThreaded(
-						((HasRowMajorDoubleArray2D) source1).getRowMajorDoubleArray2D(),
+				RowMajorGemm.gemm(((HasRowMajorDoubleArray2D) source1).getRowMajorDoubleArray2D(),
 						((HasRowMajorDoubleArray2D) source2).getRowMajorDoubleArray2D(),
 						((HasRowMajorDoubleArray2D) target).getRowMajorDoubleArray2D());
 			} else {
@@ -434,6 +549,19 @@ class MtimesDenseDoubleMatrix2D implements
 			}
 		} else {
 			if (source1 instanceof HasColumnMajorDoubleArray1D
+					&& source2 instanceof HasColumnMajorDoubleArray1D
+					&& target instanceof HasColumnMajorDoubleArray1D
+					&& UJMPSettings.getInstance().isUsePackedGemm()) {
+				final int m = (int) source1.getRowCount();
+				final int k = (int) source1.getColumnCount();
+				PackedGemm.gemm(1, false, false, m, (int) source2.getColumnCount(), k, 1.0,
+						((HasColumnMajorDoubleArray1D) source1).getColumnMajorDoubleArray1D(), 0,
+						Math.max(1, m),
+						((HasColumnMajorDoubleArray1D) source2).getColumnMajorDoubleArray1D(), 0,
+						Math.max(1, k), 0.0,
+						((HasColumnMajorDoubleArray1D) target).getColumnMajorDoubleArray1D(), 0,
+						Math.max(1, m));
+			} else if (source1 instanceof HasColumnMajorDoubleArray1D
 					&& source2 instanceof HasColumnMajorDoubleArray1D
 					&& target instanceof HasColumnMajorDoubleArray1D) {
 				gemmDoubleArraySingleThreaded(
@@ -445,7 +573,7 @@ class MtimesDenseDoubleMatrix2D implements
 			} else if (source1 instanceof HasRowMajorDoubleArray2D
 					&& source2 instanceof HasRowMajorDoubleArray2D
 					&& target instanceof HasRowMajorDoubleArray2D) {
-				calcDoubleArray2DSingleThreaded(
+				RowMajorGemm.gemm(1,
 						((HasRowMajorDoubleArray2D) source1).getRowMajorDoubleArray2D(),
 						((HasRowMajorDoubleArray2D) source2).getRowMajorDoubleArray2D(),
 						((HasRowMajorDoubleArray2D) target).getRowMajorDoubleArray2D());
@@ -488,7 +616,11 @@ class MtimesDenseDoubleMatrix2D implements
 		BlockOrder prevA = a.setBlockOrder(BlockOrder.ROWMAJOR);
 		BlockOrder prevB = b.setBlockOrder(BlockOrder.COLUMNMAJOR);
 
-		blockMultiplyMultiThreaded(a, b, c);
+		if (StrassenMultiply.isApplicable(arows, a.getColumnCount(), bcols)) {
+			StrassenMultiply.multiply(a, b, c);
+		} else {
+			blockMultiplyMultiThreaded(a, b, c);
+		}
 
 		if (c != target) {
 			for (int j = bcols; --j != -1;) {
@@ -551,49 +683,6 @@ class MtimesDenseDoubleMatrix2D implements
 		}
 	}
 
-	private final void calcDoubleArray2DSingleThreaded(final double[][] m1, final double[][] m2,
-			final double[][] ret) {
-		final int columnCount = m1[0].length;
-		final double[] columns = new double[columnCount];
-
-		for (int c = m2[0].length; --c != -1;) {
-			for (int k = columnCount; --k != -1;) {
-				columns[k] = m2[k][c];
-			}
-			for (int r = m1.length; --r != -1;) {
-				double sum = 0.0d;
-				final double[] row = m1[r];
-				for (int k = columnCount; --k != -1;) {
-					sum += row[k] * columns[k];
-				}
-				ret[r][c] = sum;
-			}
-		}
-	}
-
-	private final void calcDoubleArray2DMultiThreaded(final double[][] m1, final double[][] m2,
-			final double[][] ret) {
-		final int columnCount = m1[0].length;
-		final double[] columns = new double[columnCount];
-
-		new PFor(0, m2[0].length - 1) {
-			@Override
-			public void step(int i) {
-				for (int k = columnCount; --k != -1;) {
-					columns[k] = m2[k][i];
-				}
-				for (int r = m1.length; --r != -1;) {
-					double sum = 0.0d;
-					final double[] row = m1[r];
-					for (int k = columnCount; --k != -1;) {
-						sum += row[k] * columns[k];
-					}
-					ret[r][i] = sum;
-				}
-			}
-		};
-	}
-
 	private final void calcDenseDoubleMatrix2DSingleThreaded(final DenseDoubleMatrix2D A,
 			final DenseDoubleMatrix2D B, final DenseDoubleMatrix2D C) {
 		final int m1RowCount = (int) A.getRowCount();
@@ -695,24 +784,28 @@ class MtimesDenseDoubleMatrix2D implements
 			}
 		}
 
-		// wait for all tasks to complete.
+		// the caller works on the tasks, too, so that a multiplication inside
+		// another parallel operation cannot wait for a busy pool
+		final Callable<?>[] taskArray = tasks.toArray(new Callable<?>[tasks.size()]);
 		try {
-			for (Future<Void> f : UJMPThreadPoolExecutor.getInstance().invokeAll(tasks)) {
-				f.get();
-			}
-		} catch (ExecutionException e) {
-			StringBuilder sb = new StringBuilder(
-					"Execution exception - while awaiting completion of matrix multiplication ["
-							+ e.getMessage() + "]:");
-			if (e.getCause() != null) {
-				for (StackTraceElement stackTraceElement : e.getCause().getStackTrace()) {
-					sb.append(stackTraceElement).append("  *  ");
+			UJMPScheduler.parallelFor(0, taskArray.length, UJMPSettings.getInstance()
+					.getNumberOfThreads(), new RangeTask() {
+				public void run(int start, int end) {
+					for (int t = start; t < end; t++) {
+						try {
+							taskArray[t].call();
+						} catch (RuntimeException e) {
+							throw e;
+						} catch (Exception e) {
+							throw new RuntimeException(e);
+						}
+					}
 				}
-			}
-			throw new RuntimeException(sb.toString(), e.getCause());
-		} catch (final InterruptedException e) {
-			String msg = "Interrupted - while awaiting completion of matrix multiplication.";
-			throw new RuntimeException(msg + ": cause [" + e.getMessage() + "]", e);
+			});
+		} catch (RuntimeException e) {
+			throw new RuntimeException(
+					"Execution exception - while awaiting completion of matrix multiplication ["
+							+ e.getMessage() + "]", e);
 		}
 
 		return c;
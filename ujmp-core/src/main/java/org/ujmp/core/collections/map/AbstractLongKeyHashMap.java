@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.collections.map;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Base class for hash maps with primitive <code>long</code> keys. Keys and
+ * values are kept in parallel arrays using open addressing with linear
+ * probing, so that lookups and updates of existing keys do not create any
+ * objects. Removed entries are filled by moving later entries of the same
+ * probe sequence back, no tombstones are left behind.
+ * <p>
+ * Keys must not be negative, since -1 marks free slots. This is always true
+ * for packed indices of matrix coordinates, see
+ * {@link org.ujmp.core.Coordinates#toPackedIndex(long[], long...)}.
+ *
+ * @author Holger Arndt
+ */
+public abstract class AbstractLongKeyHashMap implements Serializable {
+	private static final long serialVersionUID = -2749154520335071620L;
+
+	/** marks free slots */
+	protected static final long FREE = -1;
+
+	private static final int MINCAPACITY = 16;
+
+	protected long[] keys;
+
+	protected int size = 0;
+
+	private int shift;
+
+	protected AbstractLongKeyHashMap(int expectedSize) {
+		allocateKeys(capacityFor(expectedSize));
+	}
+
+	/**
+	 * Returns a power of two large enough to hold n entries at a load of at
+	 * most 3/4.
+	 */
+	protected static final int capacityFor(final int n) {
+		int capacity = MINCAPACITY;
+		while (capacity - (capacity >> 2) <= n) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	protected final void allocateKeys(final int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, FREE);
+		shift = 64 - Integer.numberOfTrailingZeros(capacity);
+	}
+
+	private final int hash(final long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+
+	/**
+	 * Returns the slot of the key, or -(free slot) - 1 if it is not stored.
+	 */
+	protected final int find(final long key) {
+		if (key < 0) {
+			throw new IllegalArgumentException("keys must not be negative: " + key);
+		}
+		final long[] k = keys;
+		final int mask = k.length - 1;
+		int h = hash(key);
+		while (true) {
+			final long stored = k[h];
+			if (stored == key) {
+				return h;
+			} else if (stored == FREE) {
+				return -h - 1;
+			}
+			h = (h + 1) & mask;
+		}
+	}
+
+	/**
+	 * Stores a new key and returns its slot. The table is enlarged first if
+	 * it would become too full.
+	 * 
+	 * @param slot
+	 *            result of {@link #find(long)} for this key
+	 */
+	protected final int insert(final long key, final int slot) {
+		int free = -slot - 1;
+		if (size + 1 > keys.length - (keys.length >> 2)) {
+			rehash(keys.length << 1);
+			free = -find(key) - 1;
+		}
+		keys[free] = key;
+		size++;
+		return free;
+	}
+
+	/**
+	 * Allocates new arrays of the given capacity and inserts all entries
+	 * again, using {@link #find(long)} to locate their new slots.
+	 */
+	protected abstract void rehash(int capacity);
+
+	/**
+	 * Moves the value of one slot to another one.
+	 */
+	protected abstract void moveValue(int from, int to);
+
+	/**
+	 * Releases the value of a slot.
+	 */
+	protected abstract void clearValue(int slot);
+
+	/**
+	 * Removes the entry of a slot. Later entries of the probe sequence are
+	 * moved into the gap unless their hash lies between the gap and their
+	 * current slot.
+	 */
+	protected final void removeSlot(int slot) {
+		final long[] k = keys;
+		final int mask = k.length - 1;
+		int gap = slot;
+		int i = slot;
+		while (true) {
+			i = (i + 1) & mask;
+			final long key = k[i];
+			if (key == FREE) {
+				break;
+			}
+			final int h = hash(key);
+			final boolean stays = gap <= i ? (gap < h && h <= i) : (gap < h || h <= i);
+			if (!stays) {
+				k[gap] = key;
+				moveValue(i, gap);
+				gap = i;
+			}
+		}
+		k[gap] = FREE;
+		clearValue(gap);
+		size--;
+	}
+
+	public final boolean containsKey(final long key) {
+		return find(key) >= 0;
+	}
+
+	public final int size() {
+		return size;
+	}
+
+	public final boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, FREE);
+		size = 0;
+	}
+
+	/**
+	 * Returns one of the keys, or -1 if the map is empty.
+	 */
+	public final long anyKey() {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != FREE) {
+				return keys[i];
+			}
+		}
+		return FREE;
+	}
+
+	/**
+	 * Returns a copy of all keys.
+	 * 
+	 * @param sorted
+	 *            whether the keys should be in ascending order
+	 */
+	public final long[] keys(final boolean sorted) {
+		final long[] result = new long[size];
+		int n = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != FREE) {
+				result[n++] = keys[i];
+			}
+		}
+		if (sorted) {
+			Arrays.sort(result);
+		}
+		return result;
+	}
+
+}
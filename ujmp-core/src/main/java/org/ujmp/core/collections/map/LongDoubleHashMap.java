@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.collections.map;
+
+/**
+ * Hash map from non-negative <code>long</code> keys to <code>double</code>
+ * values without boxing, see {@link AbstractLongKeyHashMap}. Keys which are
+ * not stored have the value 0.
+ *
+ * @author Holger Arndt
+ */
+public class LongDoubleHashMap extends AbstractLongKeyHashMap {
+	private static final long serialVersionUID = -8527015226384071372L;
+
+	private double[] values;
+
+	public LongDoubleHashMap() {
+		this(0);
+	}
+
+	public LongDoubleHashMap(int expectedSize) {
+		super(expectedSize);
+		values = new double[keys.length];
+	}
+
+	public final double get(final long key) {
+		final int slot = find(key);
+		return slot < 0 ? 0.0 : values[slot];
+	}
+
+	/**
+	 * Stores a value. The key is kept even if the value is 0, use
+	 * {@link #remove(long)} to delete it.
+	 */
+	public final void put(final long key, final double value) {
+		final int slot = find(key);
+		if (slot >= 0) {
+			values[slot] = value;
+		} else {
+			// insert may replace the value array
+			final int free = insert(key, slot);
+			values[free] = value;
+		}
+	}
+
+	/**
+	 * Adds a value to the one stored for the key.
+	 */
+	public final void add(final long key, final double value) {
+		final int slot = find(key);
+		if (slot >= 0) {
+			values[slot] += value;
+		} else {
+			// insert may replace the value array
+			final int free = insert(key, slot);
+			values[free] = value;
+		}
+	}
+
+	public final double remove(final long key) {
+		final int slot = find(key);
+		if (slot < 0) {
+			return 0.0;
+		}
+		final double old = values[slot];
+		removeSlot(slot);
+		return old;
+	}
+
+	protected final void rehash(final int capacity) {
+		final long[] oldKeys = keys;
+		final double[] oldValues = values;
+		allocateKeys(capacity);
+		values = new double[capacity];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				final int slot = -find(oldKeys[i]) - 1;
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	protected final void moveValue(final int from, final int to) {
+		values[to] = values[from];
+	}
+
+	protected final void clearValue(final int slot) {
+		values[slot] = 0.0;
+	}
+
+}
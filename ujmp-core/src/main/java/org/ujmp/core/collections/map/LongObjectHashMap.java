@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.collections.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash map from non-negative <code>long</code> keys to objects, see
+ * {@link AbstractLongKeyHashMap}. Null values are not stored.
+ *
+ * @author Holger Arndt
+ */
+public class LongObjectHashMap<V> extends AbstractLongKeyHashMap {
+	private static final long serialVersionUID = 5313698287813046183L;
+
+	private Object[] values;
+
+	public LongObjectHashMap() {
+		this(0);
+	}
+
+	public LongObjectHashMap(int expectedSize) {
+		super(expectedSize);
+		values = new Object[keys.length];
+	}
+
+	@SuppressWarnings("unchecked")
+	public final V get(final long key) {
+		final int slot = find(key);
+		return slot < 0 ? null : (V) values[slot];
+	}
+
+	/**
+	 * Stores a value, or removes the key if the value is null.
+	 * 
+	 * @return the previous value
+	 */
+	@SuppressWarnings("unchecked")
+	public final V put(final long key, final V value) {
+		if (value == null) {
+			return remove(key);
+		}
+		final int slot = find(key);
+		if (slot >= 0) {
+			final V old = (V) values[slot];
+			values[slot] = value;
+			return old;
+		} else {
+			// insert may replace the value array
+			final int free = insert(key, slot);
+			values[free] = value;
+			return null;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public final V remove(final long key) {
+		final int slot = find(key);
+		if (slot < 0) {
+			return null;
+		}
+		final V old = (V) values[slot];
+		removeSlot(slot);
+		return old;
+	}
+
+	/**
+	 * Returns a copy of all values.
+	 */
+	@SuppressWarnings("unchecked")
+	public final List<V> values() {
+		final List<V> result = new ArrayList<V>(size);
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != FREE) {
+				result.add((V) values[i]);
+			}
+		}
+		return result;
+	}
+
+	public final void clear() {
+		super.clear();
+		Arrays.fill(values, null);
+	}
+
+	protected final void rehash(final int capacity) {
+		final long[] oldKeys = keys;
+		final Object[] oldValues = values;
+		allocateKeys(capacity);
+		values = new Object[capacity];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				final int slot = -find(oldKeys[i]) - 1;
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	protected final void moveValue(final int from, final int to) {
+		values[to] = values[from];
+	}
+
+	protected final void clearValue(final int slot) {
+		values[slot] = null;
+	}
+
+}
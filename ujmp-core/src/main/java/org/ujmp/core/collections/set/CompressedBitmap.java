@@ -0,0 +1,571 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.collections.set;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative int values in the style of roaring bitmaps.
+ * The values are grouped by their upper 16 bits. Each group stores the lower
+ * 16 bits either in a sorted <code>char[]</code> when it contains at most
+ * 4096 values, or in a bitmap of 1024 words otherwise. Sparse sets take two
+ * bytes per value, dense sets one bit per value, and union and intersection
+ * work on whole groups.
+ *
+ * @author Holger Arndt
+ */
+public class CompressedBitmap implements Serializable, Cloneable {
+	private static final long serialVersionUID = -3178457812239489342L;
+
+	private static final int ARRAYLIMIT = 4096;
+
+	private char[] keys;
+
+	private Container[] containers;
+
+	private int size = 0;
+
+	public CompressedBitmap() {
+		keys = new char[4];
+		containers = new Container[4];
+	}
+
+	private CompressedBitmap(int capacity) {
+		keys = new char[Math.max(1, capacity)];
+		containers = new Container[Math.max(1, capacity)];
+	}
+
+	private final int find(final char key) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final char k = keys[mid];
+			if (k < key) {
+				low = mid + 1;
+			} else if (k > key) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	private final void insert(final int pos, final char key, final Container container) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			containers = Arrays.copyOf(containers, size * 2);
+		}
+		System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+		System.arraycopy(containers, pos, containers, pos + 1, size - pos);
+		keys[pos] = key;
+		containers[pos] = container;
+		size++;
+	}
+
+	private final void append(final char key, final Container container) {
+		insert(size, key, container);
+	}
+
+	public boolean add(int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("value must not be negative: " + value);
+		}
+		final char key = (char) (value >>> 16);
+		final int pos = find(key);
+		if (pos >= 0) {
+			final int before = containers[pos].cardinality();
+			containers[pos] = containers[pos].add((char) value);
+			return containers[pos].cardinality() != before;
+		} else {
+			insert(-pos - 1, key, new ArrayContainer().add((char) value));
+			return true;
+		}
+	}
+
+	public boolean remove(int value) {
+		if (value < 0) {
+			return false;
+		}
+		final int pos = find((char) (value >>> 16));
+		if (pos < 0) {
+			return false;
+		}
+		final int before = containers[pos].cardinality();
+		final Container container = containers[pos].remove((char) value);
+		if (container == null) {
+			System.arraycopy(keys, pos + 1, keys, pos, size - pos - 1);
+			System.arraycopy(containers, pos + 1, containers, pos, size - pos - 1);
+			containers[--size] = null;
+			return true;
+		}
+		containers[pos] = container;
+		return container.cardinality() != before;
+	}
+
+	public boolean contains(int value) {
+		if (value < 0) {
+			return false;
+		}
+		final int pos = find((char) (value >>> 16));
+		return pos >= 0 && containers[pos].contains((char) value);
+	}
+
+	public int cardinality() {
+		int cardinality = 0;
+		for (int i = 0; i < size; i++) {
+			cardinality += containers[i].cardinality();
+		}
+		return cardinality;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(containers, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Returns all values in ascending order.
+	 */
+	public int[] toArray() {
+		final int[] values = new int[cardinality()];
+		int offset = 0;
+		for (int i = 0; i < size; i++) {
+			offset = containers[i].fill(values, offset, keys[i] << 16);
+		}
+		return values;
+	}
+
+	public static CompressedBitmap and(CompressedBitmap a, CompressedBitmap b) {
+		final CompressedBitmap result = new CompressedBitmap(Math.min(a.size, b.size));
+		int i = 0;
+		int j = 0;
+		while (i < a.size && j < b.size) {
+			if (a.keys[i] < b.keys[j]) {
+				i++;
+			} else if (a.keys[i] > b.keys[j]) {
+				j++;
+			} else {
+				final Container c = a.containers[i].and(b.containers[j]);
+				if (c != null) {
+					result.append(a.keys[i], c);
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	public static int andCardinality(CompressedBitmap a, CompressedBitmap b) {
+		int cardinality = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.size && j < b.size) {
+			if (a.keys[i] < b.keys[j]) {
+				i++;
+			} else if (a.keys[i] > b.keys[j]) {
+				j++;
+			} else {
+				cardinality += a.containers[i].andCardinality(b.containers[j]);
+				i++;
+				j++;
+			}
+		}
+		return cardinality;
+	}
+
+	public static CompressedBitmap or(CompressedBitmap a, CompressedBitmap b) {
+		final CompressedBitmap result = new CompressedBitmap(a.size + b.size);
+		int i = 0;
+		int j = 0;
+		while (i < a.size || j < b.size) {
+			if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+				result.append(a.keys[i], a.containers[i].copy());
+				i++;
+			} else if (i == a.size || a.keys[i] > b.keys[j]) {
+				result.append(b.keys[j], b.containers[j].copy());
+				j++;
+			} else {
+				result.append(a.keys[i], a.containers[i].or(b.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	public CompressedBitmap clone() {
+		final CompressedBitmap result = new CompressedBitmap(size);
+		for (int i = 0; i < size; i++) {
+			result.append(keys[i], containers[i].copy());
+		}
+		return result;
+	}
+
+	public boolean equals(Object o) {
+		if (!(o instanceof CompressedBitmap)) {
+			return false;
+		}
+		return Arrays.equals(toArray(), ((CompressedBitmap) o).toArray());
+	}
+
+	public int hashCode() {
+		return Arrays.hashCode(toArray());
+	}
+
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+
+	abstract static class Container implements Serializable {
+		private static final long serialVersionUID = 4306125412546153040L;
+
+		abstract int cardinality();
+
+		abstract boolean contains(char value);
+
+		/**
+		 * Returns this or a container of another type.
+		 */
+		abstract Container add(char value);
+
+		/**
+		 * Returns this, a container of another type or null if empty.
+		 */
+		abstract Container remove(char value);
+
+		/**
+		 * Returns the intersection or null if empty.
+		 */
+		abstract Container and(Container other);
+
+		abstract int andCardinality(Container other);
+
+		abstract Container or(Container other);
+
+		abstract int fill(int[] target, int offset, int high);
+
+		abstract Container copy();
+	}
+
+	static final class ArrayContainer extends Container {
+		private static final long serialVersionUID = -6146547066893367582L;
+
+		private char[] values;
+
+		private int cardinality = 0;
+
+		ArrayContainer() {
+			values = new char[4];
+		}
+
+		ArrayContainer(char[] values, int cardinality) {
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		int cardinality() {
+			return cardinality;
+		}
+
+		private int find(char value) {
+			// values are mostly added in ascending order
+			if (cardinality > 0 && values[cardinality - 1] < value) {
+				return -(cardinality + 1);
+			}
+			int low = 0;
+			int high = cardinality - 1;
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				final char v = values[mid];
+				if (v < value) {
+					low = mid + 1;
+				} else if (v > value) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -(low + 1);
+		}
+
+		boolean contains(char value) {
+			return find(value) >= 0;
+		}
+
+		Container add(char value) {
+			final int pos = find(value);
+			if (pos >= 0) {
+				return this;
+			}
+			if (cardinality == ARRAYLIMIT) {
+				return toBitmap().add(value);
+			}
+			if (cardinality == values.length) {
+				values = Arrays.copyOf(values, Math.min(ARRAYLIMIT, Math.max(4, cardinality * 2)));
+			}
+			final int insert = -pos - 1;
+			System.arraycopy(values, insert, values, insert + 1, cardinality - insert);
+			values[insert] = value;
+			cardinality++;
+			return this;
+		}
+
+		Container remove(char value) {
+			final int pos = find(value);
+			if (pos >= 0) {
+				System.arraycopy(values, pos + 1, values, pos, cardinality - pos - 1);
+				cardinality--;
+			}
+			return cardinality == 0 ? null : this;
+		}
+
+		Container and(Container other) {
+			final char[] result = new char[cardinality];
+			int count = 0;
+			if (other instanceof ArrayContainer) {
+				final ArrayContainer a = (ArrayContainer) other;
+				int i = 0;
+				int j = 0;
+				while (i < cardinality && j < a.cardinality) {
+					if (values[i] < a.values[j]) {
+						i++;
+					} else if (values[i] > a.values[j]) {
+						j++;
+					} else {
+						result[count++] = values[i];
+						i++;
+						j++;
+					}
+				}
+			} else {
+				for (int i = 0; i < cardinality; i++) {
+					if (other.contains(values[i])) {
+						result[count++] = values[i];
+					}
+				}
+			}
+			return count == 0 ? null : new ArrayContainer(result, count);
+		}
+
+		int andCardinality(Container other) {
+			int count = 0;
+			if (other instanceof ArrayContainer) {
+				final ArrayContainer a = (ArrayContainer) other;
+				int i = 0;
+				int j = 0;
+				while (i < cardinality && j < a.cardinality) {
+					if (values[i] < a.values[j]) {
+						i++;
+					} else if (values[i] > a.values[j]) {
+						j++;
+					} else {
+						count++;
+						i++;
+						j++;
+					}
+				}
+			} else {
+				for (int i = 0; i < cardinality; i++) {
+					if (other.contains(values[i])) {
+						count++;
+					}
+				}
+			}
+			return count;
+		}
+
+		Container or(Container other) {
+			if (!(other instanceof ArrayContainer)) {
+				return other.or(this);
+			}
+			final ArrayContainer a = (ArrayContainer) other;
+			if (cardinality + a.cardinality > ARRAYLIMIT) {
+				return toBitmap().or(a);
+			}
+			final char[] result = new char[cardinality + a.cardinality];
+			int count = 0;
+			int i = 0;
+			int j = 0;
+			while (i < cardinality || j < a.cardinality) {
+				if (j == a.cardinality || (i < cardinality && values[i] < a.values[j])) {
+					result[count++] = values[i++];
+				} else if (i == cardinality || values[i] > a.values[j]) {
+					result[count++] = a.values[j++];
+				} else {
+					result[count++] = values[i++];
+					j++;
+				}
+			}
+			return new ArrayContainer(result, count);
+		}
+
+		int fill(int[] target, int offset, int high) {
+			for (int i = 0; i < cardinality; i++) {
+				target[offset++] = high | values[i];
+			}
+			return offset;
+		}
+
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+		}
+
+		BitmapContainer toBitmap() {
+			final BitmapContainer bitmap = new BitmapContainer();
+			for (int i = 0; i < cardinality; i++) {
+				bitmap.words[values[i] >>> 6] |= 1L << values[i];
+			}
+			bitmap.cardinality = cardinality;
+			return bitmap;
+		}
+	}
+
+	static final class BitmapContainer extends Container {
+		private static final long serialVersionUID = 1877342384914375185L;
+
+		private final long[] words = new long[1024];
+
+		private int cardinality = 0;
+
+		int cardinality() {
+			return cardinality;
+		}
+
+		boolean contains(char value) {
+			return (words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		Container add(char value) {
+			final long before = words[value >>> 6];
+			final long after = before | (1L << value);
+			if (before != after) {
+				words[value >>> 6] = after;
+				cardinality++;
+			}
+			return this;
+		}
+
+		Container remove(char value) {
+			final long before = words[value >>> 6];
+			final long after = before & ~(1L << value);
+			if (before != after) {
+				words[value >>> 6] = after;
+				cardinality--;
+				if (cardinality <= ARRAYLIMIT) {
+					return toArrayContainer();
+				}
+			}
+			return this;
+		}
+
+		Container and(Container other) {
+			if (other instanceof ArrayContainer) {
+				return other.and(this);
+			}
+			final BitmapContainer b = (BitmapContainer) other;
+			final BitmapContainer result = new BitmapContainer();
+			int count = 0;
+			for (int i = 0; i < 1024; i++) {
+				result.words[i] = words[i] & b.words[i];
+				count += Long.bitCount(result.words[i]);
+			}
+			result.cardinality = count;
+			if (count == 0) {
+				return null;
+			}
+			return count <= ARRAYLIMIT ? result.toArrayContainer() : result;
+		}
+
+		int andCardinality(Container other) {
+			if (other instanceof ArrayContainer) {
+				return other.andCardinality(this);
+			}
+			final BitmapContainer b = (BitmapContainer) other;
+			int count = 0;
+			for (int i = 0; i < 1024; i++) {
+				count += Long.bitCount(words[i] & b.words[i]);
+			}
+			return count;
+		}
+
+		Container or(Container other) {
+			final BitmapContainer result = (BitmapContainer) copy();
+			if (other instanceof ArrayContainer) {
+				final ArrayContainer a = (ArrayContainer) other;
+				for (int i = 0; i < a.cardinality; i++) {
+					result.add(a.values[i]);
+				}
+			} else {
+				final BitmapContainer b = (BitmapContainer) other;
+				int count = 0;
+				for (int i = 0; i < 1024; i++) {
+					result.words[i] |= b.words[i];
+					count += Long.bitCount(result.words[i]);
+				}
+				result.cardinality = count;
+			}
+			return result;
+		}
+
+		int fill(int[] target, int offset, int high) {
+			for (int i = 0; i < 1024; i++) {
+				long word = words[i];
+				while (word != 0) {
+					target[offset++] = high | (i << 6) | Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+				}
+			}
+			return offset;
+		}
+
+		Container copy() {
+			final BitmapContainer result = new BitmapContainer();
+			System.arraycopy(words, 0, result.words, 0, 1024);
+			result.cardinality = cardinality;
+			return result;
+		}
+
+		ArrayContainer toArrayContainer() {
+			final char[] values = new char[cardinality];
+			int count = 0;
+			for (int i = 0; i < 1024; i++) {
+				long word = words[i];
+				while (word != 0) {
+					values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return new ArrayContainer(values, count);
+		}
+	}
+
+}
@@ -23,13 +23,25 @@
 
 package org.ujmp.core.doublematrix.calculation;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
 import org.ujmp.core.calculation.AbstractCalculation;
 import org.ujmp.core.doublematrix.DoubleMatrix;
 import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.CompressedColumnSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.CompressedRowSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultSparseDoubleMatrix;
+import org.ujmp.core.doublematrix.impl.DefaultSparseRowDoubleMatrix2D;
 import org.ujmp.core.doublematrix.impl.DoubleCalculationMatrix;
+import org.ujmp.core.doublematrix.impl.IndexedSparseDoubleMatrix2D;
 import org.ujmp.core.enums.ValueType;
+import org.ujmp.core.interfaces.CanMapNonZeros;
+import org.ujmp.core.interfaces.DoubleCellFunction;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
 
 public abstract class AbstractDoubleCalculation extends AbstractCalculation implements
 		DoubleCalculation {
@@ -48,11 +60,28 @@ public abstract class AbstractDoubleCalculation extends AbstractCalculation impl
 		return new DoubleCalculationMatrix(this);
 	}
 
+	/**
+	 * Returns true if this calculation maps 0 to 0 and every entry depends only
+	 * on the same entry of the source. For sparse sources, only the non-zero
+	 * entries are computed then and the result stays sparse.
+	 */
+	public boolean isZeroPreserving() {
+		return false;
+	}
+
 	public Matrix calcNew() {
-		Matrix result = DoubleMatrix2D.Factory.zeros(getSize()[ROW], getSize()[COLUMN]);
-		for (long[] c : result.allCoordinates()) {
-			result.setAsDouble(getDouble(c), c);
+		final Matrix source = getSource();
+		if (source.isSparse() && Coordinates.equals(source.getSize(), getSize())) {
+			if (isZeroPreserving()) {
+				return calcNewSparse(source);
+			}
+			verifyDenseSize();
 		}
+		if (FusedEntrywiseCalculation.isApplicable(this)) {
+			return FusedEntrywiseCalculation.calcNew(this);
+		}
+		final Matrix result = DoubleMatrix2D.Factory.zeros(getSize()[ROW], getSize()[COLUMN]);
+		calcTiles(result);
 		if (getMetaData() != null) {
 			result.setMetaData(getMetaData().clone());
 		}
@@ -66,13 +95,112 @@ public abstract class AbstractDoubleCalculation extends AbstractCalculation impl
 		}
 
 		final Matrix matrix = getSource();
-		for (final long[] c : getSource().allCoordinates()) {
-			matrix.setAsDouble(getDouble(c), c);
+		if (matrix.isSparse()) {
+			if (isZeroPreserving() && matrix instanceof CanMapNonZeros) {
+				((CanMapNonZeros) matrix).mapNonZeros(entryFunction());
+				matrix.fireValueChanged();
+				return matrix;
+			} else if (isZeroPreserving()) {
+				// collect first, setting values may change the sparse structure
+				final List<long[]> coordinates = new ArrayList<long[]>();
+				for (long[] c : matrix.availableCoordinates()) {
+					coordinates.add(Coordinates.copyOf(c));
+				}
+				for (long[] c : coordinates) {
+					matrix.setAsDouble(getDouble(c), c);
+				}
+				matrix.fireValueChanged();
+				return matrix;
+			}
+			verifyDenseSize();
+		}
+		if (matrix.getDimensionCount() == 2) {
+			calcTiles(matrix);
+		} else {
+			for (final long[] c : getSource().allCoordinates()) {
+				matrix.setAsDouble(getDouble(c), c);
+			}
 		}
 		getSource().fireValueChanged();
 		return getSource();
 	}
 
+	protected void calcTile(Matrix target, long startRow, long endRow, long startColumn,
+			long endColumn) {
+		final long[] coordinates = new long[2];
+		if (target instanceof HasColumnMajorDoubleArray1D) {
+			final double[] values = ((HasColumnMajorDoubleArray1D) target)
+					.getColumnMajorDoubleArray1D();
+			final long rows = target.getRowCount();
+			for (long column = startColumn; column < endColumn; column++) {
+				coordinates[COLUMN] = column;
+				final int offset = (int) (column * rows);
+				for (long row = startRow; row < endRow; row++) {
+					coordinates[ROW] = row;
+					values[offset + (int) row] = getDouble(coordinates);
+				}
+			}
+		} else {
+			for (long row = startRow; row < endRow; row++) {
+				coordinates[ROW] = row;
+				for (long column = startColumn; column < endColumn; column++) {
+					coordinates[COLUMN] = column;
+					target.setAsDouble(getDouble(coordinates), row, column);
+				}
+			}
+		}
+	}
+
+	private Matrix calcNewSparse(Matrix source) {
+		final Matrix result;
+		// copy the structure of known formats, only the values are replaced
+		if (source instanceof CompressedRowSparseDoubleMatrix2D) {
+			result = new CompressedRowSparseDoubleMatrix2D(source);
+		} else if (source instanceof CompressedColumnSparseDoubleMatrix2D) {
+			result = new CompressedColumnSparseDoubleMatrix2D(source);
+		} else if (source instanceof DefaultSparseRowDoubleMatrix2D) {
+			result = new DefaultSparseRowDoubleMatrix2D(source);
+		} else if (source instanceof IndexedSparseDoubleMatrix2D) {
+			result = new IndexedSparseDoubleMatrix2D(source);
+		} else if (source instanceof DefaultSparseDoubleMatrix) {
+			result = new DefaultSparseDoubleMatrix(source);
+		} else {
+			result = SparseMatrix.Factory.zeros(getSize());
+		}
+		if (result instanceof CanMapNonZeros) {
+			((CanMapNonZeros) result).mapNonZeros(entryFunction());
+		} else {
+			for (long[] c : source.availableCoordinates()) {
+				result.setAsDouble(getDouble(c), c);
+			}
+		}
+		if (getMetaData() != null) {
+			result.setMetaData(getMetaData().clone());
+		}
+		return result;
+	}
+
+	// computes the entries of this calculation, for sparse formats which
+	// replace their values in one pass
+	private DoubleCellFunction entryFunction() {
+		final long[] coordinates = new long[2];
+		return new DoubleCellFunction() {
+			public double apply(long row, long column, double value) {
+				coordinates[ROW] = row;
+				coordinates[COLUMN] = column;
+				return getDouble(coordinates);
+			}
+		};
+	}
+
+	private void verifyDenseSize() {
+		if (Coordinates.product(getSize()) > Integer.MAX_VALUE) {
+			throw new RuntimeException(getClass().getSimpleName()
+					+ " does not preserve zeros and would create a dense matrix of size "
+					+ Coordinates.toString(getSize()) + ". Use calc(Ret.LINK) instead.");
+		}
+	}
+
 	// this method is doing nothing, but it has to be there for submatrix or
 	// selection where it is overridden
 	public void setDouble(double value, long... coordinates) {
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation;
+
+import org.ujmp.core.calculation.MultiThreadedCalculation;
+
+/**
+ * A calculation where every entry depends only on the entries at the same
+ * position in its sources. Such calculations can be evaluated on blocks of raw
+ * values, which allows {@link FusedEntrywiseCalculation} to evaluate a whole
+ * chain of them without creating intermediate matrices. Entries can be
+ * computed from several threads at the same time.
+ *
+ * @author Holger Arndt
+ */
+public interface EntrywiseDoubleCalculation extends DoubleCalculation,
+		MultiThreadedCalculation {
+
+	/**
+	 * Computes the first <code>length</code> entries of <code>target</code>
+	 * from the entries at the same index in <code>sources</code>, which are in
+	 * the same order as the sources of the calculation.
+	 */
+	public void calcBlock(double[][] sources, double[] target, int length);
+
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation;
+
+import org.ujmp.core.Coordinates;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.impl.ArrayDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DoubleCalculationMatrix;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.interfaces.HasRowMajorDoubleArray2D;
+import org.ujmp.core.util.concurrent.PFor;
+
+/**
+ * Evaluates chains of entrywise calculations, which have been linked with
+ * <code>Ret.LINK</code>, in a single pass. The chain is compiled into a tree
+ * which computes blocks of {@link #BLOCKSIZE} entries and reads the values of
+ * dense sources directly from their arrays. Only one block per calculation is
+ * kept in memory, no intermediate matrices are created. Large matrices are
+ * split into ranges of blocks which are computed in parallel.
+ * <p>
+ * The blocks run along the columns, unless at least as many sources store
+ * their values by rows as by columns. Then they run along the rows and the
+ * result is an {@link ArrayDenseDoubleMatrix2D}, so that row-major sources
+ * and the result are copied row by row.
+ *
+ * @author Holger Arndt
+ */
+public abstract class FusedEntrywiseCalculation {
+
+	public static final int BLOCKSIZE = 1024;
+
+	public static int PARALLELTHRESHOLD = 1 << 15;
+
+	private static final int ROWMAJOR = 0;
+
+	private static final int COLUMNMAJOR = 1;
+
+	/**
+	 * Returns true if the calculation is entrywise and two-dimensional and
+	 * none of the matrices it reads from, directly or through linked
+	 * calculations, is sparse.
+	 */
+	public static boolean isApplicable(AbstractDoubleCalculation calculation) {
+		final long[] size = calculation.getSize();
+		return size.length == 2 && Coordinates.product(size) <= Integer.MAX_VALUE
+				&& isFusible(calculation, size);
+	}
+
+	private static boolean isFusible(DoubleCalculation calculation, long[] size) {
+		if (!(calculation instanceof EntrywiseDoubleCalculation)
+				|| !Coordinates.equals(size, calculation.getSize())) {
+			return false;
+		}
+		for (Matrix source : calculation.getSources()) {
+			if (source.isSparse() || !Coordinates.equals(size, source.getSize())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the calculation into a new dense matrix.
+	 */
+	public static Matrix calcNew(AbstractDoubleCalculation calculation) {
+		final int rows = (int) calculation.getSize()[Matrix.ROW];
+		final int columns = (int) calculation.getSize()[Matrix.COLUMN];
+		final int length = rows * columns;
+		final int[] layouts = new int[2];
+		countLayouts(calculation, layouts);
+		final boolean rowMajor = length > 0 && layouts[ROWMAJOR] > 0
+				&& layouts[ROWMAJOR] >= layouts[COLUMNMAJOR];
+		final double[] values = rowMajor ? null : new double[length];
+		final double[][] rowValues = rowMajor ? new double[rows][columns] : null;
+		final int blocks = (length + BLOCKSIZE - 1) / BLOCKSIZE;
+
+		final Node first = compile(calculation, rows, columns, rowMajor);
+		final int threads;
+		if (length >= PARALLELTHRESHOLD && first.isArrayBacked()) {
+			threads = Math.min(blocks, calculation.getThreadCount());
+		} else {
+			threads = 1;
+		}
+
+		// every thread needs its own blocks
+		final Node[] trees = new Node[threads];
+		trees[0] = first;
+		for (int t = 1; t < threads; t++) {
+			trees[t] = compile(calculation, rows, columns, rowMajor);
+		}
+
+		new PFor(threads, 0, threads - 1) {
+
+			@Override
+			public void step(int t) {
+				final Node tree = trees[t];
+				final int toBlock = (int) ((long) blocks * (t + 1) / threads);
+				for (int b = (int) ((long) blocks * t / threads); b < toBlock; b++) {
+					final int offset = b * BLOCKSIZE;
+					final int blockLength = Math.min(BLOCKSIZE, length - offset);
+					tree.calc(offset, blockLength);
+					if (rowMajor) {
+						copyToRows(tree.block, rowValues, offset, blockLength, columns);
+					} else {
+						System.arraycopy(tree.block, 0, values, offset, blockLength);
+					}
+				}
+			}
+		};
+
+		final Matrix result;
+		if (rowMajor) {
+			result = new ArrayDenseDoubleMatrix2D(rowValues);
+		} else {
+			result = new DefaultDenseDoubleMatrix2D(values, rows, columns);
+		}
+		if (calculation.getMetaData() != null) {
+			result.setMetaData(calculation.getMetaData().clone());
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the sources which are stored by rows and by columns.
+	 */
+	private static void countLayouts(DoubleCalculation calculation, int[] layouts) {
+		for (Matrix source : calculation.getSources()) {
+			if (source instanceof DoubleCalculationMatrix
+					&& isFusible(((DoubleCalculationMatrix) source).getCalculation(),
+							source.getSize())) {
+				countLayouts(((DoubleCalculationMatrix) source).getCalculation(), layouts);
+			} else if (source instanceof HasColumnMajorDoubleArray1D) {
+				layouts[COLUMNMAJOR]++;
+			} else if (source instanceof HasRowMajorDoubleArray2D) {
+				layouts[ROWMAJOR]++;
+			}
+		}
+	}
+
+	private static void copyToRows(double[] block, double[][] values, int offset, int length,
+			int columns) {
+		int row = offset / columns;
+		int column = offset % columns;
+		for (int i = 0; i < length; row++, column = 0) {
+			final int count = Math.min(columns - column, length - i);
+			System.arraycopy(block, i, values[row], column, count);
+			i += count;
+		}
+	}
+
+	private static Node compile(DoubleCalculation calculation, int rows, int columns,
+			boolean rowMajor) {
+		final Matrix[] sources = calculation.getSources();
+		final Node[] children = new Node[sources.length];
+		for (int i = 0; i < sources.length; i++) {
+			children[i] = compileSource(sources[i], rows, columns, rowMajor);
+		}
+		return new CalculationNode((EntrywiseDoubleCalculation) calculation, children);
+	}
+
+	private static Node compileSource(Matrix source, int rows, int columns, boolean rowMajor) {
+		if (source instanceof DoubleCalculationMatrix) {
+			final DoubleCalculation linked = ((DoubleCalculationMatrix) source).getCalculation();
+			if (isFusible(linked, source.getSize())) {
+				return compile(linked, rows, columns, rowMajor);
+			}
+		}
+		if (source instanceof HasColumnMajorDoubleArray1D) {
+			return new ColumnMajorNode(
+					((HasColumnMajorDoubleArray1D) source).getColumnMajorDoubleArray1D(), rows,
+					columns, rowMajor);
+		} else if (source instanceof HasRowMajorDoubleArray2D) {
+			return new RowMajorNode(((HasRowMajorDoubleArray2D) source).getRowMajorDoubleArray2D(),
+					rows, columns, rowMajor);
+		} else {
+			return new MatrixNode(source, rows, columns, rowMajor);
+		}
+	}
+
+	private static abstract class Node {
+
+		protected final double[] block = new double[BLOCKSIZE];
+
+		/**
+		 * Fills the block with the entries from <code>offset</code> to
+		 * <code>offset + length - 1</code> in column-major or row-major
+		 * order, as selected when the tree was compiled.
+		 */
+		public abstract void calc(int offset, int length);
+
+		/**
+		 * Returns true if all values are read from arrays, which is safe to
+		 * do from multiple threads.
+		 */
+		public abstract boolean isArrayBacked();
+	}
+
+	private static final class CalculationNode extends Node {
+
+		private final EntrywiseDoubleCalculation calculation;
+
+		private final Node[] children;
+
+		private final double[][] inputs;
+
+		public CalculationNode(EntrywiseDoubleCalculation calculation, Node[] children) {
+			this.calculation = calculation;
+			this.children = children;
+			this.inputs = new double[children.length][];
+			for (int i = 0; i < children.length; i++) {
+				inputs[i] = children[i].block;
+			}
+		}
+
+		@Override
+		public void calc(int offset, int length) {
+			for (Node child : children) {
+				child.calc(offset, length);
+			}
+			calculation.calcBlock(inputs, block, length);
+		}
+
+		@Override
+		public boolean isArrayBacked() {
+			for (Node child : children) {
+				if (!child.isArrayBacked()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static final class ColumnMajorNode extends Node {
+
+		private final double[] values;
+
+		private final int rows;
+
+		private final int columns;
+
+		private final boolean rowMajor;
+
+		public ColumnMajorNode(double[] values, int rows, int columns, boolean rowMajor) {
+			this.values = values;
+			this.rows = rows;
+			this.columns = columns;
+			this.rowMajor = rowMajor;
+		}
+
+		@Override
+		public void calc(int offset, int length) {
+			if (rowMajor) {
+				int row = offset / columns;
+				int column = offset % columns;
+				for (int i = 0; i < length; i++) {
+					block[i] = values[column * rows + row];
+					if (++column == columns) {
+						column = 0;
+						row++;
+					}
+				}
+			} else {
+				System.arraycopy(values, offset, block, 0, length);
+			}
+		}
+
+		@Override
+		public boolean isArrayBacked() {
+			return true;
+		}
+	}
+
+	private static final class RowMajorNode extends Node {
+
+		private final double[][] values;
+
+		private final int rows;
+
+		private final int columns;
+
+		private final boolean rowMajor;
+
+		public RowMajorNode(double[][] values, int rows, int columns, boolean rowMajor) {
+			this.values = values;
+			this.rows = rows;
+			this.columns = columns;
+			this.rowMajor = rowMajor;
+		}
+
+		@Override
+		public void calc(int offset, int length) {
+			if (rowMajor) {
+				int row = offset / columns;
+				int column = offset % columns;
+				for (int i = 0; i < length; row++, column = 0) {
+					final int count = Math.min(columns - column, length - i);
+					System.arraycopy(values[row], column, block, i, count);
+					i += count;
+				}
+			} else {
+				int row = offset % rows;
+				int column = offset / rows;
+				for (int i = 0; i < length; i++) {
+					block[i] = values[row][column];
+					if (++row == rows) {
+						row = 0;
+						column++;
+					}
+				}
+			}
+		}
+
+		@Override
+		public boolean isArrayBacked() {
+			return true;
+		}
+	}
+
+	private static final class MatrixNode extends Node {
+
+		private final Matrix matrix;
+
+		private final int rows;
+
+		private final int columns;
+
+		private final boolean rowMajor;
+
+		public MatrixNode(Matrix matrix, int rows, int columns, boolean rowMajor) {
+			this.matrix = matrix;
+			this.rows = rows;
+			this.columns = columns;
+			this.rowMajor = rowMajor;
+		}
+
+		@Override
+		public void calc(int offset, int length) {
+			if (rowMajor) {
+				int row = offset / columns;
+				int column = offset % columns;
+				for (int i = 0; i < length; i++) {
+					block[i] = matrix.getAsDouble(row, column);
+					if (++column == columns) {
+						column = 0;
+						row++;
+					}
+				}
+			} else {
+				int row = offset % rows;
+				int column = offset / rows;
+				for (int i = 0; i < length; i++) {
+					block[i] = matrix.getAsDouble(row, column);
+					if (++row == rows) {
+						row = 0;
+						column++;
+					}
+				}
+			}
+		}
+
+		@Override
+		public boolean isArrayBacked() {
+			return false;
+		}
+	}
+
+}
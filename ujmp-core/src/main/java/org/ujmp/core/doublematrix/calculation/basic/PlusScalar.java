@@ -25,9 +25,10 @@ package org.ujmp.core.doublematrix.calculation.basic;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 import org.ujmp.core.util.MathUtil;
 
-public class PlusScalar extends AbstractDoubleCalculation {
+public class PlusScalar extends AbstractDoubleCalculation implements EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 4728324680973127164L;
 
 	private final boolean ignoreNaN;
@@ -49,4 +50,17 @@ public class PlusScalar extends AbstractDoubleCalculation {
 				: getSources()[0].getAsDouble(coordinates) + value;
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source = sources[0];
+		if (ignoreNaN) {
+			for (int i = 0; i < length; i++) {
+				target[i] = MathUtil.ignoreNaN(source[i]) + value;
+			}
+		} else {
+			for (int i = 0; i < length; i++) {
+				target[i] = source[i] + value;
+			}
+		}
+	}
+
 }
@@ -25,9 +25,10 @@ package org.ujmp.core.doublematrix.calculation.basic;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 import org.ujmp.core.util.MathUtil;
 
-public class TimesMatrix extends AbstractDoubleCalculation {
+public class TimesMatrix extends AbstractDoubleCalculation implements EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -6305946170602255884L;
 
 	private final boolean ignoreNaN;
@@ -47,4 +48,18 @@ public class TimesMatrix extends AbstractDoubleCalculation {
 				.getAsDouble(coordinates) * getSources()[1].getAsDouble(coordinates);
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source1 = sources[0];
+		final double[] source2 = sources[1];
+		if (ignoreNaN) {
+			for (int i = 0; i < length; i++) {
+				target[i] = MathUtil.ignoreNaN(source1[i]) * MathUtil.ignoreNaN(source2[i]);
+			}
+		} else {
+			for (int i = 0; i < length; i++) {
+				target[i] = source1[i] * source2[i];
+			}
+		}
+	}
+
 }
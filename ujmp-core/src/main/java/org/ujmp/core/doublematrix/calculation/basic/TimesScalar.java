@@ -25,9 +25,10 @@ package org.ujmp.core.doublematrix.calculation.basic;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 import org.ujmp.core.util.MathUtil;
 
-public class TimesScalar extends AbstractDoubleCalculation {
+public class TimesScalar extends AbstractDoubleCalculation implements EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -8325249300328944598L;
 
 	private final boolean ignoreNaN;
@@ -49,4 +50,22 @@ public class TimesScalar extends AbstractDoubleCalculation {
 				: getSources()[0].getAsDouble(coordinates) * value;
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source = sources[0];
+		if (ignoreNaN) {
+			for (int i = 0; i < length; i++) {
+				target[i] = MathUtil.ignoreNaN(source[i]) * value;
+			}
+		} else {
+			for (int i = 0; i < length; i++) {
+				target[i] = source[i] * value;
+			}
+		}
+	}
+
+	@Override
+	public boolean isZeroPreserving() {
+		return !Double.isNaN(value) && !Double.isInfinite(value);
+	}
+
 }
@@ -25,8 +25,9 @@ package org.ujmp.core.doublematrix.calculation.entrywise.basic;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 
-public class Abs extends AbstractDoubleCalculation {
+public class Abs extends AbstractDoubleCalculation implements EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 6393277198816850597L;
 
 	public Abs(Matrix matrix) {
@@ -37,4 +38,16 @@ public class Abs extends AbstractDoubleCalculation {
 		return Math.abs(getSource().getAsDouble(coordinates));
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source = sources[0];
+		for (int i = 0; i < length; i++) {
+			target[i] = Math.abs(source[i]);
+		}
+	}
+
+	@Override
+	public boolean isZeroPreserving() {
+		return true;
+	}
+
 }
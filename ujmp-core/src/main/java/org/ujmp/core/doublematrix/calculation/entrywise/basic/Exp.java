@@ -25,8 +25,9 @@ package org.ujmp.core.doublematrix.calculation.entrywise.basic;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 
-public class Exp extends AbstractDoubleCalculation {
+public class Exp extends AbstractDoubleCalculation implements EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 4197072098253310072L;
 
 	public Exp(Matrix matrix) {
@@ -37,4 +38,11 @@ public class Exp extends AbstractDoubleCalculation {
 		return Math.exp(getSource().getAsDouble(coordinates));
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source = sources[0];
+		for (int i = 0; i < length; i++) {
+			target[i] = Math.exp(source[i]);
+		}
+	}
+
 }
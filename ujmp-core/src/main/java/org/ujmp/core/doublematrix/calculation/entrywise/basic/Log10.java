@@ -25,8 +25,9 @@ package org.ujmp.core.doublematrix.calculation.entrywise.basic;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 
-public class Log10 extends AbstractDoubleCalculation {
+public class Log10 extends AbstractDoubleCalculation implements EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -5673588058854751554L;
 
 	public Log10(Matrix matrix) {
@@ -38,4 +39,11 @@ public class Log10 extends AbstractDoubleCalculation {
 		return Math.log(v) / Math.log(10.0);
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source = sources[0];
+		for (int i = 0; i < length; i++) {
+			target[i] = Math.log(source[i]) / Math.log(10.0);
+		}
+	}
+
 }
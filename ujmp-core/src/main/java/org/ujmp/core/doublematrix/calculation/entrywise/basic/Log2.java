@@ -25,8 +25,9 @@ package org.ujmp.core.doublematrix.calculation.entrywise.basic;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 
-public class Log2 extends AbstractDoubleCalculation {
+public class Log2 extends AbstractDoubleCalculation implements EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 1858516096849343584L;
 
 	public Log2(Matrix matrix) {
@@ -38,4 +39,11 @@ public class Log2 extends AbstractDoubleCalculation {
 		return Math.log(v) / Math.log(2.0);
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source = sources[0];
+		for (int i = 0; i < length; i++) {
+			target[i] = Math.log(source[i]) / Math.log(2.0);
+		}
+	}
+
 }
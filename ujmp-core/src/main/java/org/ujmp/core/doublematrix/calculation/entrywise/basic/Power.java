@@ -26,8 +26,9 @@ package org.ujmp.core.doublematrix.calculation.entrywise.basic;
 import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 
-public class Power extends AbstractDoubleCalculation {
+public class Power extends AbstractDoubleCalculation implements EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -6766560469728046231L;
 
 	public Power(Matrix m1, Matrix m2) {
@@ -46,4 +47,12 @@ public class Power extends AbstractDoubleCalculation {
 				getSources()[1].getAsDouble(coordinates));
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source1 = sources[0];
+		final double[] source2 = sources[1];
+		for (int i = 0; i < length; i++) {
+			target[i] = Math.pow(source1[i], source2[i]);
+		}
+	}
+
 }
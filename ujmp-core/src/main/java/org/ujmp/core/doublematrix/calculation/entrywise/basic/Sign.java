@@ -25,8 +25,9 @@ package org.ujmp.core.doublematrix.calculation.entrywise.basic;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 
-public class Sign extends AbstractDoubleCalculation {
+public class Sign extends AbstractDoubleCalculation implements EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 8479106978433813886L;
 
 	public Sign(Matrix matrix) {
@@ -37,4 +38,16 @@ public class Sign extends AbstractDoubleCalculation {
 		return Math.signum(getSource().getAsDouble(coordinates));
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source = sources[0];
+		for (int i = 0; i < length; i++) {
+			target[i] = Math.signum(source[i]);
+		}
+	}
+
+	@Override
+	public boolean isZeroPreserving() {
+		return true;
+	}
+
 }
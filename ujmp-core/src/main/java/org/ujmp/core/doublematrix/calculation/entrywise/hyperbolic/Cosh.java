@@ -25,8 +25,9 @@ package org.ujmp.core.doublematrix.calculation.entrywise.hyperbolic;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 
-public class Cosh extends AbstractDoubleCalculation {
+public class Cosh extends AbstractDoubleCalculation implements EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 8550455956560577297L;
 
 	public Cosh(Matrix matrix) {
@@ -37,4 +38,11 @@ public class Cosh extends AbstractDoubleCalculation {
 		return Math.cosh(getSource().getAsDouble(coordinates));
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source = sources[0];
+		for (int i = 0; i < length; i++) {
+			target[i] = Math.cosh(source[i]);
+		}
+	}
+
 }
@@ -25,8 +25,9 @@ package org.ujmp.core.doublematrix.calculation.entrywise.hyperbolic;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 
-public class Sinh extends AbstractDoubleCalculation {
+public class Sinh extends AbstractDoubleCalculation implements EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 2083545526665186477L;
 
 	public Sinh(Matrix matrix) {
@@ -37,4 +38,16 @@ public class Sinh extends AbstractDoubleCalculation {
 		return Math.sinh(getSource().getAsDouble(coordinates));
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source = sources[0];
+		for (int i = 0; i < length; i++) {
+			target[i] = Math.sinh(source[i]);
+		}
+	}
+
+	@Override
+	public boolean isZeroPreserving() {
+		return true;
+	}
+
 }
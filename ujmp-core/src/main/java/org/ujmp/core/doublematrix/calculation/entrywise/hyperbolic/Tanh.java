@@ -25,8 +25,9 @@ package org.ujmp.core.doublematrix.calculation.entrywise.hyperbolic;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 
-public class Tanh extends AbstractDoubleCalculation {
+public class Tanh extends AbstractDoubleCalculation implements EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -3681404429953396643L;
 
 	public Tanh(Matrix matrix) {
@@ -37,4 +38,16 @@ public class Tanh extends AbstractDoubleCalculation {
 		return Math.tanh(getSource().getAsDouble(coordinates));
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source = sources[0];
+		for (int i = 0; i < length; i++) {
+			target[i] = Math.tanh(source[i]);
+		}
+	}
+
+	@Override
+	public boolean isZeroPreserving() {
+		return true;
+	}
+
 }
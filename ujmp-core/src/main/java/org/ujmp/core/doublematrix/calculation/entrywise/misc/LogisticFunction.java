@@ -25,8 +25,10 @@ package org.ujmp.core.doublematrix.calculation.entrywise.misc;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 
-public class LogisticFunction extends AbstractDoubleCalculation {
+public class LogisticFunction extends AbstractDoubleCalculation implements
+		EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -82780095324379021L;
 
 	public LogisticFunction(Matrix matrix) {
@@ -37,4 +39,11 @@ public class LogisticFunction extends AbstractDoubleCalculation {
 		return 1.0 / (Math.exp(-getSource().getAsDouble(coordinates)) + 1.0);
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source = sources[0];
+		for (int i = 0; i < length; i++) {
+			target[i] = 1.0 / (Math.exp(-source[i]) + 1.0);
+		}
+	}
+
 }
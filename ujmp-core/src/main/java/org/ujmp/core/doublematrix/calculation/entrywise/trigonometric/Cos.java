@@ -25,8 +25,9 @@ package org.ujmp.core.doublematrix.calculation.entrywise.trigonometric;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.EntrywiseDoubleCalculation;
 
-public class Cos extends AbstractDoubleCalculation {
+public class Cos extends AbstractDoubleCalculation implements EntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 5733248311765384359L;
 
 	public Cos(Matrix matrix) {
@@ -37,4 +38,11 @@ public class Cos extends AbstractDoubleCalculation {
 		return Math.cos(getSource().getAsDouble(coordinates));
 	}
 
+	public void calcBlock(double[][] sources, double[] target, int length) {
+		final double[] source = sources[0];
+		for (int i = 0; i < length; i++) {
+			target[i] = Math.cos(source[i]);
+		}
+	}
+
 }
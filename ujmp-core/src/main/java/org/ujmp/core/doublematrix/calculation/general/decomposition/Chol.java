@@ -25,8 +25,14 @@ package org.ujmp.core.doublematrix.calculation.general.decomposition;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.PackedGemm;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.util.Autotuner;
 import org.ujmp.core.util.DecompositionOps;
+import org.ujmp.core.util.MathUtil;
 import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
 
 /**
  * Cholesky Decomposition.
@@ -50,6 +56,9 @@ public interface Chol<T> {
 	public static final Chol<Matrix> MATRIX = new Chol<Matrix>() {
 
 		public final Matrix calc(Matrix source) {
+			if (UJMPSettings.getInstance().isUseAutotuner()) {
+				return Autotuner.getInstance().getChol(source).calc(source);
+			}
 			if (UJMPSettings.getInstance().getNumberOfThreads() == 1) {
 				if (source.getRowCount() >= THRESHOLD && source.getColumnCount() >= THRESHOLD) {
 					return MATRIXLARGESINGLETHREADED.calc(source);
@@ -66,6 +75,9 @@ public interface Chol<T> {
 		}
 
 		public final Matrix solve(Matrix source, Matrix b) {
+			if (UJMPSettings.getInstance().isUseAutotuner()) {
+				return Autotuner.getInstance().getChol(source).solve(source, b);
+			}
 			if (UJMPSettings.getInstance().getNumberOfThreads() == 1) {
 				if (source.getRowCount() >= THRESHOLD && source.getColumnCount() >= THRESHOLD) {
 					return MATRIXLARGESINGLETHREADED.solve(source, b);
@@ -84,7 +96,7 @@ public interface Chol<T> {
 
 	public static final Chol<Matrix> INSTANCE = MATRIX;
 
-	public static final Chol<Matrix> UJMP = new Chol<Matrix>() {
+	public static final Chol<Matrix> UJMPUNBLOCKED = new Chol<Matrix>() {
 
 		public final Matrix calc(Matrix source) {
 			CholMatrix chol = new CholMatrix(source);
@@ -97,6 +109,38 @@ public interface Chol<T> {
 		}
 	};
 
+	public static final Chol<Matrix> UJMPBLOCKED = new Chol<Matrix>() {
+
+		public final Matrix calc(Matrix source) {
+			BlockedCholMatrix chol = new BlockedCholMatrix(source);
+			return chol.getL();
+		}
+
+		public final Matrix solve(Matrix source, Matrix b) {
+			BlockedCholMatrix chol = new BlockedCholMatrix(source);
+			return chol.solve(b);
+		}
+	};
+
+	public static final Chol<Matrix> UJMP = new Chol<Matrix>() {
+
+		public final Matrix calc(Matrix source) {
+			if (BlockedCholMatrix.isApplicable(source)) {
+				return UJMPBLOCKED.calc(source);
+			} else {
+				return UJMPUNBLOCKED.calc(source);
+			}
+		}
+
+		public final Matrix solve(Matrix source, Matrix b) {
+			if (BlockedCholMatrix.isApplicable(source)) {
+				return UJMPBLOCKED.solve(source, b);
+			} else {
+				return UJMPUNBLOCKED.solve(source, b);
+			}
+		}
+	};
+
 	public static final Chol<Matrix> MATRIXSMALLMULTITHREADED = UJMP;
 
 	public static final Chol<Matrix> MATRIXSMALLSINGLETHREADED = UJMP;
@@ -339,4 +383,360 @@ public interface Chol<T> {
 		}
 
 	}
+
+	/**
+	 * Blocked Cholesky decomposition, computed in place on a column-major copy
+	 * of the matrix.
+	 * <P>
+	 * The matrix is processed in panels of NB columns. After the diagonal block
+	 * of a panel is factored, the block below it is obtained by a triangular
+	 * solve distributed over row ranges, and the lower triangle of the trailing
+	 * submatrix is updated tile by tile with {@link PackedGemm}, with the tiles
+	 * spread over the UJMP thread pool. solve() and inverse() are built from
+	 * the same blocked operations.
+	 */
+	final class BlockedCholMatrix {
+
+		/** number of columns in a panel */
+		public static final int NB = 64;
+
+		/** size of the tiles for the updates of the lower triangle */
+		public static final int TB = 128;
+
+		/** minimum number of rows for one thread in the triangular solve */
+		public static final int MINROWSPERTHREAD = 64;
+
+		/** minimum number of multiply-adds per thread when solving */
+		public static final long MINWORKPERTHREAD = 64 * 64 * 64;
+
+		/** L in column-major order, the upper triangle is not used */
+		private final double[] L;
+
+		private final int n;
+
+		private boolean isspd;
+
+		/**
+		 * Returns true if the blocked algorithm should be used instead of
+		 * {@link CholMatrix}, i.e. for dense double matrices with at least
+		 * THRESHOLD rows and columns.
+		 */
+		public static final boolean isApplicable(Matrix A) {
+			return A instanceof DenseDoubleMatrix2D && A.getRowCount() >= THRESHOLD
+					&& A.getColumnCount() >= THRESHOLD;
+		}
+
+		/**
+		 * Cholesky algorithm for symmetric and positive definite matrix.
+		 * 
+		 * @param A
+		 *            Square, symmetric matrix.
+		 */
+		public BlockedCholMatrix(Matrix A) {
+			n = MathUtil.longToInt(A.getRowCount());
+			L = new double[MathUtil.longToInt((long) n * (long) n)];
+			isspd = (A.getColumnCount() == n);
+			if (!isspd) {
+				return;
+			}
+			if (A instanceof HasColumnMajorDoubleArray1D) {
+				System.arraycopy(((HasColumnMajorDoubleArray1D) A).getColumnMajorDoubleArray1D(), 0,
+						L, 0, L.length);
+			} else if (A instanceof DenseDoubleMatrix2D) {
+				final DenseDoubleMatrix2D a = (DenseDoubleMatrix2D) A;
+				for (int c = 0; c < n; c++) {
+					final int col = c * n;
+					for (int r = 0; r < n; r++) {
+						L[col + r] = a.getDouble(r, c);
+					}
+				}
+			} else {
+				for (int c = 0; c < n; c++) {
+					final int col = c * n;
+					for (int r = 0; r < n; r++) {
+						L[col + r] = A.getAsDouble(r, c);
+					}
+				}
+			}
+			for (int j = 0; j < n && isspd; j++) {
+				for (int i = j + 1; i < n; i++) {
+					if (L[j * n + i] != L[i * n + j]) {
+						isspd = false;
+						break;
+					}
+				}
+			}
+
+			final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+			for (int jb = 0; jb < n; jb += NB) {
+				final int nb = Math.min(NB, n - jb);
+				final int je = jb + nb;
+
+				factorDiagonal(jb, je);
+
+				if (je < n) {
+					updateTrailing(threads, jb, je);
+				}
+			}
+		}
+
+		private final void updateTrailing(final int threads, final int jb, final int je) {
+			// L21 = A21 * L11^-T
+			final int rows = n - je;
+			final int workers = Math.max(1, Math.min(threads, rows / MINROWSPERTHREAD));
+			if (workers < 2) {
+				solvePanel(je, n, jb, je);
+			} else {
+				final int rowsPerWorker = (rows + workers - 1) / workers;
+				new PFor(workers, 0, workers - 1) {
+					@Override
+					public void step(int i) {
+						final int from = je + i * rowsPerWorker;
+						final int to = Math.min(n, from + rowsPerWorker);
+						if (from < to) {
+							solvePanel(from, to, jb, je);
+						}
+					}
+				};
+			}
+
+			// A22 = A22 - L21 * L21', lower triangle only
+			final int nb = je - jb;
+			LowerTiles.forEach(threads, n, TB, je, new LowerTiles.Operation() {
+				public void run(int i0, int mi, int j0, int nj) {
+					PackedGemm.gemm(1, false, true, mi, nj, nb, -1.0, L, jb * n + i0, n, L, jb * n
+							+ j0, n, 1.0, L, j0 * n + i0, n);
+				}
+			});
+		}
+
+		private final void factorDiagonal(final int jb, final int je) {
+			for (int j = jb; j < je; j++) {
+				final int col = j * n;
+				double d = L[col + j];
+				for (int p = jb; p < j; p++) {
+					final double v = L[p * n + j];
+					d -= v * v;
+				}
+				isspd = isspd & (d > 0.0);
+				final double ljj = Math.sqrt(Math.max(d, 0.0));
+				L[col + j] = ljj;
+				for (int i = j + 1; i < je; i++) {
+					double s = L[col + i];
+					for (int p = jb; p < j; p++) {
+						s -= L[p * n + i] * L[p * n + j];
+					}
+					L[col + i] = s / ljj;
+				}
+			}
+		}
+
+		private final void solvePanel(final int fromRow, final int toRow, final int jb,
+				final int je) {
+			for (int j = jb; j < je; j++) {
+				final int col = j * n;
+				for (int p = jb; p < j; p++) {
+					final int pcol = p * n;
+					final double f = L[pcol + j];
+					if (f != 0.0) {
+						for (int i = fromRow; i < toRow; i++) {
+							L[col + i] -= L[pcol + i] * f;
+						}
+					}
+				}
+				final double d = L[col + j];
+				for (int i = fromRow; i < toRow; i++) {
+					L[col + i] /= d;
+				}
+			}
+		}
+
+		/**
+		 * Is the matrix symmetric and positive definite?
+		 * 
+		 * @return true if A is symmetric and positive definite.
+		 */
+		public final boolean isSPD() {
+			return isspd;
+		}
+
+		/**
+		 * Return triangular factor.
+		 * 
+		 * @return L
+		 */
+		public final DenseDoubleMatrix2D getL() {
+			final double[] l = new double[n * n];
+			for (int j = 0; j < n; j++) {
+				System.arraycopy(L, j * n + j, l, j * n + j, n - j);
+			}
+			return new DefaultDenseDoubleMatrix2D(l, n, n);
+		}
+
+		/**
+		 * Solve A*X = B
+		 * 
+		 * @param B
+		 *            A Matrix with as many rows as A and any number of columns.
+		 * @return X so that L*L'*X = B
+		 * @exception IllegalArgumentException
+		 *                Matrix row dimensions must agree.
+		 * @exception RuntimeException
+		 *                Matrix is not symmetric positive definite.
+		 */
+		public final DenseDoubleMatrix2D solve(Matrix B) {
+			if (B.getRowCount() != n) {
+				throw new IllegalArgumentException("Matrix row dimensions must agree.");
+			}
+			if (!isspd) {
+				throw new RuntimeException("Matrix is not symmetric positive definite.");
+			}
+
+			final int nx = MathUtil.longToInt(B.getColumnCount());
+			final double[] X = new double[n * nx];
+			if (B instanceof HasColumnMajorDoubleArray1D) {
+				System.arraycopy(((HasColumnMajorDoubleArray1D) B).getColumnMajorDoubleArray1D(), 0,
+						X, 0, X.length);
+			} else {
+				for (int c = 0; c < nx; c++) {
+					final int col = c * n;
+					for (int r = 0; r < n; r++) {
+						X[col + r] = B.getAsDouble(r, c);
+					}
+				}
+			}
+
+			final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+
+			// Solve L*Y = B;
+			for (int jb = 0; jb < n; jb += NB) {
+				final int nb = Math.min(NB, n - jb);
+				final int je = jb + nb;
+				solveDiagonal(threads, X, nx, jb, je, false);
+				if (je < n) {
+					PackedGemm.gemm(threads, false, false, n - je, nx, nb, -1.0, L, jb * n + je, n,
+							X, jb, n, 1.0, X, je, n);
+				}
+			}
+
+			// Solve L'*X = Y;
+			for (int jb = ((n - 1) / NB) * NB; jb >= 0; jb -= NB) {
+				final int nb = Math.min(NB, n - jb);
+				final int je = jb + nb;
+				if (je < n) {
+					PackedGemm.gemm(threads, true, false, nb, nx, n - je, -1.0, L, jb * n + je, n,
+							X, je, n, 1.0, X, jb, n);
+				}
+				solveDiagonal(threads, X, nx, jb, je, true);
+			}
+
+			return new DefaultDenseDoubleMatrix2D(X, n, nx);
+		}
+
+		/**
+		 * Solves L11*X = X or L11'*X = X for the rows jb to je-1 of X.
+		 */
+		private final void solveDiagonal(final int threads, final double[] X, final int nx,
+				final int jb, final int je, final boolean transpose) {
+			final int nb = je - jb;
+			final long work = (long) nb * (long) nb * (long) nx;
+			final int workers = (int) Math.max(1, Math.min(threads, work / MINWORKPERTHREAD));
+			if (workers < 2) {
+				for (int c = 0; c < nx; c++) {
+					solveDiagonal(X, c * n, jb, je, transpose);
+				}
+			} else {
+				new PFor(workers, 0, nx - 1) {
+					@Override
+					public void step(int c) {
+						solveDiagonal(X, c * n, jb, je, transpose);
+					}
+				};
+			}
+		}
+
+		private final void solveDiagonal(final double[] X, final int col, final int jb,
+				final int je, final boolean transpose) {
+			if (transpose) {
+				for (int j = je - 1; j >= jb; j--) {
+					final int lcol = j * n;
+					double s = X[col + j];
+					for (int i = j + 1; i < je; i++) {
+						s -= L[lcol + i] * X[col + i];
+					}
+					X[col + j] = s / L[lcol + j];
+				}
+			} else {
+				for (int j = jb; j < je; j++) {
+					final int lcol = j * n;
+					final double x = (X[col + j] /= L[lcol + j]);
+					if (x != 0.0) {
+						for (int i = j + 1; i < je; i++) {
+							X[col + i] -= L[lcol + i] * x;
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Inverse of A, computed as L^-T * L^-1. Only the lower triangle is
+		 * calculated, the upper triangle is copied from it.
+		 * 
+		 * @return A^-1
+		 * @exception RuntimeException
+		 *                Matrix is not symmetric positive definite.
+		 */
+		public final DenseDoubleMatrix2D inverse() {
+			if (!isspd) {
+				throw new RuntimeException("Matrix is not symmetric positive definite.");
+			}
+
+			final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+
+			// V = L^-1, column j costs (n-j)^2, so combine column j and n-1-j
+			final double[] V = new double[n * n];
+			final int pairs = (n + 1) / 2;
+			new PFor(Math.min(threads, pairs), 0, pairs - 1) {
+				@Override
+				public void step(int j) {
+					invertColumn(V, j);
+					if (n - 1 - j != j) {
+						invertColumn(V, n - 1 - j);
+					}
+				}
+			};
+
+			// lower triangle of V' * V, V(i,j) is 0 for i < j
+			final double[] R = new double[n * n];
+			LowerTiles.forEach(threads, n, TB, 0, new LowerTiles.Operation() {
+				public void run(int i0, int mi, int j0, int nj) {
+					PackedGemm.gemm(1, true, false, mi, nj, n - i0, 1.0, V, i0 * n + i0, n, V, j0
+							* n + i0, n, 0.0, R, j0 * n + i0, n);
+				}
+			});
+
+			for (int j = 0; j < n; j++) {
+				for (int i = j + 1; i < n; i++) {
+					R[i * n + j] = R[j * n + i];
+				}
+			}
+			return new DefaultDenseDoubleMatrix2D(R, n, n);
+		}
+
+		private final void invertColumn(final double[] V, final int j) {
+			final int col = j * n;
+			V[col + j] = 1.0;
+			for (int k = j; k < n; k++) {
+				final int lcol = k * n;
+				final double x = (V[col + k] /= L[lcol + k]);
+				if (x != 0.0) {
+					for (int i = k + 1; i < n; i++) {
+						V[col + i] -= L[lcol + i] * x;
+					}
+				}
+			}
+		}
+
+	}
 }
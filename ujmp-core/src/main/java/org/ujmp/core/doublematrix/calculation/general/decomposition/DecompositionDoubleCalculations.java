@@ -112,6 +112,19 @@ public interface DecompositionDoubleCalculations {
 	 */
 	public Matrix princomp();
 
+	/**
+	 * Projects the matrix into the space of the k largest principal
+	 * components, which are approximated by a randomized truncated Singular
+	 * Value Decomposition. This speeds up processing for large and sparse
+	 * matrices.
+	 * 
+	 * @param k
+	 *            number of principal components
+	 * 
+	 * @return Matrix projected on principal components, with k columns.
+	 */
+	public Matrix princomp(int k);
+
 	/**
 	 * Calculates the singular value decomposition of the matrix: A = U*S*V'
 	 * 
@@ -145,6 +158,27 @@ public interface DecompositionDoubleCalculations {
 	 */
 	public Matrix[] eigSymm();
 
+	/**
+	 * Calculates the k largest eigenvalues and their eigenvectors of a
+	 * symmetric matrix: A*V = V*D, where V has k columns and the eigenvalues
+	 * in D are sorted in descending order. Only the lower triangle of the
+	 * matrix is used.
+	 * 
+	 * @param k
+	 *            number of eigenvalues to consider
+	 * 
+	 * @return Partial Eigen decomposition of the matrix.
+	 */
+	public Matrix[] eigSymm(int k);
+
+	/**
+	 * Calculates the eigenvalues of a symmetric matrix without the
+	 * eigenvectors. Only the lower triangle of the matrix is used.
+	 * 
+	 * @return column vector with the eigenvalues in ascending order
+	 */
+	public Matrix eigValuesSymm();
+
 	/**
 	 * Calculates a QR decomposition of the matrix.
 	 * 
@@ -23,11 +23,20 @@
 
 package org.ujmp.core.doublematrix.calculation.general.decomposition;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.PackedGemm;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.util.Autotuner;
 import org.ujmp.core.util.DecompositionOps;
 import org.ujmp.core.util.MathUtil;
 import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
 
 /**
  * Eigenvalues and eigenvectors of a real matrix.
@@ -54,6 +63,9 @@ public interface Eig<T> {
 	public static final Eig<Matrix> MATRIX = new Eig<Matrix>() {
 
 		public final Matrix[] calc(Matrix source) {
+			if (UJMPSettings.getInstance().isUseAutotuner()) {
+				return Autotuner.getInstance().getEig(source).calc(source);
+			}
 			if (UJMPSettings.getInstance().getNumberOfThreads() == 1) {
 				if (source.getRowCount() >= THRESHOLD && source.getColumnCount() >= THRESHOLD) {
 					return MATRIXLARGESINGLETHREADED.calc(source);
@@ -107,7 +119,7 @@ public interface Eig<T> {
 
 	public static final Eig<Matrix> INSTANCE = MATRIX;
 
-	public static final Eig<Matrix> UJMP = new Eig<Matrix>() {
+	public static final Eig<Matrix> UJMPUNBLOCKED = new Eig<Matrix>() {
 
 		public final Matrix[] calc(Matrix source) {
 			EigMatrix qr = new EigMatrix(source);
@@ -115,6 +127,25 @@ public interface Eig<T> {
 		}
 	};
 
+	public static final Eig<Matrix> UJMPBLOCKED = new Eig<Matrix>() {
+
+		public final Matrix[] calc(Matrix source) {
+			SymmetricEigMatrix eig = new SymmetricEigMatrix(source);
+			return new Matrix[] { eig.getV(), eig.getD() };
+		}
+	};
+
+	public static final Eig<Matrix> UJMP = new Eig<Matrix>() {
+
+		public final Matrix[] calc(Matrix source) {
+			if (SymmetricEigMatrix.isApplicable(source)) {
+				return UJMPBLOCKED.calc(source);
+			} else {
+				return UJMPUNBLOCKED.calc(source);
+			}
+		}
+	};
+
 	public static final Eig<Matrix> MATRIXSMALLMULTITHREADED = UJMP;
 
 	public static final Eig<Matrix> MATRIXSMALLSINGLETHREADED = UJMP;
@@ -1079,4 +1110,1074 @@ public interface Eig<T> {
 		}
 
 	}
+
+	/**
+	 * Eigenvalues and eigenvectors of a symmetric matrix.
+	 * <P>
+	 * The matrix is reduced to tridiagonal form T = Q'*A*Q with blocked
+	 * Householder transformations. Each panel of NB columns is reduced with
+	 * matrix-vector products and the rest of the matrix receives one rank-2*NB
+	 * update, computed in tiles on the UJMP thread pool. The eigenvectors of T
+	 * are calculated by divide and conquer, where both halves of a split are
+	 * solved in parallel, and transformed back with blocks of reflectors.
+	 * Instead of all eigenpairs, only the eigenvalues (QL iteration on T) or
+	 * the k largest eigenpairs (inverse iteration on T) can be requested. Only
+	 * the lower triangle of A is used.
+	 */
+	final class SymmetricEigMatrix {
+
+		/** number of columns in a panel of the tridiagonal reduction */
+		public static final int NB = 32;
+
+		/** size of the tiles for the updates of the lower triangle */
+		public static final int TB = 128;
+
+		/** largest tridiagonal matrix that is solved by QL iteration directly */
+		public static final int SMALLSIZE = 25;
+
+		/** smallest tridiagonal matrix whose halves are solved in parallel */
+		public static final int PARALLELSIZE = 256;
+
+		private static final double EPSILON = Math.pow(2.0, -52.0);
+
+		private final int n;
+
+		/** eigenvalues, ascending or in descending order for the k largest */
+		private final double[] values;
+
+		/** eigenvectors in column-major order, null if not calculated */
+		private final double[] vectors;
+
+		/**
+		 * Returns true if this class should be used instead of
+		 * {@link EigMatrix}, i.e. for symmetric dense double matrices with at
+		 * least THRESHOLD rows.
+		 */
+		public static final boolean isApplicable(Matrix A) {
+			if (!(A instanceof DenseDoubleMatrix2D) || A.getRowCount() < THRESHOLD
+					|| A.getRowCount() != A.getColumnCount()) {
+				return false;
+			}
+			final DenseDoubleMatrix2D a = (DenseDoubleMatrix2D) A;
+			final int n = (int) a.getRowCount();
+			for (int c = 0; c < n; c++) {
+				for (int r = c + 1; r < n; r++) {
+					if (a.getDouble(r, c) != a.getDouble(c, r)) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Calculates all eigenvalues and eigenvectors.
+		 * 
+		 * @param A
+		 *            Square, symmetric matrix.
+		 */
+		public SymmetricEigMatrix(Matrix A) {
+			this(A, true);
+		}
+
+		/**
+		 * Calculates all eigenvalues and optionally all eigenvectors.
+		 * 
+		 * @param A
+		 *            Square, symmetric matrix.
+		 * @param computeVectors
+		 *            calculate eigenvalues only if false
+		 */
+		public SymmetricEigMatrix(Matrix A, boolean computeVectors) {
+			this(A, MathUtil.longToInt(A.getRowCount()), computeVectors, false);
+		}
+
+		/**
+		 * Calculates the k largest eigenvalues and their eigenvectors.
+		 * 
+		 * @param A
+		 *            Square, symmetric matrix.
+		 * @param k
+		 *            number of eigenpairs
+		 */
+		public SymmetricEigMatrix(Matrix A, int k) {
+			this(A, k, true, true);
+		}
+
+		private SymmetricEigMatrix(Matrix A, int k, boolean computeVectors, boolean descending) {
+			if (A.getRowCount() != A.getColumnCount()) {
+				throw new IllegalArgumentException("Matrix must be square.");
+			}
+			if (A.containsMissingValues()) {
+				throw new RuntimeException("matrix contains missing values");
+			}
+			n = MathUtil.longToInt(A.getRowCount());
+			if (k < 1 || k > n) {
+				throw new IllegalArgumentException("k must be between 1 and " + n);
+			}
+
+			final double[] a = new double[MathUtil.longToInt((long) n * (long) n)];
+			if (A instanceof HasColumnMajorDoubleArray1D) {
+				System.arraycopy(((HasColumnMajorDoubleArray1D) A).getColumnMajorDoubleArray1D(), 0,
+						a, 0, a.length);
+			} else {
+				for (int c = 0; c < n; c++) {
+					final int col = c * n;
+					for (int r = c; r < n; r++) {
+						a[col + r] = A.getAsDouble(r, c);
+					}
+				}
+			}
+
+			final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+			final double[] d = new double[n];
+			final double[] e = new double[n];
+			final double[] tau = new double[n];
+			tridiagonalize(threads, a, d, e, tau);
+
+			if (!computeVectors) {
+				tql(d, e, null, 0, n);
+				values = d;
+				vectors = null;
+			} else if (k < n) {
+				final double[] all = d.clone();
+				tql(all, e.clone(), null, 0, n);
+				values = new double[k];
+				for (int i = 0; i < k; i++) {
+					values[i] = all[n - 1 - i];
+				}
+				vectors = inverseIteration(d, e, values);
+				backTransform(threads, a, tau, vectors, k);
+			} else {
+				final double[] Z = divideAndConquer(threads, d, e, n);
+				backTransform(threads, a, tau, Z, n);
+				if (descending) {
+					values = new double[n];
+					vectors = new double[Z.length];
+					for (int i = 0; i < n; i++) {
+						values[i] = d[n - 1 - i];
+						System.arraycopy(Z, (n - 1 - i) * n, vectors, i * n, n);
+					}
+				} else {
+					values = d;
+					vectors = Z;
+				}
+			}
+		}
+
+		/**
+		 * Reduces the lower triangle of a to tridiagonal form with diagonal d
+		 * and subdiagonal e. The Householder vectors are stored below the
+		 * subdiagonal of a, their scalar factors in tau.
+		 */
+		private final void tridiagonalize(final int threads, final double[] a, final double[] d,
+				final double[] e, final double[] tau) {
+			final double[] W = new double[n * NB];
+			int p0 = 0;
+			while (n - p0 > NB) {
+				reducePanel(threads, a, p0, NB, W, e, tau);
+
+				// A22 = A22 - V*W' - W*V', lower triangle only
+				final int panel = p0;
+				LowerTiles.forEach(threads, n, TB, p0 + NB, new LowerTiles.Operation() {
+					public void run(int i0, int mi, int j0, int nj) {
+						PackedGemm.gemm(1, false, true, mi, nj, NB, -1.0, a, panel * n + i0, n, W,
+								j0, n, 1.0, a, j0 * n + i0, n);
+						PackedGemm.gemm(1, false, true, mi, nj, NB, -1.0, W, i0, n, a, panel * n
+								+ j0, n, 1.0, a, j0 * n + i0, n);
+					}
+				});
+
+				for (int j = p0; j < p0 + NB; j++) {
+					a[j * n + j + 1] = e[j];
+					d[j] = a[j * n + j];
+				}
+				p0 += NB;
+			}
+
+			reducePanel(threads, a, p0, n - p0, W, e, tau);
+			for (int j = p0; j < n; j++) {
+				if (j < n - 1) {
+					a[j * n + j + 1] = e[j];
+				}
+				d[j] = a[j * n + j];
+			}
+			e[n - 1] = 0.0;
+		}
+
+		/**
+		 * Reduces the columns p0 to p0+nb-1 and returns the matrix W for the
+		 * update of the remaining submatrix. The trailing matrix is not
+		 * modified, and the subdiagonal elements of the panel are set to 1.
+		 */
+		private final void reducePanel(final int threads, final double[] a, final int p0,
+				final int nb, final double[] W, final double[] e, final double[] tau) {
+			final double[] tmp = new double[nb];
+			for (int i = 0; i < nb; i++) {
+				final int j = p0 + i;
+				final int col = j * n;
+
+				// A(j:n,j) = A(j:n,j) - V*W(j,:)' - W*V(j,:)'
+				for (int p = 0; p < i; p++) {
+					final int vcol = (p0 + p) * n;
+					final int wcol = p * n;
+					final double wj = W[wcol + j];
+					final double vj = a[vcol + j];
+					for (int r = j; r < n; r++) {
+						a[col + r] -= a[vcol + r] * wj + W[wcol + r] * vj;
+					}
+				}
+
+				if (j == n - 1) {
+					continue;
+				}
+
+				// reflection H = I - tau*v*v' to annihilate A(j+2:n,j)
+				final int v0 = col + j + 1;
+				final int s = n - j - 1;
+				final double alpha = a[v0];
+				double scale = 0.0;
+				for (int r = 1; r < s; r++) {
+					scale = Math.max(scale, Math.abs(a[v0 + r]));
+				}
+				if (scale == 0.0) {
+					tau[j] = 0.0;
+					e[j] = alpha;
+				} else {
+					scale = Math.max(scale, Math.abs(alpha));
+					double sum = 0.0;
+					for (int r = 0; r < s; r++) {
+						final double v = a[v0 + r] / scale;
+						sum += v * v;
+					}
+					final double nrm = scale * Math.sqrt(sum);
+					final double beta = alpha < 0 ? nrm : -nrm;
+					final double f = 1.0 / (alpha - beta);
+					for (int r = 1; r < s; r++) {
+						a[v0 + r] *= f;
+					}
+					tau[j] = (beta - alpha) / beta;
+					e[j] = beta;
+				}
+				a[v0] = 1.0;
+
+				// W(j+1:n,i) = tau * (A22*v - V*(W'*v) - W*(V'*v))
+				final int w0 = i * n + j + 1;
+				symv(threads, a, j + 1, s, v0, W, w0);
+				if (i > 0) {
+					for (int p = 0; p < i; p++) {
+						double sw = 0.0;
+						final int wcol = p * n + j + 1;
+						for (int r = 0; r < s; r++) {
+							sw += W[wcol + r] * a[v0 + r];
+						}
+						tmp[p] = sw;
+					}
+					for (int p = 0; p < i; p++) {
+						final int vcol = (p0 + p) * n + j + 1;
+						final double t = tmp[p];
+						for (int r = 0; r < s; r++) {
+							W[w0 + r] -= a[vcol + r] * t;
+						}
+					}
+					for (int p = 0; p < i; p++) {
+						double sv = 0.0;
+						final int vcol = (p0 + p) * n + j + 1;
+						for (int r = 0; r < s; r++) {
+							sv += a[vcol + r] * a[v0 + r];
+						}
+						tmp[p] = sv;
+					}
+					for (int p = 0; p < i; p++) {
+						final int wcol = p * n + j + 1;
+						final double t = tmp[p];
+						for (int r = 0; r < s; r++) {
+							W[w0 + r] -= W[wcol + r] * t;
+						}
+					}
+				}
+				final double t = tau[j];
+				double dot = 0.0;
+				for (int r = 0; r < s; r++) {
+					W[w0 + r] *= t;
+					dot += W[w0 + r] * a[v0 + r];
+				}
+				final double alpha2 = -0.5 * t * dot;
+				for (int r = 0; r < s; r++) {
+					W[w0 + r] += alpha2 * a[v0 + r];
+				}
+			}
+		}
+
+		/**
+		 * Computes y = A(off:n,off:n)*v for the symmetric submatrix stored in
+		 * the lower triangle of a. For large matrices, the columns are split
+		 * into ranges of equal work and each thread sums into its own vector.
+		 */
+		private final void symv(final int threads, final double[] a, final int off, final int s,
+				final int vOff, final double[] y, final int yOff) {
+			final int workers = (int) Math.max(1, Math.min(threads, (long) s * (long) s
+					/ (2 * TB * TB)));
+			if (workers < 2) {
+				Arrays.fill(y, yOff, yOff + s, 0.0);
+				symv(a, off, s, vOff, 0, s, y, yOff);
+			} else {
+				final double[][] parts = new double[workers][];
+				new PFor(workers, 0, workers - 1) {
+					@Override
+					public void step(int w) {
+						final int from = (int) (s - s * Math.sqrt(1.0 - (double) w / workers));
+						final int to = w == workers - 1 ? s : (int) (s - s
+								* Math.sqrt(1.0 - (double) (w + 1) / workers));
+						parts[w] = new double[s];
+						symv(a, off, s, vOff, from, to, parts[w], 0);
+					}
+				};
+				Arrays.fill(y, yOff, yOff + s, 0.0);
+				for (int w = 0; w < workers; w++) {
+					final double[] part = parts[w];
+					for (int r = 0; r < s; r++) {
+						y[yOff + r] += part[r];
+					}
+				}
+			}
+		}
+
+		private final void symv(final double[] a, final int off, final int s, final int vOff,
+				final int fromColumn, final int toColumn, final double[] y, final int yOff) {
+			for (int c = fromColumn; c < toColumn; c++) {
+				final int col = (off + c) * n + off;
+				final double vc = a[vOff + c];
+				double sum = a[col + c] * vc;
+				for (int r = c + 1; r < s; r++) {
+					final double v = a[col + r];
+					sum += v * a[vOff + r];
+					y[yOff + r] += v * vc;
+				}
+				y[yOff + c] += sum;
+			}
+		}
+
+		/**
+		 * Computes Z = Q*Z for the n x zc column-major matrix Z, where Q is
+		 * the product of the reflectors from the tridiagonal reduction.
+		 */
+		private final void backTransform(final int threads, final double[] a, final double[] tau,
+				final double[] Z, final int zc) {
+			final int reflectors = n - 1;
+			for (int p0 = ((reflectors - 1) / NB) * NB; p0 >= 0 && reflectors > 0; p0 -= NB) {
+				final int nb = Math.min(NB, reflectors - p0);
+				final int mr = n - p0 - 1;
+
+				// explicit unit lower trapezoidal V for the rows p0+1 to n-1
+				final double[] V = new double[mr * nb];
+				for (int c = 0; c < nb; c++) {
+					V[c * mr + c] = 1.0;
+					System.arraycopy(a, (p0 + c) * n + p0 + c + 2, V, c * mr + c + 1, mr - c - 1);
+				}
+
+				// triangular T so that H(p0)*...*H(p0+nb-1) = I - V*T*V'
+				final double[] T = new double[nb * nb];
+				final double[] work = new double[nb];
+				for (int i = 0; i < nb; i++) {
+					final double t = tau[p0 + i];
+					T[i * nb + i] = t;
+					if (t == 0.0) {
+						continue;
+					}
+					for (int r = 0; r < i; r++) {
+						double s = 0.0;
+						for (int l = i; l < mr; l++) {
+							s += V[r * mr + l] * V[i * mr + l];
+						}
+						work[r] = -t * s;
+					}
+					for (int r = 0; r < i; r++) {
+						double s = 0.0;
+						for (int c = r; c < i; c++) {
+							s += T[c * nb + r] * work[c];
+						}
+						T[i * nb + r] = s;
+					}
+				}
+
+				// Z(p0+1:n,:) = (I - V*T*V') * Z(p0+1:n,:)
+				final double[] W1 = new double[nb * zc];
+				final double[] W2 = new double[nb * zc];
+				PackedGemm.gemm(threads, true, false, nb, zc, mr, 1.0, V, 0, mr, Z, p0 + 1, n, 0.0,
+						W1, 0, nb);
+				PackedGemm.gemm(threads, false, false, nb, zc, nb, 1.0, T, 0, nb, W1, 0, nb, 0.0,
+						W2, 0, nb);
+				PackedGemm.gemm(threads, false, false, mr, zc, nb, -1.0, V, 0, mr, W2, 0, nb, 1.0,
+						Z, p0 + 1, n);
+			}
+		}
+
+		/**
+		 * Computes the eigenvalues and eigenvectors of the symmetric
+		 * tridiagonal matrix with diagonal d and subdiagonal e. On return, d
+		 * contains the eigenvalues in ascending order and the eigenvectors are
+		 * returned as n x n matrix in column-major order.
+		 */
+		private static final double[] divideAndConquer(final int threads, final double[] d,
+				final double[] e, final int n) {
+			if (n <= SMALLSIZE) {
+				final double[] Q = new double[n * n];
+				for (int i = 0; i < n; i++) {
+					Q[i * n + i] = 1.0;
+				}
+				e[n - 1] = 0.0;
+				tql(d, e, Q, n, n);
+				return Q;
+			}
+
+			// T = diag(T1, T2) + |beta| * u * u' with u = [e_m; sign(beta) * e_1]
+			final int m = n / 2;
+			final double beta = e[m - 1];
+			final double[] d1 = new double[m];
+			final double[] e1 = new double[m];
+			final double[] d2 = new double[n - m];
+			final double[] e2 = new double[n - m];
+			System.arraycopy(d, 0, d1, 0, m);
+			System.arraycopy(e, 0, e1, 0, m - 1);
+			System.arraycopy(d, m, d2, 0, n - m);
+			System.arraycopy(e, m, e2, 0, n - m - 1);
+			d1[m - 1] -= Math.abs(beta);
+			d2[0] -= Math.abs(beta);
+
+			final double[][] Q = new double[2][];
+			if (threads > 1 && n >= PARALLELSIZE) {
+				final int subThreads = Math.max(1, threads / 2);
+				new PFor(2, 0, 1) {
+					@Override
+					public void step(int i) {
+						if (i == 0) {
+							Q[0] = divideAndConquer(subThreads, d1, e1, m);
+						} else {
+							Q[1] = divideAndConquer(subThreads, d2, e2, n - m);
+						}
+					}
+				};
+			} else {
+				Q[0] = divideAndConquer(threads, d1, e1, m);
+				Q[1] = divideAndConquer(threads, d2, e2, n - m);
+			}
+			return merge(threads, d, d1, Q[0], d2, Q[1], beta);
+		}
+
+		/**
+		 * Combines the eigendecompositions of both halves to the
+		 * eigendecomposition of diag(T1, T2) + |beta| * u * u'. Eigenvalues
+		 * that deflate keep their vectors, the others are the roots of the
+		 * secular equation. Their vectors are calculated from the corrected
+		 * vector z of Gu and Eisenstat, which keeps them orthogonal even for
+		 * close eigenvalues.
+		 */
+		private static final double[] merge(final int threads, final double[] d,
+				final double[] d1, final double[] Q1, final double[] d2, final double[] Q2,
+				final double beta) {
+			final int m = d1.length;
+			final int m2 = d2.length;
+			final int n = m + m2;
+
+			final double[] Q = new double[n * n];
+			for (int c = 0; c < m; c++) {
+				System.arraycopy(Q1, c * m, Q, c * n, m);
+			}
+			for (int c = 0; c < m2; c++) {
+				System.arraycopy(Q2, c * m2, Q, (m + c) * n + m, m2);
+			}
+
+			// z = diag(Q1', Q2') * u, scaled to unit length
+			final double[] D = new double[n];
+			final double[] z = new double[n];
+			System.arraycopy(d1, 0, D, 0, m);
+			System.arraycopy(d2, 0, D, m, m2);
+			for (int c = 0; c < m; c++) {
+				z[c] = Q1[c * m + m - 1];
+			}
+			final double sign = beta < 0 ? -1.0 : 1.0;
+			for (int c = 0; c < m2; c++) {
+				z[m + c] = sign * Q2[c * m2];
+			}
+			double zz = 0.0;
+			for (int i = 0; i < n; i++) {
+				zz += z[i] * z[i];
+			}
+			final double zn = Math.sqrt(zz);
+			for (int i = 0; i < n; i++) {
+				z[i] /= zn;
+			}
+			final double rho = Math.abs(beta) * zz;
+
+			// merge both ascending lists of eigenvalues
+			final int[] perm = new int[n];
+			for (int i = 0, p = 0, q = m; i < n; i++) {
+				if (q >= n || (p < m && D[p] <= D[q])) {
+					perm[i] = p++;
+				} else {
+					perm[i] = q++;
+				}
+			}
+			final double[] ds = new double[n];
+			final double[] zs = new double[n];
+			for (int i = 0; i < n; i++) {
+				ds[i] = D[perm[i]];
+				zs[i] = z[perm[i]];
+			}
+			final double tol = 8.0 * EPSILON
+					* Math.max(Math.max(Math.abs(ds[0]), Math.abs(ds[n - 1])), rho);
+
+			// deflation for small components of z and for close eigenvalues
+			final double[] nd = new double[n];
+			final double[] nz = new double[n];
+			final int[] ncol = new int[n];
+			final double[] dd = new double[n];
+			final int[] dcol = new int[n];
+			int k = 0;
+			int kd = 0;
+			int pj = -1;
+			for (int nj = 0; nj < n; nj++) {
+				if (rho * Math.abs(zs[nj]) <= tol) {
+					dd[kd] = ds[nj];
+					dcol[kd++] = perm[nj];
+					continue;
+				}
+				if (pj < 0) {
+					pj = nj;
+					continue;
+				}
+				final double r = MathUtil.hypot(zs[nj], zs[pj]);
+				final double c = zs[nj] / r;
+				final double s = -zs[pj] / r;
+				if (Math.abs((ds[nj] - ds[pj]) * c * s) <= tol) {
+					// a rotation of both vectors moves the weight of z to nj
+					zs[nj] = r;
+					zs[pj] = 0.0;
+					final int x = perm[pj] * n;
+					final int y = perm[nj] * n;
+					for (int i = 0; i < n; i++) {
+						final double qx = Q[x + i];
+						final double qy = Q[y + i];
+						Q[x + i] = c * qx + s * qy;
+						Q[y + i] = c * qy - s * qx;
+					}
+					final double t = ds[pj] * c * c + ds[nj] * s * s;
+					ds[nj] = ds[pj] * s * s + ds[nj] * c * c;
+					ds[pj] = t;
+					dd[kd] = t;
+					dcol[kd++] = perm[pj];
+				} else {
+					nd[k] = ds[pj];
+					nz[k] = zs[pj];
+					ncol[k++] = perm[pj];
+				}
+				pj = nj;
+			}
+			if (pj >= 0) {
+				nd[k] = ds[pj];
+				nz[k] = zs[pj];
+				ncol[k++] = perm[pj];
+			}
+
+			final double[] lambda = new double[k];
+			double[] R = null;
+			if (k > 0) {
+				final int kk = k;
+				final double[] U = new double[k * k];
+				if (threads > 1 && k >= PARALLELSIZE) {
+					new PFor(threads, 0, k - 1) {
+						@Override
+						public void step(int j) {
+							solveSecular(nd, nz, kk, rho, j, lambda, U);
+						}
+					};
+				} else {
+					for (int j = 0; j < k; j++) {
+						solveSecular(nd, nz, k, rho, j, lambda, U);
+					}
+				}
+
+				// z from the computed roots (Gu and Eisenstat)
+				final double[] zhat = new double[k];
+				for (int i = 0; i < k; i++) {
+					double p = -U[i * k + i] / rho;
+					for (int j = 0; j < k; j++) {
+						if (j != i) {
+							p *= -U[j * k + i] / (nd[j] - nd[i]);
+						}
+					}
+					final double zi = Math.sqrt(Math.max(p, 0.0));
+					zhat[i] = nz[i] < 0 ? -zi : zi;
+				}
+
+				// eigenvectors of D + rho*z*z' are (D - lambda_j I)^-1 * z
+				for (int j = 0; j < k; j++) {
+					final int col = j * k;
+					double s = 0.0;
+					for (int i = 0; i < k; i++) {
+						final double u = zhat[i] / U[col + i];
+						U[col + i] = u;
+						s += u * u;
+					}
+					s = 1.0 / Math.sqrt(s);
+					for (int i = 0; i < k; i++) {
+						U[col + i] *= s;
+					}
+				}
+
+				final double[] Qn = new double[n * k];
+				for (int j = 0; j < k; j++) {
+					System.arraycopy(Q, ncol[j] * n, Qn, j * n, n);
+				}
+				R = new double[n * k];
+				PackedGemm.gemm(threads, false, false, n, k, k, 1.0, Qn, 0, n, U, 0, k, 0.0, R, 0,
+						n);
+			}
+
+			// sort all eigenvalues in ascending order
+			final double[] all = new double[n];
+			System.arraycopy(lambda, 0, all, 0, k);
+			System.arraycopy(dd, 0, all, k, kd);
+			final Integer[] order = new Integer[n];
+			for (int i = 0; i < n; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, new Comparator<Integer>() {
+				public int compare(Integer o1, Integer o2) {
+					return Double.compare(all[o1], all[o2]);
+				}
+			});
+			final double[] result = new double[n * n];
+			for (int i = 0; i < n; i++) {
+				final int src = order[i];
+				d[i] = all[src];
+				if (src < k) {
+					System.arraycopy(R, src * n, result, i * n, n);
+				} else {
+					System.arraycopy(Q, dcol[src - k] * n, result, i * n, n);
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Finds the j-th root of 1 + rho * sum(z_i^2 / (d_i - lambda)) = 0 for
+		 * ascending d. The root is calculated relative to the closer of the
+		 * poles d_j and d_j+1, using a rational model of both poles safeguarded
+		 * by bisection. Column j of U receives d_i - lambda_j.
+		 */
+		private static final void solveSecular(final double[] d, final double[] z, final int k,
+				final double rho, final int j, final double[] lambda, final double[] U) {
+			final int col = j * k;
+			final boolean last = j == k - 1;
+			final int origin;
+			double lo;
+			double hi;
+			if (last) {
+				double zz = 0.0;
+				for (int i = 0; i < k; i++) {
+					zz += z[i] * z[i];
+				}
+				origin = j;
+				lo = 0.0;
+				hi = rho * zz;
+			} else {
+				final double gap = d[j + 1] - d[j];
+				final double mid = 0.5 * gap;
+				double f = 1.0;
+				for (int i = 0; i < k; i++) {
+					f += rho * z[i] * z[i] / ((d[i] - d[j]) - mid);
+				}
+				if (f >= 0) {
+					origin = j;
+					lo = 0.0;
+					hi = mid;
+				} else {
+					origin = j + 1;
+					lo = mid - gap;
+					hi = 0.0;
+				}
+			}
+
+			final double d0 = d[origin];
+			for (int i = 0; i < k; i++) {
+				U[col + i] = d[i] - d0;
+			}
+
+			double tau = 0.5 * (lo + hi);
+			for (int iter = 0; iter < 100; iter++) {
+				double psi = 0.0;
+				double dpsi = 0.0;
+				double phi = 0.0;
+				double dphi = 0.0;
+				for (int i = 0; i <= j; i++) {
+					final double t = z[i] / (U[col + i] - tau);
+					psi += z[i] * t;
+					dpsi += t * t;
+				}
+				for (int i = j + 1; i < k; i++) {
+					final double t = z[i] / (U[col + i] - tau);
+					phi += z[i] * t;
+					dphi += t * t;
+				}
+				psi *= rho;
+				dpsi *= rho;
+				phi *= rho;
+				dphi *= rho;
+				final double g = 1.0 + psi + phi;
+
+				if (g > 0) {
+					hi = tau;
+				} else if (g < 0) {
+					lo = tau;
+				} else {
+					break;
+				}
+				final double err = 8.0 * (phi - psi) + 2.0 + 3.0 * Math.abs(tau) * (dpsi + dphi);
+				if (Math.abs(g) <= EPSILON * err) {
+					break;
+				}
+
+				// zero of c + s1 / (a - eta) + s2 / (b - eta)
+				final double a = U[col + j] - tau;
+				final double s1 = dpsi * a * a;
+				double eta;
+				if (last) {
+					final double c = 1.0 + psi - dpsi * a;
+					eta = c > 0 ? a + s1 / c : Double.NaN;
+				} else {
+					final double b = U[col + j + 1] - tau;
+					final double s2 = dphi * b * b;
+					final double c = 1.0 + psi - dpsi * a + phi - dphi * b;
+					final double B = c * (a + b) + s1 + s2;
+					final double abg = a * b * g;
+					if (c == 0.0) {
+						eta = abg / B;
+					} else {
+						final double disc = Math.sqrt(Math.max(0.0, B * B - 4.0 * c * abg));
+						final double q = 0.5 * (B + (B < 0 ? -disc : disc));
+						final double eta1 = q / c;
+						final double eta2 = q == 0.0 ? Double.NaN : abg / q;
+						final boolean in1 = tau + eta1 > lo && tau + eta1 < hi;
+						final boolean in2 = tau + eta2 > lo && tau + eta2 < hi;
+						if (in1 && in2) {
+							eta = Math.abs(eta1) < Math.abs(eta2) ? eta1 : eta2;
+						} else {
+							eta = in1 ? eta1 : eta2;
+						}
+					}
+				}
+
+				double next = tau + eta;
+				if (!(next > lo && next < hi) || iter % 8 == 7) {
+					next = 0.5 * (lo + hi);
+				}
+				if (next == tau) {
+					break;
+				}
+				tau = next;
+			}
+
+			lambda[j] = d0 + tau;
+			for (int i = 0; i < k; i++) {
+				U[col + i] -= tau;
+			}
+		}
+
+		/**
+		 * Eigenvalues of the symmetric tridiagonal matrix with diagonal d and
+		 * subdiagonal e by the implicit QL algorithm, derived from tql2 in
+		 * {@link EigMatrix}. If Z is not null, the rotations are applied to
+		 * the columns of the column-major matrix Z with the given number of
+		 * rows. The eigenvalues are sorted in ascending order.
+		 */
+		private static final void tql(final double[] d, final double[] e, final double[] Z,
+				final int rows, final int n) {
+			e[n - 1] = 0.0;
+			double f = 0.0;
+			double tst1 = 0.0;
+			for (int l = 0; l < n; l++) {
+
+				// Find small subdiagonal element
+
+				tst1 = Math.max(tst1, Math.abs(d[l]) + Math.abs(e[l]));
+				int m = l;
+				while (m < n) {
+					if (Math.abs(e[m]) <= EPSILON * tst1) {
+						break;
+					}
+					m++;
+				}
+
+				if (m > l) {
+					do {
+						// Compute implicit shift
+
+						double g = d[l];
+						double p = (d[l + 1] - g) / (2.0 * e[l]);
+						double r = MathUtil.hypot(p, 1.0);
+						if (p < 0) {
+							r = -r;
+						}
+						d[l] = e[l] / (p + r);
+						d[l + 1] = e[l] * (p + r);
+						final double dl1 = d[l + 1];
+						double h = g - d[l];
+						for (int i = l + 2; i < n; i++) {
+							d[i] -= h;
+						}
+						f = f + h;
+
+						// Implicit QL transformation.
+
+						p = d[m];
+						double c = 1.0;
+						double c2 = c;
+						double c3 = c;
+						final double el1 = e[l + 1];
+						double s = 0.0;
+						double s2 = 0.0;
+						for (int i = m - 1; i >= l; i--) {
+							c3 = c2;
+							c2 = c;
+							s2 = s;
+							g = c * e[i];
+							h = c * p;
+							r = MathUtil.hypot(p, e[i]);
+							e[i + 1] = s * r;
+							s = e[i] / r;
+							c = p / r;
+							p = c * d[i] - s * g;
+							d[i + 1] = h + s * (c * g + s * d[i]);
+
+							if (Z != null) {
+								final int z0 = i * rows;
+								final int z1 = z0 + rows;
+								for (int k = 0; k < rows; k++) {
+									h = Z[z1 + k];
+									Z[z1 + k] = s * Z[z0 + k] + c * h;
+									Z[z0 + k] = c * Z[z0 + k] - s * h;
+								}
+							}
+						}
+						p = -s * s2 * c3 * el1 * e[l] / dl1;
+						e[l] = s * p;
+						d[l] = c * p;
+
+					} while (Math.abs(e[l]) > EPSILON * tst1);
+				}
+				d[l] = d[l] + f;
+				e[l] = 0.0;
+			}
+
+			if (Z == null) {
+				Arrays.sort(d, 0, n);
+				return;
+			}
+			for (int i = 0; i < n - 1; i++) {
+				int k = i;
+				double p = d[i];
+				for (int j = i + 1; j < n; j++) {
+					if (d[j] < p) {
+						k = j;
+						p = d[j];
+					}
+				}
+				if (k != i) {
+					d[k] = d[i];
+					d[i] = p;
+					for (int r = 0; r < rows; r++) {
+						p = Z[i * rows + r];
+						Z[i * rows + r] = Z[k * rows + r];
+						Z[k * rows + r] = p;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Eigenvectors of the symmetric tridiagonal matrix with diagonal d and
+		 * subdiagonal e for the given eigenvalues in descending order, by
+		 * inverse iteration with (T - lambda*I) factored with partial pivoting.
+		 * Vectors of close eigenvalues are orthogonalized against each other.
+		 */
+		private final double[] inverseIteration(final double[] d, final double[] e,
+				final double[] lambda) {
+			final int k = lambda.length;
+			final double[] Z = new double[n * k];
+
+			double onenrm = 0.0;
+			for (int i = 0; i < n; i++) {
+				final double left = i > 0 ? Math.abs(e[i - 1]) : 0.0;
+				final double right = i < n - 1 ? Math.abs(e[i]) : 0.0;
+				onenrm = Math.max(onenrm, Math.abs(d[i]) + left + right);
+			}
+			if (onenrm == 0.0) {
+				onenrm = 1.0;
+			}
+			final double ortol = 1e-3 * onenrm;
+			final double dtpcrt = Math.sqrt(0.1 / n);
+			final double tiny = EPSILON * onenrm;
+
+			final double[] u0 = new double[n];
+			final double[] u1 = new double[n];
+			final double[] u2 = new double[n];
+			final double[] l = new double[n];
+			final boolean[] swap = new boolean[n];
+			final double[] b = new double[n];
+			final Random random = new Random(n);
+
+			double previous = 0.0;
+			int cluster = 0;
+			for (int j = 0; j < k; j++) {
+				double x = lambda[j];
+				if (j > 0) {
+					final double pertol = 10.0 * Math.abs(EPSILON * x);
+					if (previous - x < pertol) {
+						x = previous - pertol;
+					}
+					if (previous - x > ortol) {
+						cluster = j;
+					}
+				}
+				previous = x;
+
+				// factor T - x*I = P*L*U with U upper triangular with 3 diagonals
+				double diag = d[0] - x;
+				double sup = n > 1 ? e[0] : 0.0;
+				for (int i = 0; i < n - 1; i++) {
+					final double sub = e[i];
+					final double nextDiag = d[i + 1] - x;
+					final double nextSup = i + 1 < n - 1 ? e[i + 1] : 0.0;
+					if (Math.abs(diag) >= Math.abs(sub)) {
+						swap[i] = false;
+						l[i] = diag == 0.0 ? 0.0 : sub / diag;
+						u0[i] = diag;
+						u1[i] = sup;
+						u2[i] = 0.0;
+						diag = nextDiag - l[i] * sup;
+						sup = nextSup;
+					} else {
+						swap[i] = true;
+						l[i] = diag / sub;
+						u0[i] = sub;
+						u1[i] = nextDiag;
+						u2[i] = nextSup;
+						diag = sup - l[i] * nextDiag;
+						sup = -l[i] * nextSup;
+					}
+				}
+				u0[n - 1] = diag;
+				for (int i = 0; i < n; i++) {
+					if (Math.abs(u0[i]) < tiny) {
+						u0[i] = u0[i] < 0 ? -tiny : tiny;
+					}
+				}
+
+				for (int i = 0; i < n; i++) {
+					b[i] = 2.0 * random.nextDouble() - 1.0;
+				}
+
+				int checks = 0;
+				for (int iter = 0; iter < 5; iter++) {
+					double asum = 0.0;
+					for (int i = 0; i < n; i++) {
+						asum += Math.abs(b[i]);
+					}
+					final double scale = n * onenrm * Math.max(EPSILON, Math.abs(u0[n - 1])) / asum;
+					for (int i = 0; i < n; i++) {
+						b[i] *= scale;
+					}
+
+					// solve (T - x*I) * b_new = b
+					for (int i = 0; i < n - 1; i++) {
+						if (swap[i]) {
+							final double t = b[i];
+							b[i] = b[i + 1];
+							b[i + 1] = t;
+						}
+						b[i + 1] -= l[i] * b[i];
+					}
+					b[n - 1] /= u0[n - 1];
+					if (n > 1) {
+						b[n - 2] = (b[n - 2] - u1[n - 2] * b[n - 1]) / u0[n - 2];
+					}
+					for (int i = n - 3; i >= 0; i--) {
+						b[i] = (b[i] - u1[i] * b[i + 1] - u2[i] * b[i + 2]) / u0[i];
+					}
+
+					// orthogonalize against the vectors of the same cluster
+					for (int c = cluster; c < j; c++) {
+						final int col = c * n;
+						double dot = 0.0;
+						for (int i = 0; i < n; i++) {
+							dot += b[i] * Z[col + i];
+						}
+						for (int i = 0; i < n; i++) {
+							b[i] -= dot * Z[col + i];
+						}
+					}
+
+					double max = 0.0;
+					for (int i = 0; i < n; i++) {
+						max = Math.max(max, Math.abs(b[i]));
+					}
+					if (max >= dtpcrt && ++checks > 2) {
+						break;
+					}
+				}
+
+				double nrm = 0.0;
+				int imax = 0;
+				for (int i = 0; i < n; i++) {
+					nrm += b[i] * b[i];
+					if (Math.abs(b[i]) > Math.abs(b[imax])) {
+						imax = i;
+					}
+				}
+				nrm = b[imax] < 0 ? -1.0 / Math.sqrt(nrm) : 1.0 / Math.sqrt(nrm);
+				final int col = j * n;
+				for (int i = 0; i < n; i++) {
+					Z[col + i] = b[i] * nrm;
+				}
+			}
+			return Z;
+		}
+
+		/**
+		 * Return the eigenvector matrix
+		 * 
+		 * @return V, null if only eigenvalues were calculated
+		 */
+		public final DenseDoubleMatrix2D getV() {
+			if (vectors == null) {
+				return null;
+			}
+			return new DefaultDenseDoubleMatrix2D(vectors, n, values.length);
+		}
+
+		/**
+		 * Return the eigenvalues
+		 * 
+		 * @return diag(D)
+		 */
+		public final double[] getRealEigenvalues() {
+			return values;
+		}
+
+		/**
+		 * Return the diagonal eigenvalue matrix
+		 * 
+		 * @return D
+		 */
+		public final DenseDoubleMatrix2D getD() {
+			final int k = values.length;
+			final DenseDoubleMatrix2D D = DenseDoubleMatrix2D.Factory.zeros(k, k);
+			for (int i = 0; i < k; i++) {
+				D.setDouble(values[i], i, i);
+			}
+			return D;
+		}
+	}
 }
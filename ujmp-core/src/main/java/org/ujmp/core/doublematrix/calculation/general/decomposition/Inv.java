@@ -25,6 +25,7 @@ package org.ujmp.core.doublematrix.calculation.general.decomposition;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.util.Autotuner;
 import org.ujmp.core.util.DecompositionOps;
 import org.ujmp.core.util.UJMPSettings;
 
@@ -41,6 +42,9 @@ public interface Inv<T> {
 				throw new RuntimeException(
 						"inverse only possible for square matrices. use pinv or ginv instead");
 			}
+			if (UJMPSettings.getInstance().isUseAutotuner()) {
+				return Autotuner.getInstance().getInv(source).calc(source);
+			}
 			if (UJMPSettings.getInstance().getNumberOfThreads() == 1) {
 				if (source.getRowCount() >= THRESHOLD && source.getColumnCount() >= THRESHOLD) {
 					return MATRIXLARGESINGLETHREADED.calc(source);
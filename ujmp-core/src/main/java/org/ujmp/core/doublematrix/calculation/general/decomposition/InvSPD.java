@@ -59,6 +59,9 @@ public interface InvSPD<T> extends Inv<T> {
 
 	public final InvSPD<Matrix> UJMP = new InvSPD<Matrix>() {
 		public final Matrix calc(Matrix source) {
+			if (Chol.BlockedCholMatrix.isApplicable(source)) {
+				return new Chol.BlockedCholMatrix(source).inverse();
+			}
 			DenseDoubleMatrix2D b = DenseDoubleMatrix2D.Factory.zeros(source.getRowCount(),
 					source.getRowCount());
 			for (int i = (int) source.getRowCount(); --i >= 0;) {
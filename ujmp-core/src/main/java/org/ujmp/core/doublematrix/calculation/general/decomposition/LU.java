@@ -25,8 +25,14 @@ package org.ujmp.core.doublematrix.calculation.general.decomposition;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.PackedGemm;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.util.Autotuner;
 import org.ujmp.core.util.DecompositionOps;
+import org.ujmp.core.util.MathUtil;
 import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
 
 /**
  * LU Decomposition.
@@ -53,6 +59,9 @@ public interface LU<T> {
 	public static final LU<Matrix> MATRIX = new LU<Matrix>() {
 
 		public final Matrix[] calc(Matrix source) {
+			if (UJMPSettings.getInstance().isUseAutotuner()) {
+				return Autotuner.getInstance().getLU(source).calc(source);
+			}
 			if (UJMPSettings.getInstance().getNumberOfThreads() == 1) {
 				if (source.getRowCount() >= THRESHOLD && source.getColumnCount() >= THRESHOLD) {
 					return MATRIXLARGESINGLETHREADED.calc(source);
@@ -69,6 +78,9 @@ public interface LU<T> {
 		}
 
 		public final Matrix solve(Matrix source, Matrix b) {
+			if (UJMPSettings.getInstance().isUseAutotuner()) {
+				return Autotuner.getInstance().getLU(source).solve(source, b);
+			}
 			if (UJMPSettings.getInstance().getNumberOfThreads() == 1) {
 				if (source.getRowCount() >= THRESHOLD && source.getColumnCount() >= THRESHOLD) {
 					return MATRIXLARGESINGLETHREADED.solve(source, b);
@@ -87,7 +99,7 @@ public interface LU<T> {
 
 	public static final LU<Matrix> INSTANCE = MATRIX;
 
-	public static final LU<Matrix> UJMP = new LU<Matrix>() {
+	public static final LU<Matrix> UJMPUNBLOCKED = new LU<Matrix>() {
 
 		public final Matrix[] calc(Matrix source) {
 			LUMatrix lu = new LUMatrix(source);
@@ -100,6 +112,38 @@ public interface LU<T> {
 		}
 	};
 
+	public static final LU<Matrix> UJMPBLOCKED = new LU<Matrix>() {
+
+		public final Matrix[] calc(Matrix source) {
+			BlockedLUMatrix lu = new BlockedLUMatrix(source);
+			return new Matrix[] { lu.getL(), lu.getU(), lu.getP() };
+		}
+
+		public final Matrix solve(Matrix source, Matrix b) {
+			BlockedLUMatrix lu = new BlockedLUMatrix(source);
+			return lu.solve(b);
+		}
+	};
+
+	public static final LU<Matrix> UJMP = new LU<Matrix>() {
+
+		public final Matrix[] calc(Matrix source) {
+			if (BlockedLUMatrix.isApplicable(source)) {
+				return UJMPBLOCKED.calc(source);
+			} else {
+				return UJMPUNBLOCKED.calc(source);
+			}
+		}
+
+		public final Matrix solve(Matrix source, Matrix b) {
+			if (BlockedLUMatrix.isApplicable(source)) {
+				return UJMPBLOCKED.solve(source, b);
+			} else {
+				return UJMPUNBLOCKED.solve(source, b);
+			}
+		}
+	};
+
 	public static final LU<Matrix> MATRIXSMALLMULTITHREADED = UJMP;
 
 	public static final LU<Matrix> MATRIXSMALLSINGLETHREADED = UJMP;
@@ -477,4 +521,366 @@ public interface LU<T> {
 		}
 
 	};
+
+	/**
+	 * Blocked LU decomposition with partial pivoting, computed in place on a
+	 * column-major copy of the matrix.
+	 * <P>
+	 * The matrix is processed in panels of NB columns. Each panel is factored
+	 * column by column with row swaps restricted to the panel. The swaps are then
+	 * applied to the remaining columns, the block row of U is obtained by a
+	 * triangular solve, and the trailing submatrix is updated with a single call
+	 * to {@link PackedGemm}. The row swaps, the triangular solve and the update
+	 * are distributed over the UJMP thread pool. The result is the same as with
+	 * {@link LUMatrix} up to rounding.
+	 */
+	final class BlockedLUMatrix {
+
+		/** number of columns in a panel */
+		public static final int NB = 64;
+
+		/** minimum number of columns for one thread when swapping rows */
+		public static final int MINCOLUMNSPERTHREAD = 32;
+
+		/** minimum number of multiply-adds per thread when solving */
+		public static final long MINWORKPERTHREAD = 64 * 64 * 64;
+
+		/** L and U in column-major order, leading dimension m */
+		private final double[] LU;
+
+		private final int m, n;
+
+		private int pivsign = 1;
+
+		/** row of A at position i of the factorization */
+		private final int[] piv;
+
+		/**
+		 * Returns true if the blocked algorithm should be used instead of
+		 * {@link LUMatrix}, i.e. for dense double matrices with at least
+		 * THRESHOLD rows and columns.
+		 */
+		public static final boolean isApplicable(Matrix A) {
+			return A instanceof DenseDoubleMatrix2D && A.getRowCount() >= THRESHOLD
+					&& A.getColumnCount() >= THRESHOLD;
+		}
+
+		/**
+		 * LU Decomposition
+		 * 
+		 * @param A
+		 *            Rectangular matrix
+		 */
+		public BlockedLUMatrix(Matrix A) {
+			m = MathUtil.longToInt(A.getRowCount());
+			n = MathUtil.longToInt(A.getColumnCount());
+			LU = new double[MathUtil.longToInt((long) m * (long) n)];
+			if (A instanceof HasColumnMajorDoubleArray1D) {
+				System.arraycopy(((HasColumnMajorDoubleArray1D) A).getColumnMajorDoubleArray1D(), 0,
+						LU, 0, LU.length);
+			} else if (A instanceof DenseDoubleMatrix2D) {
+				final DenseDoubleMatrix2D a = (DenseDoubleMatrix2D) A;
+				for (int c = 0; c < n; c++) {
+					final int col = c * m;
+					for (int r = 0; r < m; r++) {
+						LU[col + r] = a.getDouble(r, c);
+					}
+				}
+			} else {
+				for (int c = 0; c < n; c++) {
+					final int col = c * m;
+					for (int r = 0; r < m; r++) {
+						LU[col + r] = A.getAsDouble(r, c);
+					}
+				}
+			}
+			piv = new int[m];
+			for (int i = 0; i < m; i++) {
+				piv[i] = i;
+			}
+
+			final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+			final int[] swaps = new int[NB];
+			final int min = Math.min(m, n);
+
+			for (int jb = 0; jb < min; jb += NB) {
+				final int nb = Math.min(NB, min - jb);
+				final int je = jb + nb;
+
+				factorPanel(jb, je, swaps);
+
+				// apply the row swaps of the panel to the columns on the left
+				if (jb > 0) {
+					updateColumns(threads, 0, jb, jb, je, swaps, false);
+				}
+
+				// swap rows and compute U12 = L11^-1 * A12 on the right
+				if (je < n) {
+					updateColumns(threads, je, n, jb, je, swaps, true);
+
+					// A22 = A22 - L21 * U12
+					if (je < m) {
+						PackedGemm.gemm(threads, false, false, m - je, n - je, nb, -1.0, LU, jb * m
+								+ je, m, LU, je * m + jb, m, 1.0, LU, je * m + je, m);
+					}
+				}
+			}
+		}
+
+		private final void factorPanel(final int jb, final int je, final int[] swaps) {
+			for (int j = jb; j < je; j++) {
+				final int col = j * m;
+
+				int p = j;
+				double max = Math.abs(LU[col + j]);
+				for (int i = j + 1; i < m; i++) {
+					final double v = Math.abs(LU[col + i]);
+					if (v > max) {
+						max = v;
+						p = i;
+					}
+				}
+				swaps[j - jb] = p;
+				if (p != j) {
+					for (int c = jb; c < je; c++) {
+						final int index = c * m;
+						final double t = LU[index + p];
+						LU[index + p] = LU[index + j];
+						LU[index + j] = t;
+					}
+					final int t = piv[p];
+					piv[p] = piv[j];
+					piv[j] = t;
+					pivsign = -pivsign;
+				}
+
+				// http://cio.nist.gov/esd/emaildir/lists/jama/msg01498.html
+				final double d = LU[col + j];
+				if (d != 0.0) {
+					for (int i = j + 1; i < m; i++) {
+						LU[col + i] /= d;
+					}
+				}
+
+				for (int c = j + 1; c < je; c++) {
+					final int index = c * m;
+					final double f = LU[index + j];
+					if (f != 0.0) {
+						for (int i = j + 1; i < m; i++) {
+							LU[index + i] -= LU[col + i] * f;
+						}
+					}
+				}
+			}
+		}
+
+		private final void updateColumns(final int threads, final int fromColumn,
+				final int toColumn, final int jb, final int je, final int[] swaps,
+				final boolean solve) {
+			final int columns = toColumn - fromColumn;
+			final int workers = Math.max(1, Math.min(threads, columns / MINCOLUMNSPERTHREAD));
+			if (workers < 2) {
+				updateColumns(fromColumn, toColumn, jb, je, swaps, solve);
+			} else {
+				final int columnsPerWorker = (columns + workers - 1) / workers;
+				new PFor(workers, 0, workers - 1) {
+					@Override
+					public void step(int i) {
+						final int from = fromColumn + i * columnsPerWorker;
+						final int to = Math.min(toColumn, from + columnsPerWorker);
+						if (from < to) {
+							updateColumns(from, to, jb, je, swaps, solve);
+						}
+					}
+				};
+			}
+		}
+
+		private final void updateColumns(final int fromColumn, final int toColumn, final int jb,
+				final int je, final int[] swaps, final boolean solve) {
+			for (int c = fromColumn; c < toColumn; c++) {
+				final int col = c * m;
+				for (int j = jb; j < je; j++) {
+					final int p = swaps[j - jb];
+					if (p != j) {
+						final double t = LU[col + p];
+						LU[col + p] = LU[col + j];
+						LU[col + j] = t;
+					}
+				}
+				if (solve) {
+					for (int j = jb; j < je; j++) {
+						final double f = LU[col + j];
+						if (f != 0.0) {
+							final int lcol = j * m;
+							for (int i = j + 1; i < je; i++) {
+								LU[col + i] -= LU[lcol + i] * f;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Is the matrix nonsingular?
+		 * 
+		 * @return true if U, and hence A, is nonsingular.
+		 */
+		public final boolean isNonsingular() {
+			final int min = Math.min(m, n);
+			for (int j = 0; j < min; j++) {
+				if (LU[j * m + j] == 0.0) {
+					return false;
+				}
+			}
+			return min == n;
+		}
+
+		/**
+		 * Return lower triangular factor
+		 * 
+		 * @return L
+		 */
+		public final DenseDoubleMatrix2D getL() {
+			final int min = Math.min(m, n);
+			final double[] L = new double[m * min];
+			for (int j = 0; j < min; j++) {
+				L[j * m + j] = 1.0;
+				System.arraycopy(LU, j * m + j + 1, L, j * m + j + 1, m - j - 1);
+			}
+			return new DefaultDenseDoubleMatrix2D(L, m, min);
+		}
+
+		/**
+		 * Return upper triangular factor
+		 * 
+		 * @return U
+		 */
+		public final DenseDoubleMatrix2D getU() {
+			final int min = Math.min(m, n);
+			final double[] U = new double[min * n];
+			for (int j = 0; j < n; j++) {
+				System.arraycopy(LU, j * m, U, j * min, Math.min(j + 1, min));
+			}
+			return new DefaultDenseDoubleMatrix2D(U, min, n);
+		}
+
+		/**
+		 * Return pivot permutation vector
+		 * 
+		 * @return piv
+		 */
+		public final int[] getPivot() {
+			final int[] p = new int[m];
+			System.arraycopy(piv, 0, p, 0, m);
+			return p;
+		}
+
+		public final Matrix getP() {
+			final DenseDoubleMatrix2D p = DenseDoubleMatrix2D.Factory.zeros(m, m);
+			for (int i = 0; i < m; i++) {
+				p.setDouble(1, i, piv[i]);
+			}
+			return p;
+		}
+
+		/**
+		 * Determinant
+		 * 
+		 * @return det(A)
+		 * @exception IllegalArgumentException
+		 *                Matrix must be square
+		 */
+		public final double det() {
+			if (m != n) {
+				throw new IllegalArgumentException("Matrix must be square.");
+			}
+			double d = (double) pivsign;
+			for (int j = 0; j < n; j++) {
+				d *= LU[j * m + j];
+			}
+			return d;
+		}
+
+		/**
+		 * Solve A*X = B
+		 * 
+		 * @param B
+		 *            A Matrix with as many rows as A and any number of columns.
+		 * @return X so that L*U*X = B(piv,:)
+		 * @exception IllegalArgumentException
+		 *                Matrix row dimensions must agree.
+		 * @exception RuntimeException
+		 *                Matrix is singular.
+		 */
+		public final DenseDoubleMatrix2D solve(Matrix B) {
+			if (B.getRowCount() != m) {
+				throw new IllegalArgumentException("Matrix row dimensions must agree.");
+			}
+			if (!this.isNonsingular()) {
+				throw new RuntimeException("Matrix is singular.");
+			}
+
+			final int nx = MathUtil.longToInt(B.getColumnCount());
+			final double[] X = new double[n * nx];
+			if (B instanceof HasColumnMajorDoubleArray1D) {
+				final double[] b = ((HasColumnMajorDoubleArray1D) B).getColumnMajorDoubleArray1D();
+				for (int c = 0; c < nx; c++) {
+					final int col = c * n;
+					for (int r = 0; r < n; r++) {
+						X[col + r] = b[c * m + piv[r]];
+					}
+				}
+			} else {
+				for (int c = 0; c < nx; c++) {
+					final int col = c * n;
+					for (int r = 0; r < n; r++) {
+						X[col + r] = B.getAsDouble(piv[r], c);
+					}
+				}
+			}
+
+			final long work = (long) n * (long) n * (long) nx;
+			final int threads = (int) Math.max(1, Math.min(UJMPSettings.getInstance()
+					.getNumberOfThreads(), work / MINWORKPERTHREAD));
+			if (threads < 2) {
+				for (int c = 0; c < nx; c++) {
+					substitute(X, c * n);
+				}
+			} else {
+				new PFor(threads, 0, nx - 1) {
+					@Override
+					public void step(int c) {
+						substitute(X, c * n);
+					}
+				};
+			}
+			return new DefaultDenseDoubleMatrix2D(X, n, nx);
+		}
+
+		private final void substitute(final double[] X, final int col) {
+			// Solve L*Y = B(piv,:)
+			for (int k = 0; k < n; k++) {
+				final double x = X[col + k];
+				if (x != 0.0) {
+					final int lcol = k * m;
+					for (int i = k + 1; i < n; i++) {
+						X[col + i] -= LU[lcol + i] * x;
+					}
+				}
+			}
+			// Solve U*X = Y
+			for (int k = n - 1; k >= 0; k--) {
+				final int ucol = k * m;
+				final double x = (X[col + k] /= LU[ucol + k]);
+				if (x != 0.0) {
+					for (int i = 0; i < k; i++) {
+						X[col + i] -= LU[ucol + i] * x;
+					}
+				}
+			}
+		}
+
+	}
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.decomposition;
+
+import org.ujmp.core.util.concurrent.PFor;
+
+/**
+ * Parallel loop over the square tiles in the lower triangle of a symmetric
+ * n x n matrix, used for the symmetric rank-k updates of the blocked
+ * decompositions.
+ *
+ * @author Holger Arndt
+ */
+final class LowerTiles {
+
+	interface Operation {
+		/**
+		 * Processes the tile with mi rows starting at row i0 and nj columns
+		 * starting at column j0.
+		 */
+		public void run(int i0, int mi, int j0, int nj);
+	}
+
+	private LowerTiles() {
+	}
+
+	/**
+	 * Runs the operation on all tiles on or below the diagonal of the
+	 * submatrix from offset to n-1. The tiles are ordered by their first row
+	 * and processed in pairs from both ends of this order, so that each step
+	 * has a similar amount of work when the cost depends on the row.
+	 */
+	static void forEach(final int threads, final int n, final int tileSize, final int offset,
+			final Operation op) {
+		final int blocks = (n - offset + tileSize - 1) / tileSize;
+		final int tiles = blocks * (blocks + 1) / 2;
+		final int[] tileRow = new int[tiles];
+		final int[] tileColumn = new int[tiles];
+		for (int bi = 0, t = 0; bi < blocks; bi++) {
+			for (int bj = 0; bj <= bi; bj++, t++) {
+				tileRow[t] = offset + bi * tileSize;
+				tileColumn[t] = offset + bj * tileSize;
+			}
+		}
+		if (threads < 2 || tiles < 2) {
+			for (int t = 0; t < tiles; t++) {
+				run(op, n, tileSize, tileRow[t], tileColumn[t]);
+			}
+			return;
+		}
+		final int steps = (tiles + 1) / 2;
+		new PFor(Math.min(threads, steps), 0, steps - 1) {
+			@Override
+			public void step(int p) {
+				run(op, n, tileSize, tileRow[p], tileColumn[p]);
+				if (tiles - 1 - p != p) {
+					run(op, n, tileSize, tileRow[tiles - 1 - p], tileColumn[tiles - 1 - p]);
+				}
+			}
+		};
+	}
+
+	private static void run(final Operation op, final int n, final int tileSize, final int i0,
+			final int j0) {
+		op.run(i0, Math.min(tileSize, n - i0), j0, Math.min(tileSize, n - j0));
+	}
+
+}
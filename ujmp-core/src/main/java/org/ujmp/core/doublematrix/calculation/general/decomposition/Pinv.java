@@ -31,14 +31,74 @@ import org.ujmp.core.util.UJMPSettings;
 public class Pinv extends AbstractDoubleCalculation {
 	private static final long serialVersionUID = 7886298456216056038L;
 
-	private Matrix pinv = null;
+	/**
+	 * smallest ratio of the diagonal elements of R for which the matrix is
+	 * considered to have full rank and the pseudoinverse is computed from the
+	 * QR decomposition
+	 */
+	public static final double MINDIAGONALRATIO = 1e-8;
+
+	/**
+	 * Computes the pseudoinverse of tall dense matrices as R^-1 * Q' if the
+	 * diagonal of R indicates full column rank. This is much cheaper than the
+	 * SVD, but the diagonal of R does not reveal the rank reliably: matrices
+	 * like the Kahan matrix are close to rank deficient although the ratio of
+	 * the diagonal elements is large. Therefore, the SVD is used by default.
+	 */
+	public static boolean USEQR = false;
+
+	private volatile Matrix pinv = null;
+
+	/** number of singular values of the approximate pseudoinverse, 0 if exact */
+	private final int k;
 
 	public Pinv(Matrix matrix) {
+		this(matrix, 0);
+	}
+
+	/**
+	 * Approximates the pseudoinverse from the k largest singular values of a
+	 * randomized truncated SVD.
+	 */
+	public Pinv(Matrix matrix, int k) {
 		super(matrix);
+		this.k = k;
 	}
 
 	public double getDouble(long... coordinates) {
 		if (pinv == null) {
+			synchronized (this) {
+				if (pinv == null) {
+					pinv = createPinv();
+				}
+			}
+		}
+		return pinv.getAsDouble(coordinates);
+	}
+
+	private Matrix createPinv() {
+		Matrix result = null;
+		if (k > 0) {
+			SVD.RandomizedSVDMatrix svd = new SVD.RandomizedSVDMatrix(getSource(), k);
+			double[] s = svd.getSingularValues();
+			Matrix sinv = Matrix.Factory.zeros(k, k);
+			for (int i = 0; i < k; i++) {
+				if (Math.abs(s[i]) > UJMPSettings.getInstance().getTolerance()) {
+					sinv.setAsDouble(1.0 / s[i], i, i);
+				}
+			}
+			result = svd.getV().mtimes(sinv).mtimes(svd.getU().transpose());
+		}
+
+		if (result == null && USEQR && QR.BlockedQRMatrix.isApplicable(getSource())) {
+			// full column rank: pinv = R^-1 * Q', much cheaper than the SVD
+			QR.BlockedQRMatrix qr = new QR.BlockedQRMatrix(getSource());
+			if (qr.getDiagonalRatio() > MINDIAGONALRATIO) {
+				result = qr.pinv();
+			}
+		}
+
+		if (result == null) {
 
 			Matrix[] usv = getSource().svd();
 			Matrix u = usv[0];
@@ -54,10 +114,10 @@ public class Pinv extends AbstractDoubleCalculation {
 				}
 			}
 
-			pinv = v.mtimes(s.transpose()).mtimes(u.transpose());
+			result = v.mtimes(s.transpose()).mtimes(u.transpose());
 
 		}
-		return pinv.getAsDouble(coordinates);
+		return result;
 	}
 
 	public long[] getSize() {
@@ -24,28 +24,76 @@
 package org.ujmp.core.doublematrix.calculation.general.decomposition;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
 
 public class Princomp extends AbstractDoubleCalculation {
 	private static final long serialVersionUID = -6137993493011004670L;
 
-	private Matrix pca = null;
+	/**
+	 * Computes the exact principal components of tall dense matrices from the
+	 * eigenvectors of X'*X instead of the SVD of X. This is faster, but
+	 * squares the condition number, so that small components lose accuracy,
+	 * and the signs of the components may differ from the SVD.
+	 */
+	public static boolean USEGRAMMATRIX = false;
+
+	private volatile Matrix pca = null;
+
+	/** number of principal components of the approximation, 0 if exact */
+	private final int k;
 
 	public Princomp(Matrix matrix) {
+		this(matrix, 0);
+	}
+
+	/**
+	 * Projects on the k largest principal components, approximated by a
+	 * randomized truncated SVD.
+	 */
+	public Princomp(Matrix matrix, int k) {
 		super(matrix);
+		this.k = k;
 	}
 
 	public double getDouble(long... coordinates) {
 		if (pca == null) {
+			synchronized (this) {
+				if (pca == null) {
+					pca = createPca();
+				}
+			}
+		}
+		return pca.getAsDouble(coordinates);
+	}
 
+	private Matrix createPca() {
+		Matrix source = getSource();
+		if (k > 0) {
+			SVD.RandomizedSVDMatrix svd = new SVD.RandomizedSVDMatrix(source, k);
+			return svd.getU().mtimes(svd.getS());
+		} else if (USEGRAMMATRIX && source instanceof DenseDoubleMatrix2D
+				&& source.getColumnCount() >= Eig.THRESHOLD
+				&& source.getRowCount() >= source.getColumnCount()) {
+			// U*S = X*V, where V are the eigenvectors of X'*X
+			Matrix xtx = source.transpose().mtimes(source);
+			Eig.SymmetricEigMatrix eig = new Eig.SymmetricEigMatrix(xtx,
+					(int) source.getColumnCount());
+			return source.mtimes(eig.getV());
+		} else {
 			Matrix[] usv;
 			usv = getSource().svd();
 			Matrix u = usv[0];
 			Matrix s = usv[1];
-			pca = u.mtimes(s);
+			return u.mtimes(s);
+		}
+	}
 
+	public long[] getSize() {
+		if (k > 0) {
+			return new long[] { getSource().getRowCount(), k };
 		}
-		return pca.getAsDouble(coordinates);
+		return getSource().getSize();
 	}
 
 }
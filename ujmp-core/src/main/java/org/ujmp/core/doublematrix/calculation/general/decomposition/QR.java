@@ -26,9 +26,14 @@ package org.ujmp.core.doublematrix.calculation.general.decomposition;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.Calculation.Ret;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.PackedGemm;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.util.Autotuner;
 import org.ujmp.core.util.DecompositionOps;
 import org.ujmp.core.util.MathUtil;
 import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
 
 /**
  * QR Decomposition.
@@ -53,6 +58,9 @@ public interface QR<T> {
 	public static final QR<Matrix> MATRIX = new QR<Matrix>() {
 
 		public final Matrix[] calc(Matrix source) {
+			if (UJMPSettings.getInstance().isUseAutotuner()) {
+				return Autotuner.getInstance().getQR(source).calc(source);
+			}
 			if (UJMPSettings.getInstance().getNumberOfThreads() == 1) {
 				if (source.getRowCount() >= THRESHOLD && source.getColumnCount() >= THRESHOLD) {
 					return MATRIXLARGESINGLETHREADED.calc(source);
@@ -69,6 +77,9 @@ public interface QR<T> {
 		}
 
 		public final Matrix solve(Matrix source, Matrix b) {
+			if (UJMPSettings.getInstance().isUseAutotuner()) {
+				return Autotuner.getInstance().getQR(source).solve(source, b);
+			}
 			if (UJMPSettings.getInstance().getNumberOfThreads() == 1) {
 				if (source.getRowCount() >= THRESHOLD && source.getColumnCount() >= THRESHOLD) {
 					return MATRIXLARGESINGLETHREADED.solve(source, b);
@@ -159,7 +170,7 @@ public interface QR<T> {
 
 	public static final QR<Matrix> INSTANCE = MATRIX;
 
-	public static final QR<Matrix> UJMP = new QR<Matrix>() {
+	public static final QR<Matrix> UJMPUNBLOCKED = new QR<Matrix>() {
 
 		public final Matrix[] calc(Matrix source) {
 			if (source.getRowCount() >= source.getColumnCount()) {
@@ -180,6 +191,46 @@ public interface QR<T> {
 		}
 	};
 
+	public static final QR<Matrix> UJMPBLOCKED = new QR<Matrix>() {
+
+		public final Matrix[] calc(Matrix source) {
+			if (source.getRowCount() >= source.getColumnCount()) {
+				BlockedQRMatrix qr = new BlockedQRMatrix(source);
+				return new Matrix[] { qr.getQ(), qr.getR() };
+			} else {
+				throw new RuntimeException("only matrices m>=n are allowed");
+			}
+		}
+
+		public final Matrix solve(Matrix source, Matrix b) {
+			if (source.getRowCount() >= source.getColumnCount()) {
+				BlockedQRMatrix qr = new BlockedQRMatrix(source);
+				return qr.solve(b);
+			} else {
+				throw new RuntimeException("only matrices m>=n are allowed");
+			}
+		}
+	};
+
+	public static final QR<Matrix> UJMP = new QR<Matrix>() {
+
+		public final Matrix[] calc(Matrix source) {
+			if (BlockedQRMatrix.isApplicable(source)) {
+				return UJMPBLOCKED.calc(source);
+			} else {
+				return UJMPUNBLOCKED.calc(source);
+			}
+		}
+
+		public final Matrix solve(Matrix source, Matrix b) {
+			if (BlockedQRMatrix.isApplicable(source)) {
+				return UJMPBLOCKED.solve(source, b);
+			} else {
+				return UJMPUNBLOCKED.solve(source, b);
+			}
+		}
+	};
+
 	public static final QR<Matrix> MATRIXSMALLMULTITHREADED = UJMP;
 
 	public static final QR<Matrix> MATRIXSMALLSINGLETHREADED = UJMP;
@@ -398,4 +449,417 @@ public interface QR<T> {
 			return Matrix.Factory.linkToArray(X).subMatrix(Ret.NEW, 0, 0, n - 1, nx - 1);
 		}
 	}
+
+	/**
+	 * Blocked QR Decomposition, computed by Householder reflections on a
+	 * column-major copy of the matrix.
+	 * <P>
+	 * The reflections of a panel of NB columns are combined into the compact WY
+	 * representation H = I - V*T*V', with V unit lower trapezoidal and T upper
+	 * triangular. The trailing columns, Q'*B and Q are then updated with
+	 * {@link PackedGemm}, which runs on the UJMP thread pool. Q and R are the
+	 * same as with {@link QRMatrix} up to rounding. Q is never formed unless it
+	 * is requested, use applyQt() or solve() for least squares problems.
+	 */
+	final class BlockedQRMatrix {
+
+		/** number of columns in a panel */
+		public static final int NB = 32;
+
+		/** minimum number of multiply-adds per thread when solving */
+		public static final long MINWORKPERTHREAD = 64 * 64 * 64;
+
+		/** R and the Householder vectors in column-major order, leading dimension m */
+		private final double[] QR;
+
+		private final int m, n, k;
+
+		/** triangular factors T of the panels */
+		private final double[][] T;
+
+		/**
+		 * Returns true if the blocked algorithm should be used instead of
+		 * {@link QRMatrix}, i.e. for dense double matrices with at least
+		 * THRESHOLD rows and at least as many rows as columns.
+		 */
+		public static final boolean isApplicable(Matrix A) {
+			return A instanceof DenseDoubleMatrix2D && A.getRowCount() >= THRESHOLD
+					&& A.getRowCount() >= A.getColumnCount();
+		}
+
+		/**
+		 * QR Decomposition, computed by Householder reflections.
+		 * 
+		 * @param A
+		 *            Rectangular matrix
+		 */
+		public BlockedQRMatrix(Matrix A) {
+			m = MathUtil.longToInt(A.getRowCount());
+			n = MathUtil.longToInt(A.getColumnCount());
+			k = Math.min(m, n);
+			QR = new double[MathUtil.longToInt((long) m * (long) n)];
+			if (A instanceof HasColumnMajorDoubleArray1D) {
+				System.arraycopy(((HasColumnMajorDoubleArray1D) A).getColumnMajorDoubleArray1D(), 0,
+						QR, 0, QR.length);
+			} else if (A instanceof DenseDoubleMatrix2D) {
+				final DenseDoubleMatrix2D a = (DenseDoubleMatrix2D) A;
+				for (int c = 0; c < n; c++) {
+					final int col = c * m;
+					for (int r = 0; r < m; r++) {
+						QR[col + r] = a.getDouble(r, c);
+					}
+				}
+			} else {
+				for (int c = 0; c < n; c++) {
+					final int col = c * m;
+					for (int r = 0; r < m; r++) {
+						QR[col + r] = A.getAsDouble(r, c);
+					}
+				}
+			}
+			T = new double[(k + NB - 1) / NB][];
+
+			final double[] tau = new double[NB];
+			for (int jb = 0, panel = 0; jb < k; jb += NB, panel++) {
+				final int nb = Math.min(NB, k - jb);
+				final int je = jb + nb;
+
+				factorPanel(jb, je, tau);
+				T[panel] = formT(jb, nb, tau);
+
+				// A(jb:m, je:n) = H' * A(jb:m, je:n)
+				if (je < n) {
+					applyBlock(true, jb, nb, getV(jb, nb), T[panel], QR, je * m + jb, m, n - je);
+				}
+			}
+		}
+
+		private final void factorPanel(final int jb, final int je, final double[] tau) {
+			for (int j = jb; j < je; j++) {
+				final int col = j * m;
+
+				// 2-norm of the column without under/overflow
+				double scale = 0.0;
+				for (int i = j; i < m; i++) {
+					scale = Math.max(scale, Math.abs(QR[col + i]));
+				}
+				double nrm = 0.0;
+				if (scale != 0.0) {
+					double sum = 0.0;
+					for (int i = j; i < m; i++) {
+						final double v = QR[col + i] / scale;
+						sum += v * v;
+					}
+					nrm = scale * Math.sqrt(sum);
+				}
+
+				final double alpha = QR[col + j];
+				if (nrm == 0.0) {
+					tau[j - jb] = 0.0;
+					continue;
+				}
+
+				// reflection H = I - tau*v*v' with v(j) = 1 and H*a = beta*e_j
+				final double beta = alpha < 0 ? nrm : -nrm;
+				final double f = 1.0 / (alpha - beta);
+				for (int i = j + 1; i < m; i++) {
+					QR[col + i] *= f;
+				}
+				QR[col + j] = beta;
+				final double t = (beta - alpha) / beta;
+				tau[j - jb] = t;
+
+				// apply to the remaining columns of the panel
+				for (int c = j + 1; c < je; c++) {
+					final int index = c * m;
+					double s = QR[index + j];
+					for (int i = j + 1; i < m; i++) {
+						s += QR[col + i] * QR[index + i];
+					}
+					s *= t;
+					if (s != 0.0) {
+						QR[index + j] -= s;
+						for (int i = j + 1; i < m; i++) {
+							QR[index + i] -= s * QR[col + i];
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns the Householder vectors of a panel as an explicit unit lower
+		 * trapezoidal (m-jb) x nb matrix.
+		 */
+		private final double[] getV(final int jb, final int nb) {
+			final int mr = m - jb;
+			final double[] V = new double[mr * nb];
+			for (int i = 0; i < nb; i++) {
+				V[i * mr + i] = 1.0;
+				System.arraycopy(QR, (jb + i) * m + jb + i + 1, V, i * mr + i + 1, mr - i - 1);
+			}
+			return V;
+		}
+
+		/**
+		 * Computes the upper triangular T so that H(jb)*...*H(jb+nb-1) = I -
+		 * V*T*V'.
+		 */
+		private final double[] formT(final int jb, final int nb, final double[] tau) {
+			final double[] T = new double[nb * nb];
+			final double[] w = new double[nb];
+			for (int i = 0; i < nb; i++) {
+				final double t = tau[i];
+				T[i * nb + i] = t;
+				if (t == 0.0 || i == 0) {
+					continue;
+				}
+				// w = -tau(i) * V(:,0:i)' * v(i)
+				final int j = jb + i;
+				final int vcol = j * m;
+				for (int r = 0; r < i; r++) {
+					final int rcol = (jb + r) * m;
+					double s = QR[rcol + j];
+					for (int l = j + 1; l < m; l++) {
+						s += QR[rcol + l] * QR[vcol + l];
+					}
+					w[r] = -t * s;
+				}
+				// T(0:i,i) = T(0:i,0:i) * w
+				for (int r = 0; r < i; r++) {
+					double s = 0.0;
+					for (int c = r; c < i; c++) {
+						s += T[c * nb + r] * w[c];
+					}
+					T[i * nb + r] = s;
+				}
+			}
+			return T;
+		}
+
+		/**
+		 * Computes C = (I - V*op(T)*V') * C for the rows jb to m-1 of C, where
+		 * op(T) is T' if transpose is true.
+		 */
+		private final void applyBlock(final boolean transpose, final int jb, final int nb,
+				final double[] V, final double[] T, final double[] C, final int cOff,
+				final int ldc, final int nc) {
+			if (nc == 0) {
+				return;
+			}
+			final int mr = m - jb;
+			final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+			final double[] W = new double[nb * nc];
+			final double[] TW = new double[nb * nc];
+			PackedGemm.gemm(threads, true, false, nb, nc, mr, 1.0, V, 0, mr, C, cOff, ldc, 0.0, W,
+					0, nb);
+			PackedGemm.gemm(threads, transpose, false, nb, nc, nb, 1.0, T, 0, nb, W, 0, nb, 0.0,
+					TW, 0, nb);
+			PackedGemm.gemm(threads, false, false, mr, nc, nb, -1.0, V, 0, mr, TW, 0, nb, 1.0, C,
+					cOff, ldc);
+		}
+
+		/**
+		 * Is the matrix full rank?
+		 * 
+		 * @return true if R, and hence A, has full rank.
+		 */
+		public final boolean isFullRank() {
+			if (k < n) {
+				return false;
+			}
+			for (int j = 0; j < n; j++) {
+				if (QR[j * m + j] == 0.0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Return the upper triangular factor
+		 * 
+		 * @return R, min(m,n) x n
+		 */
+		public final DenseDoubleMatrix2D getR() {
+			final double[] R = new double[k * n];
+			for (int j = 0; j < n; j++) {
+				System.arraycopy(QR, j * m, R, j * k, Math.min(j + 1, k));
+			}
+			return new DefaultDenseDoubleMatrix2D(R, k, n);
+		}
+
+		/**
+		 * Generate and return the (economy-sized) orthogonal factor
+		 * 
+		 * @return Q, m x min(m,n)
+		 */
+		public final DenseDoubleMatrix2D getQ() {
+			return getQ(true);
+		}
+
+		/**
+		 * Generate and return the orthogonal factor
+		 * 
+		 * @param thin
+		 *            return only the first min(m,n) columns
+		 * @return Q, m x min(m,n) if thin is true, m x m otherwise
+		 */
+		public final DenseDoubleMatrix2D getQ(boolean thin) {
+			final int qn = thin ? k : m;
+			return new DefaultDenseDoubleMatrix2D(formQ(qn), m, qn);
+		}
+
+		private final double[] formQ(final int qn) {
+			final double[] Q = new double[m * qn];
+			for (int j = 0; j < qn; j++) {
+				Q[j * m + j] = 1.0;
+			}
+			for (int panel = T.length - 1; panel >= 0; panel--) {
+				final int jb = panel * NB;
+				final int nb = Math.min(NB, k - jb);
+				applyBlock(false, jb, nb, getV(jb, nb), T[panel], Q, jb * m + jb, m, qn - jb);
+			}
+			return Q;
+		}
+
+		/**
+		 * Computes Q'*B without forming Q
+		 * 
+		 * @param B
+		 *            A Matrix with as many rows as A and any number of columns.
+		 * @return Q'*B
+		 * @exception IllegalArgumentException
+		 *                Matrix row dimensions must agree.
+		 */
+		public final DenseDoubleMatrix2D applyQt(Matrix B) {
+			if (B.getRowCount() != m) {
+				throw new IllegalArgumentException("Matrix row dimensions must agree.");
+			}
+			return new DefaultDenseDoubleMatrix2D(qtb(B), m, MathUtil.longToInt(B
+					.getColumnCount()));
+		}
+
+		private final double[] qtb(final Matrix B) {
+			final int nx = MathUtil.longToInt(B.getColumnCount());
+			final double[] X = new double[m * nx];
+			if (B instanceof HasColumnMajorDoubleArray1D) {
+				System.arraycopy(((HasColumnMajorDoubleArray1D) B).getColumnMajorDoubleArray1D(), 0,
+						X, 0, X.length);
+			} else {
+				for (int c = 0; c < nx; c++) {
+					final int col = c * m;
+					for (int r = 0; r < m; r++) {
+						X[col + r] = B.getAsDouble(r, c);
+					}
+				}
+			}
+			for (int panel = 0; panel < T.length; panel++) {
+				final int jb = panel * NB;
+				final int nb = Math.min(NB, k - jb);
+				applyBlock(true, jb, nb, getV(jb, nb), T[panel], X, jb, m, nx);
+			}
+			return X;
+		}
+
+		/**
+		 * Least squares solution of A*X = B
+		 * 
+		 * @param B
+		 *            A Matrix with as many rows as A and any number of columns.
+		 * @return X that minimizes the two norm of Q*R*X-B.
+		 * @exception IllegalArgumentException
+		 *                Matrix row dimensions must agree.
+		 * @exception RuntimeException
+		 *                Matrix is rank deficient.
+		 */
+		public final DenseDoubleMatrix2D solve(Matrix B) {
+			if (B.getRowCount() != m) {
+				throw new IllegalArgumentException("Matrix row dimensions must agree.");
+			}
+			if (!this.isFullRank()) {
+				throw new RuntimeException("Matrix is rank deficient.");
+			}
+			final int nx = MathUtil.longToInt(B.getColumnCount());
+			final double[] Y = qtb(B);
+			final double[] X = new double[n * nx];
+			for (int c = 0; c < nx; c++) {
+				System.arraycopy(Y, c * m, X, c * n, n);
+			}
+			solveR(X, nx);
+			return new DefaultDenseDoubleMatrix2D(X, n, nx);
+		}
+
+		/**
+		 * Pseudoinverse R^-1 * Q' of a matrix with full column rank
+		 * 
+		 * @return the n x m pseudoinverse
+		 * @exception RuntimeException
+		 *                Matrix is rank deficient.
+		 */
+		public final DenseDoubleMatrix2D pinv() {
+			if (!this.isFullRank()) {
+				throw new RuntimeException("Matrix is rank deficient.");
+			}
+			final double[] Q = formQ(k);
+			final double[] X = new double[n * m];
+			for (int c = 0; c < n; c++) {
+				final int col = c * m;
+				for (int r = 0; r < m; r++) {
+					X[r * n + c] = Q[col + r];
+				}
+			}
+			solveR(X, m);
+			return new DefaultDenseDoubleMatrix2D(X, n, m);
+		}
+
+		/**
+		 * Returns the ratio of the smallest to the largest absolute value on
+		 * the diagonal of R, which is 0 for a rank deficient matrix.
+		 */
+		public final double getDiagonalRatio() {
+			double min = Double.MAX_VALUE;
+			double max = 0.0;
+			for (int j = 0; j < k; j++) {
+				final double v = Math.abs(QR[j * m + j]);
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			return max == 0.0 || k < n ? 0.0 : min / max;
+		}
+
+		/**
+		 * Solves R*X = Y in place for the n x nx column-major array X.
+		 */
+		private final void solveR(final double[] X, final int nx) {
+			final long work = (long) n * (long) n * (long) nx;
+			final int threads = (int) Math.max(1, Math.min(UJMPSettings.getInstance()
+					.getNumberOfThreads(), work / MINWORKPERTHREAD));
+			if (threads < 2) {
+				for (int c = 0; c < nx; c++) {
+					substitute(X, c * n);
+				}
+			} else {
+				new PFor(threads, 0, nx - 1) {
+					@Override
+					public void step(int c) {
+						substitute(X, c * n);
+					}
+				};
+			}
+		}
+
+		private final void substitute(final double[] X, final int col) {
+			for (int j = n - 1; j >= 0; j--) {
+				final int rcol = j * m;
+				final double x = (X[col + j] /= QR[rcol + j]);
+				if (x != 0.0) {
+					for (int i = 0; i < j; i++) {
+						X[col + i] -= QR[rcol + i] * x;
+					}
+				}
+			}
+		}
+
+	}
 }
@@ -23,11 +23,21 @@
 
 package org.ujmp.core.doublematrix.calculation.general.decomposition;
 
+import java.util.Random;
+
 import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.AbstractCompressedSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.CompressedRowSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.PackedGemm;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.util.Autotuner;
 import org.ujmp.core.util.DecompositionOps;
 import org.ujmp.core.util.MathUtil;
 import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.VerifyUtil;
 
 /**
  * Singular Value Decomposition.
@@ -53,6 +63,9 @@ public interface SVD<T> {
 	public static final SVD<Matrix> MATRIX = new SVD<Matrix>() {
 
 		public final Matrix[] calc(Matrix source) {
+			if (UJMPSettings.getInstance().isUseAutotuner()) {
+				return Autotuner.getInstance().getSVD(source).calc(source);
+			}
 			if (UJMPSettings.getInstance().getNumberOfThreads() == 1) {
 				if (source.getRowCount() >= THRESHOLD && source.getColumnCount() >= THRESHOLD) {
 					return MATRIXLARGESINGLETHREADED.calc(source);
@@ -744,4 +757,218 @@ public interface SVD<T> {
 		}
 
 	}
+
+	/**
+	 * Truncated singular value decomposition A = U*S*V' for the k largest
+	 * singular values, computed by randomized range finding (Halko, Martinsson
+	 * and Tropp).
+	 * <P>
+	 * The range of A is sampled with a Gaussian random matrix of k +
+	 * OVERSAMPLING columns and refined with power iterations, which
+	 * orthonormalize the samples after each product with A or A'. Only
+	 * products of A and A' with tall matrices are needed, so sparse matrices
+	 * are never densified. The small projected problem is solved with a QR
+	 * decomposition and {@link SVDMatrix}. The singular values of A are
+	 * ordered so that sigma[0] >= sigma[1] >= ... >= sigma[k-1], U is m x k,
+	 * S is k x k and V is n x k.
+	 */
+	final class RandomizedSVDMatrix {
+
+		/** additional samples beyond k, which improve the accuracy */
+		public static final int OVERSAMPLING = 10;
+
+		/** default number of power iterations */
+		public static final int POWERITERATIONS = 2;
+
+		private final int m, n, k;
+
+		private final double[] U, V, s;
+
+		/**
+		 * Truncated SVD with default parameters.
+		 * 
+		 * @param A
+		 *            Rectangular matrix
+		 * @param k
+		 *            number of singular values
+		 */
+		public RandomizedSVDMatrix(Matrix A, int k) {
+			this(A, k, OVERSAMPLING, POWERITERATIONS);
+		}
+
+		/**
+		 * Truncated SVD
+		 * 
+		 * @param A
+		 *            Rectangular matrix
+		 * @param k
+		 *            number of singular values
+		 * @param oversampling
+		 *            number of additional random samples
+		 * @param powerIterations
+		 *            number of multiplications with A'*A to separate the
+		 *            leading singular values from the rest
+		 */
+		public RandomizedSVDMatrix(Matrix A, int k, int oversampling, int powerIterations) {
+			VerifyUtil.verify2D(A);
+			if (A.containsMissingValues()) {
+				throw new RuntimeException("matrix contains missing values");
+			}
+			m = MathUtil.longToInt(A.getRowCount());
+			n = MathUtil.longToInt(A.getColumnCount());
+			if (k < 1 || k > Math.min(m, n)) {
+				throw new IllegalArgumentException("k must be between 1 and " + Math.min(m, n));
+			}
+			this.k = k;
+			final int l = Math.min(k + Math.max(0, oversampling), Math.min(m, n));
+
+			// sparse matrices are multiplied in compressed format
+			if (A.isSparse() && A instanceof SparseMatrix
+					&& !(A instanceof AbstractCompressedSparseDoubleMatrix2D)) {
+				A = new CompressedRowSparseDoubleMatrix2D(A);
+			}
+
+			// Q = orth(A * Omega)
+			final Random random = MathUtil.getRandom();
+			final double[] omega = new double[n * l];
+			for (int i = 0; i < omega.length; i++) {
+				omega[i] = random.nextGaussian();
+			}
+			double[] Q = orth(times(A, omega, l), m, l);
+
+			for (int i = 0; i < powerIterations; i++) {
+				final double[] Z = orth(transposeTimes(A, Q, l), n, l);
+				Q = orth(times(A, Z, l), m, l);
+			}
+
+			// B' = A' * Q = Qb * R with R = Ur * S * Vr', so A ~ (Q*Vr) * S * (Qb*Ur)'
+			final QR.BlockedQRMatrix qrb = new QR.BlockedQRMatrix(new DefaultDenseDoubleMatrix2D(
+					transposeTimes(A, Q, l), n, l));
+			final SVDMatrix svd = new SVDMatrix(qrb.getR(), true, true, true);
+			final double[] Ur = toColumnMajor(svd.getU(), l, k);
+			final double[] Vr = toColumnMajor(svd.getV(), l, k);
+			final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+			U = new double[m * k];
+			PackedGemm.gemm(threads, false, false, m, k, l, 1.0, Q, 0, m, Vr, 0, l, 0.0, U, 0, m);
+			V = new double[n * k];
+			PackedGemm.gemm(threads, false, false, n, k, l, 1.0, columnMajor(qrb.getQ()), 0, n, Ur,
+					0, l, 0.0, V, 0, n);
+			s = new double[k];
+			System.arraycopy(svd.getSingularValues(), 0, s, 0, k);
+		}
+
+		/**
+		 * Computes A * X for the n x l column-major matrix X.
+		 */
+		private final double[] times(final Matrix A, final double[] X, final int l) {
+			if (A instanceof AbstractCompressedSparseDoubleMatrix2D) {
+				return columnMajor((DenseDoubleMatrix2D) A.mtimes(new DefaultDenseDoubleMatrix2D(X,
+						n, l)));
+			}
+			final double[] Y = new double[m * l];
+			if (A instanceof DenseDoubleMatrix2D && A instanceof HasColumnMajorDoubleArray1D) {
+				final double[] a = ((HasColumnMajorDoubleArray1D) A).getColumnMajorDoubleArray1D();
+				PackedGemm.gemm(UJMPSettings.getInstance().getNumberOfThreads(), false, false, m,
+						l, n, 1.0, a, 0, m, X, 0, n, 0.0, Y, 0, m);
+			} else {
+				Matrix.mtimes.calc(A, new DefaultDenseDoubleMatrix2D(X, n, l),
+						new DefaultDenseDoubleMatrix2D(Y, m, l));
+			}
+			return Y;
+		}
+
+		/**
+		 * Computes A' * X for the m x l column-major matrix X without
+		 * transposing A.
+		 */
+		private final double[] transposeTimes(final Matrix A, final double[] X, final int l) {
+			if (A instanceof AbstractCompressedSparseDoubleMatrix2D) {
+				return columnMajor((DenseDoubleMatrix2D) ((AbstractCompressedSparseDoubleMatrix2D) A)
+						.transposeMtimes(new DefaultDenseDoubleMatrix2D(X, m, l)));
+			}
+			final double[] Y = new double[n * l];
+			if (A instanceof DenseDoubleMatrix2D && A instanceof HasColumnMajorDoubleArray1D) {
+				final double[] a = ((HasColumnMajorDoubleArray1D) A).getColumnMajorDoubleArray1D();
+				PackedGemm.gemm(UJMPSettings.getInstance().getNumberOfThreads(), true, false, n, l,
+						m, 1.0, a, 0, m, X, 0, m, 0.0, Y, 0, n);
+			} else {
+				for (int j = 0; j < l; j++) {
+					final int xcol = j * m;
+					final int ycol = j * n;
+					for (int c = 0; c < n; c++) {
+						double sum = 0.0;
+						for (int r = 0; r < m; r++) {
+							sum += A.getAsDouble(r, c) * X[xcol + r];
+						}
+						Y[ycol + c] = sum;
+					}
+				}
+			}
+			return Y;
+		}
+
+		/**
+		 * Returns an orthonormal basis for the columns of the rows x cols
+		 * column-major matrix X.
+		 */
+		private static final double[] orth(final double[] X, final int rows, final int cols) {
+			return columnMajor(new QR.BlockedQRMatrix(new DefaultDenseDoubleMatrix2D(X, rows, cols))
+					.getQ());
+		}
+
+		private static final double[] columnMajor(final DenseDoubleMatrix2D A) {
+			return ((HasColumnMajorDoubleArray1D) A).getColumnMajorDoubleArray1D();
+		}
+
+		private static final double[] toColumnMajor(final DenseDoubleMatrix2D A, final int rows,
+				final int cols) {
+			final double[] a = new double[rows * cols];
+			for (int c = 0; c < cols; c++) {
+				for (int r = 0; r < rows; r++) {
+					a[c * rows + r] = A.getDouble(r, c);
+				}
+			}
+			return a;
+		}
+
+		/**
+		 * Return the left singular vectors
+		 * 
+		 * @return U, m x k
+		 */
+		public final DenseDoubleMatrix2D getU() {
+			return new DefaultDenseDoubleMatrix2D(U.clone(), m, k);
+		}
+
+		/**
+		 * Return the right singular vectors
+		 * 
+		 * @return V, n x k
+		 */
+		public final DenseDoubleMatrix2D getV() {
+			return new DefaultDenseDoubleMatrix2D(V.clone(), n, k);
+		}
+
+		/**
+		 * Return the one-dimensional array of the k largest singular values
+		 * 
+		 * @return diagonal of S.
+		 */
+		public final double[] getSingularValues() {
+			return s;
+		}
+
+		/**
+		 * Return the diagonal matrix of singular values
+		 * 
+		 * @return S, k x k
+		 */
+		public final DenseDoubleMatrix2D getS() {
+			final DenseDoubleMatrix2D S = DenseDoubleMatrix2D.Factory.zeros(k, k);
+			for (int i = 0; i < k; i++) {
+				S.setDouble(s[i], i, i);
+			}
+			return S;
+		}
+	}
 }
@@ -55,9 +55,22 @@ public class SVDTask extends AbstractTask<MapMatrix<String, Matrix>> {
 	}
 
 	public MapMatrix<String, Matrix> call() throws Exception {
-		SVDMatrix svd = new SVDMatrix(source, thin, wantU, wantV);
 		MapMatrix<String, Matrix> result = new DefaultMapMatrix<String, Matrix>();
 
+		if (maxRank > 0 && maxRank < Math.min(source.getRowCount(), source.getColumnCount())) {
+			SVD.RandomizedSVDMatrix svd = new SVD.RandomizedSVDMatrix(source, maxRank);
+			result.put("S", svd.getS());
+			if (wantU) {
+				result.put("U", svd.getU());
+			}
+			if (wantV) {
+				result.put("V", svd.getV());
+			}
+			return result;
+		}
+
+		SVDMatrix svd = new SVDMatrix(source, thin, wantU, wantV);
+
 		switch (matrixLibrary) {
 		case UJMP: {
 			result.put("S", svd.getS());
@@ -25,6 +25,7 @@ package org.ujmp.core.doublematrix.calculation.general.missingvalues;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.general.statistical.SparseReductions;
 import org.ujmp.core.util.MathUtil;
 
 public class CountMissing extends AbstractDoubleCalculation {
@@ -34,6 +35,13 @@ public class CountMissing extends AbstractDoubleCalculation {
 		super(dimension, matrix);
 	}
 
+	public Matrix calcNew() {
+		if (SparseReductions.isApplicable(this)) {
+			return SparseReductions.countMissing(this);
+		}
+		return super.calcNew();
+	}
+
 	public double getDouble(long... coordinates) {
 		double sum = 0;
 		switch (getDimension()) {
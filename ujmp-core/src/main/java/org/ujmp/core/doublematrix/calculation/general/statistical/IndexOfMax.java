@@ -33,6 +33,13 @@ public class IndexOfMax extends AbstractDoubleCalculation {
 		super(dimension, matrix);
 	}
 
+	public Matrix calcNew() {
+		if (SparseReductions.isApplicable(this) && getDimension() != ALL) {
+			return SparseReductions.indexOfExtremum(this, true);
+		}
+		return super.calcNew();
+	}
+
 	public double getDouble(long... coordinates) {
 		double max = -Double.MAX_VALUE;
 		long index = -1;
@@ -33,6 +33,13 @@ public class IndexOfMin extends AbstractDoubleCalculation {
 		super(dimension, matrix);
 	}
 
+	public Matrix calcNew() {
+		if (SparseReductions.isApplicable(this) && getDimension() != ALL) {
+			return SparseReductions.indexOfExtremum(this, false);
+		}
+		return super.calcNew();
+	}
+
 	public double getDouble(long... coordinates) {
 		double min = Double.MAX_VALUE;
 		long index = -1;
@@ -47,6 +47,13 @@ public class Max extends AbstractDoubleCalculation {
 		}
 	}
 
+	public Matrix calcNew() {
+		if (SparseReductions.isApplicable(this)) {
+			return SparseReductions.extremum(this, true);
+		}
+		return super.calcNew();
+	}
+
 	public double getDouble(long... coordinates) {
 		double max = -Double.MAX_VALUE;
 		switch (getDimension()) {
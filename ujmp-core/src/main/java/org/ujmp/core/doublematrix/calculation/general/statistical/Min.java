@@ -47,6 +47,13 @@ public class Min extends AbstractDoubleCalculation {
 		}
 	}
 
+	public Matrix calcNew() {
+		if (SparseReductions.isApplicable(this)) {
+			return SparseReductions.extremum(this, false);
+		}
+		return super.calcNew();
+	}
+
 	public double getDouble(long... coordinates) {
 		double min = Double.MAX_VALUE;
 		switch (getDimension()) {
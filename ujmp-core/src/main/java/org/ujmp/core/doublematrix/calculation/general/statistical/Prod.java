@@ -51,6 +51,13 @@ public class Prod extends AbstractDoubleCalculation {
 		}
 	}
 
+	public Matrix calcNew() {
+		if (SparseReductions.isApplicable(this)) {
+			return SparseReductions.prod(this, ignoreNaN);
+		}
+		return super.calcNew();
+	}
+
 	public double getDouble(long... coordinates) {
 		double prod = 1;
 
@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.statistical;
+
+import java.util.Arrays;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
+import org.ujmp.core.util.MathUtil;
+
+/**
+ * Reductions of sparse matrices in one pass over the stored entries. The
+ * implicit zeros of a row or column are only counted and then taken into
+ * account analytically, so the time is proportional to the number of
+ * non-zero entries and not to the size of the matrix. The entries are read
+ * with {@link Matrix#forEachNonZero(DoubleCellVisitor)}, which works directly
+ * on the arrays of compressed, indexed and sparse-row matrices.
+ *
+ * @author Holger Arndt
+ */
+public abstract class SparseReductions {
+
+	/**
+	 * Returns true if the calculation has a two-dimensional sparse source and
+	 * reduces it along rows, columns or all entries.
+	 */
+	public static boolean isApplicable(AbstractDoubleCalculation calculation) {
+		final Matrix source = calculation.getSource();
+		if (!source.isSparse() || source.getDimensionCount() != 2) {
+			return false;
+		}
+		switch (calculation.getDimension()) {
+		case Calculation.ROW:
+			return source.getColumnCount() <= Integer.MAX_VALUE;
+		case Calculation.COLUMN:
+			return source.getRowCount() <= Integer.MAX_VALUE;
+		case Calculation.ALL:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	public static Matrix sum(AbstractDoubleCalculation calculation, final boolean ignoreNaN) {
+		final Matrix source = calculation.getSource();
+		final int dimension = calculation.getDimension();
+		final double[] sum = new double[slotCount(source, dimension)];
+		source.forEachNonZero(new DoubleCellVisitor() {
+			public void visit(long row, long column, double value) {
+				sum[slot(dimension, row, column)] += ignoreNaN ? MathUtil.ignoreNaN(value) : value;
+			}
+		});
+		return result(calculation, sum);
+	}
+
+	public static Matrix countMissing(AbstractDoubleCalculation calculation) {
+		final Matrix source = calculation.getSource();
+		final int dimension = calculation.getDimension();
+		final double[] count = new double[slotCount(source, dimension)];
+		source.forEachNonZero(new DoubleCellVisitor() {
+			public void visit(long row, long column, double value) {
+				if (MathUtil.isNaNOrInfinite(value)) {
+					count[slot(dimension, row, column)]++;
+				}
+			}
+		});
+		return result(calculation, count);
+	}
+
+	public static Matrix prod(AbstractDoubleCalculation calculation, final boolean ignoreNaN) {
+		final Matrix source = calculation.getSource();
+		final int dimension = calculation.getDimension();
+		final int slots = slotCount(source, dimension);
+		final double[] prod = new double[slots];
+		final long[] stored = new long[slots];
+		Arrays.fill(prod, 1.0);
+		source.forEachNonZero(new DoubleCellVisitor() {
+			public void visit(long row, long column, double value) {
+				final int slot = slot(dimension, row, column);
+				stored[slot]++;
+				if (!ignoreNaN || !MathUtil.isNaNOrInfinite(value)) {
+					prod[slot] *= value;
+				}
+			}
+		});
+		final long length = slotLength(source, dimension);
+		for (int i = 0; i < slots; i++) {
+			if (stored[i] < length) {
+				prod[i] *= 0.0;
+			}
+		}
+		return result(calculation, prod);
+	}
+
+	/**
+	 * Computes the maximum or the minimum. Like in the dense case, NaN values
+	 * are ignored and the result is NaN if there are only NaN values.
+	 */
+	public static Matrix extremum(AbstractDoubleCalculation calculation, final boolean max) {
+		final Matrix source = calculation.getSource();
+		final int dimension = calculation.getDimension();
+		final int slots = slotCount(source, dimension);
+		final double[] extremum = new double[slots];
+		final long[] stored = new long[slots];
+		Arrays.fill(extremum, max ? -Double.MAX_VALUE : Double.MAX_VALUE);
+		source.forEachNonZero(new DoubleCellVisitor() {
+			public void visit(long row, long column, double value) {
+				final int slot = slot(dimension, row, column);
+				stored[slot]++;
+				if (max ? value > extremum[slot] : value < extremum[slot]) {
+					extremum[slot] = value;
+				}
+			}
+		});
+		final long length = slotLength(source, dimension);
+		for (int i = 0; i < slots; i++) {
+			if (stored[i] < length && (max ? 0.0 > extremum[i] : 0.0 < extremum[i])) {
+				extremum[i] = 0.0;
+			} else if (extremum[i] == (max ? -Double.MAX_VALUE : Double.MAX_VALUE)) {
+				extremum[i] = Double.NaN;
+			}
+		}
+		return result(calculation, extremum);
+	}
+
+	/**
+	 * Computes the index of the maximum or the minimum along rows or columns.
+	 * Like in the dense case, the largest index is returned if several
+	 * entries have the same value.
+	 */
+	public static Matrix indexOfExtremum(AbstractDoubleCalculation calculation,
+			final boolean max) {
+		final Matrix source = calculation.getSource();
+		final int dimension = calculation.getDimension();
+		final int slots = slotCount(source, dimension);
+		final double[] extremum = new double[slots];
+		final double[] index = new double[slots];
+		final long[] stored = new long[slots];
+		Arrays.fill(extremum, max ? -Double.MAX_VALUE : Double.MAX_VALUE);
+		Arrays.fill(index, -1);
+		final int other = dimension == Calculation.ROW ? Calculation.ROW : Calculation.COLUMN;
+		source.forEachNonZero(new DoubleCellVisitor() {
+			public void visit(long row, long column, double value) {
+				final int slot = slot(dimension, row, column);
+				final long position = other == Calculation.ROW ? row : column;
+				stored[slot]++;
+				if (max ? value > extremum[slot] : value < extremum[slot]) {
+					extremum[slot] = value;
+					index[slot] = position;
+				} else if (value == extremum[slot] && position > index[slot]) {
+					index[slot] = position;
+				}
+			}
+		});
+		final long length = slotLength(source, dimension);
+		final long[] c = new long[2];
+		for (int i = 0; i < slots; i++) {
+			if (stored[i] < length && (max ? 0.0 >= extremum[i] : 0.0 <= extremum[i])) {
+				// the largest index of a zero, all other entries are non-zero
+				c[1 - other] = i;
+				c[other] = length - 1;
+				while (source.getAsDouble(c) != 0.0) {
+					c[other]--;
+				}
+				if (0.0 != extremum[i] || c[other] > index[i]) {
+					index[i] = c[other];
+				}
+			}
+		}
+		return result(calculation, index);
+	}
+
+	public static Matrix var(AbstractDoubleCalculation calculation, final boolean ignoreNaN,
+			boolean besselsCorrection) {
+		final Matrix source = calculation.getSource();
+		final int dimension = calculation.getDimension();
+		final int slots = slotCount(source, dimension);
+		final double[] mean = new double[slots];
+		final long[] missing = new long[slots];
+		final long[] stored = new long[slots];
+		source.forEachNonZero(new DoubleCellVisitor() {
+			public void visit(long row, long column, double value) {
+				final int slot = slot(dimension, row, column);
+				stored[slot]++;
+				if (ignoreNaN && MathUtil.isNaNOrInfinite(value)) {
+					missing[slot]++;
+				} else {
+					mean[slot] += value;
+				}
+			}
+		});
+		final long length = slotLength(source, dimension);
+		for (int i = 0; i < slots; i++) {
+			mean[i] /= length - missing[i];
+		}
+
+		final double[] var = new double[slots];
+		source.forEachNonZero(new DoubleCellVisitor() {
+			public void visit(long row, long column, double value) {
+				if (!ignoreNaN || !MathUtil.isNaNOrInfinite(value)) {
+					final int slot = slot(dimension, row, column);
+					var[slot] += (value - mean[slot]) * (value - mean[slot]);
+				}
+			}
+		});
+		for (int i = 0; i < slots; i++) {
+			var[i] += (length - stored[i]) * mean[i] * mean[i];
+			double count = length - missing[i];
+			count = besselsCorrection ? count - 1 : count;
+			count = count == 0 ? 1 : count;
+			var[i] /= count;
+		}
+		return result(calculation, var);
+	}
+
+	private static int slotCount(Matrix source, int dimension) {
+		switch (dimension) {
+		case Calculation.ROW:
+			return (int) source.getColumnCount();
+		case Calculation.COLUMN:
+			return (int) source.getRowCount();
+		default:
+			return 1;
+		}
+	}
+
+	private static long slotLength(Matrix source, int dimension) {
+		switch (dimension) {
+		case Calculation.ROW:
+			return source.getRowCount();
+		case Calculation.COLUMN:
+			return source.getColumnCount();
+		default:
+			return source.getRowCount() * source.getColumnCount();
+		}
+	}
+
+	private static int slot(int dimension, long row, long column) {
+		switch (dimension) {
+		case Calculation.ROW:
+			return (int) column;
+		case Calculation.COLUMN:
+			return (int) row;
+		default:
+			return 0;
+		}
+	}
+
+	private static Matrix result(AbstractDoubleCalculation calculation, double[] values) {
+		final long[] size = calculation.getSize();
+		final DoubleMatrix2D result = DoubleMatrix2D.Factory.zeros(size[Calculation.ROW],
+				size[Calculation.COLUMN]);
+		final boolean column = calculation.getDimension() == Calculation.COLUMN;
+		for (int i = 0; i < values.length; i++) {
+			if (column) {
+				result.setDouble(values[i], i, 0);
+			} else {
+				result.setDouble(values[i], 0, i);
+			}
+		}
+		if (calculation.getMetaData() != null) {
+			result.setMetaData(calculation.getMetaData().clone());
+		}
+		return result;
+	}
+
+}
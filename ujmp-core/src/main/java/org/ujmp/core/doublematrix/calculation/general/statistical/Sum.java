@@ -24,6 +24,7 @@
 package org.ujmp.core.doublematrix.calculation.general.statistical;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.booleanmatrix.impl.BitSetDenseBooleanMatrix2D;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
 import org.ujmp.core.mapmatrix.DefaultMapMatrix;
 import org.ujmp.core.mapmatrix.MapMatrix;
@@ -55,6 +56,19 @@ public class Sum extends AbstractDoubleCalculation {
 		}
 	}
 
+	public Matrix calcNew() {
+		if (getSource() instanceof BitSetDenseBooleanMatrix2D && getDimension() != NONE) {
+			Matrix result = ((BitSetDenseBooleanMatrix2D) getSource()).countTrue(getDimension());
+			if (getMetaData() != null) {
+				result.setMetaData(getMetaData().clone());
+			}
+			return result;
+		} else if (SparseReductions.isApplicable(this)) {
+			return SparseReductions.sum(this, ignoreNaN);
+		}
+		return super.calcNew();
+	}
+
 	public double getDouble(long... coordinates) {
 		double sum = 0;
 
@@ -56,6 +56,13 @@ public class Var extends AbstractDoubleCalculation {
 		}
 	}
 
+	public Matrix calcNew() {
+		if (SparseReductions.isApplicable(this)) {
+			return SparseReductions.var(this, ignoreNaN, besselsCorrection);
+		}
+		return super.calcNew();
+	}
+
 	public double getDouble(long... coordinates) {
 		if (mean == null) {
 			mean = new Mean(getDimension(), ignoreNaN, getSource()).calcNew();
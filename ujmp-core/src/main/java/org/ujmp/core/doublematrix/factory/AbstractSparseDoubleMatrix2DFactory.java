@@ -25,6 +25,8 @@ package org.ujmp.core.doublematrix.factory;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.SparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.CompressedColumnSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.CompressedRowSparseDoubleMatrix2D;
 import org.ujmp.core.matrix.factory.AbstractMatrixFactory;
 
 public abstract class AbstractSparseDoubleMatrix2DFactory<T extends SparseDoubleMatrix2D> extends
@@ -34,4 +36,32 @@ public abstract class AbstractSparseDoubleMatrix2DFactory<T extends SparseDouble
 		return zeros(size[Matrix.ROW], size[Matrix.COLUMN]);
 	}
 
+	public CompressedRowSparseDoubleMatrix2D csr(long rows, long columns) {
+		return new CompressedRowSparseDoubleMatrix2D(rows, columns);
+	}
+
+	public CompressedRowSparseDoubleMatrix2D csr(Matrix source) {
+		return new CompressedRowSparseDoubleMatrix2D(source);
+	}
+
+	public CompressedRowSparseDoubleMatrix2D csr(long rows, long columns, int[] rowPointers,
+			int[] columnIndices, double[] values) {
+		return new CompressedRowSparseDoubleMatrix2D(rows, columns, rowPointers, columnIndices,
+				values);
+	}
+
+	public CompressedColumnSparseDoubleMatrix2D csc(long rows, long columns) {
+		return new CompressedColumnSparseDoubleMatrix2D(rows, columns);
+	}
+
+	public CompressedColumnSparseDoubleMatrix2D csc(Matrix source) {
+		return new CompressedColumnSparseDoubleMatrix2D(source);
+	}
+
+	public CompressedColumnSparseDoubleMatrix2D csc(long rows, long columns,
+			int[] columnPointers, int[] rowIndices, double[] values) {
+		return new CompressedColumnSparseDoubleMatrix2D(rows, columns, columnPointers,
+				rowIndices, values);
+	}
+
 }
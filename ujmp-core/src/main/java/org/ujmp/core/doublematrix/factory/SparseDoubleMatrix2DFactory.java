@@ -23,9 +23,48 @@
 
 package org.ujmp.core.doublematrix.factory;
 
+import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.SparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.CompressedColumnSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.CompressedRowSparseDoubleMatrix2D;
 import org.ujmp.core.numbermatrix.factory.SparseNumberMatrix2DFactory;
 
 public interface SparseDoubleMatrix2DFactory<T extends SparseDoubleMatrix2D> extends
 		SparseNumberMatrix2DFactory<T>, SparseDoubleMatrixFactory<T>, DoubleMatrix2DFactory<T> {
+
+	/**
+	 * Creates an empty matrix in compressed sparse row format.
+	 */
+	public CompressedRowSparseDoubleMatrix2D csr(long rows, long columns);
+
+	/**
+	 * Copies the nonzero entries of a matrix into compressed sparse row format.
+	 */
+	public CompressedRowSparseDoubleMatrix2D csr(Matrix source);
+
+	/**
+	 * Creates a matrix in compressed sparse row format from its arrays, which
+	 * are not copied.
+	 */
+	public CompressedRowSparseDoubleMatrix2D csr(long rows, long columns, int[] rowPointers,
+			int[] columnIndices, double[] values);
+
+	/**
+	 * Creates an empty matrix in compressed sparse column format.
+	 */
+	public CompressedColumnSparseDoubleMatrix2D csc(long rows, long columns);
+
+	/**
+	 * Copies the nonzero entries of a matrix into compressed sparse column
+	 * format.
+	 */
+	public CompressedColumnSparseDoubleMatrix2D csc(Matrix source);
+
+	/**
+	 * Creates a matrix in compressed sparse column format from its arrays,
+	 * which are not copied.
+	 */
+	public CompressedColumnSparseDoubleMatrix2D csc(long rows, long columns,
+			int[] columnPointers, int[] rowIndices, double[] values);
+
 }
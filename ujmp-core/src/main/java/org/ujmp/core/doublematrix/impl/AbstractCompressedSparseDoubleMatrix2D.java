@@ -0,0 +1,872 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.stub.AbstractSparseDoubleMatrix2D;
+import org.ujmp.core.interfaces.CanMapNonZeros;
+import org.ujmp.core.interfaces.DoubleCellFunction;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+
+/**
+ * Base class for sparse double matrices in compressed format. The entries of
+ * each major vector (a row for CSR, a column for CSC) are stored contiguously
+ * in <code>indices</code> and <code>values</code>, sorted by their minor
+ * index. <code>pointers[i]</code> is the position of the first entry of major
+ * vector i, <code>pointers[majorCount]</code> is the number of stored entries.
+ * <p>
+ * Products with dense matrices either gather (sum over the entries of one
+ * major vector) or scatter (add each entry to the output at its minor index).
+ * Gathering is split into ranges of major vectors with equal numbers of
+ * entries. Scattering is split by the columns of the dense operand, or uses
+ * one buffer per thread if it has fewer columns than there are threads.
+ * <p>
+ * Inserting entries with <code>setDouble</code> moves all following entries
+ * and should only be used for small changes. Large matrices should be built
+ * from another matrix or from the compressed arrays.
+ *
+ * @author Holger Arndt
+ */
+public abstract class AbstractCompressedSparseDoubleMatrix2D extends AbstractSparseDoubleMatrix2D
+		implements CanMapNonZeros {
+	private static final long serialVersionUID = 4389711725093487153L;
+
+	/** minimum number of multiply-adds for more than one thread */
+	public static final int PARALLELTHRESHOLD = 1 << 16;
+
+	protected final boolean rowMajor;
+
+	protected final int majorCount;
+
+	protected final int minorCount;
+
+	protected int[] pointers;
+
+	protected int[] indices;
+
+	protected double[] values;
+
+	// the arrays are used by the transpose too and must be copied before
+	// they are changed
+	private boolean shared = false;
+
+	protected AbstractCompressedSparseDoubleMatrix2D(boolean rowMajor, long rows, long columns) {
+		super(rows, columns);
+		this.rowMajor = rowMajor;
+		this.majorCount = MathUtil.longToInt(rowMajor ? rows : columns);
+		this.minorCount = MathUtil.longToInt(rowMajor ? columns : rows);
+		this.pointers = new int[majorCount + 1];
+		this.indices = new int[0];
+		this.values = new double[0];
+	}
+
+	protected AbstractCompressedSparseDoubleMatrix2D(boolean rowMajor, long rows, long columns,
+			int[] pointers, int[] indices, double[] values) {
+		super(rows, columns);
+		this.rowMajor = rowMajor;
+		this.majorCount = MathUtil.longToInt(rowMajor ? rows : columns);
+		this.minorCount = MathUtil.longToInt(rowMajor ? columns : rows);
+		if (pointers.length != majorCount + 1) {
+			throw new IllegalArgumentException("pointers must have " + (majorCount + 1)
+					+ " elements");
+		}
+		if (indices.length < pointers[majorCount] || values.length < pointers[majorCount]) {
+			throw new IllegalArgumentException("not enough indices or values");
+		}
+		this.pointers = pointers;
+		this.indices = indices;
+		this.values = values;
+	}
+
+	protected AbstractCompressedSparseDoubleMatrix2D(boolean rowMajor, Matrix m) {
+		this(rowMajor, m.getRowCount(), m.getColumnCount());
+		if (m instanceof AbstractCompressedSparseDoubleMatrix2D) {
+			copyFrom((AbstractCompressedSparseDoubleMatrix2D) m);
+		} else {
+			m.forEachNonZero(new DoubleCellVisitor() {
+				public void visit(long row, long column, double value) {
+					pointers[major(row, column) + 1]++;
+				}
+			});
+			for (int i = 0; i < majorCount; i++) {
+				pointers[i + 1] += pointers[i];
+			}
+			indices = new int[pointers[majorCount]];
+			values = new double[pointers[majorCount]];
+			final int[] next = Arrays.copyOf(pointers, majorCount);
+			m.forEachNonZero(new DoubleCellVisitor() {
+				public void visit(long row, long column, double value) {
+					final int q = next[major(row, column)]++;
+					indices[q] = minor(row, column);
+					values[q] = value;
+				}
+			});
+			for (int i = 0; i < majorCount; i++) {
+				sortEntries(indices, values, pointers[i], pointers[i + 1]);
+			}
+		}
+		if (m.getMetaData() != null) {
+			setMetaData(m.getMetaData().clone());
+		}
+	}
+
+	private final void copyFrom(final AbstractCompressedSparseDoubleMatrix2D c) {
+		final int nnz = c.getNonZeroCount();
+		if (c.rowMajor == rowMajor) {
+			pointers = c.pointers.clone();
+			indices = Arrays.copyOf(c.indices, nnz);
+			values = Arrays.copyOf(c.values, nnz);
+		} else {
+			// entries of each target vector arrive in increasing order
+			indices = new int[nnz];
+			values = new double[nnz];
+			for (int p = 0; p < nnz; p++) {
+				pointers[c.indices[p] + 1]++;
+			}
+			for (int i = 0; i < majorCount; i++) {
+				pointers[i + 1] += pointers[i];
+			}
+			final int[] next = Arrays.copyOf(pointers, majorCount);
+			for (int j = 0; j < c.majorCount; j++) {
+				for (int p = c.pointers[j]; p < c.pointers[j + 1]; p++) {
+					final int q = next[c.indices[p]]++;
+					indices[q] = j;
+					values[q] = c.values[p];
+				}
+			}
+		}
+	}
+
+	private final int major(long row, long column) {
+		return (int) (rowMajor ? row : column);
+	}
+
+	private final int minor(long row, long column) {
+		return (int) (rowMajor ? column : row);
+	}
+
+	/**
+	 * Sorts the entries between from and to by their index.
+	 */
+	protected static final void sortEntries(final int[] indices, final double[] values,
+			final int from, final int to) {
+		boolean sorted = true;
+		for (int p = from + 1; p < to && sorted; p++) {
+			sorted = indices[p - 1] < indices[p];
+		}
+		if (sorted) {
+			return;
+		}
+		final int length = to - from;
+		final long[] keys = new long[length];
+		for (int p = 0; p < length; p++) {
+			keys[p] = ((long) indices[from + p] << 32) | p;
+		}
+		Arrays.sort(keys);
+		final double[] v = Arrays.copyOfRange(values, from, to);
+		for (int p = 0; p < length; p++) {
+			indices[from + p] = (int) (keys[p] >>> 32);
+			values[from + p] = v[(int) keys[p]];
+		}
+	}
+
+	/**
+	 * Returns the position of the entry, or -(insertion point) - 1 if it is
+	 * not stored.
+	 */
+	protected final int find(final int major, final int minor) {
+		return Arrays.binarySearch(indices, pointers[major], pointers[major + 1], minor);
+	}
+
+	public final int getNonZeroCount() {
+		return pointers[majorCount];
+	}
+
+	public final void mapNonZeros(DoubleCellFunction function) {
+		unshare();
+		for (int i = 0; i < majorCount; i++) {
+			for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+				values[p] = rowMajor ? function.apply(i, indices[p], values[p]) : function.apply(
+						indices[p], i, values[p]);
+			}
+		}
+		int q = 0;
+		int start = 0;
+		for (int i = 0; i < majorCount; i++) {
+			final int end = pointers[i + 1];
+			for (int p = start; p < end; p++) {
+				if (values[p] != 0.0) {
+					indices[q] = indices[p];
+					values[q++] = values[p];
+				}
+			}
+			start = end;
+			pointers[i + 1] = q;
+		}
+	}
+
+	private final boolean isInside(final long row, final long column) {
+		return row >= 0 && row < getRowCount() && column >= 0 && column < getColumnCount();
+	}
+
+	public final double getDouble(long row, long column) {
+		if (!isInside(row, column)) {
+			return 0.0;
+		}
+		final int p = find(major(row, column), minor(row, column));
+		return p < 0 ? 0.0 : values[p];
+	}
+
+	public final double getDouble(int row, int column) {
+		return getDouble((long) row, (long) column);
+	}
+
+	/**
+	 * Stores a value.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the coordinates are outside the matrix
+	 */
+	public final void setDouble(double value, long row, long column) {
+		if (!isInside(row, column)) {
+			throw new IllegalArgumentException("coordinates (" + row + "," + column
+					+ ") outside of matrix with size " + getRowCount() + "x" + getColumnCount());
+		}
+		unshare();
+		final int major = major(row, column);
+		final int p = find(major, minor(row, column));
+		if (p >= 0) {
+			if (value != 0.0) {
+				values[p] = value;
+			} else {
+				remove(major, p);
+			}
+		} else if (value != 0.0) {
+			insert(major, -p - 1, minor(row, column), value);
+		}
+	}
+
+	public final void setDouble(double value, int row, int column) {
+		setDouble(value, (long) row, (long) column);
+	}
+
+	private final void insert(final int major, final int p, final int minor, final double value) {
+		final int nnz = getNonZeroCount();
+		if (nnz == indices.length) {
+			final int capacity = Math.max(16, nnz + (nnz >> 1));
+			indices = Arrays.copyOf(indices, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		System.arraycopy(indices, p, indices, p + 1, nnz - p);
+		System.arraycopy(values, p, values, p + 1, nnz - p);
+		indices[p] = minor;
+		values[p] = value;
+		for (int i = major + 1; i <= majorCount; i++) {
+			pointers[i]++;
+		}
+	}
+
+	private final void remove(final int major, final int p) {
+		final int nnz = getNonZeroCount();
+		System.arraycopy(indices, p + 1, indices, p, nnz - p - 1);
+		System.arraycopy(values, p + 1, values, p, nnz - p - 1);
+		for (int i = major + 1; i <= majorCount; i++) {
+			pointers[i]--;
+		}
+	}
+
+	public final boolean containsCoordinates(long... coordinates) {
+		return isInside(coordinates[ROW], coordinates[COLUMN])
+				&& find(major(coordinates[ROW], coordinates[COLUMN]),
+						minor(coordinates[ROW], coordinates[COLUMN])) >= 0;
+	}
+
+	public final void clear() {
+		if (shared) {
+			pointers = new int[majorCount + 1];
+			indices = new int[0];
+			values = new double[0];
+			shared = false;
+		} else {
+			Arrays.fill(pointers, 0);
+		}
+	}
+
+	/**
+	 * Returns the transpose in the other compressed format, which uses the
+	 * same arrays. Both matrices copy the arrays before they change them for
+	 * the first time.
+	 */
+	protected final AbstractCompressedSparseDoubleMatrix2D transposeShared() {
+		final AbstractCompressedSparseDoubleMatrix2D t;
+		if (rowMajor) {
+			t = new CompressedColumnSparseDoubleMatrix2D(getColumnCount(), getRowCount(),
+					pointers, indices, values);
+		} else {
+			t = new CompressedRowSparseDoubleMatrix2D(getColumnCount(), getRowCount(),
+					pointers, indices, values);
+		}
+		shared = true;
+		t.shared = true;
+		return t;
+	}
+
+	private final void unshare() {
+		if (shared) {
+			final int nnz = getNonZeroCount();
+			pointers = pointers.clone();
+			indices = Arrays.copyOf(indices, nnz);
+			values = Arrays.copyOf(values, nnz);
+			shared = false;
+		}
+	}
+
+	public final void forEachNonZero(DoubleCellVisitor visitor, long startRow, long endRow) {
+		if (rowMajor) {
+			for (int row = (int) startRow; row < endRow; row++) {
+				for (int p = pointers[row]; p < pointers[row + 1]; p++) {
+					if (values[p] != 0.0) {
+						visitor.visit(row, indices[p], values[p]);
+					}
+				}
+			}
+		} else {
+			for (int column = 0; column < majorCount; column++) {
+				for (int p = pointers[column]; p < pointers[column + 1]; p++) {
+					final int row = indices[p];
+					if (row >= startRow && row < endRow && values[p] != 0.0) {
+						visitor.visit(row, column, values[p]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Visits all entries and fills in the zeros between the stored entries,
+	 * row by row for CSR and column by column for CSC.
+	 */
+	public final void forEachDouble(DoubleCellVisitor visitor, long startRow, long endRow) {
+		if (rowMajor) {
+			for (int row = (int) startRow; row < endRow; row++) {
+				int p = pointers[row];
+				final int end = pointers[row + 1];
+				for (int column = 0; column < minorCount; column++) {
+					if (p < end && indices[p] == column) {
+						visitor.visit(row, column, values[p++]);
+					} else {
+						visitor.visit(row, column, 0.0);
+					}
+				}
+			}
+		} else {
+			for (int column = 0; column < majorCount; column++) {
+				int p = pointers[column];
+				final int end = pointers[column + 1];
+				while (p < end && indices[p] < startRow) {
+					p++;
+				}
+				for (int row = (int) startRow; row < endRow; row++) {
+					if (p < end && indices[p] == row) {
+						visitor.visit(row, column, values[p++]);
+					} else {
+						visitor.visit(row, column, 0.0);
+					}
+				}
+			}
+		}
+	}
+
+	public final Iterable<long[]> availableCoordinates() {
+		return new Iterable<long[]>() {
+			public Iterator<long[]> iterator() {
+				return new Iterator<long[]>() {
+					private int major = 0;
+					private int p = 0;
+
+					public boolean hasNext() {
+						return p < getNonZeroCount();
+					}
+
+					public long[] next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						while (pointers[major + 1] <= p) {
+							major++;
+						}
+						final int minor = indices[p++];
+						return rowMajor ? new long[] { major, minor } : new long[] { minor,
+								major };
+					}
+
+					public void remove() {
+						throw new RuntimeException("cannot modify matrix");
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Multiplies this matrix with a dense or sparse matrix. Products with
+	 * other matrices are calculated by the default implementation.
+	 */
+	public Matrix mtimes(Matrix matrix) {
+		if (matrix instanceof DenseDoubleMatrix2D && !matrix.isSparse()
+				&& getRowCount() * matrix.getColumnCount() <= Integer.MAX_VALUE) {
+			if (getColumnCount() != matrix.getRowCount()) {
+				throw new IllegalArgumentException("matrices have wrong sizes");
+			}
+			final int n = MathUtil.longToInt(matrix.getColumnCount());
+			final double[] y = new double[MathUtil.longToInt(getRowCount() * n)];
+			multiply(false, toColumnMajor((DenseDoubleMatrix2D) matrix), y, n);
+			return new DefaultDenseDoubleMatrix2D(y, (int) getRowCount(), n);
+		} else if (isCompressible(matrix)) {
+			if (getColumnCount() != matrix.getRowCount()) {
+				throw new IllegalArgumentException("matrices have wrong sizes");
+			}
+			return multiplySparse(false, matrix);
+		}
+		return super.mtimes(matrix);
+	}
+
+	/**
+	 * Calculates this' * matrix without transposing this matrix. For a
+	 * sparse argument, the result is a sparse matrix in the same format as
+	 * this matrix, e.g. the co-occurrence matrix A'A of a sparse matrix A.
+	 * 
+	 * @param matrix
+	 *            matrix with as many rows as this matrix
+	 * @return dense or sparse matrix with the result
+	 */
+	public Matrix transposeMtimes(Matrix matrix) {
+		if (getRowCount() != matrix.getRowCount()) {
+			throw new IllegalArgumentException("matrices have wrong sizes");
+		}
+		if (isCompressible(matrix)) {
+			return multiplySparse(true, matrix);
+		}
+		final int n = MathUtil.longToInt(matrix.getColumnCount());
+		final double[] y = new double[MathUtil.longToInt(getColumnCount() * n)];
+		multiply(true, toColumnMajor(matrix), y, n);
+		return new DefaultDenseDoubleMatrix2D(y, (int) getColumnCount(), n);
+	}
+
+	/**
+	 * Calculates this * matrix for a dense matrix and stores it in the
+	 * column-major array <code>result</code>, which is overwritten.
+	 */
+	public final void mtimes(final Matrix matrix, final double[] result) {
+		if (getColumnCount() != matrix.getRowCount()) {
+			throw new IllegalArgumentException("matrices have wrong sizes");
+		}
+		final int n = MathUtil.longToInt(matrix.getColumnCount());
+		if (getRowCount() * n != result.length) {
+			throw new IllegalArgumentException("result has wrong size");
+		}
+		Arrays.fill(result, 0.0);
+		multiply(false, toColumnMajor(matrix), result, n);
+	}
+
+	/**
+	 * Calculates matrix * this for a dense matrix and stores it in the
+	 * column-major array <code>result</code>, which is overwritten. Every
+	 * column of the result is a linear combination of the columns of the dense
+	 * matrix, with the entries of the same column of this matrix as weights.
+	 * This matrix is therefore used in CSC format and the columns are
+	 * computed in parallel.
+	 */
+	public final void leftMtimes(final Matrix matrix, final double[] result) {
+		if (matrix.getColumnCount() != getRowCount()) {
+			throw new IllegalArgumentException("matrices have wrong sizes");
+		}
+		final int m = MathUtil.longToInt(matrix.getRowCount());
+		if (m * getColumnCount() != result.length) {
+			throw new IllegalArgumentException("result has wrong size");
+		}
+		final AbstractCompressedSparseDoubleMatrix2D b = compressed(this, false);
+		final double[] A = toColumnMajor(matrix);
+		final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		final long work = (long) getNonZeroCount() * m;
+		final int workers = (int) Math.max(1, Math.min(threads, work / PARALLELTHRESHOLD));
+		if (workers < 2) {
+			b.combineColumns(0, b.majorCount, A, result, m);
+		} else {
+			final int[] bounds = balance(b.pointers, b.majorCount, workers);
+			new PFor(workers, 0, workers - 1) {
+				@Override
+				public void step(int w) {
+					b.combineColumns(bounds[w], bounds[w + 1], A, result, m);
+				}
+			};
+		}
+	}
+
+	/**
+	 * C(:,j) = sum of values[p] * A(:,indices[p]) over the entries of column
+	 * j. A and C are column-major with m rows.
+	 */
+	private final void combineColumns(final int from, final int to, final double[] A,
+			final double[] C, final int m) {
+		final int[] ptr = pointers;
+		final int[] idx = indices;
+		final double[] val = values;
+		for (int j = from; j < to; j++) {
+			final int c0 = j * m;
+			Arrays.fill(C, c0, c0 + m, 0.0);
+			for (int p = ptr[j], end = ptr[j + 1]; p < end; p++) {
+				final double v = val[p];
+				final int a0 = idx[p] * m;
+				for (int r = 0; r < m; r++) {
+					C[c0 + r] += v * A[a0 + r];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the matrix is sparse and small enough to be converted
+	 * into compressed format.
+	 */
+	public static final boolean isCompressible(final Matrix m) {
+		return m.isSparse() && m instanceof SparseMatrix && m.getDimensionCount() == 2
+				&& m.getRowCount() <= Integer.MAX_VALUE && m.getColumnCount() <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the matrix itself if it is stored in the requested format, a
+	 * converted copy otherwise.
+	 */
+	public static final AbstractCompressedSparseDoubleMatrix2D compressed(final Matrix m,
+			final boolean rowMajor) {
+		if (m instanceof AbstractCompressedSparseDoubleMatrix2D
+				&& ((AbstractCompressedSparseDoubleMatrix2D) m).rowMajor == rowMajor) {
+			return (AbstractCompressedSparseDoubleMatrix2D) m;
+		} else if (rowMajor) {
+			return new CompressedRowSparseDoubleMatrix2D(m);
+		} else {
+			return new CompressedColumnSparseDoubleMatrix2D(m);
+		}
+	}
+
+	/**
+	 * Computes op(this) * B with {@link SparseGemm}. The result has the same
+	 * format as this matrix: for CSC, the product B' * op(this)' is computed
+	 * in CSR format, which has the same arrays.
+	 */
+	private final AbstractCompressedSparseDoubleMatrix2D multiplySparse(final boolean transpose,
+			final Matrix matrix) {
+		final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		final int rows = MathUtil.longToInt(transpose ? getColumnCount() : getRowCount());
+		final int cols = MathUtil.longToInt(matrix.getColumnCount());
+		final AbstractCompressedSparseDoubleMatrix2D left;
+		final AbstractCompressedSparseDoubleMatrix2D right;
+		if (rowMajor) {
+			left = compressed(this, !transpose);
+			right = compressed(matrix, true);
+		} else {
+			left = compressed(matrix, false);
+			right = compressed(this, transpose);
+		}
+		final double[][] v = new double[1][];
+		final int[][] a = SparseGemm.gemm(threads, left.majorCount, right.minorCount,
+				left.pointers, left.indices, left.values, right.pointers, right.indices,
+				right.values, v);
+		if (rowMajor) {
+			return new CompressedRowSparseDoubleMatrix2D(rows, cols, a[0], a[1], v[0]);
+		} else {
+			return new CompressedColumnSparseDoubleMatrix2D(rows, cols, a[0], a[1], v[0]);
+		}
+	}
+
+	/**
+	 * Calculates y = this * x.
+	 */
+	public double[] mtimesVector(double[] x) {
+		if (x.length != getColumnCount()) {
+			throw new IllegalArgumentException("vector has wrong size");
+		}
+		final double[] y = new double[(int) getRowCount()];
+		multiply(false, x, y, 1);
+		return y;
+	}
+
+	/**
+	 * Calculates y = this' * x without transposing this matrix.
+	 */
+	public double[] transposeMtimesVector(double[] x) {
+		if (x.length != getRowCount()) {
+			throw new IllegalArgumentException("vector has wrong size");
+		}
+		final double[] y = new double[(int) getColumnCount()];
+		multiply(true, x, y, 1);
+		return y;
+	}
+
+	private static final double[] toColumnMajor(final Matrix m) {
+		if (m instanceof HasColumnMajorDoubleArray1D) {
+			return ((HasColumnMajorDoubleArray1D) m).getColumnMajorDoubleArray1D();
+		}
+		final int rows = MathUtil.longToInt(m.getRowCount());
+		final int cols = MathUtil.longToInt(m.getColumnCount());
+		final double[] a = new double[MathUtil.longToInt((long) rows * (long) cols)];
+		for (int c = 0; c < cols; c++) {
+			for (int r = 0; r < rows; r++) {
+				a[c * rows + r] = m.getAsDouble(r, c);
+			}
+		}
+		return a;
+	}
+
+	/**
+	 * Computes Y = op(this) * X for column-major X and Y with n columns.
+	 */
+	private final void multiply(final boolean transpose, final double[] X, final double[] Y,
+			final int n) {
+		final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		final long work = (long) getNonZeroCount() * n;
+		final int workers = (int) Math.max(1, Math.min(threads, work / PARALLELTHRESHOLD));
+		if (rowMajor != transpose) {
+			gather(workers, X, Y, n);
+		} else {
+			scatter(workers, X, Y, n);
+		}
+	}
+
+	/**
+	 * Y(i,:) = sum of values[p] * X(indices[p],:) over the entries of major
+	 * vector i. X has minorCount rows, Y has majorCount rows.
+	 */
+	private final void gather(final int workers, final double[] X, final double[] Y, final int n) {
+		if (workers < 2) {
+			gather(0, majorCount, X, Y, n);
+		} else {
+			final int[] bounds = balance(pointers, majorCount, workers);
+			new PFor(workers, 0, workers - 1) {
+				@Override
+				public void step(int w) {
+					gather(bounds[w], bounds[w + 1], X, Y, n);
+				}
+			};
+		}
+	}
+
+	private final void gather(final int from, final int to, final double[] X, final double[] Y,
+			final int n) {
+		final int[] ptr = pointers;
+		final int[] idx = indices;
+		final double[] val = values;
+		int c = 0;
+		for (; c + 2 <= n; c += 2) {
+			final int x0 = c * minorCount;
+			final int x1 = x0 + minorCount;
+			final int y0 = c * majorCount;
+			final int y1 = y0 + majorCount;
+			for (int i = from; i < to; i++) {
+				double s0 = 0.0;
+				double s1 = 0.0;
+				for (int p = ptr[i], end = ptr[i + 1]; p < end; p++) {
+					final int j = idx[p];
+					final double v = val[p];
+					s0 += v * X[x0 + j];
+					s1 += v * X[x1 + j];
+				}
+				Y[y0 + i] = s0;
+				Y[y1 + i] = s1;
+			}
+		}
+		for (; c < n; c++) {
+			final int x0 = c * minorCount;
+			final int y0 = c * majorCount;
+			for (int i = from; i < to; i++) {
+				double s = 0.0;
+				for (int p = ptr[i], end = ptr[i + 1]; p < end; p++) {
+					s += val[p] * X[x0 + idx[p]];
+				}
+				Y[y0 + i] = s;
+			}
+		}
+	}
+
+	/**
+	 * Y(indices[p],:) += values[p] * X(i,:) for all entries of major vector
+	 * i. X has majorCount rows, Y has minorCount rows.
+	 */
+	private final void scatter(final int workers, final double[] X, final double[] Y,
+			final int n) {
+		if (workers < 2) {
+			scatter(0, majorCount, X, 0, n, Y, 0);
+		} else if (n >= workers) {
+			// every thread writes its own columns of Y
+			new PFor(workers, 0, workers - 1) {
+				@Override
+				public void step(int w) {
+					final int c0 = (int) ((long) n * w / workers);
+					final int c1 = (int) ((long) n * (w + 1) / workers);
+					scatter(0, majorCount, X, c0, c1, Y, 0);
+				}
+			};
+		} else {
+			final int[] bounds = balance(pointers, majorCount, workers);
+			final int length = minorCount * n;
+			final double[][] buffers = new double[workers][];
+			new PFor(workers, 0, workers - 1) {
+				@Override
+				public void step(int w) {
+					final double[] buffer = w == 0 ? Y : new double[length];
+					scatter(bounds[w], bounds[w + 1], X, 0, n, buffer, 0);
+					buffers[w] = buffer;
+				}
+			};
+			new PFor(workers, 0, workers - 1) {
+				@Override
+				public void step(int w) {
+					final int from = (int) ((long) length * w / workers);
+					final int to = (int) ((long) length * (w + 1) / workers);
+					for (int b = 1; b < workers; b++) {
+						final double[] buffer = buffers[b];
+						for (int i = from; i < to; i++) {
+							Y[i] += buffer[i];
+						}
+					}
+				}
+			};
+		}
+	}
+
+	private final void scatter(final int from, final int to, final double[] X, final int c0,
+			final int c1, final double[] Y, final int yOff) {
+		final int[] ptr = pointers;
+		final int[] idx = indices;
+		final double[] val = values;
+		for (int c = c0; c < c1; c++) {
+			final int x0 = c * majorCount;
+			final int y0 = yOff + c * minorCount;
+			for (int i = from; i < to; i++) {
+				final double x = X[x0 + i];
+				if (x != 0.0) {
+					for (int p = ptr[i], end = ptr[i + 1]; p < end; p++) {
+						Y[y0 + idx[p]] += val[p] * x;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Splits the major vectors into ranges with about the same number of
+	 * entries.
+	 */
+	protected static final int[] balance(final int[] pointers, final int majorCount,
+			final int workers) {
+		final int nnz = pointers[majorCount];
+		final int[] bounds = new int[workers + 1];
+		for (int w = 1; w < workers; w++) {
+			final int target = (int) ((long) nnz * w / workers);
+			int i = Arrays.binarySearch(pointers, 0, majorCount + 1, target);
+			if (i < 0) {
+				i = -i - 2;
+			}
+			// the first of several equal pointers
+			while (i > 0 && pointers[i - 1] == pointers[i]) {
+				i--;
+			}
+			bounds[w] = Math.max(bounds[w - 1], Math.min(i, majorCount));
+		}
+		bounds[workers] = majorCount;
+		return bounds;
+	}
+
+	/**
+	 * Copies the selected major vectors into the arrays of a new matrix.
+	 */
+	protected final int[][] selectMajor(final long[] selection, final double[][] selectedValues) {
+		final int[] ptr = new int[selection.length + 1];
+		for (int s = 0; s < selection.length; s++) {
+			final int i = MathUtil.longToInt(selection[s]);
+			ptr[s + 1] = ptr[s] + pointers[i + 1] - pointers[i];
+		}
+		final int[] idx = new int[ptr[selection.length]];
+		final double[] val = new double[ptr[selection.length]];
+		for (int s = 0; s < selection.length; s++) {
+			final int i = (int) selection[s];
+			System.arraycopy(indices, pointers[i], idx, ptr[s], ptr[s + 1] - ptr[s]);
+			System.arraycopy(values, pointers[i], val, ptr[s], ptr[s + 1] - ptr[s]);
+		}
+		selectedValues[0] = val;
+		return new int[][] { ptr, idx };
+	}
+
+	/**
+	 * Keeps the selected minor indices of all major vectors, renumbered in the
+	 * order of the selection, in the arrays of a new matrix.
+	 */
+	protected final int[][] selectMinor(final long[] selection, final double[][] selectedValues) {
+		final int[] map = new int[minorCount];
+		Arrays.fill(map, -1);
+		for (int s = 0; s < selection.length; s++) {
+			if (map[(int) selection[s]] >= 0) {
+				return null;
+			}
+			map[(int) selection[s]] = s;
+		}
+		final int[] ptr = new int[majorCount + 1];
+		for (int i = 0; i < majorCount; i++) {
+			int count = 0;
+			for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+				if (map[indices[p]] >= 0) {
+					count++;
+				}
+			}
+			ptr[i + 1] = ptr[i] + count;
+		}
+		final int[] idx = new int[ptr[majorCount]];
+		final double[] val = new double[ptr[majorCount]];
+		for (int i = 0; i < majorCount; i++) {
+			int q = ptr[i];
+			for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+				final int s = map[indices[p]];
+				if (s >= 0) {
+					idx[q] = s;
+					val[q++] = values[p];
+				}
+			}
+			sortEntries(idx, val, ptr[i], ptr[i + 1]);
+		}
+		selectedValues[0] = val;
+		return new int[][] { ptr, idx };
+	}
+
+}
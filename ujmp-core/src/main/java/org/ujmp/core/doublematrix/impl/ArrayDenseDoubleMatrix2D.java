@@ -24,8 +24,12 @@
 package org.ujmp.core.doublematrix.impl;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Mtimes;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.stub.AbstractDenseDoubleMatrix2D;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
 import org.ujmp.core.interfaces.HasRowMajorDoubleArray2D;
+import org.ujmp.core.util.VerifyUtil;
 
 public class ArrayDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D implements
 		HasRowMajorDoubleArray2D {
@@ -45,8 +49,15 @@ public class ArrayDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D implem
 			}
 		} else {
 			values = new double[(int) m.getRowCount()][(int) m.getColumnCount()];
-			for (long[] c : m.allCoordinates()) {
-				setAsDouble(m.getAsDouble(c), c);
+			final DoubleCellVisitor copy = new DoubleCellVisitor() {
+				public void visit(long row, long column, double value) {
+					values[(int) row][(int) column] = value;
+				}
+			};
+			if (m.isSparse()) {
+				m.forEachNonZero(copy);
+			} else {
+				m.forEachDouble(copy);
 			}
 		}
 		if (m.getMetaData() != null) {
@@ -113,8 +124,61 @@ public class ArrayDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D implem
 		return false;
 	}
 
+	/**
+	 * Shortcut to create a row-major target for row-major arguments
+	 */
+	public Matrix mtimes(Matrix m2) {
+		if (m2 instanceof ArrayDenseDoubleMatrix2D) {
+			final ArrayDenseDoubleMatrix2D result = new ArrayDenseDoubleMatrix2D(getRowCount(),
+					m2.getColumnCount());
+			Mtimes.DENSEDOUBLEMATRIX2D.calc(this, (DenseDoubleMatrix2D) m2, result);
+			return result;
+		} else {
+			return super.mtimes(m2);
+		}
+	}
+
 	public double[][] getRowMajorDoubleArray2D() {
 		return values;
 	}
 
+	public void getDoubleBlock(long row, long column, int rows, int columns, double[] target,
+			int offset, int stride) {
+		VerifyUtil.verifyRegion(this, row, column, rows, columns);
+		for (int i = 0; i < rows; i++) {
+			System.arraycopy(values[(int) row + i], (int) column, target, offset + i * stride,
+					columns);
+		}
+	}
+
+	public void setDoubleBlock(long row, long column, int rows, int columns, double[] source,
+			int offset, int stride) {
+		VerifyUtil.verifyRegion(this, row, column, rows, columns);
+		for (int i = 0; i < rows; i++) {
+			System.arraycopy(source, offset + i * stride, values[(int) row + i], (int) column,
+					columns);
+		}
+	}
+
+	public void forEachDouble(DoubleCellVisitor visitor, long startRow, long endRow) {
+		for (int row = (int) startRow; row < endRow; row++) {
+			final double[] rowValues = values[row];
+			for (int column = 0; column < rowValues.length; column++) {
+				visitor.visit(row, column, rowValues[column]);
+			}
+		}
+	}
+
+	public void forEachNonZero(DoubleCellVisitor visitor, long startRow, long endRow) {
+		for (int row = (int) startRow; row < endRow; row++) {
+			final double[] rowValues = values[row];
+			for (int column = 0; column < rowValues.length; column++) {
+				final double value = rowValues[column];
+				if (value != 0.0) {
+					visitor.visit(row, column, value);
+				}
+			}
+		}
+	}
+
 }
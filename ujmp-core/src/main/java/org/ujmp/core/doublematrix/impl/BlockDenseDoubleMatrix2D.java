@@ -22,6 +22,7 @@
  */
 package org.ujmp.core.doublematrix.impl;
 
+import static org.ujmp.core.util.VerifyUtil.verifyRegion;
 import static org.ujmp.core.util.VerifyUtil.verifyTrue;
 
 import java.util.Arrays;
@@ -33,6 +34,7 @@ import org.ujmp.core.calculation.Mtimes;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.impl.BlockMatrixLayout.BlockOrder;
 import org.ujmp.core.doublematrix.stub.AbstractDenseDoubleMatrix2D;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
 import org.ujmp.core.interfaces.HasBlockDoubleArray2D;
 import org.ujmp.core.mapmatrix.MapMatrix;
 import org.ujmp.core.objectmatrix.calculation.Transpose;
@@ -253,18 +255,15 @@ public class BlockDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D implem
 	public BlockDenseDoubleMatrix2D(Matrix m, int blockStripeSize, BlockOrder blockOrder) {
 		this((int) m.getRowCount(), (int) m.getColumnCount(), blockStripeSize, blockOrder);
 
-		if (m instanceof DenseDoubleMatrix2D) {
-			final DenseDoubleMatrix2D mDense = (DenseDoubleMatrix2D) m;
-			final int mRows = (int) mDense.getRowCount(), mColumns = (int) mDense.getColumnCount();
-			for (int j = 0; j < mColumns; j++) {
-				for (int i = 0; i < mRows; i++) {
-					setDouble(mDense.getDouble(i, j), i, j);
-				}
+		final DoubleCellVisitor copy = new DoubleCellVisitor() {
+			public void visit(long row, long column, double value) {
+				setDouble(value, (int) row, (int) column);
 			}
+		};
+		if (m.isSparse()) {
+			m.forEachNonZero(copy);
 		} else {
-			for (long[] c : m.availableCoordinates()) {
-				setDouble(m.getAsDouble(c), c);
-			}
+			m.forEachDouble(copy);
 		}
 		MapMatrix<String, Object> a = m.getMetaData();
 		if (a != null) {
@@ -394,6 +393,106 @@ public class BlockDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D implem
 		setDouble(value, (int) row, (int) column);
 	}
 
+	public void getDoubleBlock(long row, long column, int rows, int columns, double[] target,
+			int offset, int stride) {
+		verifyRegion(this, row, column, rows, columns);
+		copyRegion((int) row, (int) column, rows, columns, target, offset, stride, false);
+	}
+
+	public void setDoubleBlock(long row, long column, int rows, int columns, double[] source,
+			int offset, int stride) {
+		verifyRegion(this, row, column, rows, columns);
+		copyRegion((int) row, (int) column, rows, columns, source, offset, stride, true);
+	}
+
+	/**
+	 * Copies between a row-major array and all blocks which overlap the region.
+	 * Rows inside of row-major blocks are copied with System.arraycopy, blocks
+	 * which have not been created are read as zeros.
+	 */
+	private void copyRegion(final int row, final int column, final int rows, final int columns,
+			final double[] array, final int offset, final int stride, final boolean write) {
+		final int stripe = layout.blockStripe;
+		final boolean rowMajor = layout.blockOrder == BlockOrder.ROWMAJOR;
+		final int endRow = row + rows;
+		final int endColumn = column + columns;
+		final int firstBlockColumn = column - column % stripe;
+		for (int blockRow = row - row % stripe; blockRow < endRow; blockRow += stripe) {
+			final int rowsInBlock = layout.getRowsInBlock(blockRow);
+			final int fromRow = Math.max(row, blockRow);
+			final int toRow = Math.min(endRow, blockRow + rowsInBlock);
+			for (int blockColumn = firstBlockColumn; blockColumn < endColumn; blockColumn += stripe) {
+				final int columnsInBlock = layout.getColumnsInBlock(blockColumn);
+				final int fromColumn = Math.max(column, blockColumn);
+				final int toColumn = Math.min(endColumn, blockColumn + columnsInBlock);
+				final int width = toColumn - fromColumn;
+				final double[] block = write ? getBlockData(blockRow, blockColumn) : data[layout
+						.getBlockNumber(blockRow, blockColumn)];
+				for (int r = fromRow; r < toRow; r++) {
+					final int a = offset + (r - row) * stride + fromColumn - column;
+					if (block == null) {
+						Arrays.fill(array, a, a + width, 0.0);
+					} else if (rowMajor) {
+						final int b = (r - blockRow) * columnsInBlock + fromColumn - blockColumn;
+						if (write) {
+							System.arraycopy(array, a, block, b, width);
+						} else {
+							System.arraycopy(block, b, array, a, width);
+						}
+					} else {
+						for (int c = fromColumn; c < toColumn; c++) {
+							final int b = (c - blockColumn) * rowsInBlock + r - blockRow;
+							if (write) {
+								block[b] = array[a + c - fromColumn];
+							} else {
+								array[a + c - fromColumn] = block[b];
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	public void forEachDouble(DoubleCellVisitor visitor, long startRow, long endRow) {
+		forEachBlockEntry(visitor, (int) startRow, (int) endRow, false);
+	}
+
+	public void forEachNonZero(DoubleCellVisitor visitor, long startRow, long endRow) {
+		forEachBlockEntry(visitor, (int) startRow, (int) endRow, true);
+	}
+
+	/**
+	 * Visits the entries block by block. Blocks which have not been created
+	 * contain only zeros and are skipped if only non-zero entries are visited.
+	 */
+	private void forEachBlockEntry(final DoubleCellVisitor visitor, final int startRow,
+			final int endRow, final boolean nonZeroOnly) {
+		final int stripe = layout.blockStripe;
+		for (int blockRow = startRow - startRow % stripe; blockRow < endRow; blockRow += stripe) {
+			final int rowsInBlock = layout.getRowsInBlock(blockRow);
+			final int fromRow = Math.max(startRow, blockRow);
+			final int toRow = Math.min(endRow, blockRow + rowsInBlock);
+			for (int blockColumn = 0; blockColumn < layout.columns; blockColumn += stripe) {
+				final int columnsInBlock = layout.getColumnsInBlock(blockColumn);
+				final double[] block = data[layout.getBlockNumber(blockRow, blockColumn)];
+				if (block == null && nonZeroOnly) {
+					continue;
+				}
+				for (int row = fromRow; row < toRow; row++) {
+					for (int column = 0; column < columnsInBlock; column++) {
+						final double value = block == null ? 0.0 : block[layout
+								.getBlockIndexByRow(row - blockRow, column, rowsInBlock,
+										columnsInBlock)];
+						if (!nonZeroOnly || value != 0.0) {
+							visitor.visit(row, blockColumn + column, value);
+						}
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Returns the transpose of the current matrix.
 	 * 
@@ -155,7 +155,7 @@ public class BlockMultiply implements Callable<Void> {
 	 * @param c
 	 *            - block from result matrix {@link #matrixC}
 	 */
-	private static void multiplyAxB(final double[] aBlock, final double[] bBlock,
+	static void multiplyAxB(final double[] aBlock, final double[] bBlock,
 			final double[] cBlock, final int step) {
 		final int blockStripeMini = step % 3;
 		final int blockStripeMaxi = step / 3;
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+
+/**
+ * Sparse double matrix in compressed sparse column (CSC) format. Each nonzero
+ * entry takes 12 bytes: an <code>int</code> row index and a
+ * <code>double</code> value. The entries of a column are stored contiguously,
+ * so that selecting columns and multiplying the transpose with dense matrices
+ * are fast.
+ *
+ * @author Holger Arndt
+ */
+public class CompressedColumnSparseDoubleMatrix2D extends AbstractCompressedSparseDoubleMatrix2D {
+	private static final long serialVersionUID = 5562093186317842107L;
+
+	public CompressedColumnSparseDoubleMatrix2D(long rows, long columns) {
+		super(false, rows, columns);
+	}
+
+	public CompressedColumnSparseDoubleMatrix2D(Matrix m) {
+		super(false, m);
+	}
+
+	/**
+	 * Creates a matrix from arrays in compressed sparse column format. The
+	 * arrays are used directly, not copied.
+	 * 
+	 * @param columnPointers
+	 *            position of the first entry of each column in the other
+	 *            arrays, followed by the number of entries
+	 * @param rowIndices
+	 *            row index of each entry, ascending within every column
+	 * @param values
+	 *            value of each entry
+	 */
+	public CompressedColumnSparseDoubleMatrix2D(long rows, long columns, int[] columnPointers, int[] rowIndices,
+			double[] values) {
+		super(false, rows, columns, columnPointers, rowIndices, values);
+	}
+
+	public Matrix selectColumns(Ret returnType, long... columns) {
+		if (returnType == Ret.NEW) {
+			final double[][] v = new double[1][];
+			final int[][] a = selectMajor(columns, v);
+			return new CompressedColumnSparseDoubleMatrix2D(getRowCount(), columns.length,
+					a[0], a[1], v[0]);
+		} else {
+			return super.selectColumns(returnType, columns);
+		}
+	}
+
+	public Matrix selectRows(Ret returnType, long... rows) {
+		if (returnType == Ret.NEW) {
+			final double[][] v = new double[1][];
+			final int[][] a = selectMinor(rows, v);
+			if (a != null) {
+				return new CompressedColumnSparseDoubleMatrix2D(rows.length, getColumnCount(),
+						a[0], a[1], v[0]);
+			}
+		}
+		return super.selectRows(returnType, rows);
+	}
+
+	/**
+	 * Returns the transpose, which shares the arrays of this matrix in
+	 * compressed sparse row format until one of them is changed.
+	 */
+	public Matrix transpose() {
+		return transposeShared();
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+
+/**
+ * Sparse double matrix in compressed sparse row (CSR) format. Each nonzero
+ * entry takes 12 bytes: an <code>int</code> column index and a
+ * <code>double</code> value. The entries of a row are stored contiguously, so
+ * that selecting rows and multiplying with dense matrices are fast.
+ *
+ * @author Holger Arndt
+ */
+public class CompressedRowSparseDoubleMatrix2D extends AbstractCompressedSparseDoubleMatrix2D {
+	private static final long serialVersionUID = -3068224651842537418L;
+
+	public CompressedRowSparseDoubleMatrix2D(long rows, long columns) {
+		super(true, rows, columns);
+	}
+
+	public CompressedRowSparseDoubleMatrix2D(Matrix m) {
+		super(true, m);
+	}
+
+	/**
+	 * Creates a matrix from arrays in compressed sparse row format. The
+	 * arrays are used directly, not copied.
+	 * 
+	 * @param rowPointers
+	 *            position of the first entry of each row in the other
+	 *            arrays, followed by the number of entries
+	 * @param columnIndices
+	 *            column index of each entry, ascending within every row
+	 * @param values
+	 *            value of each entry
+	 */
+	public CompressedRowSparseDoubleMatrix2D(long rows, long columns, int[] rowPointers, int[] columnIndices,
+			double[] values) {
+		super(true, rows, columns, rowPointers, columnIndices, values);
+	}
+
+	public Matrix selectRows(Ret returnType, long... rows) {
+		if (returnType == Ret.NEW) {
+			final double[][] v = new double[1][];
+			final int[][] a = selectMajor(rows, v);
+			return new CompressedRowSparseDoubleMatrix2D(rows.length, getColumnCount(),
+					a[0], a[1], v[0]);
+		} else {
+			return super.selectRows(returnType, rows);
+		}
+	}
+
+	public Matrix selectColumns(Ret returnType, long... columns) {
+		if (returnType == Ret.NEW) {
+			final double[][] v = new double[1][];
+			final int[][] a = selectMinor(columns, v);
+			if (a != null) {
+				return new CompressedRowSparseDoubleMatrix2D(getRowCount(), columns.length,
+						a[0], a[1], v[0]);
+			}
+		}
+		return super.selectColumns(returnType, columns);
+	}
+
+	/**
+	 * Returns the transpose, which shares the arrays of this matrix in
+	 * compressed sparse column format until one of them is changed.
+	 */
+	public Matrix transpose() {
+		return transposeShared();
+	}
+
+}
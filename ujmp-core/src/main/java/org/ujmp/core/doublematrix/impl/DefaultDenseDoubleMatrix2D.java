@@ -25,8 +25,10 @@ package org.ujmp.core.doublematrix.impl;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.stub.AbstractDenseDoubleMatrix2D;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
 import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
 import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.VerifyUtil;
 
 public class DefaultDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D implements
 		HasColumnMajorDoubleArray1D {
@@ -47,8 +49,15 @@ public class DefaultDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D impl
 			System.arraycopy(v, 0, this.values, 0, v.length);
 		} else {
 			this.values = new double[rows * cols];
-			for (long[] c : m.allCoordinates()) {
-				setDouble(m.getAsDouble(c), c);
+			final DoubleCellVisitor copy = new DoubleCellVisitor() {
+				public void visit(long row, long column, double value) {
+					values[(int) (column * rows + row)] = value;
+				}
+			};
+			if (m.isSparse()) {
+				m.forEachNonZero(copy);
+			} else {
+				m.forEachDouble(copy);
 			}
 		}
 		if (m.getMetaData() != null) {
@@ -126,4 +135,59 @@ public class DefaultDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D impl
 		return values;
 	}
 
+	/**
+	 * Copies the region column by column, so that the values are read
+	 * sequentially. Single columns are copied with System.arraycopy.
+	 */
+	public final void getDoubleBlock(long row, long column, int rowCount, int columnCount,
+			double[] target, int offset, int stride) {
+		VerifyUtil.verifyRegion(this, row, column, rowCount, columnCount);
+		if (columnCount == 1 && (stride == 1 || rowCount == 1)) {
+			System.arraycopy(values, (int) (column * rows + row), target, offset, rowCount);
+			return;
+		}
+		for (int j = 0; j < columnCount; j++) {
+			final int start = (int) ((column + j) * rows + row);
+			for (int i = 0, t = offset + j; i < rowCount; i++, t += stride) {
+				target[t] = values[start + i];
+			}
+		}
+	}
+
+	public final void setDoubleBlock(long row, long column, int rowCount, int columnCount,
+			double[] source, int offset, int stride) {
+		VerifyUtil.verifyRegion(this, row, column, rowCount, columnCount);
+		if (columnCount == 1 && (stride == 1 || rowCount == 1)) {
+			System.arraycopy(source, offset, values, (int) (column * rows + row), rowCount);
+			return;
+		}
+		for (int j = 0; j < columnCount; j++) {
+			final int start = (int) ((column + j) * rows + row);
+			for (int i = 0, t = offset + j; i < rowCount; i++, t += stride) {
+				values[start + i] = source[t];
+			}
+		}
+	}
+
+	public final void forEachDouble(DoubleCellVisitor visitor, long startRow, long endRow) {
+		for (int column = 0; column < cols; column++) {
+			final int offset = column * rows;
+			for (int row = (int) startRow; row < endRow; row++) {
+				visitor.visit(row, column, values[offset + row]);
+			}
+		}
+	}
+
+	public final void forEachNonZero(DoubleCellVisitor visitor, long startRow, long endRow) {
+		for (int column = 0; column < cols; column++) {
+			final int offset = column * rows;
+			for (int row = (int) startRow; row < endRow; row++) {
+				final double value = values[offset + row];
+				if (value != 0.0) {
+					visitor.visit(row, column, value);
+				}
+			}
+		}
+	}
+
 }
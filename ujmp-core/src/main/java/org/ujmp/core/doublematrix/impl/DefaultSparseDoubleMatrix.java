@@ -27,7 +27,6 @@ import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.SparseDoubleMatrix;
 import org.ujmp.core.enums.ValueType;
 import org.ujmp.core.genericmatrix.impl.DefaultSparseGenericMatrix;
-import org.ujmp.core.util.MathUtil;
 
 public class DefaultSparseDoubleMatrix extends DefaultSparseGenericMatrix<Double> implements
 		SparseDoubleMatrix {
@@ -50,11 +49,11 @@ public class DefaultSparseDoubleMatrix extends DefaultSparseGenericMatrix<Double
 	}
 
 	public double getDouble(long... coordinates) {
-		return MathUtil.getDouble(getObject(coordinates));
+		return getAsDouble(coordinates);
 	}
 
 	public void setDouble(double value, long... coordinates) {
-		setObject(value, coordinates);
+		setAsDouble(value, coordinates);
 	}
 
 }
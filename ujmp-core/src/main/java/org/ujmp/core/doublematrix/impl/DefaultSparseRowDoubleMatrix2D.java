@@ -23,30 +23,74 @@
 
 package org.ujmp.core.doublematrix.impl;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.Calculation.Ret;
 import org.ujmp.core.doublematrix.stub.AbstractSparseDoubleMatrix2D;
+import org.ujmp.core.interfaces.CanMapNonZeros;
+import org.ujmp.core.interfaces.DoubleCellFunction;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
 import org.ujmp.core.util.DefaultSparseDoubleVector1D;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
 
-public class DefaultSparseRowDoubleMatrix2D extends AbstractSparseDoubleMatrix2D {
+/**
+ * Sparse matrix which stores each row as a {@link DefaultSparseDoubleVector1D}
+ * in an array indexed by row. Rows without entries are null. The entries are
+ * iterated in row-major order, and rows can be processed in parallel with
+ * {@link #forEachRow(boolean, RowVisitor)} and
+ * {@link #reduceRows(boolean, RowReducer)}, which work directly on the arrays
+ * of the row vectors.
+ */
+public class DefaultSparseRowDoubleMatrix2D extends AbstractSparseDoubleMatrix2D implements
+		CanMapNonZeros {
 	private static final long serialVersionUID = -5291604525500706427L;
 
-	protected final Map<Long, DefaultSparseDoubleVector1D> rows = new HashMap<Long, DefaultSparseDoubleVector1D>();
+	/**
+	 * Visits the entries of one row. The column indices are sorted, only the
+	 * first count elements of the arrays belong to the row. Values may be
+	 * changed in place.
+	 */
+	public interface RowVisitor {
+		public void visitRow(long row, long[] columns, double[] values, int count);
+	}
+
+	/**
+	 * Maps each row to a result and combines the results of several rows.
+	 * Results are combined in the order of the rows.
+	 */
+	public interface RowReducer<T> {
+		public T map(long row, long[] columns, double[] values, int count);
+
+		public T reduce(T result1, T result2);
+	}
+
+	private DefaultSparseDoubleVector1D[] rows;
 
 	public DefaultSparseRowDoubleMatrix2D(long rows, long columns) {
 		super(rows, columns);
-		setSize(new long[] { rows, columns });
+		this.rows = new DefaultSparseDoubleVector1D[MathUtil.longToInt(rows)];
 	}
 
 	public DefaultSparseRowDoubleMatrix2D(Matrix m) {
-		super(m.getRowCount(), m.getColumnCount());
-		setSize(m.getSize());
-		for (long[] c : m.availableCoordinates()) {
-			setDouble(m.getAsDouble(c), c);
+		this(m.getRowCount(), m.getColumnCount());
+		if (m instanceof DefaultSparseRowDoubleMatrix2D) {
+			final DefaultSparseDoubleVector1D[] source = ((DefaultSparseRowDoubleMatrix2D) m).rows;
+			for (int r = 0; r < source.length; r++) {
+				if (source[r] != null) {
+					rows[r] = new DefaultSparseDoubleVector1D(source[r]);
+				}
+			}
+		} else {
+			m.forEachNonZero(new DoubleCellVisitor() {
+				public void visit(long row, long column, double value) {
+					setDouble(value, row, column);
+				}
+			});
 		}
 		if (m.getMetaData() != null) {
 			setMetaData(m.getMetaData().clone());
@@ -54,29 +98,72 @@ public class DefaultSparseRowDoubleMatrix2D extends AbstractSparseDoubleMatrix2D
 	}
 
 	public double getDouble(long row, long column) {
-		Matrix m = rows.get(row);
-		return m == null ? 0.0 : m.getAsDouble(0, column);
+		final DefaultSparseDoubleVector1D m = getRow(row);
+		return m == null ? 0.0 : m.getDouble(0, column);
 	}
 
 	public double getDouble(int row, int column) {
 		return getDouble((long) row, (long) column);
 	}
 
+	/**
+	 * Returns the coordinates of all entries in row-major order. Each call
+	 * of next() returns a new array.
+	 */
 	public Iterable<long[]> availableCoordinates() {
 		return new NonZeroIterable(this);
 	}
 
+	public void mapNonZeros(final DoubleCellFunction function) {
+		for (int r = 0; r < rows.length; r++) {
+			final DefaultSparseDoubleVector1D v = rows[r];
+			if (v != null) {
+				final long row = r;
+				v.mapNonZeros(new DoubleCellFunction() {
+					public double apply(long vectorRow, long column, double value) {
+						return function.apply(row, column, value);
+					}
+				});
+			}
+		}
+	}
+
+	public void forEachNonZero(DoubleCellVisitor visitor, long startRow, long endRow) {
+		for (int row = (int) startRow; row < endRow; row++) {
+			final DefaultSparseDoubleVector1D v = rows[row];
+			if (v != null) {
+				final long[] columns = v.getIndexArray();
+				final double[] values = v.getValueArray();
+				final int count = v.getNonZeroCount();
+				for (int i = 0; i < count; i++) {
+					if (values[i] != 0.0) {
+						visitor.visit(row, columns[i], values[i]);
+					}
+				}
+			}
+		}
+	}
+
 	public boolean containsCoordinates(long... coordinates) {
 		return getDouble(coordinates) != 0.0;
 	}
 
+	/**
+	 * Stores a value. Rows outside the matrix are ignored.
+	 */
 	public void setDouble(double o, long row, long column) {
-		DefaultSparseDoubleVector1D m = rows.get(row);
+		if (row < 0 || row >= rows.length) {
+			return;
+		}
+		DefaultSparseDoubleVector1D m = rows[(int) row];
 		if (m == null) {
+			if (o == 0.0) {
+				return;
+			}
 			m = new DefaultSparseDoubleVector1D(1l, getColumnCount());
-			rows.put(row, m);
+			rows[(int) row] = m;
 		}
-		m.setAsDouble(o, 0, column);
+		m.setDouble(o, 0, column);
 	}
 
 	public void setDouble(double o, int row, int column) {
@@ -84,16 +171,25 @@ public class DefaultSparseRowDoubleMatrix2D extends AbstractSparseDoubleMatrix2D
 	}
 
 	public void setSize(long... size) {
+		if (this.size[ROW] != size[ROW]) {
+			rows = Arrays.copyOf(rows, MathUtil.longToInt(size[ROW]));
+		}
 		if (this.size[COLUMN] != size[COLUMN]) {
-			for (Matrix m : rows.values()) {
-				m.setSize(1, size[COLUMN]);
+			for (Matrix m : rows) {
+				if (m != null) {
+					m.setSize(1, size[COLUMN]);
+				}
 			}
 		}
 		this.size = size;
 	}
 
-	public Matrix getRow(long row) {
-		return rows.get(row);
+	/**
+	 * Returns the vector which stores a row, or null if the row has no
+	 * entries or is outside the matrix. All entries of such rows are 0.
+	 */
+	public DefaultSparseDoubleVector1D getRow(long row) {
+		return row < 0 || row >= rows.length ? null : rows[(int) row];
 	}
 
 	public Matrix selectRows(Ret returnType, long... rows) {
@@ -105,7 +201,143 @@ public class DefaultSparseRowDoubleMatrix2D extends AbstractSparseDoubleMatrix2D
 	}
 
 	public final void clear() {
-		rows.clear();
+		Arrays.fill(rows, null);
+	}
+
+	/**
+	 * Calls the visitor for every row which contains entries.
+	 * 
+	 * @param parallel
+	 *            split the rows into ranges with about the same number of
+	 *            entries and visit them with all threads
+	 */
+	public void forEachRow(final boolean parallel, final RowVisitor visitor) {
+		final int[] bounds = split(parallel);
+		final int workers = bounds.length - 1;
+		if (workers == 1) {
+			visitRows(0, rows.length, visitor);
+		} else {
+			new PFor(workers, 0, workers - 1) {
+				@Override
+				public void step(int w) {
+					visitRows(bounds[w], bounds[w + 1], visitor);
+				}
+			};
+		}
+	}
+
+	private final void visitRows(final int from, final int to, final RowVisitor visitor) {
+		final DefaultSparseDoubleVector1D[] r = rows;
+		for (int i = from; i < to; i++) {
+			final DefaultSparseDoubleVector1D v = r[i];
+			if (v != null && v.getNonZeroCount() > 0) {
+				visitor.visitRow(i, v.getIndexArray(), v.getValueArray(), v.getNonZeroCount());
+			}
+		}
+	}
+
+	/**
+	 * Maps every row which contains entries and combines the results.
+	 * 
+	 * @return the combined result, or null if the matrix has no entries
+	 */
+	public <T> T reduceRows(final boolean parallel, final RowReducer<T> reducer) {
+		final int[] bounds = split(parallel);
+		final int workers = bounds.length - 1;
+		if (workers == 1) {
+			return reduceRows(0, rows.length, reducer);
+		}
+		final Object[] results = new Object[workers];
+		new PFor(workers, 0, workers - 1) {
+			@Override
+			public void step(int w) {
+				results[w] = reduceRows(bounds[w], bounds[w + 1], reducer);
+			}
+		};
+		T result = null;
+		for (int w = 0; w < workers; w++) {
+			@SuppressWarnings("unchecked")
+			final T partial = (T) results[w];
+			if (partial != null) {
+				result = result == null ? partial : reducer.reduce(result, partial);
+			}
+		}
+		return result;
+	}
+
+	private final <T> T reduceRows(final int from, final int to, final RowReducer<T> reducer) {
+		final DefaultSparseDoubleVector1D[] r = rows;
+		T result = null;
+		for (int i = from; i < to; i++) {
+			final DefaultSparseDoubleVector1D v = r[i];
+			if (v != null && v.getNonZeroCount() > 0) {
+				final T mapped = reducer.map(i, v.getIndexArray(), v.getValueArray(),
+						v.getNonZeroCount());
+				result = result == null ? mapped : reducer.reduce(result, mapped);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the bounds of row ranges with about the same number of
+	 * entries, one for each thread.
+	 */
+	private final int[] split(final boolean parallel) {
+		final int threads = parallel ? UJMPSettings.getInstance().getNumberOfThreads() : 1;
+		final int workers = Math.max(1, Math.min(threads, rows.length));
+		final int[] bounds = new int[workers + 1];
+		bounds[workers] = rows.length;
+		if (workers == 1) {
+			return bounds;
+		}
+		long total = 0;
+		for (DefaultSparseDoubleVector1D v : rows) {
+			total += v == null ? 0 : v.getNonZeroCount() + 1;
+		}
+		long count = 0;
+		int w = 1;
+		for (int i = 0; i < rows.length && w < workers; i++) {
+			final DefaultSparseDoubleVector1D v = rows[i];
+			count += v == null ? 0 : v.getNonZeroCount() + 1;
+			while (w < workers && count >= total * w / workers) {
+				bounds[w++] = i + 1;
+			}
+		}
+		while (w < workers) {
+			bounds[w++] = rows.length;
+		}
+		return bounds;
+	}
+
+	/**
+	 * Scales every row to euclidean norm 1. Rows with norm 0 are not changed.
+	 */
+	public void normalizeRows(boolean parallel) {
+		forEachRow(parallel, new RowVisitor() {
+			public void visitRow(long row, long[] columns, double[] values, int count) {
+				double sum = 0.0;
+				for (int i = 0; i < count; i++) {
+					sum += values[i] * values[i];
+				}
+				if (sum > 0.0) {
+					final double scale = 1.0 / Math.sqrt(sum);
+					for (int i = 0; i < count; i++) {
+						values[i] *= scale;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns the dot product of two rows. Rows outside the matrix contain
+	 * only zeros.
+	 */
+	public double rowDot(long row1, long row2) {
+		final DefaultSparseDoubleVector1D v1 = getRow(row1);
+		final DefaultSparseDoubleVector1D v2 = getRow(row2);
+		return v1 == null || v2 == null ? 0.0 : v1.dot(v2);
 	}
 
 }
@@ -127,34 +359,38 @@ class NonZeroIterable implements Iterable<long[]> {
 class NonZeroIterator implements Iterator<long[]> {
 
 	private final DefaultSparseRowDoubleMatrix2D matrix;
-	private final long[] coordinates = new long[] { -1, -1 };
-	private final Iterator<Long> rowIterator;
-	private Iterator<long[]> columnIterator;
-	private long currentRow;
+	private final long rowCount;
+	private int row = -1;
+	private int pos = 0;
+	private DefaultSparseDoubleVector1D current = null;
 
 	public NonZeroIterator(DefaultSparseRowDoubleMatrix2D matrix) {
 		this.matrix = matrix;
-		rowIterator = matrix.rows.keySet().iterator();
-		while (rowIterator.hasNext() && (columnIterator == null || !columnIterator.hasNext())) {
-			currentRow = rowIterator.next();
-			columnIterator = matrix.rows.get(currentRow).availableCoordinates().iterator();
+		this.rowCount = matrix.getRowCount();
+		advance();
+	}
+
+	private void advance() {
+		while (current == null || pos >= current.getNonZeroCount()) {
+			if (++row >= rowCount) {
+				current = null;
+				return;
+			}
+			current = matrix.getRow(row);
+			pos = 0;
 		}
 	}
 
 	public boolean hasNext() {
-		return columnIterator != null && columnIterator.hasNext();
+		return current != null;
 	}
 
 	public long[] next() {
-		final long[] rowCoordinates = columnIterator.next();
-		coordinates[Matrix.ROW] = currentRow;
-		coordinates[Matrix.COLUMN] = rowCoordinates[Matrix.ROW];
-		if (!columnIterator.hasNext()) {
-			while (rowIterator.hasNext() && (columnIterator == null || !columnIterator.hasNext())) {
-				currentRow = rowIterator.next();
-				columnIterator = matrix.rows.get(currentRow).availableCoordinates().iterator();
-			}
+		if (current == null) {
+			throw new NoSuchElementException();
 		}
+		final long[] coordinates = new long[] { row, current.getIndexArray()[pos++] };
+		advance();
 		return coordinates;
 	}
 
@@ -162,4 +398,4 @@ class NonZeroIterator implements Iterator<long[]> {
 		throw new RuntimeException("cannot modify matrix");
 	}
 
-}
\ No newline at end of file
+}
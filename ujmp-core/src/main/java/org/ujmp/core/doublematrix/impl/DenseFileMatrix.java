@@ -32,13 +32,16 @@ import java.io.ObjectOutputStream;
 import java.io.OptionalDataException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
 
 import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.stub.AbstractDenseDoubleMatrixMultiD;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
 import org.ujmp.core.interfaces.Erasable;
 import org.ujmp.core.mapmatrix.MapMatrix;
 import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.VerifyUtil;
 import org.ujmp.core.util.io.BufferedRandomAccessFile;
 
 public class DenseFileMatrix extends AbstractDenseDoubleMatrixMultiD implements Erasable, Closeable {
@@ -374,6 +377,135 @@ public class DenseFileMatrix extends AbstractDenseDoubleMatrixMultiD implements
 		return b;
 	}
 
+	/**
+	 * Reads the region with one positioned read of the bytes from its first to
+	 * its last entry. Only files of doubles are supported this way.
+	 */
+	public synchronized void getDoubleBlock(long row, long column, int rows, int columns,
+			double[] target, int offset, int stride) {
+		VerifyUtil.verifyRegion(this, row, column, rows, columns);
+		if (getDimensionCount() != 2 || dataType != DOUBLE || rows == 0 || columns == 0) {
+			super.getDoubleBlock(row, column, rows, columns, target, offset, stride);
+			return;
+		}
+		if (randomAccessFile == null) {
+			createFile();
+		}
+		final long columnCount = getColumnCount();
+		final long span = (rows - 1) * columnCount + columns;
+		if (randomAccessFile == null || span * 8 > Integer.MAX_VALUE) {
+			super.getDoubleBlock(row, column, rows, columns, target, offset, stride);
+			return;
+		}
+		try {
+			final byte[] bytes = new byte[(int) span * 8];
+			randomAccessFile.readFully(getPos(row, column), bytes);
+			final DoubleBuffer values = ByteBuffer.wrap(bytes).order(byteOrder).asDoubleBuffer();
+			for (int i = 0; i < rows; i++) {
+				values.position((int) (i * columnCount));
+				values.get(target, offset + i * stride, columns);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("could not read values", e);
+		}
+	}
+
+	/**
+	 * Writes the region with one positioned write per row, or with a single
+	 * write if the region covers complete rows. Only files of doubles are
+	 * supported this way.
+	 */
+	public synchronized void setDoubleBlock(long row, long column, int rows, int columns,
+			double[] source, int offset, int stride) {
+		VerifyUtil.verifyRegion(this, row, column, rows, columns);
+		if (isReadOnly()) {
+			return;
+		}
+		if (getDimensionCount() != 2 || dataType != DOUBLE) {
+			super.setDoubleBlock(row, column, rows, columns, source, offset, stride);
+			return;
+		}
+		try {
+			if (file == null) {
+				file = File.createTempFile("matrix", null);
+			}
+			if (randomAccessFile == null) {
+				createFile();
+			}
+			final boolean completeRows = columns == getColumnCount()
+					&& (long) rows * columns * 8 <= Integer.MAX_VALUE;
+			final ByteBuffer bb = ByteBuffer.allocate((completeRows ? rows : 1) * columns * 8)
+					.order(byteOrder);
+			final DoubleBuffer values = bb.asDoubleBuffer();
+			for (int i = 0; i < rows; i++) {
+				values.put(source, offset + i * stride, columns);
+				if (!completeRows) {
+					randomAccessFile.write(getPos(row + i, column), bb.array());
+					values.clear();
+				}
+			}
+			if (completeRows) {
+				randomAccessFile.write(getPos(row, column), bb.array());
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("could not write values", e);
+		}
+	}
+
+	/**
+	 * Visits the entries row by row in the order in which they are stored in
+	 * the file. Files of doubles are read in chunks of the buffer size.
+	 */
+	public synchronized void forEachDouble(DoubleCellVisitor visitor, long startRow, long endRow) {
+		if (getDimensionCount() != 2) {
+			super.forEachDouble(visitor, startRow, endRow);
+			return;
+		}
+		if (randomAccessFile == null) {
+			createFile();
+		}
+		final long columnCount = getColumnCount();
+		if (dataType == DOUBLE && randomAccessFile != null && bufferSize >= 8) {
+			final long total = (endRow - startRow) * columnCount;
+			final int chunk = bufferSize / 8;
+			byte[] bytes = new byte[chunk * 8];
+			long seek = getPos(startRow, 0);
+			long row = startRow;
+			long column = 0;
+			try {
+				for (long done = 0; done < total;) {
+					final int n = (int) Math.min(chunk, total - done);
+					if (bytes.length != n * 8) {
+						bytes = new byte[n * 8];
+					}
+					randomAccessFile.read(seek, bytes);
+					final DoubleBuffer values = ByteBuffer.wrap(bytes).order(byteOrder)
+							.asDoubleBuffer();
+					for (int i = 0; i < n; i++) {
+						visitor.visit(row, column, values.get(i));
+						if (++column == columnCount) {
+							column = 0;
+							row++;
+						}
+					}
+					seek += n * 8l;
+					done += n;
+				}
+			} catch (IOException e) {
+				throw new RuntimeException("could not read value", e);
+			}
+		} else {
+			final long[] coordinates = new long[2];
+			for (long row = startRow; row < endRow; row++) {
+				for (long column = 0; column < columnCount; column++) {
+					coordinates[ROW] = row;
+					coordinates[COLUMN] = column;
+					visitor.visit(row, column, getDouble(coordinates));
+				}
+			}
+		}
+	}
+
 	public synchronized void setDouble(double value, long... c) {
 		if (isReadOnly())
 			return;
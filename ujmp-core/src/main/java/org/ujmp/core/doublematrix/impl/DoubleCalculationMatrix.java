@@ -37,6 +37,10 @@ public class DoubleCalculationMatrix extends AbstractDoubleMatrix {
 		setMetaData(calculation.getMetaData());
 	}
 
+	public DoubleCalculation getCalculation() {
+		return calculation;
+	}
+
 	public boolean containsCoordinates(long... coordinates) {
 		return calculation.containsCoordinates(coordinates);
 	}
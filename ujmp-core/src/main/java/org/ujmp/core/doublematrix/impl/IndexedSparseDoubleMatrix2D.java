@@ -23,113 +23,252 @@
 
 package org.ujmp.core.doublematrix.impl;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.stub.AbstractSparseDoubleMatrix2D;
+import org.ujmp.core.interfaces.CanMapNonZeros;
+import org.ujmp.core.interfaces.DoubleCellFunction;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
 
-public class IndexedSparseDoubleMatrix2D extends AbstractSparseDoubleMatrix2D {
+/**
+ * Compact sparse matrix for lookup tables which are read much more often than
+ * they are changed. Each entry takes 16 bytes: the linear index
+ * <code>row * columns + column</code> in a sorted <code>long[]</code> and the
+ * value in a <code>double[]</code>. Values are found by binary search and
+ * iterated in row-major order.
+ * <p>
+ * Setting a single new entry moves all following entries. Large numbers of
+ * entries should be inserted with {@link #setDoubles(double[], long[], long[])}
+ * , which merges them in one pass.
+ *
+ * @author Holger Arndt
+ */
+public class IndexedSparseDoubleMatrix2D extends AbstractSparseDoubleMatrix2D implements
+		CanMapNonZeros {
 	private static final long serialVersionUID = -8455710302874238051L;
 
-	private final long[] data;
+	private static final int INITIALCAPACITY = 16;
+
+	private final long columns;
+
+	private long[] keys;
+
+	private double[] values;
+
 	private int entryCount = 0;
 
 	public IndexedSparseDoubleMatrix2D(Matrix m) {
 		this(m.getRowCount(), m.getColumnCount());
+		final int[] count = new int[1];
+		m.forEachNonZero(new DoubleCellVisitor() {
+			public void visit(long row, long column, double value) {
+				count[0]++;
+			}
+		});
+		final double[] v = new double[count[0]];
+		final long[] r = new long[count[0]];
+		final long[] c = new long[count[0]];
+		final int[] i = new int[1];
+		m.forEachNonZero(new DoubleCellVisitor() {
+			public void visit(long row, long column, double value) {
+				if (i[0] < v.length) {
+					v[i[0]] = value;
+					r[i[0]] = row;
+					c[i[0]++] = column;
+				}
+			}
+		});
+		setDoubles(v, r, c);
+		if (m.getMetaData() != null) {
+			setMetaData(m.getMetaData().clone());
+		}
 	}
 
 	public IndexedSparseDoubleMatrix2D(long rows, long columns) {
 		super(rows, columns);
-		this.data = new long[300];
+		if (!Coordinates.isLinearIndexable(new long[] { rows, columns })) {
+			throw new IllegalArgumentException("matrix is too large for linear indices");
+		}
+		this.columns = columns;
+		this.keys = new long[INITIALCAPACITY];
+		this.values = new double[INITIALCAPACITY];
 	}
 
-	public double getDouble(long row, long column) {
-		if (entryCount == 0) {
-			return 0.0;
+	private final long key(final long row, final long column) {
+		return row * columns + column;
+	}
+
+	private final int find(final long row, final long column) {
+		if (row < 0 || row >= getRowCount() || column < 0 || column >= columns) {
+			return Integer.MIN_VALUE;
 		}
-		int stepSize = entryCount / 4 + 1;
-		int pos = entryCount / 2;
-		do {
-			if (data[pos * 3] == row) {
-				if (data[pos * 3 + 1] == column) {
-					return Double.longBitsToDouble(data[pos + 2]);
-				} else if (data[pos * 3 + 1] < column) {
-					pos += stepSize;
-				} else {
-					pos -= stepSize;
-				}
-			} else if (data[pos * 3] < row) {
-				pos += stepSize;
-			} else {
-				pos -= stepSize;
+		return Arrays.binarySearch(keys, 0, entryCount, key(row, column));
+	}
+
+	public final int getNonZeroCount() {
+		return entryCount;
+	}
+
+	public final void mapNonZeros(DoubleCellFunction function) {
+		for (int i = 0; i < entryCount; i++) {
+			values[i] = function.apply(keys[i] / columns, keys[i] % columns, values[i]);
+		}
+		int n = 0;
+		for (int i = 0; i < entryCount; i++) {
+			if (values[i] != 0.0) {
+				keys[n] = keys[i];
+				values[n++] = values[i];
 			}
-			stepSize /= 2;
-		} while (stepSize > 0);
-		return 0.0;
+		}
+		entryCount = n;
+	}
+
+	public double getDouble(long row, long column) {
+		final int pos = find(row, column);
+		return pos < 0 ? 0.0 : values[pos];
 	}
 
+	/**
+	 * Stores a value. Coordinates outside the matrix are ignored.
+	 */
 	public void setDouble(double value, long row, long column) {
-		if (entryCount * 3 == data.length) {
-			grow();
-		}
-		if (entryCount == 0) {
-			data[2] = Double.doubleToLongBits(value);
-			entryCount++;
+		final int pos = find(row, column);
+		if (pos == Integer.MIN_VALUE) {
 			return;
-		}
-		int stepSize = entryCount / 4 + 1;
-		int pos = entryCount / 2;
-		do {
-			if (data[pos * 3] == row) {
-				if (data[pos * 3 + 1] == column) {
-					data[pos * 3 + 2] = Double.doubleToLongBits(value);
-					return;
-				} else if (data[pos * 3 + 1] < column) {
-					pos += stepSize;
-				} else {
-					pos -= stepSize;
-				}
-			} else if (data[pos * 3] < row) {
-				pos += stepSize;
+		} else if (pos >= 0) {
+			if (value != 0.0) {
+				values[pos] = value;
 			} else {
-				pos -= stepSize;
+				System.arraycopy(keys, pos + 1, keys, pos, entryCount - pos - 1);
+				System.arraycopy(values, pos + 1, values, pos, entryCount - pos - 1);
+				entryCount--;
+			}
+		} else if (value != 0.0) {
+			final int insert = -pos - 1;
+			if (entryCount == keys.length) {
+				grow(entryCount + 1);
 			}
-			stepSize /= 2;
-		} while (stepSize > 0);
-		data[pos * 3] = row;
-		data[pos * 3 + 1] = column;
-		data[pos * 3 + 2] = Double.doubleToLongBits(value);
-		entryCount++;
+			System.arraycopy(keys, insert, keys, insert + 1, entryCount - insert);
+			System.arraycopy(values, insert, values, insert + 1, entryCount - insert);
+			keys[insert] = key(row, column);
+			values[insert] = value;
+			entryCount++;
+		}
 	}
 
-	private void grow() {
+	private void grow(final int minCapacity) {
+		final int capacity = Math.max(minCapacity, keys.length + (keys.length >> 1));
+		keys = Arrays.copyOf(keys, capacity);
+		values = Arrays.copyOf(values, capacity);
 	}
 
-	public final void clear() {
-		entryCount = 0;
+	/**
+	 * Releases unused capacity of the arrays.
+	 */
+	public void trimToSize() {
+		if (keys.length > entryCount) {
+			keys = Arrays.copyOf(keys, entryCount);
+			values = Arrays.copyOf(values, entryCount);
+		}
 	}
 
-	private int getPos(long row, long column) {
-		int stepSize = entryCount / 2;
-		int pos = stepSize * 3;
-		while (stepSize > 1) {
-			if (data[pos] == row) {
-				if (data[pos + 1] == column) {
-					return pos;
-				} else if (data[pos + 1] < column) {
-					stepSize /= 2;
-					pos -= stepSize;
-				} else {
-					stepSize /= 2;
-					pos += stepSize;
-				}
-			} else if (data[pos] < row) {
-				stepSize /= 2;
-				pos -= stepSize;
+	/**
+	 * Sets many values at once. The new entries are sorted and merged with
+	 * the existing ones in one pass, which takes O(n log n + entries) instead
+	 * of moving the entries for every value. If the same coordinates appear
+	 * several times, the last value wins. Values of 0 remove entries,
+	 * coordinates outside the matrix are ignored.
+	 */
+	public void setDoubles(double[] newValues, long[] rows, long[] columns) {
+		if (newValues.length != rows.length || newValues.length != columns.length) {
+			throw new IllegalArgumentException("arrays must have the same length");
+		}
+		int n = 0;
+		long[] newKeys = new long[newValues.length];
+		double[] sortedValues = new double[newValues.length];
+		for (int i = 0; i < newValues.length; i++) {
+			if (rows[i] >= 0 && rows[i] < getRowCount() && columns[i] >= 0
+					&& columns[i] < this.columns) {
+				newKeys[n] = key(rows[i], columns[i]);
+				sortedValues[n++] = newValues[i];
+			}
+		}
+		sort(newKeys, sortedValues, n);
+
+		final long[] mergedKeys = new long[entryCount + n];
+		final double[] mergedValues = new double[entryCount + n];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < entryCount || j < n) {
+			final long key;
+			double value;
+			if (j == n || (i < entryCount && keys[i] < newKeys[j])) {
+				key = keys[i];
+				value = values[i++];
 			} else {
-				stepSize /= 2;
-				pos += stepSize;
+				key = newKeys[j];
+				// the last of several new values for this key
+				while (j + 1 < n && newKeys[j + 1] == key) {
+					j++;
+				}
+				value = sortedValues[j++];
+				if (i < entryCount && keys[i] == key) {
+					i++;
+				}
+			}
+			if (value != 0.0) {
+				mergedKeys[count] = key;
+				mergedValues[count++] = value;
+			}
+		}
+		keys = mergedKeys;
+		values = mergedValues;
+		entryCount = count;
+	}
+
+	/**
+	 * Stable merge sort of the first n keys and their values.
+	 */
+	private static void sort(long[] keys, double[] values, int n) {
+		long[] keyBuffer = new long[n];
+		double[] valueBuffer = new double[n];
+		for (int width = 1; width < n; width <<= 1) {
+			for (int from = 0; from < n; from += 2 * width) {
+				final int mid = Math.min(from + width, n);
+				final int to = Math.min(from + 2 * width, n);
+				int i = from;
+				int j = mid;
+				int k = from;
+				while (i < mid && j < to) {
+					if (keys[j] < keys[i]) {
+						keyBuffer[k] = keys[j];
+						valueBuffer[k++] = values[j++];
+					} else {
+						keyBuffer[k] = keys[i];
+						valueBuffer[k++] = values[i++];
+					}
+				}
+				while (i < mid) {
+					keyBuffer[k] = keys[i];
+					valueBuffer[k++] = values[i++];
+				}
+				while (j < to) {
+					keyBuffer[k] = keys[j];
+					valueBuffer[k++] = values[j++];
+				}
 			}
+			System.arraycopy(keyBuffer, 0, keys, 0, n);
+			System.arraycopy(valueBuffer, 0, values, 0, n);
 		}
-		return -1;
+	}
+
+	public final void clear() {
+		entryCount = 0;
 	}
 
 	public double getDouble(int row, int column) {
@@ -140,12 +279,56 @@ public class IndexedSparseDoubleMatrix2D extends AbstractSparseDoubleMatrix2D {
 		setDouble(value, (long) row, (long) column);
 	}
 
+	/**
+	 * Visits the non-zero entries in row-major order. The first entry of the
+	 * row range is found by binary search.
+	 */
+	public void forEachNonZero(DoubleCellVisitor visitor, long startRow, long endRow) {
+		int p = Arrays.binarySearch(keys, 0, entryCount, startRow * columns);
+		if (p < 0) {
+			p = -p - 1;
+		}
+		final long endKey = endRow * columns;
+		for (; p < entryCount && keys[p] < endKey; p++) {
+			if (values[p] != 0.0) {
+				visitor.visit(keys[p] / columns, keys[p] % columns, values[p]);
+			}
+		}
+	}
+
 	public boolean containsCoordinates(long... coordinates) {
-		return getDouble(coordinates) == 0.0;
+		return find(coordinates[ROW], coordinates[COLUMN]) >= 0;
 	}
 
+	/**
+	 * Returns the coordinates of all entries in row-major order. Each call of
+	 * next() returns a new array.
+	 */
 	public Iterable<long[]> availableCoordinates() {
-		throw new RuntimeException("not implemented");
+		return new Iterable<long[]>() {
+
+			public Iterator<long[]> iterator() {
+				return new Iterator<long[]>() {
+					private int pos = 0;
+
+					public boolean hasNext() {
+						return pos < entryCount;
+					}
+
+					public long[] next() {
+						if (pos >= entryCount) {
+							throw new NoSuchElementException();
+						}
+						final long key = keys[pos++];
+						return new long[] { key / columns, key % columns };
+					}
+
+					public void remove() {
+						throw new RuntimeException("cannot modify matrix");
+					}
+				};
+			}
+		};
 	}
 
 }
@@ -0,0 +1,451 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import static org.ujmp.core.util.VerifyUtil.verifyTrue;
+
+import java.util.Arrays;
+
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+
+/**
+ * Cache blocked matrix multiplication for column-major double arrays:
+ * <p>
+ * <code>C = alpha * op(A) * op(B) + beta * C</code>
+ * <p>
+ * where op(X) is X or its transpose. Panels of A (MC x KC) and B (KC x NC) are
+ * packed into contiguous buffers so that a 4x4 register blocked micro-kernel
+ * can stream through them. For multiple threads, C is split into a 2D grid of
+ * tiles which are computed independently, so no two threads ever write to the
+ * same element of C and the result does not depend on the number of threads.
+ *
+ * @author Holger Arndt
+ */
+public class PackedGemm {
+
+	/** rows of the register block */
+	public static final int MR = 4;
+
+	/** columns of the register block */
+	public static final int NR = 4;
+
+	/** rows of a packed panel of A, sized for L2 cache */
+	public static final int MC = 128;
+
+	/** depth of packed panels, sized for L1 cache */
+	public static final int KC = 256;
+
+	/** columns of a packed panel of B, sized for L3 cache */
+	public static final int NC = 2048;
+
+	/** minimum number of multiply-adds per thread */
+	public static final long MINWORKPERTHREAD = 64 * 64 * 64;
+
+	private PackedGemm() {
+	}
+
+	/**
+	 * Computes C = A * B for column-major arrays without offsets.
+	 */
+	public static final void gemm(final double[] A, final int m, final int k, final double[] B,
+			final int n, final double[] C) {
+		gemm(false, false, m, n, k, 1.0, A, 0, Math.max(1, m), B, 0, Math.max(1, k), 0.0, C, 0,
+				Math.max(1, m));
+	}
+
+	/**
+	 * Computes C = alpha * op(A) * op(B) + beta * C using the number of threads
+	 * in {@link UJMPSettings}.
+	 */
+	public static final void gemm(final boolean transA, final boolean transB, final int m,
+			final int n, final int k, final double alpha, final double[] A, final int aOff,
+			final int lda, final double[] B, final int bOff, final int ldb, final double beta,
+			final double[] C, final int cOff, final int ldc) {
+		gemm(UJMPSettings.getInstance().getNumberOfThreads(), transA, transB, m, n, k, alpha, A,
+				aOff, lda, B, bOff, ldb, beta, C, cOff, ldc);
+	}
+
+	/**
+	 * Computes C = alpha * op(A) * op(B) + beta * C.
+	 *
+	 * @param threads
+	 *            - maximum number of threads to use
+	 * @param transA
+	 *            - use the transpose of A
+	 * @param transB
+	 *            - use the transpose of B
+	 * @param m
+	 *            - rows of op(A) and C
+	 * @param n
+	 *            - columns of op(B) and C
+	 * @param k
+	 *            - columns of op(A) and rows of op(B)
+	 * @param alpha
+	 *            - scalar factor for op(A) * op(B)
+	 * @param A
+	 *            - column-major data of A
+	 * @param aOff
+	 *            - index of the first element of A
+	 * @param lda
+	 *            - leading dimension of A
+	 * @param B
+	 *            - column-major data of B
+	 * @param bOff
+	 *            - index of the first element of B
+	 * @param ldb
+	 *            - leading dimension of B
+	 * @param beta
+	 *            - scalar factor for C, C is not read if beta is 0
+	 * @param C
+	 *            - column-major data of C
+	 * @param cOff
+	 *            - index of the first element of C
+	 * @param ldc
+	 *            - leading dimension of C
+	 */
+	public static final void gemm(final int threads, final boolean transA, final boolean transB,
+			final int m, final int n, final int k, final double alpha, final double[] A,
+			final int aOff, final int lda, final double[] B, final int bOff, final int ldb,
+			final double beta, final double[] C, final int cOff, final int ldc) {
+		verifyTrue(m >= 0 && n >= 0 && k >= 0, "negative matrix size");
+		verifyTrue(ldc >= Math.max(1, m), "ldc < m");
+		verifyTrue(lda >= Math.max(1, transA ? k : m), "lda too small");
+		verifyTrue(ldb >= Math.max(1, transB ? n : k), "ldb too small");
+		if (m == 0 || n == 0) {
+			return;
+		}
+
+		final long work = (long) m * (long) n * (long) k;
+		final int maxThreads = (int) Math.max(1, Math.min(threads, work / MINWORKPERTHREAD));
+
+		if (maxThreads < 2) {
+			new Tile(transA, transB, k, alpha, A, aOff, lda, B, bOff, ldb, beta, C, cOff, ldc, 0,
+					m, 0, n).run();
+			return;
+		}
+
+		// split C into a grid of tiles, aiming for roughly square tiles in
+		// terms of work and at least one tile per thread
+		final int maxRowTiles = (m + MR - 1) / MR;
+		final int maxColTiles = (n + NR - 1) / NR;
+		int rowTiles = (int) Math.round(Math.sqrt((double) maxThreads * m / n));
+		rowTiles = Math.max(1, Math.min(rowTiles, maxRowTiles));
+		int colTiles = (maxThreads + rowTiles - 1) / rowTiles;
+		colTiles = Math.max(1, Math.min(colTiles, maxColTiles));
+		if (rowTiles * colTiles < maxThreads) {
+			rowTiles = Math.min(maxRowTiles, (maxThreads + colTiles - 1) / colTiles);
+		}
+
+		final int rowStep = roundUp((m + rowTiles - 1) / rowTiles, MR);
+		final int colStep = roundUp((n + colTiles - 1) / colTiles, NR);
+		final int finalRowTiles = (m + rowStep - 1) / rowStep;
+		final int finalColTiles = (n + colStep - 1) / colStep;
+
+		new PFor(maxThreads, 0, finalRowTiles * finalColTiles - 1) {
+			@Override
+			public void step(int i) {
+				final int fromM = (i % finalRowTiles) * rowStep;
+				final int fromN = (i / finalRowTiles) * colStep;
+				new Tile(transA, transB, k, alpha, A, aOff, lda, B, bOff, ldb, beta, C, cOff,
+						ldc, fromM, Math.min(m, fromM + rowStep), fromN, Math.min(n, fromN
+								+ colStep)).run();
+			}
+		};
+	}
+
+	private static final int roundUp(final int value, final int multiple) {
+		return ((value + multiple - 1) / multiple) * multiple;
+	}
+
+	/**
+	 * Computes one rectangular part C(fromM->toM, fromN->toN) of the result
+	 * with its own packing buffers.
+	 */
+	static final class Tile implements Runnable {
+		private final boolean transA, transB;
+
+		private final int k, aOff, lda, bOff, ldb, cOff, ldc;
+
+		private final int fromM, toM, fromN, toN;
+
+		private final double alpha, beta;
+
+		private final double[] A, B, C;
+
+		Tile(final boolean transA, final boolean transB, final int k, final double alpha,
+				final double[] A, final int aOff, final int lda, final double[] B,
+				final int bOff, final int ldb, final double beta, final double[] C,
+				final int cOff, final int ldc, final int fromM, final int toM, final int fromN,
+				final int toN) {
+			this.transA = transA;
+			this.transB = transB;
+			this.k = k;
+			this.alpha = alpha;
+			this.A = A;
+			this.aOff = aOff;
+			this.lda = lda;
+			this.B = B;
+			this.bOff = bOff;
+			this.ldb = ldb;
+			this.beta = beta;
+			this.C = C;
+			this.cOff = cOff;
+			this.ldc = ldc;
+			this.fromM = fromM;
+			this.toM = toM;
+			this.fromN = fromN;
+			this.toN = toN;
+		}
+
+		public final void run() {
+			scaleC();
+			if (alpha == 0.0 || k == 0) {
+				return;
+			}
+
+			final int rows = toM - fromM;
+			final int cols = toN - fromN;
+			final int kcMax = Math.min(KC, k);
+			final int mcMax = roundUp(Math.min(MC, rows), MR);
+			final int ncMax = roundUp(Math.min(NC, cols), NR);
+			final double[] aPacked = new double[mcMax * kcMax];
+			final double[] bPacked = new double[ncMax * kcMax];
+			final double[] edge = new double[MR * NR];
+
+			for (int jc = fromN; jc < toN; jc += NC) {
+				final int nc = Math.min(NC, toN - jc);
+				for (int pc = 0; pc < k; pc += KC) {
+					final int kc = Math.min(KC, k - pc);
+					packB(bPacked, pc, kc, jc, nc);
+					for (int ic = fromM; ic < toM; ic += MC) {
+						final int mc = Math.min(MC, toM - ic);
+						packA(aPacked, ic, mc, pc, kc);
+						macroKernel(aPacked, bPacked, edge, ic, mc, jc, nc, kc);
+					}
+				}
+			}
+		}
+
+		private final void scaleC() {
+			if (beta == 1.0) {
+				return;
+			}
+			for (int j = fromN; j < toN; j++) {
+				final int start = cOff + j * ldc + fromM;
+				final int end = start + toM - fromM;
+				if (beta == 0.0) {
+					Arrays.fill(C, start, end, 0.0);
+				} else {
+					for (int i = start; i < end; i++) {
+						C[i] *= beta;
+					}
+				}
+			}
+		}
+
+		// panels of MR rows, each stored as kc consecutive groups of MR values
+		private final void packA(final double[] aPacked, final int ic, final int mc,
+				final int pc, final int kc) {
+			int index = 0;
+			for (int ir = 0; ir < mc; ir += MR) {
+				final int mr = Math.min(MR, mc - ir);
+				final int row0 = ic + ir;
+				if (transA) {
+					for (int i = 0; i < MR; i++) {
+						if (i < mr) {
+							int source = aOff + (row0 + i) * lda + pc;
+							for (int p = 0; p < kc; p++) {
+								aPacked[index + p * MR + i] = A[source++];
+							}
+						} else {
+							for (int p = 0; p < kc; p++) {
+								aPacked[index + p * MR + i] = 0.0;
+							}
+						}
+					}
+				} else {
+					for (int p = 0; p < kc; p++) {
+						final int source = aOff + (pc + p) * lda + row0;
+						final int target = index + p * MR;
+						for (int i = 0; i < mr; i++) {
+							aPacked[target + i] = A[source + i];
+						}
+						for (int i = mr; i < MR; i++) {
+							aPacked[target + i] = 0.0;
+						}
+					}
+				}
+				index += MR * kc;
+			}
+		}
+
+		// panels of NR columns, each stored as kc consecutive groups of NR
+		// values
+		private final void packB(final double[] bPacked, final int pc, final int kc,
+				final int jc, final int nc) {
+			int index = 0;
+			for (int jr = 0; jr < nc; jr += NR) {
+				final int nr = Math.min(NR, nc - jr);
+				final int col0 = jc + jr;
+				if (transB) {
+					for (int p = 0; p < kc; p++) {
+						final int source = bOff + (pc + p) * ldb + col0;
+						final int target = index + p * NR;
+						for (int j = 0; j < nr; j++) {
+							bPacked[target + j] = B[source + j];
+						}
+						for (int j = nr; j < NR; j++) {
+							bPacked[target + j] = 0.0;
+						}
+					}
+				} else {
+					for (int j = 0; j < NR; j++) {
+						if (j < nr) {
+							int source = bOff + (col0 + j) * ldb + pc;
+							for (int p = 0; p < kc; p++) {
+								bPacked[index + p * NR + j] = B[source++];
+							}
+						} else {
+							for (int p = 0; p < kc; p++) {
+								bPacked[index + p * NR + j] = 0.0;
+							}
+						}
+					}
+				}
+				index += NR * kc;
+			}
+		}
+
+		// edge is the scratch block for partial tiles at the matrix borders
+		private final void macroKernel(final double[] aPacked, final double[] bPacked,
+				final double[] edge, final int ic, final int mc, final int jc, final int nc,
+				final int kc) {
+			for (int jr = 0; jr < nc; jr += NR) {
+				final int nr = Math.min(NR, nc - jr);
+				final int bIndex = jr * kc;
+				for (int ir = 0; ir < mc; ir += MR) {
+					final int mr = Math.min(MR, mc - ir);
+					final int aIndex = ir * kc;
+					final int cIndex = cOff + (jc + jr) * ldc + ic + ir;
+					if (mr == MR && nr == NR) {
+						microKernel(kc, alpha, aPacked, aIndex, bPacked, bIndex, C, cIndex, ldc);
+					} else {
+						microKernelEdge(kc, alpha, aPacked, aIndex, bPacked, bIndex, C, cIndex,
+								ldc, mr, nr, edge);
+					}
+				}
+			}
+		}
+	}
+
+	private static final void microKernel(final int kc, final double alpha,
+			final double[] aPacked, int aIndex, final double[] bPacked, int bIndex,
+			final double[] C, final int cIndex, final int ldc) {
+		double c00 = 0.0, c10 = 0.0, c20 = 0.0, c30 = 0.0;
+		double c01 = 0.0, c11 = 0.0, c21 = 0.0, c31 = 0.0;
+		double c02 = 0.0, c12 = 0.0, c22 = 0.0, c32 = 0.0;
+		double c03 = 0.0, c13 = 0.0, c23 = 0.0, c33 = 0.0;
+
+		for (int p = kc; --p != -1;) {
+			final double a0 = aPacked[aIndex];
+			final double a1 = aPacked[aIndex + 1];
+			final double a2 = aPacked[aIndex + 2];
+			final double a3 = aPacked[aIndex + 3];
+			aIndex += MR;
+
+			double b = bPacked[bIndex];
+			c00 += a0 * b;
+			c10 += a1 * b;
+			c20 += a2 * b;
+			c30 += a3 * b;
+
+			b = bPacked[bIndex + 1];
+			c01 += a0 * b;
+			c11 += a1 * b;
+			c21 += a2 * b;
+			c31 += a3 * b;
+
+			b = bPacked[bIndex + 2];
+			c02 += a0 * b;
+			c12 += a1 * b;
+			c22 += a2 * b;
+			c32 += a3 * b;
+
+			b = bPacked[bIndex + 3];
+			c03 += a0 * b;
+			c13 += a1 * b;
+			c23 += a2 * b;
+			c33 += a3 * b;
+			bIndex += NR;
+		}
+
+		int c = cIndex;
+		C[c] += alpha * c00;
+		C[c + 1] += alpha * c10;
+		C[c + 2] += alpha * c20;
+		C[c + 3] += alpha * c30;
+		c += ldc;
+		C[c] += alpha * c01;
+		C[c + 1] += alpha * c11;
+		C[c + 2] += alpha * c21;
+		C[c + 3] += alpha * c31;
+		c += ldc;
+		C[c] += alpha * c02;
+		C[c + 1] += alpha * c12;
+		C[c + 2] += alpha * c22;
+		C[c + 3] += alpha * c32;
+		c += ldc;
+		C[c] += alpha * c03;
+		C[c + 1] += alpha * c13;
+		C[c + 2] += alpha * c23;
+		C[c + 3] += alpha * c33;
+	}
+
+	// the packed buffers are padded with zeros, so the full block can be
+	// computed in the scratch array and only the valid part is written back
+	private static final void microKernelEdge(final int kc, final double alpha,
+			final double[] aPacked, final int aIndex, final double[] bPacked, final int bIndex,
+			final double[] C, final int cIndex, final int ldc, final int mr, final int nr,
+			final double[] block) {
+		Arrays.fill(block, 0.0);
+		for (int p = 0; p < kc; p++) {
+			final int a = aIndex + p * MR;
+			final int b = bIndex + p * NR;
+			for (int j = 0; j < NR; j++) {
+				final double bv = bPacked[b + j];
+				for (int i = 0; i < MR; i++) {
+					block[j * MR + i] += aPacked[a + i] * bv;
+				}
+			}
+		}
+		for (int j = 0; j < nr; j++) {
+			final int c = cIndex + j * ldc;
+			for (int i = 0; i < mr; i++) {
+				C[c + i] += alpha * block[j * MR + i];
+			}
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import static org.ujmp.core.util.VerifyUtil.verifyTrue;
+
+import java.util.Arrays;
+
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+
+/**
+ * Matrix multiplication C = A * B for row-major <code>double[][]</code>
+ * arrays.
+ * <p>
+ * The rows of A and C are split into one contiguous block per worker. Each
+ * worker copies panels of B (KB x NB) into its own contiguous buffer and
+ * updates its rows of C in i-k-j order, so that all inner loops run over
+ * consecutive memory. Every element of C is summed by exactly one thread in
+ * increasing order of k, which makes the result independent of the number of
+ * threads.
+ *
+ * @author Holger Arndt
+ */
+public class RowMajorGemm {
+
+	/** rows of a panel of B */
+	public static final int KB = 128;
+
+	/** columns of a panel of B */
+	public static final int NB = 512;
+
+	/** minimum number of rows of A for one worker */
+	public static final int MINROWSPERTHREAD = 16;
+
+	private RowMajorGemm() {
+	}
+
+	public static final void gemm(final double[][] A, final double[][] B, final double[][] C) {
+		gemm(UJMPSettings.getInstance().getNumberOfThreads(), A, B, C);
+	}
+
+	public static final void gemm(final int threads, final double[][] A, final double[][] B,
+			final double[][] C) {
+		final int m = A.length;
+		final int k = B.length;
+		final int n = C.length == 0 ? 0 : C[0].length;
+		verifyTrue(C.length == m, "a.rows!=c.rows");
+		verifyTrue(m == 0 || A[0].length == k, "a.cols!=b.rows");
+		verifyTrue(k == 0 || B[0].length == n, "b.cols!=c.cols");
+		if (m == 0 || n == 0) {
+			return;
+		}
+
+		final int workers = Math.max(1, Math.min(threads, m / MINROWSPERTHREAD));
+		if (workers < 2) {
+			multiplyRows(A, B, C, 0, m, k, n);
+		} else {
+			final int rowsPerWorker = (m + workers - 1) / workers;
+			new PFor(workers, 0, workers - 1) {
+				@Override
+				public void step(int i) {
+					final int fromRow = i * rowsPerWorker;
+					final int toRow = Math.min(m, fromRow + rowsPerWorker);
+					if (fromRow < toRow) {
+						multiplyRows(A, B, C, fromRow, toRow, k, n);
+					}
+				}
+			};
+		}
+	}
+
+	private static final void multiplyRows(final double[][] A, final double[][] B,
+			final double[][] C, final int fromRow, final int toRow, final int k, final int n) {
+		for (int i = fromRow; i < toRow; i++) {
+			Arrays.fill(C[i], 0.0);
+		}
+		if (k == 0) {
+			return;
+		}
+
+		final int nbMax = Math.min(NB, n);
+		final double[] panel = new double[Math.min(KB, k) * nbMax];
+
+		for (int jc = 0; jc < n; jc += NB) {
+			final int nb = Math.min(NB, n - jc);
+			for (int pc = 0; pc < k; pc += KB) {
+				final int kb = Math.min(KB, k - pc);
+
+				// copy B(pc->pc+kb, jc->jc+nb) into a contiguous panel
+				for (int p = 0; p < kb; p++) {
+					System.arraycopy(B[pc + p], jc, panel, p * nb, nb);
+				}
+
+				for (int i = fromRow; i < toRow; i++) {
+					final double[] aRow = A[i];
+					final double[] cRow = C[i];
+					for (int p = 0; p < kb; p++) {
+						final double a = aRow[pc + p];
+						if (a != 0.0) {
+							int index = p * nb;
+							for (int j = jc, end = jc + nb; j < end; j++) {
+								cRow[j] += a * panel[index++];
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import java.util.Arrays;
+
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+
+/**
+ * Collects (row, column, value) triplets in primitive arrays and converts
+ * them into a compressed sparse matrix. This is much faster than setting the
+ * entries of a sparse matrix one by one:
+ * <p>
+ * <code>
+ * SparseDoubleMatrix2DBuilder builder = SparseMatrix.Factory.builder(rows, columns);<br>
+ * builder.add(value, row, column);<br>
+ * CompressedRowSparseDoubleMatrix2D m = builder.csr();
+ * </code>
+ * <p>
+ * The triplets are distributed into their rows with a counting sort. Then
+ * the entries of each row are sorted by column and duplicates are combined,
+ * using several threads for large inputs. Entries which end up 0 are not
+ * stored. The builder keeps its triplets, so more can be added afterwards.
+ *
+ * @author Holger Arndt
+ */
+public class SparseDoubleMatrix2DBuilder {
+
+	/**
+	 * How to combine several values for the same coordinates.
+	 */
+	public enum Combine {
+		/** add all values */
+		SUM {
+			public double combine(double previous, double value) {
+				return previous + value;
+			}
+		},
+		/** keep the largest value */
+		MAX {
+			public double combine(double previous, double value) {
+				return Math.max(previous, value);
+			}
+		},
+		/** keep the value which has been added last */
+		LAST {
+			public double combine(double previous, double value) {
+				return value;
+			}
+		};
+
+		public abstract double combine(double previous, double value);
+	}
+
+	private final int rows;
+
+	private final int columns;
+
+	private Combine combine = Combine.SUM;
+
+	private int[] rowIndices;
+
+	private int[] columnIndices;
+
+	private double[] values;
+
+	private int size = 0;
+
+	public SparseDoubleMatrix2DBuilder(long rows, long columns) {
+		this(rows, columns, 16);
+	}
+
+	public SparseDoubleMatrix2DBuilder(long rows, long columns, int expectedEntries) {
+		this.rows = MathUtil.longToInt(rows);
+		this.columns = MathUtil.longToInt(columns);
+		final int capacity = Math.max(16, expectedEntries);
+		rowIndices = new int[capacity];
+		columnIndices = new int[capacity];
+		values = new double[capacity];
+	}
+
+	public final Combine getCombine() {
+		return combine;
+	}
+
+	/**
+	 * Sets how values for the same coordinates are combined. The default is
+	 * {@link Combine#SUM}.
+	 */
+	public final SparseDoubleMatrix2DBuilder setCombine(Combine combine) {
+		this.combine = combine;
+		return this;
+	}
+
+	/**
+	 * Returns the number of triplets added so far, including duplicates.
+	 */
+	public final int size() {
+		return size;
+	}
+
+	public final void clear() {
+		size = 0;
+	}
+
+	public final SparseDoubleMatrix2DBuilder add(double value, long row, long column) {
+		if (row < 0 || row >= rows || column < 0 || column >= columns) {
+			throw new IllegalArgumentException("coordinates (" + row + "," + column
+					+ ") outside of matrix with size " + rows + "x" + columns);
+		}
+		if (size == values.length) {
+			final int capacity = size + Math.max(16, size >> 1);
+			rowIndices = Arrays.copyOf(rowIndices, capacity);
+			columnIndices = Arrays.copyOf(columnIndices, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		rowIndices[size] = (int) row;
+		columnIndices[size] = (int) column;
+		values[size++] = value;
+		return this;
+	}
+
+	/**
+	 * Adds all triplets from arrays of equal length.
+	 */
+	public final SparseDoubleMatrix2DBuilder add(double[] values, long[] rows, long[] columns) {
+		if (values.length != rows.length || values.length != columns.length) {
+			throw new IllegalArgumentException("arrays must have the same length");
+		}
+		for (int i = 0; i < values.length; i++) {
+			add(values[i], rows[i], columns[i]);
+		}
+		return this;
+	}
+
+	/**
+	 * Creates a matrix in compressed sparse row format.
+	 */
+	public final CompressedRowSparseDoubleMatrix2D csr() {
+		final double[][] v = new double[1][];
+		final int[][] a = compress(true, v);
+		return new CompressedRowSparseDoubleMatrix2D(rows, columns, a[0], a[1], v[0]);
+	}
+
+	/**
+	 * Creates a matrix in compressed sparse column format.
+	 */
+	public final CompressedColumnSparseDoubleMatrix2D csc() {
+		final double[][] v = new double[1][];
+		final int[][] a = compress(false, v);
+		return new CompressedColumnSparseDoubleMatrix2D(rows, columns, a[0], a[1], v[0]);
+	}
+
+	private final int[][] compress(final boolean rowMajor, final double[][] compressedValues) {
+		final int majorCount = rowMajor ? rows : columns;
+		final int[] major = rowMajor ? rowIndices : columnIndices;
+		final int[] minor = rowMajor ? columnIndices : rowIndices;
+
+		// counting sort by major index keeps the order in which entries were
+		// added, which is needed for Combine.LAST
+		final int[] pointers = new int[majorCount + 1];
+		for (int p = 0; p < size; p++) {
+			pointers[major[p] + 1]++;
+		}
+		for (int i = 0; i < majorCount; i++) {
+			pointers[i + 1] += pointers[i];
+		}
+		final int[] idx = new int[size];
+		final double[] val = new double[size];
+		final int[] next = Arrays.copyOf(pointers, majorCount);
+		for (int p = 0; p < size; p++) {
+			final int q = next[major[p]]++;
+			idx[q] = minor[p];
+			val[q] = values[p];
+		}
+
+		final int[] counts = new int[majorCount];
+		final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		final int workers = Math.max(1, Math.min(threads, size
+				/ AbstractCompressedSparseDoubleMatrix2D.PARALLELTHRESHOLD));
+		if (workers < 2) {
+			combine(0, majorCount, pointers, idx, val, counts);
+		} else {
+			final int[] bounds = AbstractCompressedSparseDoubleMatrix2D.balance(pointers,
+					majorCount, workers);
+			new PFor(workers, 0, workers - 1) {
+				@Override
+				public void step(int w) {
+					combine(bounds[w], bounds[w + 1], pointers, idx, val, counts);
+				}
+			};
+		}
+
+		// move the combined entries together
+		int nnz = 0;
+		for (int i = 0; i < majorCount; i++) {
+			System.arraycopy(idx, pointers[i], idx, nnz, counts[i]);
+			System.arraycopy(val, pointers[i], val, nnz, counts[i]);
+			pointers[i] = nnz;
+			nnz += counts[i];
+		}
+		pointers[majorCount] = nnz;
+		compressedValues[0] = nnz == size ? val : Arrays.copyOf(val, nnz);
+		return new int[][] { pointers, nnz == size ? idx : Arrays.copyOf(idx, nnz) };
+	}
+
+	/**
+	 * Sorts the entries of each major vector, combines duplicates and drops
+	 * zeros. The remaining entries start at pointers[i], their number is
+	 * stored in counts[i].
+	 */
+	private final void combine(final int from, final int to, final int[] pointers,
+			final int[] idx, final double[] val, final int[] counts) {
+		final Combine c = combine;
+		for (int i = from; i < to; i++) {
+			final int start = pointers[i];
+			final int end = pointers[i + 1];
+			// stable, equal indices stay in the order they were added
+			AbstractCompressedSparseDoubleMatrix2D.sortEntries(idx, val, start, end);
+			int w = start;
+			int p = start;
+			while (p < end) {
+				final int j = idx[p];
+				double v = val[p++];
+				while (p < end && idx[p] == j) {
+					v = c.combine(v, val[p++]);
+				}
+				if (v != 0.0) {
+					idx[w] = j;
+					val[w++] = v;
+				}
+			}
+			counts[i] = w - start;
+		}
+	}
+
+}
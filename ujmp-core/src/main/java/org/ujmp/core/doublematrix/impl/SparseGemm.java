@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import java.util.Arrays;
+
+import org.ujmp.core.util.concurrent.PFor;
+
+/**
+ * Row-wise product of two sparse matrices in compressed sparse row format
+ * (Gustavson's algorithm). Row i of C is the sum of the rows of B selected by
+ * the entries of row i of A, collected in an accumulator:
+ * <p>
+ * <code>C(i,:) = sum of A(i,k) * B(k,:)</code>
+ * <p>
+ * A symbolic pass counts the entries of every row of C, so that the result
+ * arrays can be allocated with their final size. A numeric pass then computes
+ * the values. Both passes split the rows of A into ranges with about the same
+ * number of multiply-adds, one for each thread. Each thread uses a dense
+ * accumulator with one slot per column of C, or a hash table if C has many
+ * columns.
+ * <p>
+ * Products of compressed sparse column matrices use the same code, since the
+ * arrays of a CSC matrix are the arrays of its transpose in CSR format.
+ *
+ * @author Holger Arndt
+ */
+public class SparseGemm {
+
+	/** maximum number of columns of C for dense accumulators */
+	public static int DENSECOLUMNS = 1 << 16;
+
+	/** minimum number of multiply-adds per thread */
+	public static final long MINWORKPERTHREAD = 1 << 15;
+
+	private SparseGemm() {
+	}
+
+	/**
+	 * Computes C = A * B for matrices in compressed sparse row format. A has
+	 * m rows, B has n columns. Stored zeros of A or B are multiplied like
+	 * other entries, entries of C which cancel out are kept.
+	 * 
+	 * @param threads
+	 *            maximum number of threads
+	 * @param cValues
+	 *            array of length 1 which receives the values of C
+	 * @return row pointers and column indices of C, the column indices of each
+	 *         row are sorted
+	 */
+	public static final int[][] gemm(final int threads, final int m, final int n,
+			final int[] aPointers, final int[] aIndices, final double[] aValues,
+			final int[] bPointers, final int[] bIndices, final double[] bValues,
+			final double[][] cValues) {
+		// multiply-adds up to each row, used for load balancing
+		final long[] work = new long[m + 1];
+		for (int i = 0; i < m; i++) {
+			long w = 0;
+			for (int p = aPointers[i]; p < aPointers[i + 1]; p++) {
+				final int k = aIndices[p];
+				w += bPointers[k + 1] - bPointers[k];
+			}
+			work[i + 1] = work[i] + w;
+		}
+
+		final int workers = (int) Math.max(1,
+				Math.min(Math.min(threads, m), work[m] / MINWORKPERTHREAD));
+		final int[] bounds = balance(work, m, workers);
+		final Accumulator[] accumulators = new Accumulator[workers];
+		for (int w = 0; w < workers; w++) {
+			accumulators[w] = n <= DENSECOLUMNS ? new DenseAccumulator(n)
+					: new HashAccumulator(n);
+		}
+
+		final int[] cPointers = new int[m + 1];
+		if (workers == 1) {
+			symbolic(0, m, work, aPointers, aIndices, bPointers, bIndices, accumulators[0],
+					cPointers);
+		} else {
+			new PFor(workers, 0, workers - 1) {
+				@Override
+				public void step(int w) {
+					symbolic(bounds[w], bounds[w + 1], work, aPointers, aIndices, bPointers,
+							bIndices, accumulators[w], cPointers);
+				}
+			};
+		}
+		for (int i = 0; i < m; i++) {
+			if (cPointers[i + 1] > Integer.MAX_VALUE - cPointers[i]) {
+				throw new IllegalArgumentException("result has too many entries");
+			}
+			cPointers[i + 1] += cPointers[i];
+		}
+
+		final int[] cIndices = new int[cPointers[m]];
+		final double[] cVals = new double[cPointers[m]];
+		if (workers == 1) {
+			numeric(0, m, work, aPointers, aIndices, aValues, bPointers, bIndices, bValues,
+					accumulators[0], cPointers, cIndices, cVals);
+		} else {
+			new PFor(workers, 0, workers - 1) {
+				@Override
+				public void step(int w) {
+					numeric(bounds[w], bounds[w + 1], work, aPointers, aIndices, aValues,
+							bPointers, bIndices, bValues, accumulators[w], cPointers,
+							cIndices, cVals);
+				}
+			};
+		}
+		cValues[0] = cVals;
+		return new int[][] { cPointers, cIndices };
+	}
+
+	/**
+	 * Stores the number of entries of rows from to to of C in
+	 * cPointers[i+1].
+	 */
+	private static final void symbolic(final int from, final int to, final long[] work,
+			final int[] aPointers, final int[] aIndices, final int[] bPointers,
+			final int[] bIndices, final Accumulator acc, final int[] cPointers) {
+		for (int i = from; i < to; i++) {
+			acc.begin(work[i + 1] - work[i]);
+			for (int p = aPointers[i]; p < aPointers[i + 1]; p++) {
+				final int k = aIndices[p];
+				for (int q = bPointers[k]; q < bPointers[k + 1]; q++) {
+					acc.add(bIndices[q], 0.0);
+				}
+			}
+			cPointers[i + 1] = acc.end();
+		}
+	}
+
+	private static final void numeric(final int from, final int to, final long[] work,
+			final int[] aPointers, final int[] aIndices, final double[] aValues,
+			final int[] bPointers, final int[] bIndices, final double[] bValues,
+			final Accumulator acc, final int[] cPointers, final int[] cIndices,
+			final double[] cValues) {
+		for (int i = from; i < to; i++) {
+			acc.begin(work[i + 1] - work[i]);
+			for (int p = aPointers[i]; p < aPointers[i + 1]; p++) {
+				final int k = aIndices[p];
+				final double a = aValues[p];
+				for (int q = bPointers[k]; q < bPointers[k + 1]; q++) {
+					acc.add(bIndices[q], a * bValues[q]);
+				}
+			}
+			acc.drain(cIndices, cValues, cPointers[i]);
+		}
+	}
+
+	/**
+	 * Splits the rows into ranges with about the same amount of work.
+	 */
+	private static final int[] balance(final long[] work, final int m, final int workers) {
+		final int[] bounds = new int[workers + 1];
+		for (int w = 1; w < workers; w++) {
+			final long target = work[m] * w / workers;
+			int i = Arrays.binarySearch(work, 0, m + 1, target);
+			if (i < 0) {
+				i = -i - 1;
+			}
+			bounds[w] = Math.max(bounds[w - 1], Math.min(i, m));
+		}
+		bounds[workers] = m;
+		return bounds;
+	}
+
+	/**
+	 * Collects the entries of one row of C.
+	 */
+	private static abstract class Accumulator {
+
+		/** number of columns added to the current row */
+		protected int count = 0;
+
+		/**
+		 * Starts a new row with at most the given number of additions.
+		 */
+		public abstract void begin(long maxEntries);
+
+		public abstract void add(int column, double value);
+
+		/**
+		 * Finishes the row and returns the number of entries.
+		 */
+		public abstract int end();
+
+		/**
+		 * Writes the entries sorted by column and finishes the row.
+		 */
+		public abstract void drain(int[] indices, double[] values, int pos);
+	}
+
+	/**
+	 * One slot for every column. Columns which are used in the current row are
+	 * marked with the number of the row, so that the slots never have to be
+	 * cleared.
+	 */
+	private static final class DenseAccumulator extends Accumulator {
+
+		private final double[] sums;
+
+		private final int[] marks;
+
+		private final int[] columns;
+
+		private int row = 0;
+
+		public DenseAccumulator(int n) {
+			sums = new double[n];
+			marks = new int[n];
+			columns = new int[n];
+		}
+
+		public final void begin(long maxEntries) {
+			row++;
+			count = 0;
+		}
+
+		public final void add(int column, double value) {
+			if (marks[column] != row) {
+				marks[column] = row;
+				sums[column] = value;
+				columns[count++] = column;
+			} else {
+				sums[column] += value;
+			}
+		}
+
+		public final int end() {
+			return count;
+		}
+
+		public final void drain(int[] indices, double[] values, int pos) {
+			Arrays.sort(columns, 0, count);
+			for (int q = 0; q < count; q++) {
+				final int column = columns[q];
+				indices[pos + q] = column;
+				values[pos + q] = sums[column];
+			}
+		}
+	}
+
+	/**
+	 * Open addressing with linear probing, sized to twice the maximum number
+	 * of entries of the row. Only the used slots are cleared after each row.
+	 */
+	private static final class HashAccumulator extends Accumulator {
+
+		private final int n;
+
+		private int[] keys = new int[0];
+
+		private double[] sums = new double[0];
+
+		private int[] slots = new int[0];
+
+		private int shift = 32;
+
+		public HashAccumulator(int n) {
+			this.n = n;
+		}
+
+		public final void begin(long maxEntries) {
+			count = 0;
+			final int entries = (int) Math.min(maxEntries, n);
+			if (keys.length < 2 * entries) {
+				int capacity = 16;
+				while (capacity < 2 * entries) {
+					capacity <<= 1;
+				}
+				keys = new int[capacity];
+				Arrays.fill(keys, -1);
+				sums = new double[capacity];
+				slots = new int[capacity];
+				shift = 32 - Integer.numberOfTrailingZeros(capacity);
+			}
+		}
+
+		public final void add(int column, double value) {
+			final int mask = keys.length - 1;
+			int h = (column * 0x9E3779B9) >>> shift;
+			while (true) {
+				final int key = keys[h];
+				if (key == column) {
+					sums[h] += value;
+					return;
+				} else if (key == -1) {
+					keys[h] = column;
+					sums[h] = value;
+					slots[count++] = h;
+					return;
+				}
+				h = (h + 1) & mask;
+			}
+		}
+
+		public final int end() {
+			for (int q = 0; q < count; q++) {
+				keys[slots[q]] = -1;
+			}
+			return count;
+		}
+
+		public final void drain(int[] indices, double[] values, int pos) {
+			for (int q = 0; q < count; q++) {
+				final int h = slots[q];
+				indices[pos + q] = keys[h];
+				values[pos + q] = sums[h];
+				keys[h] = -1;
+			}
+			AbstractCompressedSparseDoubleMatrix2D.sortEntries(indices, values, pos, pos + count);
+		}
+	}
+
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import static org.ujmp.core.util.VerifyUtil.verifyTrue;
+
+import org.ujmp.core.doublematrix.impl.BlockMatrixLayout.BlockOrder;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+import org.ujmp.core.util.concurrent.UJMPScheduler;
+
+/**
+ * Strassen-Winograd multiplication C = A x B for {@link BlockDenseDoubleMatrix2D
+ * block matrices}.
+ * <p>
+ * The recursion works on the grid of blocks: every level splits A, B and C
+ * into 2x2 quadrants of blocks and computes the product with 7 instead of 8
+ * multiplications and 15 additions of quadrants. When the quadrants are
+ * smaller than {@link #CUTOFF} rows, the blocks are multiplied classically
+ * with the kernel of {@link BlockMultiply}. The grid is padded with shared
+ * zero blocks to a size that can be halved down to the cutoff.
+ * <p>
+ * All temporary quadrants are allocated once before the recursion starts and
+ * reused for every sub-product on the same level. Only the 7 sub-products of
+ * the top level are computed in parallel, each of them with its own set of
+ * temporaries for the levels below.
+ * <p>
+ * The error bound of Strassen-Winograd is weaker than that of the classic
+ * algorithm (it grows with the depth of the recursion), which is why this is
+ * only used for large matrices and only if
+ * {@link UJMPSettings#isUseStrassenMultiply()} is enabled.
+ *
+ * @author Holger Arndt
+ */
+public class StrassenMultiply {
+
+	/** minimum number of rows and columns of A and B */
+	public static int THRESHOLD = 2048;
+
+	/** maximum number of rows of a sub-product that is computed classically */
+	public static int CUTOFF = 512;
+
+	private final int threads;
+
+	private final int blockStripe;
+
+	private final int blockArea;
+
+	private StrassenMultiply(final int threads, final int blockStripe) {
+		this.threads = threads;
+		this.blockStripe = blockStripe;
+		this.blockArea = blockStripe * blockStripe;
+	}
+
+	/**
+	 * Returns true if Strassen-Winograd multiplication is enabled and the
+	 * matrices are large enough.
+	 */
+	public static final boolean isApplicable(final long rows, final long inner,
+			final long columns) {
+		return UJMPSettings.getInstance().isUseStrassenMultiply()
+				&& Math.min(rows, Math.min(inner, columns)) >= THRESHOLD;
+	}
+
+	/**
+	 * Computes C = A x B using the thread budget of the current thread or
+	 * {@link UJMPSettings#getMaxNumberOfThreads()}. The number of threads in
+	 * UJMPSettings is not used, since it is reset to 1 whenever a
+	 * {@link BlockDenseDoubleMatrix2D} is created.
+	 */
+	public static final void multiply(final BlockDenseDoubleMatrix2D a,
+			final BlockDenseDoubleMatrix2D b, final BlockDenseDoubleMatrix2D c) {
+		final int budget = UJMPScheduler.getThreadBudget();
+		multiply(budget > 0 ? budget : UJMPSettings.getInstance().getMaxNumberOfThreads(), a,
+				b, c);
+	}
+
+	/**
+	 * Computes C = A x B. All matrices must have the same block size. The
+	 * previous content of C is overwritten.
+	 */
+	public static final void multiply(final int threads, final BlockDenseDoubleMatrix2D a,
+			final BlockDenseDoubleMatrix2D b, final BlockDenseDoubleMatrix2D c) {
+		final BlockMatrixLayout al = a.getBlockLayout();
+		final BlockMatrixLayout bl = b.getBlockLayout();
+		final BlockMatrixLayout cl = c.getBlockLayout();
+		verifyTrue(al.columns == bl.rows, "a.columns != b.rows");
+		verifyTrue(al.rows == cl.rows, "a.rows != c.rows");
+		verifyTrue(bl.columns == cl.columns, "b.columns != c.columns");
+		verifyTrue(al.blockStripe == bl.blockStripe && al.blockStripe == cl.blockStripe,
+				"block sizes differ");
+		new StrassenMultiply(Math.max(1, threads), al.blockStripe).run(a, b, c);
+	}
+
+	private final void run(final BlockDenseDoubleMatrix2D a, final BlockDenseDoubleMatrix2D b,
+			final BlockDenseDoubleMatrix2D c) {
+		final int mt = blocks(a.getBlockLayout().rows);
+		final int kt = blocks(a.getBlockLayout().columns);
+		final int nt = blocks(b.getBlockLayout().columns);
+
+		// number of levels until the smallest dimension is below the cutoff
+		final int cutoff = Math.max(1, CUTOFF / blockStripe);
+		int levels = 0;
+		while (ceilDiv(Math.min(mt, Math.min(kt, nt)), 1 << levels) > cutoff) {
+			levels++;
+		}
+
+		final int mp = ceilDiv(mt, 1 << levels) << levels;
+		final int kp = ceilDiv(kt, 1 << levels) << levels;
+		final int np = ceilDiv(nt, 1 << levels) << levels;
+
+		final double[] zero = new double[blockArea];
+		final Grid x = new Grid(mp, kp);
+		final Grid y = new Grid(kp, np);
+		final Grid z = new Grid(mp, np);
+		for (int i = 0; i < mp; i++) {
+			for (int j = 0; j < kp; j++) {
+				x.tiles[i * kp + j] = i < mt && j < kt ? getTile(a, i, j, true) : zero;
+			}
+		}
+		for (int i = 0; i < kp; i++) {
+			for (int j = 0; j < np; j++) {
+				y.tiles[i * np + j] = i < kt && j < nt ? getTile(b, i, j, false) : zero;
+			}
+		}
+		final BlockMatrixLayout cl = c.getBlockLayout();
+		for (int i = 0; i < mp; i++) {
+			for (int j = 0; j < np; j++) {
+				// full blocks of C are written directly if they are row-major
+				if (i < mt && j < nt && cl.blockOrder == BlockOrder.ROWMAJOR
+						&& cl.getBlockSize(i * blockStripe, j * blockStripe) == blockArea) {
+					z.tiles[i * np + j] = c.getBlockData(i * blockStripe, j * blockStripe);
+				} else {
+					z.tiles[i * np + j] = new double[blockArea];
+				}
+			}
+		}
+
+		final Workspace workspace = levels == 0 ? null : new Workspace(mp, kp, np, levels,
+				threads > 1);
+		multiply(x, y, z, workspace);
+
+		for (int i = 0; i < mt; i++) {
+			for (int j = 0; j < nt; j++) {
+				final double[] tile = z.tiles[i * np + j];
+				final double[] block = c.getBlockData(i * blockStripe, j * blockStripe);
+				if (tile != block) {
+					final int rows = cl.getRowsInBlock(i * blockStripe);
+					final int cols = cl.getColumnsInBlock(j * blockStripe);
+					for (int r = 0; r < rows; r++) {
+						for (int s = 0; s < cols; s++) {
+							block[cl.getBlockIndexByRow(r, s, rows, cols)] = tile[r
+									* blockStripe + s];
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private final int blocks(final int size) {
+		return ceilDiv(size, blockStripe);
+	}
+
+	private static final int ceilDiv(final int value, final int divisor) {
+		return (value + divisor - 1) / divisor;
+	}
+
+	// returns a full square block, row-major for A and column-major for B
+	private final double[] getTile(final BlockDenseDoubleMatrix2D m, final int i, final int j,
+			final boolean rowMajor) {
+		final BlockMatrixLayout layout = m.getBlockLayout();
+		final int row = i * blockStripe;
+		final int column = j * blockStripe;
+		final double[] block = rowMajor ? layout.toRowMajorBlock(m, row, column) : layout
+				.toColMajorBlock(m, row, column);
+		if (block.length == blockArea) {
+			return block;
+		}
+		final int rows = layout.getRowsInBlock(row);
+		final int cols = layout.getColumnsInBlock(column);
+		final double[] tile = new double[blockArea];
+		if (rowMajor) {
+			for (int r = 0; r < rows; r++) {
+				System.arraycopy(block, r * cols, tile, r * blockStripe, cols);
+			}
+		} else {
+			for (int s = 0; s < cols; s++) {
+				System.arraycopy(block, s * rows, tile, s * blockStripe, rows);
+			}
+		}
+		return tile;
+	}
+
+	/**
+	 * Computes z = x * y. The workspace holds the temporaries of this level and
+	 * the levels below, or is null if the blocks are multiplied classically.
+	 */
+	private final void multiply(final Grid x, final Grid y, final Grid z, final Workspace w) {
+		if (w == null) {
+			multiplyClassic(x, y, z);
+			return;
+		}
+
+		final Grid x11 = x.quadrant(0, 0), x12 = x.quadrant(0, 1);
+		final Grid x21 = x.quadrant(1, 0), x22 = x.quadrant(1, 1);
+		final Grid y11 = y.quadrant(0, 0), y12 = y.quadrant(0, 1);
+		final Grid y21 = y.quadrant(1, 0), y22 = y.quadrant(1, 1);
+
+		final Grid s1 = w.s[0], s2 = w.s[1], s3 = w.s[2], s4 = w.s[3];
+		final Grid t1 = w.t[0], t2 = w.t[1], t3 = w.t[2], t4 = w.t[3];
+		add(x21, x22, s1, 1.0);
+		add(s1, x11, s2, -1.0);
+		add(x11, x21, s3, -1.0);
+		add(x12, s2, s4, -1.0);
+		add(y12, y11, t1, -1.0);
+		add(y22, t1, t2, -1.0);
+		add(y22, y12, t3, -1.0);
+		add(t2, y21, t4, -1.0);
+
+		final Grid[] left = { x11, x12, s4, x22, s1, s2, s3 };
+		final Grid[] right = { y11, y21, y22, t4, t1, t2, t3 };
+		final Grid[] p = w.p;
+		if (w.parallel) {
+			new PFor(Math.min(threads, 7), 0, 6) {
+				@Override
+				public void step(int i) {
+					multiply(left[i], right[i], p[i], w.children[i]);
+				}
+			};
+		} else {
+			for (int i = 0; i < 7; i++) {
+				multiply(left[i], right[i], p[i], w.children[i]);
+			}
+		}
+
+		// U2 = P1 + P6, U3 = U2 + P7, U4 = U2 + P5
+		add(p[5], p[0], p[5], 1.0);
+		add(p[6], p[5], p[6], 1.0);
+		add(p[5], p[4], p[5], 1.0);
+		// C11 = P1 + P2, C12 = U4 + P3, C21 = U3 - P4, C22 = U3 + P5
+		add(p[0], p[1], z.quadrant(0, 0), 1.0);
+		add(p[5], p[2], z.quadrant(0, 1), 1.0);
+		add(p[6], p[3], z.quadrant(1, 0), -1.0);
+		add(p[6], p[4], z.quadrant(1, 1), 1.0);
+	}
+
+	// target = source1 + factor * source2, factor is 1 or -1
+	private final void add(final Grid source1, final Grid source2, final Grid target,
+			final double factor) {
+		for (int i = 0; i < target.rows; i++) {
+			for (int j = 0; j < target.cols; j++) {
+				final double[] v1 = source1.get(i, j);
+				final double[] v2 = source2.get(i, j);
+				final double[] t = target.get(i, j);
+				if (factor == 1.0) {
+					for (int k = 0; k < blockArea; k++) {
+						t[k] = v1[k] + v2[k];
+					}
+				} else {
+					for (int k = 0; k < blockArea; k++) {
+						t[k] = v1[k] - v2[k];
+					}
+				}
+			}
+		}
+	}
+
+	private final void multiplyClassic(final Grid x, final Grid y, final Grid z) {
+		for (int i = 0; i < z.rows; i++) {
+			for (int j = 0; j < z.cols; j++) {
+				final double[] t = z.get(i, j);
+				for (int k = 0; k < blockArea; k++) {
+					t[k] = 0.0;
+				}
+				for (int k = 0; k < x.cols; k++) {
+					BlockMultiply.multiplyAxB(x.get(i, k), y.get(k, j), t, blockStripe);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A rectangular part of a grid of square blocks.
+	 */
+	final class Grid {
+		private final double[][] tiles;
+
+		private final int stride, offset, rows, cols;
+
+		Grid(final int rows, final int cols) {
+			this(new double[rows * cols][], cols, 0, rows, cols);
+		}
+
+		Grid(final double[][] tiles, final int stride, final int offset, final int rows,
+				final int cols) {
+			this.tiles = tiles;
+			this.stride = stride;
+			this.offset = offset;
+			this.rows = rows;
+			this.cols = cols;
+		}
+
+		final double[] get(final int i, final int j) {
+			return tiles[offset + i * stride + j];
+		}
+
+		final Grid quadrant(final int i, final int j) {
+			final int r = rows / 2;
+			final int c = cols / 2;
+			return new Grid(tiles, stride, offset + i * r * stride + j * c, r, c);
+		}
+
+		final Grid allocate() {
+			for (int i = 0; i < tiles.length; i++) {
+				tiles[i] = new double[blockArea];
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * Temporaries for one level of the recursion and the levels below. Levels
+	 * which are computed serially share one workspace for all 7 sub-products.
+	 */
+	final class Workspace {
+		private final Grid[] s = new Grid[4];
+
+		private final Grid[] t = new Grid[4];
+
+		private final Grid[] p = new Grid[7];
+
+		private final Workspace[] children = new Workspace[7];
+
+		private final boolean parallel;
+
+		Workspace(final int m, final int k, final int n, final int levels,
+				final boolean parallel) {
+			for (int i = 0; i < 4; i++) {
+				s[i] = new Grid(m / 2, k / 2).allocate();
+				t[i] = new Grid(k / 2, n / 2).allocate();
+			}
+			for (int i = 0; i < 7; i++) {
+				p[i] = new Grid(m / 2, n / 2).allocate();
+			}
+			this.parallel = parallel;
+			if (levels > 1) {
+				if (parallel) {
+					for (int i = 0; i < 7; i++) {
+						children[i] = new Workspace(m / 2, k / 2, n / 2, levels - 1, false);
+					}
+				} else {
+					final Workspace child = new Workspace(m / 2, k / 2, n / 2, levels - 1,
+							false);
+					for (int i = 0; i < 7; i++) {
+						children[i] = child;
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -24,13 +24,35 @@
 package org.ujmp.core.floatmatrix.impl;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
 import org.ujmp.core.floatmatrix.stub.AbstractDenseFloatMatrix2D;
 import org.ujmp.core.interfaces.HasFloatArray;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.VerifyUtil;
+import org.ujmp.core.util.concurrent.PForEquidistant;
 
+/**
+ * Dense float matrix stored in a single column-major array. Multiplication,
+ * entrywise operations, reductions and the LU, Cholesky and QR based solvers
+ * work directly on the float array and return float matrices, so that memory
+ * traffic and footprint are half of those of a double matrix.
+ * <p>
+ * Plus, minus, times and divide with a scalar keep the scalar in double and
+ * round each result to float once, so a scalar which cannot be represented
+ * as float is not rounded before the operation. Other entrywise operations
+ * use the generic implementation.
+ */
 public class DefaultDenseFloatMatrix2D extends AbstractDenseFloatMatrix2D implements HasFloatArray {
 	private static final long serialVersionUID = -5449462775185759895L;
 
+	private static final int PLUS = 0;
+
+	private static final int MINUS = 1;
+
+	private static final int TIMES = 2;
+
+	private static final int DIVIDE = 3;
+
 	private final float[] values;
 	private final int rows;
 	private final int cols;
@@ -39,7 +61,14 @@ public class DefaultDenseFloatMatrix2D extends AbstractDenseFloatMatrix2D implem
 		super(rows, columns);
 		this.rows = rows;
 		this.cols = columns;
-		this.values = new float[rows * cols];
+		this.values = new float[MathUtil.longToInt((long) rows * (long) columns)];
+	}
+
+	public DefaultDenseFloatMatrix2D(float[] v, int rows, int columns) {
+		super(rows, columns);
+		this.rows = rows;
+		this.cols = columns;
+		this.values = v;
 	}
 
 	public float getFloat(long row, long column) {
@@ -59,35 +88,309 @@ public class DefaultDenseFloatMatrix2D extends AbstractDenseFloatMatrix2D implem
 	}
 
 	public final Matrix plus(double v) {
-		double[] result = new double[values.length];
-		for (int i = result.length; --i != -1;) {
-			result[i] = values[i] + v;
-		}
-		return new DefaultDenseDoubleMatrix2D(result, rows, cols);
+		return calc(PLUS, null, v);
 	}
 
 	public final Matrix minus(double v) {
-		double[] result = new double[values.length];
-		for (int i = result.length; --i != -1;) {
-			result[i] = values[i] - v;
-		}
-		return new DefaultDenseDoubleMatrix2D(result, rows, cols);
+		return calc(MINUS, null, v);
 	}
 
 	public final Matrix times(double v) {
-		double[] result = new double[values.length];
-		for (int i = result.length; --i != -1;) {
-			result[i] = values[i] * v;
-		}
-		return new DefaultDenseDoubleMatrix2D(result, rows, cols);
+		return calc(TIMES, null, v);
 	}
 
 	public final Matrix divide(double v) {
-		double[] result = new double[values.length];
-		for (int i = result.length; --i != -1;) {
-			result[i] = values[i] / v;
+		return calc(DIVIDE, null, v);
+	}
+
+	public Matrix plus(Matrix m) {
+		if (m instanceof DefaultDenseFloatMatrix2D) {
+			return calc(PLUS, (DefaultDenseFloatMatrix2D) m, 0.0);
+		} else {
+			return super.plus(m);
+		}
+	}
+
+	public Matrix minus(Matrix m) {
+		if (m instanceof DefaultDenseFloatMatrix2D) {
+			return calc(MINUS, (DefaultDenseFloatMatrix2D) m, 0.0);
+		} else {
+			return super.minus(m);
+		}
+	}
+
+	public Matrix times(Matrix m) {
+		if (m instanceof DefaultDenseFloatMatrix2D) {
+			return calc(TIMES, (DefaultDenseFloatMatrix2D) m, 0.0);
+		} else {
+			return super.times(m);
+		}
+	}
+
+	public Matrix divide(Matrix m) {
+		if (m instanceof DefaultDenseFloatMatrix2D) {
+			return calc(DIVIDE, (DefaultDenseFloatMatrix2D) m, 0.0);
+		} else {
+			return super.divide(m);
+		}
+	}
+
+	// entrywise operation with another matrix or, if m is null, with a scalar
+	private final Matrix calc(final int operation, final DefaultDenseFloatMatrix2D m,
+			final double v) {
+		if (m != null) {
+			VerifyUtil.verifySameSize(this, m);
+		}
+		final DefaultDenseFloatMatrix2D result = new DefaultDenseFloatMatrix2D(rows, cols);
+		final float[] source1 = values;
+		final float[] source2 = m == null ? null : m.values;
+		final float[] target = result.values;
+		if (UJMPSettings.getInstance().getNumberOfThreads() > 1 && rows >= 100 && cols >= 100) {
+			new PForEquidistant(0, cols - 1) {
+				public void step(int i) {
+					calc(operation, source1, source2, v, target, i * rows, (i + 1) * rows);
+				}
+			};
+		} else {
+			calc(operation, source1, source2, v, target, 0, target.length);
+		}
+		return result;
+	}
+
+	private static final void calc(final int operation, final float[] source1,
+			final float[] source2, final double v, final float[] target, final int from,
+			final int to) {
+		if (source2 == null) {
+			switch (operation) {
+			case PLUS:
+				for (int i = from; i < to; i++) {
+					target[i] = (float) (source1[i] + v);
+				}
+				break;
+			case MINUS:
+				for (int i = from; i < to; i++) {
+					target[i] = (float) (source1[i] - v);
+				}
+				break;
+			case TIMES:
+				for (int i = from; i < to; i++) {
+					target[i] = (float) (source1[i] * v);
+				}
+				break;
+			default:
+				for (int i = from; i < to; i++) {
+					target[i] = (float) (source1[i] / v);
+				}
+			}
+		} else {
+			switch (operation) {
+			case PLUS:
+				for (int i = from; i < to; i++) {
+					target[i] = source1[i] + source2[i];
+				}
+				break;
+			case MINUS:
+				for (int i = from; i < to; i++) {
+					target[i] = source1[i] - source2[i];
+				}
+				break;
+			case TIMES:
+				for (int i = from; i < to; i++) {
+					target[i] = source1[i] * source2[i];
+				}
+				break;
+			default:
+				for (int i = from; i < to; i++) {
+					target[i] = source1[i] / source2[i];
+				}
+			}
+		}
+	}
+
+	public Matrix mtimes(Matrix m) {
+		if (m instanceof DefaultDenseFloatMatrix2D) {
+			final DefaultDenseFloatMatrix2D m2 = (DefaultDenseFloatMatrix2D) m;
+			VerifyUtil.verifyTrue(cols == m2.rows, "matrices have wrong size");
+			final DefaultDenseFloatMatrix2D result = new DefaultDenseFloatMatrix2D(rows, m2.cols);
+			FloatGemm.gemm(values, rows, cols, m2.values, m2.cols, result.values);
+			return result;
+		} else {
+			return super.mtimes(m);
+		}
+	}
+
+	public double getValueSum() {
+		double sum = 0.0;
+		for (int i = values.length; --i != -1;) {
+			sum += values[i];
+		}
+		return sum;
+	}
+
+	public double getAbsoluteValueSum() {
+		double sum = 0.0;
+		for (int i = values.length; --i != -1;) {
+			sum += Math.abs(values[i]);
+		}
+		return sum;
+	}
+
+	public double getMeanValue() {
+		return getValueSum() / values.length;
+	}
+
+	public double getMaxValue() {
+		if (values.length == 0) {
+			return Double.NaN;
+		}
+		float max = values[0];
+		for (int i = values.length; --i != 0;) {
+			max = values[i] > max ? values[i] : max;
+		}
+		return max;
+	}
+
+	public double getMinValue() {
+		if (values.length == 0) {
+			return Double.NaN;
+		}
+		float min = values[0];
+		for (int i = values.length; --i != 0;) {
+			min = values[i] < min ? values[i] : min;
+		}
+		return min;
+	}
+
+	public double norm1() {
+		double max = 0.0;
+		for (int c = 0; c < cols; c++) {
+			double sum = 0.0;
+			for (int i = c * rows, end = i + rows; i < end; i++) {
+				sum += Math.abs(values[i]);
+			}
+			max = Math.max(max, sum);
+		}
+		return max;
+	}
+
+	public double normInf() {
+		final double[] sums = new double[rows];
+		for (int c = 0; c < cols; c++) {
+			for (int r = 0, i = c * rows; r < rows; r++, i++) {
+				sums[r] += Math.abs(values[i]);
+			}
+		}
+		double max = 0.0;
+		for (int r = 0; r < rows; r++) {
+			max = Math.max(max, sums[r]);
+		}
+		return max;
+	}
+
+	public double normF() {
+		// accumulate in double, which cannot overflow for float values
+		double sum = 0.0;
+		for (int i = values.length; --i != -1;) {
+			final double v = values[i];
+			sum += v * v;
+		}
+		return Math.sqrt(sum);
+	}
+
+	public double det() {
+		VerifyUtil.verifyTrue(rows == cols, "only supported for square matrices");
+		return new FloatLU(copyOfValues(), rows, cols).det();
+	}
+
+	public Matrix[] lu() {
+		final FloatLU lu = new FloatLU(copyOfValues(), rows, cols);
+		final int min = Math.min(rows, cols);
+		final int[] piv = lu.getPivot();
+		final DefaultDenseFloatMatrix2D p = new DefaultDenseFloatMatrix2D(rows, rows);
+		for (int i = 0; i < rows; i++) {
+			p.setFloat(1.0f, i, piv[i]);
+		}
+		return new Matrix[] { new DefaultDenseFloatMatrix2D(lu.getL(), rows, min),
+				new DefaultDenseFloatMatrix2D(lu.getU(), min, cols), p };
+	}
+
+	public Matrix[] qr() {
+		if (rows < cols) {
+			return super.qr();
+		}
+		final FloatQR qr = new FloatQR(copyOfValues(), rows, cols);
+		return new Matrix[] { new DefaultDenseFloatMatrix2D(qr.getQ(), rows, cols),
+				new DefaultDenseFloatMatrix2D(qr.getR(), cols, cols) };
+	}
+
+	public Matrix chol() {
+		VerifyUtil.verifyTrue(rows == cols, "only supported for square matrices");
+		final FloatChol chol = new FloatChol(copyOfValues(), rows);
+		return new DefaultDenseFloatMatrix2D(chol.getL(), rows, cols);
+	}
+
+	public Matrix inv() {
+		VerifyUtil.verifyTrue(rows == cols, "only supported for square matrices");
+		final FloatLU lu = new FloatLU(copyOfValues(), rows, cols);
+		return new DefaultDenseFloatMatrix2D(lu.solve(identity(rows), rows), rows, cols);
+	}
+
+	public Matrix invSPD() {
+		VerifyUtil.verifyTrue(rows == cols, "only supported for square matrices");
+		final FloatChol chol = new FloatChol(copyOfValues(), rows);
+		return new DefaultDenseFloatMatrix2D(chol.solve(identity(rows), rows), rows, cols);
+	}
+
+	public Matrix solve(Matrix b) {
+		VerifyUtil.verifyTrue(b.getRowCount() == rows, "matrices have wrong size");
+		final int nrhs = MathUtil.longToInt(b.getColumnCount());
+		if (rows == cols) {
+			final FloatLU lu = new FloatLU(copyOfValues(), rows, cols);
+			return new DefaultDenseFloatMatrix2D(lu.solve(toFloatArray(b), nrhs), cols, nrhs);
+		} else if (rows > cols) {
+			final FloatQR qr = new FloatQR(copyOfValues(), rows, cols);
+			return new DefaultDenseFloatMatrix2D(qr.solve(toFloatArray(b), nrhs), cols, nrhs);
+		} else {
+			return super.solve(b);
+		}
+	}
+
+	public Matrix solveSPD(Matrix b) {
+		VerifyUtil.verifyTrue(rows == cols, "only supported for square matrices");
+		VerifyUtil.verifyTrue(b.getRowCount() == rows, "matrices have wrong size");
+		final int nrhs = MathUtil.longToInt(b.getColumnCount());
+		final FloatChol chol = new FloatChol(copyOfValues(), rows);
+		return new DefaultDenseFloatMatrix2D(chol.solve(toFloatArray(b), nrhs), rows, nrhs);
+	}
+
+	private final float[] copyOfValues() {
+		final float[] copy = new float[values.length];
+		System.arraycopy(values, 0, copy, 0, values.length);
+		return copy;
+	}
+
+	private static final float[] identity(final int n) {
+		final float[] eye = new float[n * n];
+		for (int i = 0; i < n; i++) {
+			eye[i * n + i] = 1.0f;
+		}
+		return eye;
+	}
+
+	// column-major copy of any 2D matrix
+	private static final float[] toFloatArray(final Matrix m) {
+		if (m instanceof DefaultDenseFloatMatrix2D) {
+			return ((DefaultDenseFloatMatrix2D) m).copyOfValues();
+		}
+		final int r = MathUtil.longToInt(m.getRowCount());
+		final int c = MathUtil.longToInt(m.getColumnCount());
+		final float[] result = new float[r * c];
+		for (int j = 0; j < c; j++) {
+			for (int i = 0; i < r; i++) {
+				result[j * r + i] = m.getAsFloat(i, j);
+			}
 		}
-		return new DefaultDenseDoubleMatrix2D(result, rows, cols);
+		return result;
 	}
 
 	public final Matrix copy() {
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.floatmatrix.impl;
+
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+
+/**
+ * Cholesky decomposition A = L * L' for symmetric positive definite matrices
+ * stored as column-major float arrays. Only the lower triangle of A is read.
+ * <p>
+ * Like {@link FloatLU}, the factorization proceeds in panels of NB columns and
+ * updates the trailing submatrix with {@link FloatGemm}. The update is done
+ * block column by block column so that only the lower triangle is computed.
+ *
+ * @author Holger Arndt
+ */
+public class FloatChol {
+
+	/** number of columns in a panel */
+	public static final int NB = 64;
+
+	private final float[] l;
+
+	private final int n;
+
+	private final boolean spd;
+
+	/**
+	 * Factorizes the n x n matrix stored in a. The lower triangle of the array
+	 * is overwritten with L.
+	 */
+	public FloatChol(final float[] a, final int n) {
+		this.l = a;
+		this.n = n;
+		this.spd = factor();
+	}
+
+	private final boolean factor() {
+		for (int jb = 0; jb < n; jb += NB) {
+			final int nb = Math.min(NB, n - jb);
+			final int je = jb + nb;
+
+			// factor the panel, columns are updated from the left within the
+			// panel
+			for (int j = jb; j < je; j++) {
+				final int col = j * n;
+				for (int k = jb; k < j; k++) {
+					final int kcol = k * n;
+					final float f = l[kcol + j];
+					if (f != 0.0f) {
+						for (int i = j; i < n; i++) {
+							l[col + i] -= l[kcol + i] * f;
+						}
+					}
+				}
+				final float d = l[col + j];
+				if (!(d > 0.0f)) {
+					return false;
+				}
+				final float s = (float) Math.sqrt(d);
+				l[col + j] = s;
+				for (int i = j + 1; i < n; i++) {
+					l[col + i] /= s;
+				}
+			}
+
+			// A22 = A22 - L21 * L21', lower triangle only
+			for (int cb = je; cb < n; cb += NB) {
+				final int w = Math.min(NB, n - cb);
+				FloatGemm.gemm(false, true, n - cb, w, nb, -1.0f, l, jb * n + cb, n, l, jb * n
+						+ cb, n, 1.0f, l, cb * n + cb, n);
+			}
+		}
+		return true;
+	}
+
+	public final boolean isSPD() {
+		return spd;
+	}
+
+	/**
+	 * Returns the lower triangular factor L.
+	 */
+	public final float[] getL() {
+		final float[] L = new float[n * n];
+		for (int j = 0; j < n; j++) {
+			System.arraycopy(l, j * n + j, L, j * n + j, n - j);
+		}
+		return L;
+	}
+
+	/**
+	 * Solves A * X = B.
+	 *
+	 * @param B
+	 *            - column-major right hand side with n rows
+	 * @param nrhs
+	 *            - number of columns of B
+	 * @return X in column-major order
+	 */
+	public final float[] solve(final float[] B, final int nrhs) {
+		if (!spd) {
+			throw new RuntimeException("Matrix is not symmetric positive definite.");
+		}
+		final float[] X = new float[n * nrhs];
+		System.arraycopy(B, 0, X, 0, n * nrhs);
+
+		final long work = (long) n * (long) n * (long) nrhs;
+		final int threads = (int) Math.max(1, Math.min(UJMPSettings.getInstance()
+				.getNumberOfThreads(), work / FloatLU.MINWORKPERTHREAD));
+		if (threads < 2) {
+			for (int c = 0; c < nrhs; c++) {
+				substitute(X, c * n);
+			}
+		} else {
+			new PFor(threads, 0, nrhs - 1) {
+				@Override
+				public void step(int c) {
+					substitute(X, c * n);
+				}
+			};
+		}
+		return X;
+	}
+
+	private final void substitute(final float[] X, final int col) {
+		// solve L * Y = B
+		for (int k = 0; k < n; k++) {
+			final int lcol = k * n;
+			final float y = (X[col + k] /= l[lcol + k]);
+			if (y != 0.0f) {
+				for (int i = k + 1; i < n; i++) {
+					X[col + i] -= l[lcol + i] * y;
+				}
+			}
+		}
+		// solve L' * X = Y
+		for (int k = n - 1; k >= 0; k--) {
+			final int lcol = k * n;
+			float s = X[col + k];
+			for (int i = k + 1; i < n; i++) {
+				s -= l[lcol + i] * X[col + i];
+			}
+			X[col + k] = s / l[lcol + k];
+		}
+	}
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.floatmatrix.impl;
+
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+
+/**
+ * LU decomposition with partial pivoting for column-major float arrays.
+ * <p>
+ * The factorization is computed in place in panels of NB columns: each panel
+ * is factored column by column, the corresponding block row of U is obtained
+ * by a triangular solve, and the remaining submatrix is updated with a single
+ * call to {@link FloatGemm}, which does most of the work and runs in parallel.
+ *
+ * @author Holger Arndt
+ */
+public class FloatLU {
+
+	/** number of columns in a panel */
+	public static final int NB = 64;
+
+	/** minimum number of multiply-adds per thread when solving */
+	public static final long MINWORKPERTHREAD = 64 * 64 * 64;
+
+	private final float[] lu;
+
+	private final int m, n;
+
+	private final int[] piv;
+
+	private int pivsign = 1;
+
+	/**
+	 * Factorizes the m x n matrix stored in a. The array is overwritten with L
+	 * and U.
+	 */
+	public FloatLU(final float[] a, final int m, final int n) {
+		this.lu = a;
+		this.m = m;
+		this.n = n;
+		this.piv = new int[m];
+		for (int i = 0; i < m; i++) {
+			piv[i] = i;
+		}
+
+		final int min = Math.min(m, n);
+		for (int jb = 0; jb < min; jb += NB) {
+			final int nb = Math.min(NB, min - jb);
+			final int je = jb + nb;
+
+			factorPanel(jb, je);
+
+			final int rest = n - je;
+			if (rest > 0) {
+				// U12 = L11^-1 * A12
+				for (int c = je; c < n; c++) {
+					final int col = c * m;
+					for (int j = jb; j < je; j++) {
+						final float f = lu[col + j];
+						if (f != 0.0f) {
+							final int lcol = j * m;
+							for (int i = j + 1; i < je; i++) {
+								lu[col + i] -= lu[lcol + i] * f;
+							}
+						}
+					}
+				}
+				// A22 = A22 - L21 * U12
+				if (m > je) {
+					FloatGemm.gemm(false, false, m - je, rest, nb, -1.0f, lu, jb * m + je, m, lu,
+							je * m + jb, m, 1.0f, lu, je * m + je, m);
+				}
+			}
+		}
+	}
+
+	private final void factorPanel(final int jb, final int je) {
+		for (int j = jb; j < je; j++) {
+			final int col = j * m;
+
+			int p = j;
+			float max = Math.abs(lu[col + j]);
+			for (int i = j + 1; i < m; i++) {
+				final float v = Math.abs(lu[col + i]);
+				if (v > max) {
+					max = v;
+					p = i;
+				}
+			}
+			if (p != j) {
+				for (int c = 0; c < n; c++) {
+					final int index = c * m;
+					final float t = lu[index + p];
+					lu[index + p] = lu[index + j];
+					lu[index + j] = t;
+				}
+				final int t = piv[p];
+				piv[p] = piv[j];
+				piv[j] = t;
+				pivsign = -pivsign;
+			}
+
+			final float d = lu[col + j];
+			if (d != 0.0f) {
+				for (int i = j + 1; i < m; i++) {
+					lu[col + i] /= d;
+				}
+			}
+
+			for (int c = j + 1; c < je; c++) {
+				final int index = c * m;
+				final float f = lu[index + j];
+				if (f != 0.0f) {
+					for (int i = j + 1; i < m; i++) {
+						lu[index + i] -= lu[col + i] * f;
+					}
+				}
+			}
+		}
+	}
+
+	public final boolean isNonsingular() {
+		for (int j = 0; j < n; j++) {
+			if (lu[j * m + j] == 0.0f) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public final double det() {
+		if (m != n) {
+			throw new IllegalArgumentException("Matrix must be square.");
+		}
+		double d = pivsign;
+		for (int j = 0; j < n; j++) {
+			d *= lu[j * m + j];
+		}
+		return d;
+	}
+
+	public final int[] getPivot() {
+		final int[] p = new int[m];
+		System.arraycopy(piv, 0, p, 0, m);
+		return p;
+	}
+
+	/**
+	 * Returns the unit lower triangular factor (m x min(m,n)).
+	 */
+	public final float[] getL() {
+		final int min = Math.min(m, n);
+		final float[] L = new float[m * min];
+		for (int j = 0; j < min; j++) {
+			L[j * m + j] = 1.0f;
+			System.arraycopy(lu, j * m + j + 1, L, j * m + j + 1, m - j - 1);
+		}
+		return L;
+	}
+
+	/**
+	 * Returns the upper triangular factor (min(m,n) x n).
+	 */
+	public final float[] getU() {
+		final int min = Math.min(m, n);
+		final float[] U = new float[min * n];
+		for (int j = 0; j < n; j++) {
+			System.arraycopy(lu, j * m, U, j * min, Math.min(j + 1, min));
+		}
+		return U;
+	}
+
+	/**
+	 * Solves A * X = B for a square matrix A.
+	 *
+	 * @param B
+	 *            - column-major right hand side with n rows
+	 * @param nrhs
+	 *            - number of columns of B
+	 * @return X in column-major order
+	 */
+	public final float[] solve(final float[] B, final int nrhs) {
+		if (m != n) {
+			throw new IllegalArgumentException("Matrix must be square.");
+		}
+		if (!isNonsingular()) {
+			throw new RuntimeException("Matrix is singular.");
+		}
+
+		final float[] X = new float[n * nrhs];
+		for (int c = 0; c < nrhs; c++) {
+			final int col = c * n;
+			for (int r = 0; r < n; r++) {
+				X[col + r] = B[col + piv[r]];
+			}
+		}
+
+		final long work = (long) n * (long) n * (long) nrhs;
+		final int threads = (int) Math.max(1,
+				Math.min(UJMPSettings.getInstance().getNumberOfThreads(), work / MINWORKPERTHREAD));
+		if (threads < 2) {
+			for (int c = 0; c < nrhs; c++) {
+				substitute(X, c * n);
+			}
+		} else {
+			new PFor(threads, 0, nrhs - 1) {
+				@Override
+				public void step(int c) {
+					substitute(X, c * n);
+				}
+			};
+		}
+		return X;
+	}
+
+	private final void substitute(final float[] X, final int col) {
+		// solve L * Y = B(piv,:)
+		for (int k = 0; k < n; k++) {
+			final float x = X[col + k];
+			if (x != 0.0f) {
+				final int lcol = k * n;
+				for (int i = k + 1; i < n; i++) {
+					X[col + i] -= lu[lcol + i] * x;
+				}
+			}
+		}
+		// solve U * X = Y
+		for (int k = n - 1; k >= 0; k--) {
+			final int ucol = k * n;
+			final float x = (X[col + k] /= lu[ucol + k]);
+			if (x != 0.0f) {
+				for (int i = 0; i < k; i++) {
+					X[col + i] -= lu[ucol + i] * x;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.floatmatrix.impl;
+
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+
+/**
+ * Householder QR decomposition of an m x n column-major float array with m
+ * &gt;= n. The Householder vectors are stored below the diagonal, so that every
+ * reflection is applied to whole contiguous columns. The columns to the right
+ * of the current one are updated in parallel for large matrices.
+ *
+ * @author Holger Arndt
+ */
+public class FloatQR {
+
+	/** minimum number of multiply-adds per thread */
+	public static final long MINWORKPERTHREAD = 64 * 64 * 64;
+
+	private final float[] qr;
+
+	private final float[] rdiag;
+
+	private final int m, n;
+
+	/**
+	 * Factorizes the m x n matrix stored in a. The array is overwritten with
+	 * the Householder vectors and R.
+	 */
+	public FloatQR(final float[] a, final int m, final int n) {
+		if (m < n) {
+			throw new IllegalArgumentException("Matrix must not have more columns than rows.");
+		}
+		this.qr = a;
+		this.m = m;
+		this.n = n;
+		this.rdiag = new float[n];
+
+		final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		for (int k = 0; k < n; k++) {
+			final int kcol = k * m;
+			double sum = 0.0;
+			for (int i = k; i < m; i++) {
+				final double v = qr[kcol + i];
+				sum += v * v;
+			}
+			float nrm = (float) Math.sqrt(sum);
+
+			if (nrm != 0.0f) {
+				if (qr[kcol + k] < 0) {
+					nrm = -nrm;
+				}
+				for (int i = k; i < m; i++) {
+					qr[kcol + i] /= nrm;
+				}
+				qr[kcol + k] += 1.0f;
+
+				final int kk = k;
+				final int rest = n - k - 1;
+				final long work = (long) (m - k) * (long) rest;
+				final int workers = (int) Math.max(1,
+						Math.min(threads, Math.min(rest, work / MINWORKPERTHREAD)));
+				if (workers < 2) {
+					for (int j = k + 1; j < n; j++) {
+						reflect(kk, qr, j * m);
+					}
+				} else {
+					new PFor(workers, k + 1, n - 1) {
+						@Override
+						public void step(int j) {
+							reflect(kk, qr, j * m);
+						}
+					};
+				}
+			}
+			rdiag[k] = -nrm;
+		}
+	}
+
+	// applies the k-th reflection to the column starting at index col of x
+	private final void reflect(final int k, final float[] x, final int col) {
+		final int kcol = k * m;
+		float s = 0.0f;
+		for (int i = k; i < m; i++) {
+			s += qr[kcol + i] * x[col + i];
+		}
+		s = -s / qr[kcol + k];
+		for (int i = k; i < m; i++) {
+			x[col + i] += s * qr[kcol + i];
+		}
+	}
+
+	public final boolean isFullRank() {
+		for (int j = 0; j < n; j++) {
+			if (rdiag[j] == 0.0f) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the upper triangular factor R (n x n).
+	 */
+	public final float[] getR() {
+		final float[] R = new float[n * n];
+		for (int j = 0; j < n; j++) {
+			System.arraycopy(qr, j * m, R, j * n, j);
+			R[j * n + j] = rdiag[j];
+		}
+		return R;
+	}
+
+	/**
+	 * Returns the economy-sized orthogonal factor Q (m x n).
+	 */
+	public final float[] getQ() {
+		final float[] Q = new float[m * n];
+		for (int k = n - 1; k >= 0; k--) {
+			Q[k * m + k] = 1.0f;
+			for (int j = k; j < n; j++) {
+				if (qr[k * m + k] != 0.0f) {
+					reflect(k, Q, j * m);
+				}
+			}
+		}
+		return Q;
+	}
+
+	/**
+	 * Least squares solution of A * X = B.
+	 *
+	 * @param B
+	 *            - column-major right hand side with m rows
+	 * @param nrhs
+	 *            - number of columns of B
+	 * @return X (n x nrhs) in column-major order
+	 */
+	public final float[] solve(final float[] B, final int nrhs) {
+		if (!isFullRank()) {
+			throw new RuntimeException("Matrix is rank deficient.");
+		}
+		final float[] Y = new float[m * nrhs];
+		System.arraycopy(B, 0, Y, 0, m * nrhs);
+		final float[] X = new float[n * nrhs];
+		for (int c = 0; c < nrhs; c++) {
+			final int col = c * m;
+			// Y = Q' * B
+			for (int k = 0; k < n; k++) {
+				reflect(k, Y, col);
+			}
+			// solve R * X = Y
+			final int xcol = c * n;
+			System.arraycopy(Y, col, X, xcol, n);
+			for (int k = n - 1; k >= 0; k--) {
+				final float x = (X[xcol + k] /= rdiag[k]);
+				final int kcol = k * m;
+				for (int i = 0; i < k; i++) {
+					X[xcol + i] -= x * qr[kcol + i];
+				}
+			}
+		}
+		return X;
+	}
+
+}
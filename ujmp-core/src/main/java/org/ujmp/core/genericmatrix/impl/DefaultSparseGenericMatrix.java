@@ -23,20 +23,47 @@
 
 package org.ujmp.core.genericmatrix.impl;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
+import org.ujmp.core.collections.map.AbstractLongKeyHashMap;
+import org.ujmp.core.collections.map.LongDoubleHashMap;
+import org.ujmp.core.collections.map.LongObjectHashMap;
 import org.ujmp.core.enums.ValueType;
 import org.ujmp.core.genericmatrix.stub.AbstractSparseGenericMatrix;
 import org.ujmp.core.util.CoordinateSetToLongWrapper;
 import org.ujmp.core.util.MathUtil;
 
+/**
+ * Sparse matrix which stores its values in a hash map. Matrices with two or
+ * three dimensions store their values by the packed index of the coordinates
+ * in a map with primitive keys, so that reading and writing does not create
+ * any objects. Values of double matrices are then stored without boxing.
+ * Larger matrices use a map with {@link Coordinates} as keys.
+ */
 public class DefaultSparseGenericMatrix<A> extends AbstractSparseGenericMatrix<A> {
 	private static final long serialVersionUID = -7139128532871448340L;
 
-	protected final Map<Coordinates, A> values = new HashMap<Coordinates, A>();
+	/**
+	 * values by packed index for all value types except double, see
+	 * {@link Coordinates#toPackedIndex(long[], long...)}
+	 */
+	protected LongObjectHashMap<A> objects = null;
+
+	/** values by packed index for double matrices */
+	protected LongDoubleHashMap doubles = null;
+
+	/**
+	 * values of matrices which cannot be packed, only one of the three maps is
+	 * used
+	 */
+	protected Map<Coordinates, A> values = null;
 
 	private int maximumNumberOfEntries = -1;
 
@@ -46,7 +73,9 @@ public class DefaultSparseGenericMatrix<A> extends AbstractSparseGenericMatrix<A
 
 	public DefaultSparseGenericMatrix(Matrix m, int maximumNumberOfEntries) {
 		super(m.getSize());
+		this.size = Coordinates.copyOf(m.getSize());
 		this.maximumNumberOfEntries = maximumNumberOfEntries;
+		createStore();
 		for (long[] c : m.availableCoordinates()) {
 			setObject(m.getAsObject(c), c);
 		}
@@ -58,52 +87,236 @@ public class DefaultSparseGenericMatrix<A> extends AbstractSparseGenericMatrix<A
 	public DefaultSparseGenericMatrix(long... size) {
 		super(size);
 		this.size = Coordinates.copyOf(size);
+		createStore();
+	}
+
+	private final void createStore() {
+		objects = null;
+		doubles = null;
+		values = null;
+		if (!Coordinates.isPackable(size)) {
+			values = new HashMap<Coordinates, A>();
+		} else if (getValueType() == ValueType.DOUBLE) {
+			doubles = new LongDoubleHashMap();
+		} else {
+			objects = new LongObjectHashMap<A>();
+		}
 	}
 
+	/**
+	 * Changes the size of the matrix. Growing does not touch the entries,
+	 * entries outside of a smaller size are removed. If the number of
+	 * dimensions changes, new dimensions get the coordinate 0, and entries
+	 * with a coordinate other than 0 in a removed dimension lie outside of the
+	 * new size.
+	 */
 	public void setSize(long... size) {
-		this.size = size;
+		final long[] oldSize = this.size;
+		final boolean packed = values == null;
+		if (size.length == oldSize.length && Coordinates.isPackable(size) == packed) {
+			// the keys do not depend on the size
+			this.size = Coordinates.copyOf(size);
+			if (!Coordinates.isSmallerOrEqual(oldSize, size)) {
+				removeOutside();
+			}
+			return;
+		}
+
+		final List<long[]> coordinates = new ArrayList<long[]>();
+		final List<Object> entries = new ArrayList<Object>();
+		for (long[] c : availableCoordinates()) {
+			coordinates.add(c);
+			entries.add(getObject(c));
+		}
+		this.size = Coordinates.copyOf(size);
+		createStore();
+		for (int i = 0; i < coordinates.size(); i++) {
+			final long[] c = resize(coordinates.get(i), size.length);
+			if (c != null) {
+				setObject(entries.get(i), c);
+			}
+		}
 	}
 
+	// converts coordinates to another number of dimensions, null if they are
+	// outside
+	private static final long[] resize(final long[] coordinates, final int dimensionCount) {
+		for (int i = dimensionCount; i < coordinates.length; i++) {
+			if (coordinates[i] != 0) {
+				return null;
+			}
+		}
+		final long[] result = new long[dimensionCount];
+		System.arraycopy(coordinates, 0, result, 0, Math.min(dimensionCount,
+				coordinates.length));
+		return result;
+	}
+
+	private final void removeOutside() {
+		if (values != null) {
+			final Iterator<Coordinates> it = values.keySet().iterator();
+			while (it.hasNext()) {
+				if (!Coordinates.isSmallerThan(it.next().getLongCoordinates(), size)) {
+					it.remove();
+				}
+			}
+			return;
+		}
+		final AbstractLongKeyHashMap map = objects != null ? objects : doubles;
+		for (long index : map.keys(false)) {
+			final long[] c = Coordinates.fromPackedIndex(size.length, index);
+			if (!Coordinates.isSmallerThan(c, size)) {
+				if (objects != null) {
+					objects.remove(index);
+				} else {
+					doubles.remove(index);
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
 	public A getObject(long... coordinates) {
-		return values.get(Coordinates.wrap(coordinates));
+		if (values != null) {
+			return values.get(Coordinates.wrap(coordinates));
+		}
+		final long index = Coordinates.toPackedIndex(size, coordinates);
+		if (index < 0) {
+			return null;
+		} else if (objects != null) {
+			return objects.get(index);
+		} else if (doubles.containsKey(index)) {
+			return (A) Double.valueOf(doubles.get(index));
+		} else {
+			return null;
+		}
 	}
 
 	public long getValueCount() {
-		return values.size();
+		return values != null ? values.size() : objects != null ? objects.size() : doubles
+				.size();
 	}
 
 	@SuppressWarnings("unchecked")
 	public void setObject(Object value, long... coordinates) {
-		if (MathUtil.isNull(value)) {
+		if (doubles != null) {
+			setAsDouble(MathUtil.getDouble(value), coordinates);
+		} else if (MathUtil.isNull(value)) {
+			remove(coordinates);
+		} else if (Coordinates.isSmallerThan(coordinates, size)) {
+			removeEldest();
+			if (values != null) {
+				values.put(Coordinates.wrap(coordinates).clone(), (A) value);
+			} else {
+				final long index = Coordinates.toPackedIndex(size, coordinates);
+				if (index >= 0) {
+					objects.put(index, (A) value);
+				}
+			}
+		}
+	}
+
+	private final void remove(long... coordinates) {
+		if (values != null) {
 			values.remove(Coordinates.wrap(coordinates));
 		} else {
-			while (maximumNumberOfEntries > 0 && values.size() > maximumNumberOfEntries) {
-				values.remove(values.keySet().iterator().next());
-			}
-			if (Coordinates.isSmallerThan(coordinates, size)) {
-				if (MathUtil.isNull(value)) {
-					values.remove(Coordinates.wrap(coordinates));
+			final long index = Coordinates.toPackedIndex(size, coordinates);
+			if (index >= 0) {
+				if (objects != null) {
+					objects.remove(index);
 				} else {
-					values.put(Coordinates.wrap(coordinates).clone(), (A) value);
+					doubles.remove(index);
 				}
 			}
 		}
 	}
 
+	private final void removeEldest() {
+		while (maximumNumberOfEntries > 0 && getValueCount() > maximumNumberOfEntries) {
+			if (values != null) {
+				values.remove(values.keySet().iterator().next());
+			} else if (objects != null) {
+				objects.remove(objects.anyKey());
+			} else {
+				doubles.remove(doubles.anyKey());
+			}
+		}
+	}
+
 	public Iterable<long[]> availableCoordinates() {
-		return new CoordinateSetToLongWrapper(values.keySet());
+		return availableCoordinates(false);
+	}
+
+	/**
+	 * Returns the coordinates of all stored values.
+	 * 
+	 * @param sorted
+	 *            return the coordinates in lexicographic order. This is only
+	 *            supported by matrices with packed indices.
+	 */
+	public Iterable<long[]> availableCoordinates(final boolean sorted) {
+		if (values != null) {
+			return new CoordinateSetToLongWrapper(values.keySet());
+		}
+		final long[] indices = objects != null ? objects.keys(sorted) : doubles.keys(sorted);
+		final int dimensionCount = size.length;
+		return new Iterable<long[]>() {
+
+			public Iterator<long[]> iterator() {
+				return new Iterator<long[]>() {
+					private int i = 0;
+
+					public boolean hasNext() {
+						return i < indices.length;
+					}
+
+					public long[] next() {
+						if (i >= indices.length) {
+							throw new NoSuchElementException();
+						}
+						return Coordinates.fromPackedIndex(dimensionCount, indices[i++]);
+					}
+
+					public void remove() {
+						DefaultSparseGenericMatrix.this.remove(Coordinates.fromPackedIndex(
+								dimensionCount, indices[i - 1]));
+					}
+				};
+			}
+		};
 	}
 
 	public boolean containsCoordinates(long... coordinates) {
-		return values.containsKey(Coordinates.wrap(coordinates).clone());
+		if (values != null) {
+			return values.containsKey(Coordinates.wrap(coordinates));
+		}
+		final long index = Coordinates.toPackedIndex(size, coordinates);
+		return index >= 0 && (objects != null ? objects.containsKey(index) : doubles
+				.containsKey(index));
 	}
 
 	public double getAsDouble(long... coordinates) {
+		if (doubles != null) {
+			final long index = Coordinates.toPackedIndex(size, coordinates);
+			return index < 0 ? 0.0 : doubles.get(index);
+		}
 		return MathUtil.getDouble(getObject(coordinates));
 	}
 
 	public void setAsDouble(double value, long... coordinates) {
-		setObject(value, coordinates);
+		if (doubles != null) {
+			final long index = Coordinates.toPackedIndex(size, coordinates);
+			if (index < 0) {
+				return;
+			} else if (value == 0.0) {
+				doubles.remove(index);
+			} else {
+				removeEldest();
+				doubles.put(index, value);
+			}
+		} else {
+			setObject(value, coordinates);
+		}
 	}
 
 	public ValueType getValueType() {
@@ -111,7 +324,7 @@ public class DefaultSparseGenericMatrix<A> extends AbstractSparseGenericMatrix<A
 	}
 
 	public final void clear() {
-		values.clear();
+		createStore();
 	}
 
 }
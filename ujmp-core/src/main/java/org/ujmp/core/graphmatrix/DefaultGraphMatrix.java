@@ -30,10 +30,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.ujmp.core.Coordinates;
 import org.ujmp.core.collections.list.ArrayIndexList;
+import org.ujmp.core.collections.map.LongObjectHashMap;
 import org.ujmp.core.enums.ValueType;
-import org.ujmp.core.util.CoordinateSetToLongWrapper;
 
 public class DefaultGraphMatrix<N, E> extends AbstractGraphMatrix<N, E> {
 	private static final long serialVersionUID = -6103776352324576412L;
@@ -42,7 +41,8 @@ public class DefaultGraphMatrix<N, E> extends AbstractGraphMatrix<N, E> {
 
 	private final List<N> nodes = new ArrayIndexList<N>();
 
-	private final Map<Coordinates, E> edges = new HashMap<Coordinates, E>();
+	/** edges by (nodeIndex1 << 32) | nodeIndex2 */
+	private final LongObjectHashMap<E> edges = new LongObjectHashMap<E>();
 
 	private final Map<Long, List<Long>> parents = new HashMap<Long, List<Long>>();
 
@@ -59,8 +59,17 @@ public class DefaultGraphMatrix<N, E> extends AbstractGraphMatrix<N, E> {
 		return edges.values();
 	}
 
+	private static final long key(long nodeIndex1, long nodeIndex2) {
+		return (nodeIndex1 << 32) | nodeIndex2;
+	}
+
 	public Iterable<long[]> availableCoordinates() {
-		return new CoordinateSetToLongWrapper(edges.keySet());
+		final long[] keys = edges.keys(true);
+		final List<long[]> coordinates = new ArrayList<long[]>(keys.length);
+		for (long key : keys) {
+			coordinates.add(new long[] { key >>> 32, key & 0xFFFFFFFFL });
+		}
+		return coordinates;
 	}
 
 	public List<N> getNodeList() {
@@ -142,7 +151,7 @@ public class DefaultGraphMatrix<N, E> extends AbstractGraphMatrix<N, E> {
 					+ " available");
 		}
 		if (edge == null) {
-			edges.remove(Coordinates.wrap(nodeIndex1, nodeIndex2));
+			edges.remove(key(nodeIndex1, nodeIndex2));
 			List<Long> childrenNode1 = children.get(nodeIndex1);
 			if (childrenNode1 != null) {
 				childrenNode1.remove(nodeIndex1);
@@ -152,7 +161,7 @@ public class DefaultGraphMatrix<N, E> extends AbstractGraphMatrix<N, E> {
 				parentsNode2.remove(nodeIndex2);
 			}
 		} else {
-			edges.put(Coordinates.wrap(nodeIndex1, nodeIndex2), edge);
+			edges.put(key(nodeIndex1, nodeIndex2), edge);
 			List<Long> childrenNode1 = children.get(nodeIndex1);
 			if (childrenNode1 == null) {
 				childrenNode1 = new ArrayList<Long>();
@@ -188,20 +197,15 @@ public class DefaultGraphMatrix<N, E> extends AbstractGraphMatrix<N, E> {
 	}
 
 	public E getEdge(long nodeIndex1, long nodeIndex2) {
-		return edges.get(Coordinates.wrap(nodeIndex1, nodeIndex2));
+		return edges.get(key(nodeIndex1, nodeIndex2));
 	}
 
 	public void removeEdge(E edge) {
-		List<Coordinates> coordinatesToDelete = new ArrayList<Coordinates>();
-		for (Coordinates c : edges.keySet()) {
-			E e = edges.get(c);
-			if (e == edge) {
-				coordinatesToDelete.add(c);
+		for (long key : edges.keys(false)) {
+			if (edges.get(key) == edge) {
+				edges.remove(key);
 			}
 		}
-		for (Coordinates c : coordinatesToDelete) {
-			edges.remove(c);
-		}
 	}
 
 	public void removeEdge(N node1, N node2) {
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.interfaces;
+
+/**
+ * Sparse matrices which store their entries in arrays and can replace all
+ * stored values in one pass, without looking up every entry.
+ * 
+ * @author Holger Arndt
+ */
+public interface CanMapNonZeros {
+
+	/**
+	 * Replaces every stored value by the result of the function. Entries which
+	 * become 0 are removed in one pass at the end, so the function may still
+	 * read the entry it computes from this matrix.
+	 */
+	public void mapNonZeros(DoubleCellFunction function);
+
+}
@@ -51,6 +51,55 @@ public interface CoordinateFunctions {
 	 */
 	public Iterable<long[]> availableCoordinates();
 
+	/**
+	 * Passes all entries of a two-dimensional Matrix to the visitor, including
+	 * zeros. The order depends on the storage layout, column by column for
+	 * most implementations. This avoids creating a coordinate array for every
+	 * entry and is much faster than iterating over allCoordinates().
+	 * 
+	 * @param visitor
+	 *            receives row, column and value of every entry
+	 */
+	public void forEachDouble(DoubleCellVisitor visitor);
+
+	/**
+	 * Passes all entries in the rows from <code>startRow</code> (inclusive) to
+	 * <code>endRow</code> (exclusive) to the visitor. Disjoint row ranges can
+	 * be visited from different threads, see
+	 * {@link org.ujmp.core.util.concurrent.ParallelCursor}.
+	 * 
+	 * @param visitor
+	 *            receives row, column and value of every entry
+	 * @param startRow
+	 *            first row to visit
+	 * @param endRow
+	 *            row after the last row to visit
+	 */
+	public void forEachDouble(DoubleCellVisitor visitor, long startRow, long endRow);
+
+	/**
+	 * Passes only the entries of a two-dimensional Matrix which are not zero
+	 * to the visitor. For sparse matrices, the time is proportional to the
+	 * number of stored entries.
+	 * 
+	 * @param visitor
+	 *            receives row, column and value of every non-zero entry
+	 */
+	public void forEachNonZero(DoubleCellVisitor visitor);
+
+	/**
+	 * Passes the entries in the rows from <code>startRow</code> (inclusive) to
+	 * <code>endRow</code> (exclusive) which are not zero to the visitor.
+	 * 
+	 * @param visitor
+	 *            receives row, column and value of every non-zero entry
+	 * @param startRow
+	 *            first row to visit
+	 * @param endRow
+	 *            row after the last row to visit
+	 */
+	public void forEachNonZero(DoubleCellVisitor visitor, long startRow, long endRow);
+
 	/**
 	 * Returns an Iterator that goes only over the Coordinates defined by the
 	 * selection. The selection is a Matlab/Octave style String, to define what
@@ -63,6 +63,56 @@ public interface GettersAndSetters {
 	 */
 	public void setAsDouble(double value, long... coordinates);
 
+	/**
+	 * Copies a rectangular region of a two-dimensional matrix into an array in
+	 * one call. The entry at <code>(row + i, column + j)</code> is stored at
+	 * <code>target[offset + i * stride + j]</code>, i.e. the region is written
+	 * row by row and <code>stride</code> is the distance between the starts of
+	 * two rows in the array.
+	 *
+	 * @param row
+	 *            first row of the region
+	 * @param column
+	 *            first column of the region
+	 * @param rows
+	 *            number of rows in the region
+	 * @param columns
+	 *            number of columns in the region
+	 * @param target
+	 *            array which receives the values
+	 * @param offset
+	 *            position of the first entry in the array
+	 * @param stride
+	 *            distance between two rows in the array, at least
+	 *            <code>columns</code>
+	 */
+	public void getDoubleBlock(long row, long column, int rows, int columns, double[] target,
+			int offset, int stride);
+
+	/**
+	 * Replaces a rectangular region of a two-dimensional matrix with the values
+	 * from an array in one call. The array has the same layout as in
+	 * {@link #getDoubleBlock(long, long, int, int, double[], int, int)}.
+	 *
+	 * @param row
+	 *            first row of the region
+	 * @param column
+	 *            first column of the region
+	 * @param rows
+	 *            number of rows in the region
+	 * @param columns
+	 *            number of columns in the region
+	 * @param source
+	 *            array which contains the values
+	 * @param offset
+	 *            position of the first entry in the array
+	 * @param stride
+	 *            distance between two rows in the array, at least
+	 *            <code>columns</code>
+	 */
+	public void setDoubleBlock(long row, long column, int rows, int columns, double[] source,
+			int offset, int stride);
+
 	/**
 	 * Returns a raw entry in the matrix as it is stored. If the matrix supports
 	 * Generics, the return type will match the type that is stored.
@@ -27,6 +27,7 @@ import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.AbstractCalculation;
 import org.ujmp.core.enums.ValueType;
+import org.ujmp.core.interfaces.HasLongArray;
 import org.ujmp.core.longmatrix.LongMatrix;
 import org.ujmp.core.longmatrix.impl.LongCalculationMatrix;
 
@@ -48,8 +49,12 @@ public abstract class AbstractLongCalculation extends AbstractCalculation implem
 
 	public final LongMatrix calcNew() {
 		LongMatrix result = (LongMatrix) Matrix.Factory.zeros(ValueType.LONG, getSize());
-		for (long[] c : result.allCoordinates()) {
-			result.setAsLong(getLong(c), c);
+		if (getSize().length == 2) {
+			calcTiles(result);
+		} else {
+			for (long[] c : result.allCoordinates()) {
+				result.setAsLong(getLong(c), c);
+			}
 		}
 		if (getMetaData() != null) {
 			result.setMetaData(getMetaData().clone());
@@ -62,13 +67,42 @@ public abstract class AbstractLongCalculation extends AbstractCalculation implem
 			throw new RuntimeException(
 					"Cannot change Matrix size. Use calc(Ret.NEW) or calc(Ret.LINK) instead.");
 		}
-		for (long[] c : getSource().allCoordinates()) {
-			getSource().setAsLong(getLong(c), c);
+		if (getSource().getDimensionCount() == 2) {
+			calcTiles(getSource());
+		} else {
+			for (long[] c : getSource().allCoordinates()) {
+				getSource().setAsLong(getLong(c), c);
+			}
 		}
 		getSource().fireValueChanged();
 		return getSource();
 	}
 
+	protected void calcTile(Matrix target, long startRow, long endRow, long startColumn,
+			long endColumn) {
+		final long[] coordinates = new long[2];
+		if (target instanceof HasLongArray) {
+			final long[] values = ((HasLongArray) target).getLongArray();
+			final long rows = target.getRowCount();
+			for (long column = startColumn; column < endColumn; column++) {
+				coordinates[COLUMN] = column;
+				final int offset = (int) (column * rows);
+				for (long row = startRow; row < endRow; row++) {
+					coordinates[ROW] = row;
+					values[offset + (int) row] = getLong(coordinates);
+				}
+			}
+		} else {
+			for (long row = startRow; row < endRow; row++) {
+				coordinates[ROW] = row;
+				for (long column = startColumn; column < endColumn; column++) {
+					coordinates[COLUMN] = column;
+					target.setAsLong(getLong(coordinates), row, column);
+				}
+			}
+		}
+	}
+
 	// this method is doing nothing, but it has to be there for submatrix or
 	// selection where it is overridden
 	public void setLong(long value, long... coordinates) {
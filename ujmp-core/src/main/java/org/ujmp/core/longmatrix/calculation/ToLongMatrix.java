@@ -24,8 +24,9 @@
 package org.ujmp.core.longmatrix.calculation;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.CanUseMultipleThreads;
 
-public class ToLongMatrix extends AbstractLongCalculation {
+public class ToLongMatrix extends AbstractLongCalculation implements CanUseMultipleThreads {
 	private static final long serialVersionUID = 807079620849420977L;
 
 	public ToLongMatrix(Matrix matrix) {
@@ -37,6 +37,10 @@ public class LongCalculationMatrix extends AbstractLongMatrix {
 		setMetaData(calculation.getMetaData());
 	}
 
+	public LongCalculation getCalculation() {
+		return calculation;
+	}
+
 	public boolean containsCoordinates(long... coordinates) {
 		return calculation.containsCoordinates(coordinates);
 	}
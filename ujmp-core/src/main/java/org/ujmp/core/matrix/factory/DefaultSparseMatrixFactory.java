@@ -26,6 +26,7 @@ package org.ujmp.core.matrix.factory;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.SparseMatrix;
 import org.ujmp.core.doublematrix.impl.DefaultSparseRowDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.SparseDoubleMatrix2DBuilder;
 import org.ujmp.core.objectmatrix.impl.DefaultSparseObjectMatrix;
 
 public class DefaultSparseMatrixFactory extends AbstractMatrixFactory<SparseMatrix> {
@@ -42,4 +43,16 @@ public class DefaultSparseMatrixFactory extends AbstractMatrixFactory<SparseMatr
 		return DefaultSparseObjectMatrix.fromNonZeros(nonZeros);
 	}
 
+	/**
+	 * Returns a builder which collects (row, column, value) triplets and
+	 * creates a compressed sparse matrix from them.
+	 */
+	public SparseDoubleMatrix2DBuilder builder(long rows, long columns) {
+		return new SparseDoubleMatrix2DBuilder(rows, columns);
+	}
+
+	public SparseDoubleMatrix2DBuilder builder(long rows, long columns, int expectedEntries) {
+		return new SparseDoubleMatrix2DBuilder(rows, columns, expectedEntries);
+	}
+
 }
@@ -27,6 +27,7 @@ import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.AbstractCalculation;
 import org.ujmp.core.enums.ValueType;
+import org.ujmp.core.interfaces.HasObjectArray;
 import org.ujmp.core.objectmatrix.ObjectMatrix;
 import org.ujmp.core.objectmatrix.impl.ObjectCalculationMatrix;
 
@@ -50,8 +51,12 @@ public abstract class AbstractObjectCalculation extends AbstractCalculation impl
 		// Matrix result = MatrixFactory.zeros(getSource().getValueType(),
 		// getSize());
 		Matrix result = Matrix.Factory.zeros(getValueType(), getSize());
-		for (long[] c : result.allCoordinates()) {
-			result.setAsObject(getObject(c), c);
+		if (getSize().length == 2) {
+			calcTiles(result);
+		} else {
+			for (long[] c : result.allCoordinates()) {
+				result.setAsObject(getObject(c), c);
+			}
 		}
 		if (getMetaData() != null) {
 			result.setMetaData(getMetaData().clone());
@@ -64,13 +69,42 @@ public abstract class AbstractObjectCalculation extends AbstractCalculation impl
 			throw new RuntimeException(
 					"Cannot change Matrix size. Use calc(Ret.NEW) or calc(Ret.LINK) instead.");
 		}
-		for (long[] c : getSource().allCoordinates()) {
-			getSource().setAsObject(getObject(c), c);
+		if (getSource().getDimensionCount() == 2) {
+			calcTiles(getSource());
+		} else {
+			for (long[] c : getSource().allCoordinates()) {
+				getSource().setAsObject(getObject(c), c);
+			}
 		}
 		getSource().fireValueChanged();
 		return getSource();
 	}
 
+	protected void calcTile(Matrix target, long startRow, long endRow, long startColumn,
+			long endColumn) {
+		final long[] coordinates = new long[2];
+		if (target instanceof HasObjectArray) {
+			final Object[] values = ((HasObjectArray) target).getObjectArray();
+			final long rows = target.getRowCount();
+			for (long column = startColumn; column < endColumn; column++) {
+				coordinates[COLUMN] = column;
+				final int offset = (int) (column * rows);
+				for (long row = startRow; row < endRow; row++) {
+					coordinates[ROW] = row;
+					values[offset + (int) row] = getObject(coordinates);
+				}
+			}
+		} else {
+			for (long row = startRow; row < endRow; row++) {
+				coordinates[ROW] = row;
+				for (long column = startColumn; column < endColumn; column++) {
+					coordinates[COLUMN] = column;
+					target.setAsObject(getObject(coordinates), row, column);
+				}
+			}
+		}
+	}
+
 	// this method is doing nothing, but it has to be there for submatrix or
 	// selection where it is overridden
 	public void setObject(Object value, long... coordinates) {
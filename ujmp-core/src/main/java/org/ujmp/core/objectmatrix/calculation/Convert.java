@@ -25,15 +25,25 @@ package org.ujmp.core.objectmatrix.calculation;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.enums.ValueType;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
+import org.ujmp.core.interfaces.HasBlockDoubleArray2D;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.interfaces.HasRowMajorDoubleArray2D;
 import org.ujmp.core.mapmatrix.MapMatrix;
+import org.ujmp.core.util.concurrent.ParallelCursor;
 
 public class Convert {
 	public static final long serialVersionUID = 6393277198816850597L;
 
 	public static Matrix calcNew(ValueType valueType, Matrix source) {
-		Matrix ret = Matrix.Factory.zeros(valueType, source.getSize());
-		for (long[] c : source.availableCoordinates()) {
-			ret.setAsObject(source.getAsObject(c), c);
+		final Matrix ret = Matrix.Factory.zeros(valueType, source.getSize());
+		if (valueType == ValueType.DOUBLE && source.getValueType() == ValueType.DOUBLE
+				&& source.getDimensionCount() == 2) {
+			copyDoubles(source, ret);
+		} else {
+			for (long[] c : source.availableCoordinates()) {
+				ret.setAsObject(source.getAsObject(c), c);
+			}
 		}
 		MapMatrix<String, Object> a = source.getMetaData();
 		if (a != null) {
@@ -42,6 +52,46 @@ public class Convert {
 		return ret;
 	}
 
+	private static void copyDoubles(final Matrix source, final Matrix target) {
+		if (source instanceof HasColumnMajorDoubleArray1D
+				&& target instanceof HasColumnMajorDoubleArray1D) {
+			final double[] values = ((HasColumnMajorDoubleArray1D) source)
+					.getColumnMajorDoubleArray1D();
+			System.arraycopy(values, 0,
+					((HasColumnMajorDoubleArray1D) target).getColumnMajorDoubleArray1D(), 0,
+					values.length);
+		} else if (target instanceof HasColumnMajorDoubleArray1D) {
+			final double[] values = ((HasColumnMajorDoubleArray1D) target)
+					.getColumnMajorDoubleArray1D();
+			final long rows = target.getRowCount();
+			final DoubleCellVisitor copy = new DoubleCellVisitor() {
+				public void visit(long row, long column, double value) {
+					values[(int) (column * rows + row)] = value;
+				}
+			};
+			if (source.isSparse()) {
+				source.forEachNonZero(copy);
+			} else if (source instanceof HasRowMajorDoubleArray2D
+					|| source instanceof HasBlockDoubleArray2D) {
+				// plain arrays can be read from several threads
+				ParallelCursor.forEachDouble(source, copy);
+			} else {
+				source.forEachDouble(copy);
+			}
+		} else {
+			final DoubleCellVisitor copy = new DoubleCellVisitor() {
+				public void visit(long row, long column, double value) {
+					target.setAsDouble(value, row, column);
+				}
+			};
+			if (source.isSparse()) {
+				source.forEachNonZero(copy);
+			} else {
+				source.forEachDouble(copy);
+			}
+		}
+	}
+
 	public static Matrix calcNew(Matrix matrix) {
 		return calcNew(matrix.getValueType(), matrix);
 	}
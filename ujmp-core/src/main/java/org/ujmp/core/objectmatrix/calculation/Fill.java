@@ -24,8 +24,9 @@
 package org.ujmp.core.objectmatrix.calculation;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.CanUseMultipleThreads;
 
-public class Fill extends AbstractObjectCalculation {
+public class Fill extends AbstractObjectCalculation implements CanUseMultipleThreads {
 	private static final long serialVersionUID = -3477957135967841340L;
 
 	private final Object fill;
@@ -24,8 +24,9 @@
 package org.ujmp.core.objectmatrix.calculation;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.CanUseMultipleThreads;
 
-public class Replace extends AbstractObjectCalculation {
+public class Replace extends AbstractObjectCalculation implements CanUseMultipleThreads {
 	private static final long serialVersionUID = -1668944121367955215L;
 
 	private Object search = null;
@@ -24,8 +24,9 @@
 package org.ujmp.core.objectmatrix.calculation;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.CanUseMultipleThreads;
 
-public class ToObjectMatrix extends AbstractObjectCalculation {
+public class ToObjectMatrix extends AbstractObjectCalculation implements CanUseMultipleThreads {
 	private static final long serialVersionUID = 1941224503727316256L;
 
 	public ToObjectMatrix(Matrix matrix) {
@@ -24,8 +24,9 @@
 package org.ujmp.core.objectmatrix.calculation;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.CanUseMultipleThreads;
 
-public class Tril extends AbstractObjectCalculation {
+public class Tril extends AbstractObjectCalculation implements CanUseMultipleThreads {
 	private static final long serialVersionUID = 7733794714291865581L;
 
 	private int k = 0;
@@ -24,8 +24,9 @@
 package org.ujmp.core.objectmatrix.calculation;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.CanUseMultipleThreads;
 
-public class Triu extends AbstractObjectCalculation {
+public class Triu extends AbstractObjectCalculation implements CanUseMultipleThreads {
 	private static final long serialVersionUID = 758577959954446767L;
 
 	private int k = 0;
@@ -23,7 +23,6 @@
 
 package org.ujmp.core.objectmatrix.impl;
 
-import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.Calculation.Ret;
 import org.ujmp.core.enums.ValueType;
@@ -54,18 +53,16 @@ public class DefaultSparseObjectMatrix extends DefaultSparseGenericMatrix<Object
 		final Matrix max = nonZeros.max(Ret.NEW, Matrix.ROW);
 
 		final long valueCount = nonZeros.getRowCount();
-		final long rowCount = max.getAsLong(0, 0);
-		final long columnCount = max.getAsLong(0, 1);
+		// the largest indices must be inside the matrix
+		final long rowCount = max.getAsLong(0, 0) + 1;
+		final long columnCount = max.getAsLong(0, 1) + 1;
 
 		DefaultSparseObjectMatrix m = new DefaultSparseObjectMatrix(rowCount, columnCount);
 
 		for (int r = 0; r < valueCount; r++) {
-			long[] c = new long[2];
-			c[0] = nonZeros.getAsLong(r, 0);
-			c[1] = nonZeros.getAsLong(r, 1);
-			Coordinates co = Coordinates.wrap(c);
-			Object val = nonZeros.getAsObject(r, 2);
-			m.values.put(co, val);
+			final long row = nonZeros.getAsLong(r, 0);
+			final long column = nonZeros.getAsLong(r, 1);
+			m.setObject(nonZeros.getAsObject(r, 2), row, column);
 		}
 
 		return m;
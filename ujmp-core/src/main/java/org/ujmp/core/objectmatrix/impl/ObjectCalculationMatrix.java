@@ -37,6 +37,10 @@ public class ObjectCalculationMatrix extends AbstractDenseObjectMatrix {
 		setMetaData(calculation.getMetaData());
 	}
 
+	public ObjectCalculation getCalculation() {
+		return calculation;
+	}
+
 	public long[] getSize() {
 		size = calculation.getSize();
 		return size;
@@ -23,19 +23,38 @@
 
 package org.ujmp.core.objectmatrix.impl;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
+import org.ujmp.core.collections.map.LongObjectHashMap;
 import org.ujmp.core.collections.map.SoftHashMap;
 import org.ujmp.core.objectmatrix.stub.AbstractSparseObjectMatrix;
 import org.ujmp.core.util.CoordinateSetToLongWrapper;
 
+/**
+ * Sparse matrix which holds its values by soft references, so that they can
+ * be discarded when memory is low. Matrices with two or three dimensions
+ * store the references by the packed index of the coordinates, so that
+ * reading does not create any objects. References which have been cleared are
+ * removed when the map is about to grow. Only values which have not been
+ * discarded yet are serialized.
+ */
 public class VolatileSparseObjectMatrix extends AbstractSparseObjectMatrix {
 	private static final long serialVersionUID = 392817709394048419L;
 
 	private final Map<Coordinates, Object> values = new SoftHashMap<Coordinates, Object>();
 
+	private transient LongObjectHashMap<SoftReference<Object>> references = null;
+
+	private transient int purgeSize;
+
 	public VolatileSparseObjectMatrix(Matrix m) {
 		super(m.getSize());
 		this.size = Coordinates.copyOf(m.getSize());
@@ -57,28 +76,121 @@ public class VolatileSparseObjectMatrix extends AbstractSparseObjectMatrix {
 		this.size = Coordinates.copyOf(size);
 	}
 
+	private final boolean isPackable() {
+		return Coordinates.isPackable(size);
+	}
+
+	private final LongObjectHashMap<SoftReference<Object>> getReferences() {
+		if (references == null) {
+			references = new LongObjectHashMap<SoftReference<Object>>();
+			purgeSize = 16;
+		}
+		return references;
+	}
+
 	public final void clear() {
 		values.clear();
+		references = null;
 	}
 
 	public Object getObject(long... coordinates) {
-		return values.get(Coordinates.wrap(coordinates));
+		if (!isPackable()) {
+			return values.get(Coordinates.wrap(coordinates));
+		}
+		final long index = Coordinates.toPackedIndex(size, coordinates);
+		if (index < 0) {
+			return null;
+		}
+		final SoftReference<Object> reference = getReferences().get(index);
+		if (reference == null) {
+			return null;
+		}
+		final Object value = reference.get();
+		if (value == null) {
+			references.remove(index);
+		}
+		return value;
 	}
 
 	public long getValueCount() {
-		return values.size();
+		return isPackable() ? getReferences().size() : values.size();
 	}
 
 	public void setObject(Object value, long... coordinates) {
-		values.put(Coordinates.wrap(coordinates).clone(), value);
+		if (!isPackable()) {
+			values.put(Coordinates.wrap(coordinates).clone(), value);
+			return;
+		}
+		final long index = Coordinates.toPackedIndex(size, coordinates);
+		if (index < 0) {
+			return;
+		}
+		final LongObjectHashMap<SoftReference<Object>> map = getReferences();
+		if (value == null) {
+			map.remove(index);
+			return;
+		}
+		if (map.size() >= purgeSize) {
+			for (long key : map.keys(false)) {
+				if (map.get(key).get() == null) {
+					map.remove(key);
+				}
+			}
+			purgeSize = Math.max(16, 2 * map.size());
+		}
+		map.put(index, new SoftReference<Object>(value));
 	}
 
 	public Iterable<long[]> entries() {
-		return new CoordinateSetToLongWrapper(values.keySet());
+		if (!isPackable()) {
+			return new CoordinateSetToLongWrapper(values.keySet());
+		}
+		final long[] indices = getReferences().keys(true);
+		final List<long[]> list = new ArrayList<long[]>(indices.length);
+		for (long index : indices) {
+			list.add(Coordinates.fromPackedIndex(size.length, index));
+		}
+		return list;
 	}
 
 	public boolean containsCoordinates(long... coordinates) {
-		return values.containsKey(Coordinates.wrap(coordinates));
+		if (!isPackable()) {
+			return values.containsKey(Coordinates.wrap(coordinates));
+		}
+		final long index = Coordinates.toPackedIndex(size, coordinates);
+		return index >= 0 && getReferences().containsKey(index);
+	}
+
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		// hold the values while writing, they might be discarded otherwise
+		final List<Long> indices = new ArrayList<Long>();
+		final List<Object> objects = new ArrayList<Object>();
+		if (references != null) {
+			for (long index : references.keys(false)) {
+				final Object value = references.get(index).get();
+				if (value != null) {
+					indices.add(index);
+					objects.add(value);
+				}
+			}
+		}
+		s.writeInt(indices.size());
+		for (int i = 0; i < indices.size(); i++) {
+			s.writeLong(indices.get(i));
+			s.writeObject(objects.get(i));
+		}
+	}
+
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		final int count = s.readInt();
+		final LongObjectHashMap<SoftReference<Object>> map = getReferences();
+		for (int i = 0; i < count; i++) {
+			final long index = s.readLong();
+			map.put(index, new SoftReference<Object>(s.readObject()));
+		}
+		purgeSize = Math.max(16, 2 * map.size());
 	}
 
 }
@@ -27,6 +27,7 @@ import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.AbstractCalculation;
 import org.ujmp.core.enums.ValueType;
+import org.ujmp.core.interfaces.HasStringArray;
 import org.ujmp.core.stringmatrix.StringMatrix;
 import org.ujmp.core.stringmatrix.impl.StringCalculationMatrix;
 
@@ -51,8 +52,12 @@ public abstract class AbstractStringCalculation extends AbstractCalculation impl
 			throw new RuntimeException(
 					"Cannot change Matrix size. Use calc(Ret.NEW) or calc(Ret.LINK) instead.");
 		}
-		for (long[] c : getSource().allCoordinates()) {
-			getSource().setAsString(getString(c), c);
+		if (getSource().getDimensionCount() == 2) {
+			calcTiles(getSource());
+		} else {
+			for (long[] c : getSource().allCoordinates()) {
+				getSource().setAsString(getString(c), c);
+			}
 		}
 		getSource().fireValueChanged();
 		return getSource();
@@ -60,8 +65,12 @@ public abstract class AbstractStringCalculation extends AbstractCalculation impl
 
 	public final StringMatrix calcNew() {
 		StringMatrix result = (StringMatrix) Matrix.Factory.zeros(ValueType.STRING, getSize());
-		for (long[] c : result.allCoordinates()) {
-			result.setAsString(getString(c), c);
+		if (getSize().length == 2) {
+			calcTiles(result);
+		} else {
+			for (long[] c : result.allCoordinates()) {
+				result.setAsString(getString(c), c);
+			}
 		}
 		if (getMetaData() != null) {
 			result.setMetaData(getMetaData().clone());
@@ -69,6 +78,31 @@ public abstract class AbstractStringCalculation extends AbstractCalculation impl
 		return result;
 	}
 
+	protected void calcTile(Matrix target, long startRow, long endRow, long startColumn,
+			long endColumn) {
+		final long[] coordinates = new long[2];
+		if (target instanceof HasStringArray) {
+			final String[] values = ((HasStringArray) target).getStringArray();
+			final long rows = target.getRowCount();
+			for (long column = startColumn; column < endColumn; column++) {
+				coordinates[COLUMN] = column;
+				final int offset = (int) (column * rows);
+				for (long row = startRow; row < endRow; row++) {
+					coordinates[ROW] = row;
+					values[offset + (int) row] = getString(coordinates);
+				}
+			}
+		} else {
+			for (long row = startRow; row < endRow; row++) {
+				coordinates[ROW] = row;
+				for (long column = startColumn; column < endColumn; column++) {
+					coordinates[COLUMN] = column;
+					target.setAsString(getString(coordinates), row, column);
+				}
+			}
+		}
+	}
+
 	// this method is doing nothing, but it has to be there for submatrix or
 	// selection where it is overridden
 	public void setString(String value, long... coordinates) {
@@ -24,8 +24,9 @@
 package org.ujmp.core.stringmatrix.calculation;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.CanUseMultipleThreads;
 
-public class LowerCase extends AbstractStringCalculation {
+public class LowerCase extends AbstractStringCalculation implements CanUseMultipleThreads {
 	private static final long serialVersionUID = 908684280859100626L;
 
 	public LowerCase(Matrix m) {
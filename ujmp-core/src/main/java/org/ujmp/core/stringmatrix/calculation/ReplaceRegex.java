@@ -26,8 +26,9 @@ package org.ujmp.core.stringmatrix.calculation;
 import java.util.regex.Pattern;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.CanUseMultipleThreads;
 
-public class ReplaceRegex extends AbstractStringCalculation {
+public class ReplaceRegex extends AbstractStringCalculation implements CanUseMultipleThreads {
 	private static final long serialVersionUID = 8158807887609103123L;
 
 	private Pattern searchPattern = null;
@@ -24,8 +24,9 @@
 package org.ujmp.core.stringmatrix.calculation;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.CanUseMultipleThreads;
 
-public class ToStringMatrix extends AbstractStringCalculation {
+public class ToStringMatrix extends AbstractStringCalculation implements CanUseMultipleThreads {
 	private static final long serialVersionUID = -3185241416665710791L;
 
 	public ToStringMatrix(Matrix matrix) {
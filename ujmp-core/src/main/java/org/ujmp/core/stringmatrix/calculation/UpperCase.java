@@ -24,8 +24,9 @@
 package org.ujmp.core.stringmatrix.calculation;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.CanUseMultipleThreads;
 
-public class UpperCase extends AbstractStringCalculation {
+public class UpperCase extends AbstractStringCalculation implements CanUseMultipleThreads {
 	private static final long serialVersionUID = -7716768217752514784L;
 
 	public UpperCase(Matrix m) {
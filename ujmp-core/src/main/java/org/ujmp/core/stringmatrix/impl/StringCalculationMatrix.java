@@ -37,6 +37,10 @@ public class StringCalculationMatrix extends AbstractStringMatrix {
 		setMetaData(calculation.getMetaData());
 	}
 
+	public StringCalculation getCalculation() {
+		return calculation;
+	}
+
 	public boolean containsCoordinates(long... coordinates) {
 		return calculation.containsCoordinates(coordinates);
 	}
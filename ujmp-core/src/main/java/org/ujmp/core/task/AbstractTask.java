@@ -24,13 +24,27 @@
 package org.ujmp.core.task;
 
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 
+import org.ujmp.core.util.UJMPSettings;
 import org.ujmp.core.util.concurrent.UJMPThreadPoolExecutor;
 
 public abstract class AbstractTask<V> implements Task<V> {
 
+	// tasks may run for a long time and must not block the threads which are
+	// shared by all parallel loops
+	private static ThreadPoolExecutor executor = null;
+
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			final int threads = Math.max(1, UJMPSettings.getInstance().getNumberOfThreads());
+			executor = new UJMPThreadPoolExecutor("Background Tasks", threads, threads);
+		}
+		return executor;
+	}
+
 	public final Future<V> executeInBackground() {
-		return UJMPThreadPoolExecutor.getInstance().submit(this);
+		return getExecutor().submit(this);
 	}
 
 	public final V execute() throws Exception {
@@ -0,0 +1,539 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Mtimes;
+import org.ujmp.core.calculation.MtimesCalculation;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Chol;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Eig;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Inv;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.LU;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.QR;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.SVD;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Solve;
+
+/**
+ * Selects the fastest available implementation of an operation for a given
+ * shape of the arguments and the current number of threads.
+ * <p>
+ * Shapes are grouped into buckets by the binary logarithm of every dimension.
+ * The first time a bucket is requested, all available implementations are
+ * timed on random matrices of a representative shape (at most
+ * {@link #MAXTUNINGSIZE} in every dimension) and the winner is stored in a
+ * profile file in {@link UJMPSettings#getTempDir()}. Later requests, also in
+ * other JVMs, are answered from the profile. The autotuner is only consulted
+ * if {@link UJMPSettings#isUseAutotuner()} is enabled.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class Autotuner {
+
+	public static final String OP_MTIMES = "mtimes";
+	public static final String OP_INV = "inv";
+	public static final String OP_SOLVESQUARE = "solveSquare";
+	public static final String OP_SOLVETALL = "solveTall";
+	public static final String OP_SVD = "svd";
+	public static final String OP_EIG = "eig";
+	public static final String OP_EIGGENERAL = "eigGeneral";
+	public static final String OP_LU = "lu";
+	public static final String OP_QR = "qr";
+	public static final String OP_CHOL = "chol";
+
+	public static final String UJMP = "ujmp";
+	public static final String BLOCK = "block";
+	public static final String JBLAS = "jblas";
+	public static final String OJALGO = "ojalgo";
+	public static final String EJML = "ejml";
+	public static final String MTJ = "mtj";
+	public static final String PARALLELCOLT = "parallelcolt";
+
+	public static final String PROFILEFILE = "ujmp-autotuner.properties";
+
+	/** maximum size of every dimension of the matrices used for timing */
+	public static int MAXTUNINGSIZE = 1024;
+
+	/** minimum time in milliseconds to measure one implementation */
+	public static long MINTUNINGTIME = 50;
+
+	/** maximum number of repetitions to measure one implementation */
+	public static int MAXTUNINGRUNS = 10;
+
+	private static final Object lock = new Object();
+
+	private static volatile Autotuner instance = null;
+
+	private final Properties profile = new Properties();
+
+	// keys which are measured at the moment
+	private final Set<String> tuning = new HashSet<String>();
+
+	private final File file;
+
+	public static Autotuner getInstance() {
+		if (instance == null) {
+			synchronized (lock) {
+				if (instance == null) {
+					instance = new Autotuner(new File(UJMPSettings.getInstance().getTempDir(),
+							PROFILEFILE));
+				}
+			}
+		}
+		return instance;
+	}
+
+	public Autotuner(File file) {
+		this.file = file;
+		if (file != null) {
+			load(file, profile);
+		}
+	}
+
+	private static void load(File file, Properties properties) {
+		if (!file.exists()) {
+			return;
+		}
+		InputStream is = null;
+		try {
+			is = new FileInputStream(file);
+			properties.load(is);
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			if (is != null) {
+				try {
+					is.close();
+				} catch (Exception e) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the name of the bucket for the given shape.
+	 */
+	public static String getBucket(long... size) {
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < size.length; i++) {
+			if (i > 0) {
+				s.append('x');
+			}
+			s.append(log2(size[i]));
+		}
+		return s.toString();
+	}
+
+	private static int log2(long value) {
+		return 63 - Long.numberOfLeadingZeros(Math.max(1, value));
+	}
+
+	private static long[] getTuningSize(long... size) {
+		long[] tuningSize = new long[size.length];
+		for (int i = 0; i < size.length; i++) {
+			tuningSize[i] = Math.min(MAXTUNINGSIZE, 1L << log2(size[i]));
+		}
+		return tuningSize;
+	}
+
+	public static String getKey(String operation, long... size) {
+		return operation + "." + getBucket(size) + ".t"
+				+ UJMPSettings.getInstance().getNumberOfThreads();
+	}
+
+	/**
+	 * Returns the stored choice for an operation, or null if it has not been
+	 * tuned yet.
+	 */
+	public String getChoice(String operation, long... size) {
+		synchronized (profile) {
+			return profile.getProperty(getKey(operation, size));
+		}
+	}
+
+	/**
+	 * Stores a choice for an operation, e.g. to override the measured result.
+	 */
+	public void setChoice(String operation, String backend, long... size) {
+		synchronized (profile) {
+			profile.setProperty(getKey(operation, size), backend);
+			save(true);
+		}
+	}
+
+	/**
+	 * Removes all stored choices.
+	 */
+	public void clear() {
+		synchronized (profile) {
+			profile.clear();
+			save(false);
+		}
+	}
+
+	/**
+	 * Writes the profile to a temporary file which then replaces the profile
+	 * file, so that other JVMs never read a partially written file. If merge
+	 * is true, choices which other JVMs have stored in the meantime are kept,
+	 * the choices of this instance win for the same key.
+	 */
+	private void save(boolean merge) {
+		if (file == null) {
+			return;
+		}
+		if (merge) {
+			final Properties stored = new Properties();
+			load(file, stored);
+			stored.putAll(profile);
+			profile.putAll(stored);
+		}
+		File tmp = null;
+		OutputStream os = null;
+		try {
+			tmp = File.createTempFile(PROFILEFILE, ".tmp", file.getAbsoluteFile().getParentFile());
+			os = new FileOutputStream(tmp);
+			profile.store(os, "UJMP autotuner profile");
+			os.close();
+			os = null;
+			// renameTo does not replace an existing file on all platforms
+			if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+				throw new RuntimeException("could not replace " + file);
+			}
+			tmp = null;
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			if (os != null) {
+				try {
+					os.close();
+				} catch (Exception e) {
+				}
+			}
+			if (tmp != null) {
+				tmp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Runs one implementation of an operation on generated arguments.
+	 */
+	public static abstract class Experiment<T> {
+
+		public abstract Matrix[] createArguments(long[] size);
+
+		public abstract void run(T candidate, Matrix[] arguments);
+	}
+
+	/**
+	 * Returns the fastest candidate for the given operation and shape, timing
+	 * all candidates if there is no stored choice for this bucket yet. While a
+	 * bucket is being measured, other requests for it get the first candidate
+	 * instead of waiting.
+	 */
+	public <T> T select(String operation, long[] size, Map<String, T> candidates,
+			Experiment<T> experiment) {
+		if (candidates.size() == 1) {
+			return candidates.values().iterator().next();
+		}
+		String choice = getChoice(operation, size);
+		T candidate = choice == null ? null : candidates.get(choice);
+		if (candidate != null) {
+			return candidate;
+		}
+		// only the lookup is locked, the measurement may take a long time and
+		// other threads must not wait for it
+		final String key = getKey(operation, size);
+		synchronized (tuning) {
+			choice = getChoice(operation, size);
+			candidate = choice == null ? null : candidates.get(choice);
+			if (candidate != null) {
+				return candidate;
+			}
+			if (!tuning.add(key)) {
+				// measured by another thread or further up in this one
+				return candidates.values().iterator().next();
+			}
+		}
+		try {
+			choice = tune(size, candidates, experiment);
+			setChoice(operation, choice, size);
+			return candidates.get(choice);
+		} finally {
+			synchronized (tuning) {
+				tuning.remove(key);
+			}
+		}
+	}
+
+	private <T> String tune(long[] size, Map<String, T> candidates, Experiment<T> experiment) {
+		final Matrix[] arguments = experiment.createArguments(getTuningSize(size));
+		String best = null;
+		double bestTime = Double.MAX_VALUE;
+		for (String name : candidates.keySet()) {
+			final T candidate = candidates.get(name);
+			try {
+				// burn-in, also triggers tuning of nested operations
+				experiment.run(candidate, arguments);
+				int runs = 0;
+				long t0 = System.nanoTime();
+				long t1 = t0;
+				do {
+					experiment.run(candidate, arguments);
+					runs++;
+					t1 = System.nanoTime();
+				} while (runs < MAXTUNINGRUNS && t1 - t0 < MINTUNINGTIME * 1000000l);
+				double time = (double) (t1 - t0) / runs;
+				if (time < bestTime) {
+					bestTime = time;
+					best = name;
+				}
+			} catch (RuntimeException e) {
+				// implementation not usable for this input
+			}
+		}
+		return best == null ? candidates.keySet().iterator().next() : best;
+	}
+
+	private static DenseDoubleMatrix2D createSPD(long n) {
+		DenseDoubleMatrix2D a = DenseDoubleMatrix2D.Factory.rand(n, n);
+		DenseDoubleMatrix2D spd = (DenseDoubleMatrix2D) a.transpose().mtimes(a);
+		for (long i = 0; i < n; i++) {
+			spd.setDouble(spd.getDouble(i, i) + n, i, i);
+		}
+		return spd;
+	}
+
+	private static DenseDoubleMatrix2D createSymmetric(long n) {
+		DenseDoubleMatrix2D a = DenseDoubleMatrix2D.Factory.rand(n, n);
+		return (DenseDoubleMatrix2D) a.plus(a.transpose());
+	}
+
+	private static boolean isSymmetric(Matrix m) {
+		if (m.getDimensionCount() != 2 || m.getRowCount() != m.getColumnCount()) {
+			return false;
+		}
+		final long n = m.getRowCount();
+		for (long c = 0; c < n; c++) {
+			for (long r = c + 1; r < n; r++) {
+				if (m.getAsDouble(r, c) != m.getAsDouble(c, r)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static <T> void add(Map<String, T> candidates, String name, T candidate,
+			boolean enabled) {
+		if (enabled && candidate != null) {
+			candidates.put(name, candidate);
+		}
+	}
+
+	public MtimesCalculation<DenseDoubleMatrix2D, DenseDoubleMatrix2D, DenseDoubleMatrix2D> getMtimes(
+			long rows, long inner, long columns) {
+		final UJMPSettings settings = UJMPSettings.getInstance();
+		final Map<String, MtimesCalculation<DenseDoubleMatrix2D, DenseDoubleMatrix2D, DenseDoubleMatrix2D>> candidates = new LinkedHashMap<String, MtimesCalculation<DenseDoubleMatrix2D, DenseDoubleMatrix2D, DenseDoubleMatrix2D>>();
+		add(candidates, UJMP, Mtimes.DENSEDOUBLEMATRIX2D_UJMP, true);
+		add(candidates, BLOCK, Mtimes.DENSEDOUBLEMATRIX2D_BLOCK, true);
+		add(candidates, JBLAS, (MtimesCalculation) Mtimes.MTIMES_JBLAS, settings.isUseJBlas());
+		return select(
+				OP_MTIMES,
+				new long[] { rows, inner, columns },
+				candidates,
+				new Experiment<MtimesCalculation<DenseDoubleMatrix2D, DenseDoubleMatrix2D, DenseDoubleMatrix2D>>() {
+					public Matrix[] createArguments(long[] size) {
+						return new Matrix[] { DenseDoubleMatrix2D.Factory.rand(size[0], size[1]),
+								DenseDoubleMatrix2D.Factory.rand(size[1], size[2]),
+								DenseDoubleMatrix2D.Factory.zeros(size[0], size[2]) };
+					}
+
+					public void run(
+							MtimesCalculation<DenseDoubleMatrix2D, DenseDoubleMatrix2D, DenseDoubleMatrix2D> candidate,
+							Matrix[] arguments) {
+						candidate.calc((DenseDoubleMatrix2D) arguments[0],
+								(DenseDoubleMatrix2D) arguments[1],
+								(DenseDoubleMatrix2D) arguments[2]);
+					}
+				});
+	}
+
+	public Inv<Matrix> getInv(Matrix source) {
+		final UJMPSettings settings = UJMPSettings.getInstance();
+		final Map<String, Inv<Matrix>> candidates = new LinkedHashMap<String, Inv<Matrix>>();
+		add(candidates, UJMP, Inv.UJMP, true);
+		add(candidates, JBLAS, DecompositionOps.INV_JBLAS, settings.isUseJBlas());
+		add(candidates, OJALGO, DecompositionOps.INV_OJALGO, settings.isUseOjalgo());
+		add(candidates, EJML, DecompositionOps.INV_EJML, settings.isUseEJML());
+		add(candidates, MTJ, DecompositionOps.INV_MTJ, settings.isUseMTJ());
+		return select(OP_INV, source.getSize(), candidates, new Experiment<Inv<Matrix>>() {
+			public Matrix[] createArguments(long[] size) {
+				return new Matrix[] { createSPD(size[0]) };
+			}
+
+			public void run(Inv<Matrix> candidate, Matrix[] arguments) {
+				candidate.calc(arguments[0]);
+			}
+		});
+	}
+
+	public Solve<Matrix> getSolve(Matrix a, Matrix b) {
+		final UJMPSettings settings = UJMPSettings.getInstance();
+		final Map<String, Solve<Matrix>> candidates = new LinkedHashMap<String, Solve<Matrix>>();
+		final boolean square = a.isSquare();
+		add(candidates, UJMP, square ? Solve.UJMPSQUARE : Solve.UJMPTALL, true);
+		add(candidates, JBLAS, DecompositionOps.SOLVE_JBLAS, square && settings.isUseJBlas());
+		add(candidates, OJALGO, DecompositionOps.SOLVE_OJALGO, settings.isUseOjalgo());
+		add(candidates, EJML, DecompositionOps.SOLVE_EJML, settings.isUseEJML());
+		add(candidates, MTJ, DecompositionOps.SOLVE_MTJ, settings.isUseMTJ());
+		add(candidates, PARALLELCOLT, DecompositionOps.SOLVE_PARALLELCOLT, !square
+				&& settings.isUseParallelColt());
+		return select(square ? OP_SOLVESQUARE : OP_SOLVETALL,
+				new long[] { a.getRowCount(), a.getColumnCount(), b.getColumnCount() },
+				candidates, new Experiment<Solve<Matrix>>() {
+					public Matrix[] createArguments(long[] size) {
+						DenseDoubleMatrix2D x = square ? createSPD(size[0])
+								: DenseDoubleMatrix2D.Factory.rand(Math.max(size[0], size[1]),
+										size[1]);
+						return new Matrix[] { x,
+								DenseDoubleMatrix2D.Factory.rand(x.getRowCount(), size[2]) };
+					}
+
+					public void run(Solve<Matrix> candidate, Matrix[] arguments) {
+						candidate.calc(arguments[0], arguments[1]);
+					}
+				});
+	}
+
+	public SVD<Matrix> getSVD(Matrix source) {
+		final UJMPSettings settings = UJMPSettings.getInstance();
+		final Map<String, SVD<Matrix>> candidates = new LinkedHashMap<String, SVD<Matrix>>();
+		add(candidates, UJMP, SVD.UJMP, true);
+		add(candidates, OJALGO, DecompositionOps.SVD_OJALGO, settings.isUseOjalgo());
+		add(candidates, EJML, DecompositionOps.SVD_EJML, settings.isUseEJML());
+		add(candidates, MTJ, DecompositionOps.SVD_MTJ, settings.isUseMTJ());
+		return select(OP_SVD, source.getSize(), candidates, new Experiment<SVD<Matrix>>() {
+			public Matrix[] createArguments(long[] size) {
+				return new Matrix[] { DenseDoubleMatrix2D.Factory.rand(size[0], size[1]) };
+			}
+
+			public void run(SVD<Matrix> candidate, Matrix[] arguments) {
+				candidate.calc(arguments[0]);
+			}
+		});
+	}
+
+	public Eig<Matrix> getEig(Matrix source) {
+		final UJMPSettings settings = UJMPSettings.getInstance();
+		final Map<String, Eig<Matrix>> candidates = new LinkedHashMap<String, Eig<Matrix>>();
+		add(candidates, UJMP, Eig.UJMP, true);
+		add(candidates, JBLAS, DecompositionOps.EIG_JBLAS, settings.isUseJBlas());
+		add(candidates, OJALGO, DecompositionOps.EIG_OJALGO, settings.isUseOjalgo());
+		add(candidates, EJML, DecompositionOps.EIG_EJML, settings.isUseEJML());
+		add(candidates, MTJ, DecompositionOps.EIG_MTJ, settings.isUseMTJ());
+		// symmetric and general inputs use different algorithms, the winner is
+		// measured and stored separately for both
+		final boolean symmetric = isSymmetric(source);
+		return select(symmetric ? OP_EIG : OP_EIGGENERAL, source.getSize(), candidates,
+				new Experiment<Eig<Matrix>>() {
+					public Matrix[] createArguments(long[] size) {
+						return new Matrix[] { symmetric ? createSymmetric(size[0])
+								: DenseDoubleMatrix2D.Factory.rand(size[0], size[0]) };
+					}
+
+					public void run(Eig<Matrix> candidate, Matrix[] arguments) {
+						candidate.calc(arguments[0]);
+					}
+				});
+	}
+
+	public LU<Matrix> getLU(Matrix source) {
+		final UJMPSettings settings = UJMPSettings.getInstance();
+		final Map<String, LU<Matrix>> candidates = new LinkedHashMap<String, LU<Matrix>>();
+		add(candidates, UJMP, LU.UJMP, true);
+		add(candidates, JBLAS, DecompositionOps.LU_JBLAS, settings.isUseJBlas());
+		add(candidates, OJALGO, DecompositionOps.LU_OJALGO, settings.isUseOjalgo());
+		add(candidates, EJML, DecompositionOps.LU_EJML, settings.isUseEJML());
+		add(candidates, MTJ, DecompositionOps.LU_MTJ, settings.isUseMTJ());
+		return select(OP_LU, source.getSize(), candidates, new Experiment<LU<Matrix>>() {
+			public Matrix[] createArguments(long[] size) {
+				return new Matrix[] { DenseDoubleMatrix2D.Factory.rand(size[0], size[1]) };
+			}
+
+			public void run(LU<Matrix> candidate, Matrix[] arguments) {
+				candidate.calc(arguments[0]);
+			}
+		});
+	}
+
+	public QR<Matrix> getQR(Matrix source) {
+		final UJMPSettings settings = UJMPSettings.getInstance();
+		final Map<String, QR<Matrix>> candidates = new LinkedHashMap<String, QR<Matrix>>();
+		add(candidates, UJMP, QR.UJMP, true);
+		add(candidates, OJALGO, DecompositionOps.QR_OJALGO, settings.isUseOjalgo());
+		add(candidates, EJML, DecompositionOps.QR_EJML, settings.isUseEJML());
+		add(candidates, MTJ, DecompositionOps.QR_MTJ, settings.isUseMTJ());
+		return select(OP_QR, source.getSize(), candidates, new Experiment<QR<Matrix>>() {
+			public Matrix[] createArguments(long[] size) {
+				return new Matrix[] { DenseDoubleMatrix2D.Factory.rand(Math.max(size[0], size[1]),
+						size[1]) };
+			}
+
+			public void run(QR<Matrix> candidate, Matrix[] arguments) {
+				candidate.calc(arguments[0]);
+			}
+		});
+	}
+
+	public Chol<Matrix> getChol(Matrix source) {
+		final UJMPSettings settings = UJMPSettings.getInstance();
+		final Map<String, Chol<Matrix>> candidates = new LinkedHashMap<String, Chol<Matrix>>();
+		add(candidates, UJMP, Chol.UJMP, true);
+		add(candidates, JBLAS, DecompositionOps.CHOL_JBLAS, settings.isUseJBlas());
+		add(candidates, OJALGO, DecompositionOps.CHOL_OJALGO, settings.isUseOjalgo());
+		add(candidates, EJML, DecompositionOps.CHOL_EJML, settings.isUseEJML());
+		add(candidates, MTJ, DecompositionOps.CHOL_MTJ, settings.isUseMTJ());
+		return select(OP_CHOL, source.getSize(), candidates, new Experiment<Chol<Matrix>>() {
+			public Matrix[] createArguments(long[] size) {
+				return new Matrix[] { createSPD(size[0]) };
+			}
+
+			public void run(Chol<Matrix> candidate, Matrix[] arguments) {
+				candidate.calc(arguments[0]);
+			}
+		});
+	}
+
+}
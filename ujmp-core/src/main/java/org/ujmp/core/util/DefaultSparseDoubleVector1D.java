@@ -28,8 +28,11 @@ import java.util.Iterator;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.stub.AbstractSparseDoubleMatrix2D;
+import org.ujmp.core.interfaces.CanMapNonZeros;
+import org.ujmp.core.interfaces.DoubleCellFunction;
 
-public class DefaultSparseDoubleVector1D extends AbstractSparseDoubleMatrix2D {
+public class DefaultSparseDoubleVector1D extends AbstractSparseDoubleMatrix2D implements
+		CanMapNonZeros {
 	private static final long serialVersionUID = -2990811989700739834L;
 
 	private static final int initialCapacity = 8;
@@ -64,6 +67,77 @@ public class DefaultSparseDoubleVector1D extends AbstractSparseDoubleMatrix2D {
 		valueCount = 0;
 	}
 
+	/**
+	 * Returns the positions of the stored values in ascending order. Only the
+	 * first {@link #getNonZeroCount()} elements are used.
+	 */
+	public final long[] getIndexArray() {
+		return indices;
+	}
+
+	/**
+	 * Returns the stored values in the order of {@link #getIndexArray()}.
+	 * Only the first {@link #getNonZeroCount()} elements are used.
+	 */
+	public final double[] getValueArray() {
+		return values;
+	}
+
+	public final int getNonZeroCount() {
+		return valueCount;
+	}
+
+	public final void mapNonZeros(DoubleCellFunction function) {
+		for (int i = 0; i < valueCount; i++) {
+			values[i] = transposed ? function.apply(0, indices[i], values[i]) : function.apply(
+					indices[i], 0, values[i]);
+		}
+		int n = 0;
+		for (int i = 0; i < valueCount; i++) {
+			if (values[i] != 0.0) {
+				indices[n] = indices[i];
+				values[n++] = values[i];
+			}
+		}
+		valueCount = n;
+	}
+
+	/**
+	 * Returns the dot product with another sparse vector by merging the
+	 * sorted indices of both vectors.
+	 */
+	public final double dot(final DefaultSparseDoubleVector1D vector) {
+		final long[] indices2 = vector.indices;
+		final double[] values2 = vector.values;
+		final int count2 = vector.valueCount;
+		double sum = 0.0;
+		int i = 0;
+		int j = 0;
+		while (i < valueCount && j < count2) {
+			final long index1 = indices[i];
+			final long index2 = indices2[j];
+			if (index1 < index2) {
+				i++;
+			} else if (index1 > index2) {
+				j++;
+			} else {
+				sum += values[i++] * values2[j++];
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the euclidean norm of this vector.
+	 */
+	public final double norm2() {
+		double sum = 0.0;
+		for (int i = 0; i < valueCount; i++) {
+			sum += values[i] * values[i];
+		}
+		return Math.sqrt(sum);
+	}
+
 	public double getDouble(long row, long column) {
 		long pos;
 		if (transposed) {
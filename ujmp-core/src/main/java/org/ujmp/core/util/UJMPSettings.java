@@ -27,6 +27,7 @@ import java.math.MathContext;
 import java.util.Locale;
 
 import org.ujmp.core.mapmatrix.DefaultMapMatrix;
+import org.ujmp.core.util.concurrent.UJMPScheduler;
 
 public class UJMPSettings extends DefaultMapMatrix<String, Object> {
 	private static final long serialVersionUID = -4677534766141735270L;
@@ -34,11 +35,15 @@ public class UJMPSettings extends DefaultMapMatrix<String, Object> {
 	private static final Object lock = new Object();
 
 	public static final String USEBLOCKMATRIXMULTIPLY = "UseBlockMatrixMultiply";
+	public static final String USEPACKEDGEMM = "UsePackedGemm";
+	public static final String USEAUTOTUNER = "UseAutotuner";
+	public static final String USESTRASSENMULTIPLY = "UseStrassenMultiply";
 	public static final String USEMULTITHREADEDRANDOM = "UseMultThreadedRandom";
 	public static final String DEFAULTBLOCKSIZE = "DefaultBlockSize";
 	public static final String MATHCONTEXT = "MathContext";
 	public static final String DEFAULTTOLERANCE = "DefaultTolerance";
 	public static final String NUMBEROFTHREADS = "NumberOfThreads";
+	public static final String MAXNUMBEROFTHREADS = "MaxNumberOfThreads";
 
 	public static final String USEJBLAS = "UseJBlas";
 	public static final String USEOJALGO = "UseOjalgo";
@@ -61,6 +66,9 @@ public class UJMPSettings extends DefaultMapMatrix<String, Object> {
 		put(MATHCONTEXT, MathContext.DECIMAL128);
 		put(USEMULTITHREADEDRANDOM, true);
 		put(USEBLOCKMATRIXMULTIPLY, false);
+		put(USEPACKEDGEMM, true);
+		put(USEAUTOTUNER, false);
+		put(USESTRASSENMULTIPLY, false);
 		put(DEFAULTTOLERANCE, 1.0e-12);
 
 		put(USEJBLAS, true);
@@ -78,6 +86,7 @@ public class UJMPSettings extends DefaultMapMatrix<String, Object> {
 		put(USERAGENT, "Mozilla/5.0 (Windows NT 6.1; WOW64; rv:28.0) Gecko/20100101 Firefox/28.0");
 
 		put(NUMBEROFTHREADS, Runtime.getRuntime().availableProcessors());
+		put(MAXNUMBEROFTHREADS, Runtime.getRuntime().availableProcessors());
 		Locale.setDefault(Locale.US);
 		System.setProperty("file.encoding", "UTF-8");
 		System.setProperty("sun.jnu.encoding", "UTF-8");
@@ -102,7 +111,17 @@ public class UJMPSettings extends DefaultMapMatrix<String, Object> {
 		put(MATHCONTEXT, mc);
 	}
 
+	/**
+	 * Returns the number of threads for parallel operations. Inside a
+	 * calculation which has been restricted with
+	 * {@link UJMPScheduler#setThreadBudget(int)}, the budget of the current
+	 * thread is returned instead.
+	 */
 	public int getNumberOfThreads() {
+		final int budget = UJMPScheduler.getThreadBudget();
+		if (budget > 0) {
+			return budget;
+		}
 		return MathUtil.getInt(get(NUMBEROFTHREADS));
 	}
 
@@ -110,6 +129,18 @@ public class UJMPSettings extends DefaultMapMatrix<String, Object> {
 		put(NUMBEROFTHREADS, numberOfThreads);
 	}
 
+	/**
+	 * Returns the number of worker threads shared by all parallel operations
+	 * in this JVM, see {@link UJMPScheduler}.
+	 */
+	public int getMaxNumberOfThreads() {
+		return MathUtil.getInt(get(MAXNUMBEROFTHREADS));
+	}
+
+	public void setMaxNumberOfThreads(int maxNumberOfThreads) {
+		put(MAXNUMBEROFTHREADS, maxNumberOfThreads);
+	}
+
 	public double getTolerance() {
 		return MathUtil.getDouble(get(DEFAULTTOLERANCE));
 	}
@@ -214,6 +245,30 @@ public class UJMPSettings extends DefaultMapMatrix<String, Object> {
 		put(USEBLOCKMATRIXMULTIPLY, useBlockMatrix);
 	}
 
+	public boolean isUsePackedGemm() {
+		return MathUtil.getBoolean(get(USEPACKEDGEMM));
+	}
+
+	public void setUsePackedGemm(boolean usePackedGemm) {
+		put(USEPACKEDGEMM, usePackedGemm);
+	}
+
+	public boolean isUseAutotuner() {
+		return MathUtil.getBoolean(get(USEAUTOTUNER));
+	}
+
+	public void setUseAutotuner(boolean useAutotuner) {
+		put(USEAUTOTUNER, useAutotuner);
+	}
+
+	public boolean isUseStrassenMultiply() {
+		return MathUtil.getBoolean(get(USESTRASSENMULTIPLY));
+	}
+
+	public void setUseStrassenMultiply(boolean useStrassenMultiply) {
+		put(USESTRASSENMULTIPLY, useStrassenMultiply);
+	}
+
 	public boolean isUseMultiThreadedRandom() {
 		return MathUtil.getBoolean(USEMULTITHREADEDRANDOM);
 	}
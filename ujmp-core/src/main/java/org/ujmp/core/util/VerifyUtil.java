@@ -162,6 +162,21 @@ public abstract class VerifyUtil {
 
 	}
 
+	/**
+	 * Verifies that the region lies inside of the matrix, as required for
+	 * getDoubleBlock and setDoubleBlock.
+	 */
+	public static final void verifyRegion(Matrix m, long row, long column, long rows,
+			long columns) {
+		verify2D(m);
+		if (row < 0 || column < 0 || rows < 0 || columns < 0 || row + rows > m.getRowCount()
+				|| column + columns > m.getColumnCount()) {
+			throw new IllegalArgumentException("region " + rows + "x" + columns + " at (" + row
+					+ "," + column + ") is outside of matrix with size " + m.getRowCount() + "x"
+					+ m.getColumnCount());
+		}
+	}
+
 	public static final void verifySquare(Matrix matrix) {
 		verify2D(matrix);
 		verifyTrue(matrix.getRowCount() == matrix.getColumnCount(), "matrix must be square");
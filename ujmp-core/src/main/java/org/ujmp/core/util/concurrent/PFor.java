@@ -23,10 +23,6 @@
 
 package org.ujmp.core.util.concurrent;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
-import java.util.concurrent.ThreadPoolExecutor;
-
 import org.ujmp.core.util.UJMPSettings;
 
 public abstract class PFor {
@@ -45,24 +41,13 @@ public abstract class PFor {
 				step(i);
 			}
 		} else {
-			final ThreadPoolExecutor es = UJMPThreadPoolExecutor.getInstance(threads);
-
-			final Future<?>[] list = new Future[threads];
-			final double stepsize = (double) (last + 1 - first) / threads;
-
-			for (int i = 0; i < threads; i++) {
-				int starti = (int) Math.ceil(first + i * stepsize);
-				int endi = (int) Math.ceil(first + (i + 1) * stepsize);
-				list[i] = es.submit(new StepCallable(starti, endi));
-			}
-
-			for (Future<?> f : list) {
-				try {
-					f.get();
-				} catch (Exception e) {
-					e.printStackTrace();
+			UJMPScheduler.parallelFor(first, last + 1, threads, new RangeTask() {
+				public void run(int start, int end) {
+					for (int i = start; i < end; i++) {
+						step(i);
+					}
 				}
-			}
+			});
 		}
 	}
 
@@ -80,22 +65,4 @@ public abstract class PFor {
 		return objects[i];
 	}
 
-	class StepCallable implements Callable<Object> {
-		private final int first;
-		private final int last;
-
-		public StepCallable(final int first, final int last) {
-			this.first = first;
-			this.last = last;
-		}
-
-		public final Void call() throws Exception {
-			for (int i = first; i < last; i++) {
-				step(i);
-			}
-			return null;
-		}
-
-	}
-
 }
@@ -23,10 +23,6 @@
 
 package org.ujmp.core.util.concurrent;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
-import java.util.concurrent.ThreadPoolExecutor;
-
 import org.ujmp.core.util.UJMPSettings;
 
 public abstract class PForEquidistant {
@@ -42,21 +38,30 @@ public abstract class PForEquidistant {
 				step(i);
 			}
 		} else {
-			final ThreadPoolExecutor es = UJMPThreadPoolExecutor.getInstance(threads);
-
-			final Future<?>[] list = new Future[threads];
-
-			for (int i = 0; i < threads; i++) {
-				list[i] = es.submit(new StepCallable(first + i, last, threads));
-			}
-
-			for (Future<?> f : list) {
-				try {
-					f.get();
-				} catch (Exception e) {
-					e.printStackTrace();
+			// the steps are ordered as first, first + threads, first + 2 * threads,
+			// ..., then first + 1, first + 1 + threads, ... and so on. A chunk of
+			// this order mixes steps from the whole range, the chunks themselves
+			// are claimed adaptively, so that fast threads take over more of them
+			final int count = last - first + 1;
+			final int shortLength = count / threads;
+			final int longSequences = count % threads;
+			final int longSteps = longSequences * (shortLength + 1);
+			UJMPScheduler.parallelFor(0, count, threads, new RangeTask() {
+				public void run(int start, int end) {
+					for (int j = start; j < end; j++) {
+						final int sequence;
+						final int position;
+						if (j < longSteps) {
+							sequence = j / (shortLength + 1);
+							position = j % (shortLength + 1);
+						} else {
+							sequence = longSequences + (j - longSteps) / shortLength;
+							position = (j - longSteps) % shortLength;
+						}
+						step(first + sequence + position * threads);
+					}
 				}
-			}
+			});
 		}
 	}
 
@@ -70,28 +75,4 @@ public abstract class PForEquidistant {
 		return objects[i];
 	}
 
-	class StepCallable implements Callable<Object> {
-		private final int first;
-		private final int last;
-		private final int stepsize;
-
-		public StepCallable(final int first, final int last, final int stepsize) {
-			this.first = first;
-			this.last = last;
-			this.stepsize = stepsize;
-		}
-
-		public final Void call() throws Exception {
-			try {
-				for (int i = first; i <= last; i += stepsize) {
-					step(i);
-				}
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-			return null;
-		}
-
-	}
-
 }
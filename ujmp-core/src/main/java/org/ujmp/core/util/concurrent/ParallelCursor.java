@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util.concurrent;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
+import org.ujmp.core.util.UJMPSettings;
+
+/**
+ * Splits the rows of a two-dimensional matrix into ranges and visits them in
+ * parallel with {@link Matrix#forEachDouble(DoubleCellVisitor, long, long)}.
+ * The visitor is called from several threads at the same time, so it must
+ * only write to locations which depend on row and column, and the matrix
+ * must support concurrent reads.
+ * 
+ * @author Holger Arndt
+ */
+public abstract class ParallelCursor {
+
+	/**
+	 * Minimum number of entries per thread.
+	 */
+	public static int PARALLELTHRESHOLD = 1 << 16;
+
+	public static void forEachDouble(final Matrix matrix, final DoubleCellVisitor visitor) {
+		final long[] bounds = split(matrix);
+		if (bounds.length == 2) {
+			matrix.forEachDouble(visitor);
+		} else {
+			new PFor(bounds.length - 1, 0, bounds.length - 2) {
+				@Override
+				public void step(int i) {
+					matrix.forEachDouble(visitor, bounds[i], bounds[i + 1]);
+				}
+			};
+		}
+	}
+
+	public static void forEachNonZero(final Matrix matrix, final DoubleCellVisitor visitor) {
+		final long[] bounds = split(matrix);
+		if (bounds.length == 2) {
+			matrix.forEachNonZero(visitor);
+		} else {
+			new PFor(bounds.length - 1, 0, bounds.length - 2) {
+				@Override
+				public void step(int i) {
+					matrix.forEachNonZero(visitor, bounds[i], bounds[i + 1]);
+				}
+			};
+		}
+	}
+
+	/**
+	 * Returns the boundaries of the row ranges, one range per thread but at
+	 * least {@link #PARALLELTHRESHOLD} entries in each range.
+	 */
+	public static long[] split(Matrix matrix) {
+		final long rows = matrix.getRowCount();
+		final long cells = rows * matrix.getColumnCount();
+		final long maxParts = Math.max(1, Math.min(rows, cells / Math.max(1, PARALLELTHRESHOLD)));
+		final int parts = (int) Math.min(maxParts, UJMPSettings.getInstance()
+				.getNumberOfThreads());
+		final long[] bounds = new long[parts + 1];
+		for (int i = 0; i <= parts; i++) {
+			bounds[i] = rows * i / parts;
+		}
+		return bounds;
+	}
+
+}
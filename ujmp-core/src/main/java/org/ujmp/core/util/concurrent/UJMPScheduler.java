@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util.concurrent;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ujmp.core.util.UJMPSettings;
+
+/**
+ * Process-wide scheduler for parallel loops. All loops share one pool of
+ * daemon threads, whose size is given by
+ * {@link UJMPSettings#getMaxNumberOfThreads()}, so nested or concurrent
+ * parallel operations never create more threads than that.
+ * <p>
+ * The thread which starts a loop always works on it, helpers from the pool
+ * join when they become free. Iterations are claimed in chunks which get
+ * smaller towards the end of the loop, so threads which finish early take
+ * over the work of slower ones. The caller only waits for chunks which are
+ * already running, which is why a loop started inside another loop cannot
+ * block the pool: if all threads are busy, the caller executes it alone.
+ *
+ * @author Holger Arndt
+ */
+public final class UJMPScheduler {
+
+	private static final Object lock = new Object();
+
+	private static final ThreadLocal<Integer> threadBudget = new ThreadLocal<Integer>();
+
+	// helpers which have been submitted but are not finished yet
+	private static final AtomicInteger helpers = new AtomicInteger();
+
+	private static ThreadPoolExecutor executor = null;
+
+	private UJMPScheduler() {
+	}
+
+	/**
+	 * Returns the executor shared by all parallel operations. The pool size
+	 * follows {@link UJMPSettings#getMaxNumberOfThreads()}.
+	 */
+	public static ThreadPoolExecutor getExecutor() {
+		final int size = Math.max(1, UJMPSettings.getInstance().getMaxNumberOfThreads());
+		synchronized (lock) {
+			if (executor == null) {
+				executor = new UJMPThreadPoolExecutor("UJMPScheduler", size, size);
+			} else if (executor.getMaximumPoolSize() < size) {
+				executor.setMaximumPoolSize(size);
+				executor.setCorePoolSize(size);
+			} else if (executor.getMaximumPoolSize() > size) {
+				executor.setCorePoolSize(size);
+				executor.setMaximumPoolSize(size);
+			}
+			return executor;
+		}
+	}
+
+	/**
+	 * Returns the maximum number of threads for parallel operations started
+	 * by the current thread, or 0 if there is no limit.
+	 */
+	public static int getThreadBudget() {
+		final Integer budget = threadBudget.get();
+		return budget == null ? 0 : budget;
+	}
+
+	/**
+	 * Limits the number of threads for parallel operations started by the
+	 * current thread, including nested loops executed by helpers on its
+	 * behalf. A value of 0 removes the limit.
+	 *
+	 * @return the previous budget, which should be restored afterwards
+	 */
+	public static int setThreadBudget(int threads) {
+		final int old = getThreadBudget();
+		if (threads > 0) {
+			threadBudget.set(threads);
+		} else {
+			threadBudget.remove();
+		}
+		return old;
+	}
+
+	/**
+	 * Executes the iterations from <code>start</code> (inclusive) to
+	 * <code>end</code> (exclusive) with up to <code>parallelism</code>
+	 * threads, including the calling thread. The first exception thrown by
+	 * the task is rethrown after all running chunks have finished.
+	 */
+	public static void parallelFor(final int start, final int end, int parallelism,
+			final RangeTask task) {
+		if (end <= start) {
+			return;
+		}
+		final int budget = getThreadBudget();
+		if (budget > 0) {
+			parallelism = Math.min(parallelism, budget);
+		}
+		parallelism = (int) Math.min(parallelism, (long) end - start);
+		if (parallelism < 2) {
+			task.run(start, end);
+			return;
+		}
+
+		final Loop loop = new Loop(start, end, parallelism, budget, task);
+		final ThreadPoolExecutor es = getExecutor();
+		final int poolSize = es.getMaximumPoolSize();
+		for (int i = 1; i < parallelism && reserveHelper(poolSize); i++) {
+			es.execute(loop);
+		}
+		loop.work();
+		loop.await();
+
+		final Throwable t = loop.error;
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		} else if (t instanceof Error) {
+			throw (Error) t;
+		} else if (t != null) {
+			throw new RuntimeException(t);
+		}
+	}
+
+	// do not queue more helpers than there are threads in the pool
+	private static boolean reserveHelper(int poolSize) {
+		for (;;) {
+			final int count = helpers.get();
+			if (count >= poolSize) {
+				return false;
+			}
+			if (helpers.compareAndSet(count, count + 1)) {
+				return true;
+			}
+		}
+	}
+
+	private static final class Loop implements Runnable {
+
+		private final AtomicInteger next;
+
+		private final AtomicInteger remaining;
+
+		private final int end;
+
+		private final int parallelism;
+
+		private final int budget;
+
+		private final RangeTask task;
+
+		private volatile Throwable error = null;
+
+		public Loop(int start, int end, int parallelism, int budget, RangeTask task) {
+			this.next = new AtomicInteger(start);
+			this.remaining = new AtomicInteger(end - start);
+			this.end = end;
+			this.parallelism = parallelism;
+			this.budget = budget;
+			this.task = task;
+		}
+
+		// entry point for helpers from the pool
+		public void run() {
+			try {
+				final int old = setThreadBudget(budget);
+				try {
+					work();
+				} finally {
+					setThreadBudget(old);
+				}
+			} finally {
+				helpers.decrementAndGet();
+			}
+		}
+
+		public void work() {
+			for (;;) {
+				int from;
+				int to;
+				do {
+					from = next.get();
+					if (from >= end) {
+						return;
+					}
+					final int chunk = Math.max(1, (end - from) / (2 * parallelism));
+					to = from + chunk;
+				} while (!next.compareAndSet(from, to));
+
+				try {
+					if (error == null) {
+						task.run(from, to);
+					}
+				} catch (Throwable t) {
+					synchronized (this) {
+						if (error == null) {
+							error = t;
+						}
+					}
+				} finally {
+					if (remaining.addAndGet(from - to) == 0) {
+						synchronized (this) {
+							notifyAll();
+						}
+					}
+				}
+			}
+		}
+
+		public synchronized void await() {
+			boolean interrupted = false;
+			// chunks cannot be abandoned, they write into shared results
+			while (remaining.get() > 0) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
@@ -32,8 +32,6 @@ import org.ujmp.core.util.UJMPSettings;
 
 public class UJMPThreadPoolExecutor extends ThreadPoolExecutor {
 
-	private static final ThreadLocal<ThreadPoolExecutor> executors = new ThreadLocal<ThreadPoolExecutor>();
-
 	public UJMPThreadPoolExecutor(String name, int corePoolSize, int maximumPoolSize,
 			long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue, int priority,
 			boolean deamon) {
@@ -52,20 +50,22 @@ public class UJMPThreadPoolExecutor extends ThreadPoolExecutor {
 				Thread.NORM_PRIORITY, true);
 	}
 
+	/**
+	 * Returns the executor shared by all parallel operations, see
+	 * {@link UJMPScheduler}. Long running tasks should use their own executor,
+	 * otherwise they keep the threads from working on parallel loops.
+	 */
 	public static final ThreadPoolExecutor getInstance() {
-		return getInstance(UJMPSettings.getInstance().getNumberOfThreads());
+		return UJMPScheduler.getExecutor();
 	}
 
+	/**
+	 * Returns the shared executor. The pool size is limited by
+	 * {@link UJMPSettings#getMaxNumberOfThreads()}, the argument is only kept
+	 * for compatibility.
+	 */
 	public static final ThreadPoolExecutor getInstance(final int maximumPoolSize) {
-		ThreadPoolExecutor es = executors.get();
-		if (es == null) {
-			synchronized (executors) {
-				es = new UJMPThreadPoolExecutor(Thread.currentThread().getName(), 0,
-						maximumPoolSize);
-				executors.set(es);
-			}
-		}
-		return es;
+		return UJMPScheduler.getExecutor();
 	}
 
 }
@@ -100,6 +100,16 @@ public class BufferedRandomAccessFile extends RandomAccessFile {
 
 	}
 
+	/**
+	 * Reads an array of any length with one positioned read, bypassing the
+	 * buffer. The buffer never contains data which has not been written to the
+	 * file, so the result is always up to date.
+	 */
+	public synchronized void readFully(long seek, byte b[]) throws IOException {
+		super.seek(seek);
+		super.readFully(b);
+	}
+
 	public synchronized void writeByte(long seek, byte value) throws IOException {
 		super.seek(seek);
 		super.writeByte(value);
@@ -33,6 +33,7 @@ import java.nio.ByteBuffer;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.Calculation.Ret;
 import org.ujmp.core.doublematrix.stub.AbstractDenseDoubleMatrix2D;
+import org.ujmp.core.util.VerifyUtil;
 
 public class ClientMatrix extends AbstractDenseDoubleMatrix2D {
 	private static final long serialVersionUID = 7947043738616156003L;
@@ -42,6 +43,13 @@ public class ClientMatrix extends AbstractDenseDoubleMatrix2D {
 	public static final int SETDOUBLE = 3;
 	public static final int ISREADONLY = 4;
 	public static final int PLUSMATRIX = 5;
+	public static final int GETDOUBLEBLOCK = 6;
+	public static final int SETDOUBLEBLOCK = 7;
+
+	/**
+	 * Size of the command, row, column, rows and columns in a block request.
+	 */
+	public static final int BLOCKHEADERSIZE = 28;
 
 	private final byte[] inputBuffer = new byte[1000000];
 	private final byte[] outputBuffer = new byte[1000000];
@@ -128,6 +136,91 @@ public class ClientMatrix extends AbstractDenseDoubleMatrix2D {
 		}
 	}
 
+	/**
+	 * Transfers the region with one round trip per chunk that fits into the
+	 * buffer, instead of one round trip per entry.
+	 */
+	public synchronized void getDoubleBlock(long row, long column, int rows, int columns,
+			double[] target, int offset, int stride) {
+		VerifyUtil.verifyRegion(this, row, column, rows, columns);
+		final int maxValues = (inputBuffer.length - BLOCKHEADERSIZE) / 8;
+		final int columnChunk = Math.min(columns, maxValues);
+		final int rowChunk = Math.max(1, maxValues / Math.max(1, columnChunk));
+		try {
+			for (int r = 0; r < rows; r += rowChunk) {
+				final int rowCount = Math.min(rowChunk, rows - r);
+				for (int c = 0; c < columns; c += columnChunk) {
+					final int columnCount = Math.min(columnChunk, columns - c);
+					outputBB.rewind();
+					outputBB.putInt(GETDOUBLEBLOCK);
+					outputBB.putLong(row + r);
+					outputBB.putLong(column + c);
+					outputBB.putInt(rowCount);
+					outputBB.putInt(columnCount);
+					outputStream.write(outputBuffer, 0, outputBB.position());
+					outputStream.flush();
+					readFully(rowCount * columnCount * 8);
+					inputBB.rewind();
+					for (int i = 0; i < rowCount; i++) {
+						final int start = offset + (r + i) * stride + c;
+						for (int j = 0; j < columnCount; j++) {
+							target[start + j] = inputBB.getDouble();
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public synchronized void setDoubleBlock(long row, long column, int rows, int columns,
+			double[] source, int offset, int stride) {
+		if (isReadOnly) {
+			throw new RuntimeException("matrix is read only");
+		}
+		VerifyUtil.verifyRegion(this, row, column, rows, columns);
+		final int maxValues = (outputBuffer.length - BLOCKHEADERSIZE) / 8;
+		final int columnChunk = Math.min(columns, maxValues);
+		final int rowChunk = Math.max(1, maxValues / Math.max(1, columnChunk));
+		try {
+			for (int r = 0; r < rows; r += rowChunk) {
+				final int rowCount = Math.min(rowChunk, rows - r);
+				for (int c = 0; c < columns; c += columnChunk) {
+					final int columnCount = Math.min(columnChunk, columns - c);
+					outputBB.rewind();
+					outputBB.putInt(SETDOUBLEBLOCK);
+					outputBB.putLong(row + r);
+					outputBB.putLong(column + c);
+					outputBB.putInt(rowCount);
+					outputBB.putInt(columnCount);
+					for (int i = 0; i < rowCount; i++) {
+						final int start = offset + (r + i) * stride + c;
+						for (int j = 0; j < columnCount; j++) {
+							outputBB.putDouble(source[start + j]);
+						}
+					}
+					outputStream.write(outputBuffer, 0, outputBB.position());
+					outputStream.flush();
+				}
+			}
+			fireValueChanged();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void readFully(int length) throws IOException {
+		int position = 0;
+		while (position < length) {
+			final int count = inputStream.read(inputBuffer, position, length - position);
+			if (count < 0) {
+				throw new IOException("connection closed");
+			}
+			position += count;
+		}
+	}
+
 	public final boolean isReadOnly() {
 		return isReadOnly;
 	}
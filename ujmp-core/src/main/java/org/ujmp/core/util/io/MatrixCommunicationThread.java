@@ -23,8 +23,9 @@
 
 package org.ujmp.core.util.io;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.nio.ByteBuffer;
@@ -34,14 +35,14 @@ import org.ujmp.core.Matrix;
 public class MatrixCommunicationThread extends Thread {
 
 	private final Matrix matrix;
-	private final InputStream inputStream;
+	private final DataInputStream inputStream;
 	private final OutputStream outputStream;
 	private final Socket socket;
 
 	public MatrixCommunicationThread(Matrix matrix, Socket socket) throws IOException {
 		this.matrix = matrix;
 		this.socket = socket;
-		this.inputStream = socket.getInputStream();
+		this.inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
 		this.outputStream = socket.getOutputStream();
 		this.setName("Matrix Communication on Port " + socket.getPort());
 		this.setDaemon(true);
@@ -55,10 +56,9 @@ public class MatrixCommunicationThread extends Thread {
 		final ByteBuffer outputBB = ByteBuffer.wrap(outputBuffer);
 		try {
 			while (socket.isConnected() && !socket.isInputShutdown() && !socket.isOutputShutdown()) {
-				inputStream.read(inputBuffer);
-				inputBB.rewind();
+				// read exactly one command, several may arrive in one packet
+				final int type = inputStream.readInt();
 				outputBB.rewind();
-				int type = inputBB.getInt();
 				switch (type) {
 				case ClientMatrix.GETSIZE:
 					outputBB.putLong(matrix.getRowCount());
@@ -68,11 +68,40 @@ public class MatrixCommunicationThread extends Thread {
 					outputBB.put(matrix.isReadOnly() ? (byte) 1 : (byte) 0);
 					break;
 				case ClientMatrix.GETDOUBLE:
-					outputBB.putDouble(matrix.getAsDouble(inputBB.getLong(), inputBB.getLong()));
+					outputBB.putDouble(matrix.getAsDouble(inputStream.readLong(), inputStream
+							.readLong()));
 					break;
 				case ClientMatrix.SETDOUBLE:
-					matrix.setAsDouble(inputBB.getDouble(), inputBB.getLong(), inputBB.getLong());
+					matrix.setAsDouble(inputStream.readDouble(), inputStream.readLong(),
+							inputStream.readLong());
 					break;
+				case ClientMatrix.GETDOUBLEBLOCK: {
+					final long row = inputStream.readLong();
+					final long column = inputStream.readLong();
+					final int rows = inputStream.readInt();
+					final int columns = inputStream.readInt();
+					final double[] values = new double[rows * columns];
+					matrix.getDoubleBlock(row, column, rows, columns, values, 0, columns);
+					outputBB.asDoubleBuffer().put(values);
+					outputBB.position(values.length * 8);
+					break;
+				}
+				case ClientMatrix.SETDOUBLEBLOCK: {
+					final long row = inputStream.readLong();
+					final long column = inputStream.readLong();
+					final int rows = inputStream.readInt();
+					final int columns = inputStream.readInt();
+					final int payloadLength = rows * columns * 8;
+					if (payloadLength > inputBuffer.length - ClientMatrix.BLOCKHEADERSIZE) {
+						throw new IOException("block too large: " + rows + "x" + columns);
+					}
+					inputStream.readFully(inputBuffer, 0, payloadLength);
+					inputBB.rewind();
+					final double[] values = new double[rows * columns];
+					inputBB.asDoubleBuffer().get(values);
+					matrix.setDoubleBlock(row, column, rows, columns, values, 0, columns);
+					break;
+				}
 				default:
 					throw new RuntimeException("unknown command: " + type);
 				}
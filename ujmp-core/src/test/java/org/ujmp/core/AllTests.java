@@ -28,6 +28,9 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ org.ujmp.core.doublematrix.impl.AllTests.class,
+		org.ujmp.core.doublematrix.calculation.general.decomposition.AllTests.class,
+		org.ujmp.core.floatmatrix.impl.AllTests.class,
+		org.ujmp.core.booleanmatrix.impl.AllTests.class,
 		org.ujmp.core.calculation.AllTests.class, org.ujmp.core.collections.AllTests.class,
 		org.ujmp.core.implementations.AllTests.class, org.ujmp.core.util.AllTests.class,
 		org.ujmp.core.annotation.AllTests.class, org.ujmp.core.io.AllTests.class })
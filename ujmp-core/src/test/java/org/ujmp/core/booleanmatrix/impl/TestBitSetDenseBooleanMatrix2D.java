@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.booleanmatrix.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestBitSetDenseBooleanMatrix2D {
+
+	private static boolean[][] rand(long seed, int rows, int cols, double density) {
+		Random random = new Random(seed);
+		boolean[][] values = new boolean[rows][cols];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				values[r][c] = random.nextDouble() < density;
+			}
+		}
+		return values;
+	}
+
+	private static BitSetDenseBooleanMatrix2D create(boolean[][] values) {
+		BitSetDenseBooleanMatrix2D m = new BitSetDenseBooleanMatrix2D(values.length,
+				values[0].length);
+		for (int r = 0; r < values.length; r++) {
+			for (int c = 0; c < values[0].length; c++) {
+				m.setBoolean(values[r][c], r, c);
+			}
+		}
+		return m;
+	}
+
+	private static void assertMatrix(boolean[][] expected, Matrix m) {
+		assertEquals(expected.length, m.getRowCount());
+		assertEquals(expected[0].length, m.getColumnCount());
+		for (int r = 0; r < expected.length; r++) {
+			for (int c = 0; c < expected[0].length; c++) {
+				assertEquals(expected[r][c], m.getAsBoolean(r, c));
+			}
+		}
+	}
+
+	@Test
+	public void testLogic() throws Exception {
+		boolean[][] a = rand(1, 70, 13, 0.5);
+		boolean[][] b = rand(2, 70, 13, 0.5);
+		boolean[][] and = new boolean[70][13];
+		boolean[][] or = new boolean[70][13];
+		boolean[][] xor = new boolean[70][13];
+		boolean[][] not = new boolean[70][13];
+		for (int r = 0; r < 70; r++) {
+			for (int c = 0; c < 13; c++) {
+				and[r][c] = a[r][c] && b[r][c];
+				or[r][c] = a[r][c] || b[r][c];
+				xor[r][c] = a[r][c] ^ b[r][c];
+				not[r][c] = !a[r][c];
+			}
+		}
+		BitSetDenseBooleanMatrix2D m1 = create(a);
+		BitSetDenseBooleanMatrix2D m2 = create(b);
+		assertMatrix(and, m1.and(Ret.NEW, m2));
+		assertMatrix(or, m1.or(Ret.NEW, m2));
+		assertMatrix(xor, m1.xor(Ret.NEW, m2));
+		Matrix m3 = m1.not(Ret.NEW);
+		assertEquals(BitSetDenseBooleanMatrix2D.class, m3.getClass());
+		assertMatrix(not, m3);
+		// padding bits of NOT must not be counted
+		assertEquals(70 * 13 - m1.sum(Ret.NEW, Matrix.ALL, false).getAsDouble(0, 0), m3.sum(
+				Ret.NEW, Matrix.ALL, false).getAsDouble(0, 0), 0.0);
+
+		m1.and(Ret.ORIG, m2);
+		assertMatrix(and, m1);
+	}
+
+	@Test
+	public void testCount() throws Exception {
+		boolean[][] a = rand(3, 130, 7, 0.3);
+		BitSetDenseBooleanMatrix2D m = create(a);
+		Matrix rows = m.sum(Ret.NEW, Matrix.COLUMN, false);
+		Matrix columns = m.sum(Ret.NEW, Matrix.ROW, false);
+		int all = 0;
+		for (int r = 0; r < 130; r++) {
+			int count = 0;
+			for (int c = 0; c < 7; c++) {
+				count += a[r][c] ? 1 : 0;
+			}
+			assertEquals(count, rows.getAsDouble(r, 0), 0.0);
+			all += count;
+		}
+		for (int c = 0; c < 7; c++) {
+			int count = 0;
+			for (int r = 0; r < 130; r++) {
+				count += a[r][c] ? 1 : 0;
+			}
+			assertEquals(count, columns.getAsDouble(0, c), 0.0);
+		}
+		assertEquals(all, m.sum(Ret.NEW, Matrix.ALL, false).getAsDouble(0, 0), 0.0);
+	}
+
+	@Test
+	public void testProducts() throws Exception {
+		int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		int threshold = BitSetDenseBooleanMatrix2D.PARALLELTHRESHOLD;
+		try {
+			UJMPSettings.getInstance().setNumberOfThreads(4);
+			BitSetDenseBooleanMatrix2D.PARALLELTHRESHOLD = 0;
+			boolean[][] a = rand(4, 67, 90, 0.05);
+			boolean[][] b = rand(5, 90, 71, 0.05);
+			BitSetDenseBooleanMatrix2D m1 = create(a);
+			BitSetDenseBooleanMatrix2D m2 = create(b);
+			Matrix counts = m1.mtimes(m2);
+			Matrix sparseCounts = SparseMatrix.Factory.zeros(67, 71);
+			m1.countProduct(m2, sparseCounts);
+			BitSetDenseBooleanMatrix2D product = m1.booleanProduct(m2);
+			for (int i = 0; i < 67; i++) {
+				for (int j = 0; j < 71; j++) {
+					int count = 0;
+					for (int k = 0; k < 90; k++) {
+						count += a[i][k] && b[k][j] ? 1 : 0;
+					}
+					assertEquals(count, counts.getAsDouble(i, j), 0.0);
+					assertEquals(count, sparseCounts.getAsDouble(i, j), 0.0);
+					assertEquals(count > 0, product.getBoolean(i, j));
+				}
+			}
+
+			boolean[][] graph = rand(6, 150, 150, 0.01);
+			boolean[][] closure = new boolean[150][];
+			for (int i = 0; i < 150; i++) {
+				closure[i] = graph[i].clone();
+			}
+			for (int k = 0; k < 150; k++) {
+				for (int i = 0; i < 150; i++) {
+					for (int j = 0; j < 150; j++) {
+						closure[i][j] |= closure[i][k] && closure[k][j];
+					}
+				}
+			}
+			assertMatrix(closure, create(graph).transitiveClosure());
+		} finally {
+			UJMPSettings.getInstance().setNumberOfThreads(threads);
+			BitSetDenseBooleanMatrix2D.PARALLELTHRESHOLD = threshold;
+		}
+	}
+
+}
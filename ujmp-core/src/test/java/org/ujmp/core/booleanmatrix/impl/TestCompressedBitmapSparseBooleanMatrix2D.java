@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.booleanmatrix.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+
+public class TestCompressedBitmapSparseBooleanMatrix2D {
+
+	@Test
+	public void testRowOperations() throws Exception {
+		Random random = new Random(11);
+		CompressedBitmapSparseBooleanMatrix2D m = new CompressedBitmapSparseBooleanMatrix2D(200,
+				100000);
+		boolean[][] expected = new boolean[200][100000];
+		for (int i = 0; i < 20000; i++) {
+			int r = random.nextInt(200);
+			int c = random.nextInt(100000);
+			boolean value = random.nextInt(4) != 0;
+			m.setBoolean(value, r, c);
+			expected[r][c] = value;
+		}
+		m.setBoolean(true, 200, 0);
+		assertEquals(false, m.getBoolean(200, 0));
+
+		long cardinality = 0;
+		for (int r = 0; r < 200; r++) {
+			int count = 0;
+			for (int c = 0; c < 100000; c++) {
+				count += expected[r][c] ? 1 : 0;
+			}
+			assertEquals(count, m.getRowCardinality(r));
+			cardinality += count;
+		}
+		assertEquals(cardinality, m.getCardinality());
+
+		int union = 0;
+		int intersection = 0;
+		for (int c = 0; c < 100000; c++) {
+			union += expected[3][c] || expected[7][c] ? 1 : 0;
+			intersection += expected[3][c] && expected[7][c] ? 1 : 0;
+		}
+		assertEquals(union, m.rowUnion(3, 7).cardinality());
+		assertEquals(intersection, m.rowIntersection(3, 7).cardinality());
+		assertEquals(intersection, m.rowIntersectionCount(3, 7));
+
+		long previous = -1;
+		int count = 0;
+		for (long[] c : m.availableCoordinates()) {
+			long index = c[Matrix.ROW] * 100000 + c[Matrix.COLUMN];
+			assertTrue(index > previous);
+			assertTrue(expected[(int) c[Matrix.ROW]][(int) c[Matrix.COLUMN]]);
+			previous = index;
+			count++;
+		}
+		assertEquals(cardinality, count);
+	}
+
+	@Test
+	public void testConversion() throws Exception {
+		Random random = new Random(13);
+		BitSetDenseBooleanMatrix2D dense = new BitSetDenseBooleanMatrix2D(130, 70);
+		for (int i = 0; i < 500; i++) {
+			dense.setBoolean(true, random.nextInt(130), random.nextInt(70));
+		}
+		CompressedBitmapSparseBooleanMatrix2D sparse = new CompressedBitmapSparseBooleanMatrix2D(
+				dense);
+		BitSetDenseBooleanMatrix2D back = sparse.toBitSetDenseBooleanMatrix2D();
+		for (int r = 0; r < 130; r++) {
+			for (int c = 0; c < 70; c++) {
+				assertEquals(dense.getBoolean(r, c), sparse.getBoolean(r, c));
+				assertEquals(dense.getBoolean(r, c), back.getBoolean(r, c));
+			}
+		}
+		assertEquals(dense.sum(Ret.NEW, Matrix.ALL, false).getAsDouble(0, 0),
+				sparse.getCardinality(), 0.0);
+	}
+
+	@Test
+	public void testMask() throws Exception {
+		Matrix m = Matrix.Factory.rand(4, 6);
+		CompressedBitmapSparseBooleanMatrix2D mask = new CompressedBitmapSparseBooleanMatrix2D(1,
+				6);
+		mask.setBoolean(true, 0, 1);
+		mask.setBoolean(true, 0, 4);
+		assertArrayEquals(new long[] { 1, 4 }, mask.getColumnIndices(0));
+		Matrix selected = mask.selectMaskedColumns(Ret.NEW, m, 0);
+		assertEquals(2, selected.getColumnCount());
+		assertEquals(m.getAsDouble(2, 4), selected.getAsDouble(2, 1), 0.0);
+		Matrix deleted = mask.deleteMaskedColumns(Ret.NEW, m, 0);
+		assertEquals(4, deleted.getColumnCount());
+		assertEquals(m.getAsDouble(1, 5), deleted.getAsDouble(1, 3), 0.0);
+		assertEquals(m.getAsDouble(1, 2), deleted.getAsDouble(1, 1), 0.0);
+
+		CompressedBitmapSparseBooleanMatrix2D column = new CompressedBitmapSparseBooleanMatrix2D(
+				4, 1);
+		column.setBoolean(true, 2, 0);
+		assertArrayEquals(new long[] { 2 }, column.getRowIndices(0));
+		assertEquals(m.getAsDouble(2, 3), column.selectMaskedRows(Ret.NEW, m, 0)
+				.getAsDouble(0, 3), 0.0);
+		Matrix remaining = column.deleteMaskedRows(Ret.NEW, m, 0);
+		assertEquals(3, remaining.getRowCount());
+		assertEquals(m.getAsDouble(3, 0), remaining.getAsDouble(2, 0), 0.0);
+
+		try {
+			mask.selectMaskedRows(Ret.NEW, m, 0);
+			fail("mask length does not match");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+}
@@ -29,6 +29,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ org.ujmp.core.calculation.string.AllTests.class,
 		TestMissingValueImputation.class, TestSortrows.class, TestGinv.class,
-		TestConcatenation.class, TestMtimes.class })
+		TestConcatenation.class, TestMtimes.class, TestFusedEntrywiseCalculation.class,
+		TestParallelCalculation.class })
 public class AllTests {
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.calculation.FusedEntrywiseCalculation;
+import org.ujmp.core.doublematrix.calculation.basic.PlusMatrix;
+import org.ujmp.core.doublematrix.impl.ArrayDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestFusedEntrywiseCalculation {
+
+	private static final double TOLERANCE = 1e-12;
+
+	private static Matrix chain(Matrix a, Matrix b, Matrix c, Ret returnType) {
+		return a.plus(Ret.LINK, false, b).times(Ret.LINK, false, 2.0)
+				.minus(Ret.LINK, false, c).tanh(Ret.LINK).power(returnType, 2.0);
+	}
+
+	private static void assertChain(Matrix a, Matrix b, Matrix c, Matrix result) {
+		for (int r = 0; r < a.getRowCount(); r++) {
+			for (int col = 0; col < a.getColumnCount(); col++) {
+				double expected = Math.pow(Math.tanh((a.getAsDouble(r, col) + b.getAsDouble(r, col))
+						* 2.0 - c.getAsDouble(r, col)), 2.0);
+				assertEquals(expected, result.getAsDouble(r, col), TOLERANCE);
+			}
+		}
+	}
+
+	@Test
+	public void testColumnMajorSources() {
+		Matrix a = DenseMatrix.Factory.randn(37, 29);
+		Matrix b = DenseMatrix.Factory.randn(37, 29);
+		Matrix c = DenseMatrix.Factory.randn(37, 29);
+		assertTrue(a instanceof DefaultDenseDoubleMatrix2D);
+		Matrix result = chain(a, b, c, Ret.NEW);
+		assertTrue(result instanceof DefaultDenseDoubleMatrix2D);
+		assertChain(a, b, c, result);
+		assertEquals(chain(a, b, c, Ret.LINK), result);
+	}
+
+	@Test
+	public void testMixedSources() {
+		Matrix a = DenseMatrix.Factory.randn(40, 40);
+		Matrix b = new ArrayDenseDoubleMatrix2D(DenseMatrix.Factory.randn(40, 40));
+		// a linked transpose is not entrywise and read as a generic matrix
+		Matrix c = DenseMatrix.Factory.randn(40, 40).transpose(Ret.LINK);
+		assertChain(a, b, c, chain(a, b, c, Ret.NEW));
+	}
+
+	@Test
+	public void testRowMajorSources() {
+		Matrix a = new ArrayDenseDoubleMatrix2D(DenseMatrix.Factory.randn(37, 29));
+		Matrix b = new ArrayDenseDoubleMatrix2D(DenseMatrix.Factory.randn(37, 29));
+		Matrix c = DenseMatrix.Factory.randn(37, 29);
+		Matrix result = chain(a, b, c, Ret.NEW);
+		assertTrue(result instanceof ArrayDenseDoubleMatrix2D);
+		assertChain(a, b, c, result);
+		// the column-major source is read across the columns
+		assertChain(c, b, a, chain(c, b, a, Ret.NEW));
+	}
+
+	@Test
+	public void testIgnoreNaN() {
+		Matrix a = Matrix.Factory.linkToArray(new double[][] { { 1, Double.NaN }, { 3, 4 } });
+		Matrix b = Matrix.Factory.linkToArray(new double[][] { { Double.NaN, 2 }, { 3, 4 } });
+		Matrix result = a.plus(Ret.LINK, true, b).times(Ret.NEW, true, 2.0);
+		assertEquals(2.0, result.getAsDouble(0, 0), TOLERANCE);
+		assertEquals(4.0, result.getAsDouble(0, 1), TOLERANCE);
+		assertEquals(12.0, result.getAsDouble(1, 0), TOLERANCE);
+		assertEquals(16.0, result.getAsDouble(1, 1), TOLERANCE);
+	}
+
+	@Test
+	public void testParallel() {
+		final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		final int threshold = FusedEntrywiseCalculation.PARALLELTHRESHOLD;
+		try {
+			UJMPSettings.getInstance().setNumberOfThreads(4);
+			FusedEntrywiseCalculation.PARALLELTHRESHOLD = 0;
+			// not a multiple of the block size
+			Matrix a = DenseMatrix.Factory.randn(113, 71);
+			Matrix b = DenseMatrix.Factory.randn(113, 71);
+			Matrix c = DenseMatrix.Factory.randn(113, 71);
+			assertChain(a, b, c, chain(a, b, c, Ret.NEW));
+			Matrix d = new ArrayDenseDoubleMatrix2D(b);
+			Matrix e = new ArrayDenseDoubleMatrix2D(c);
+			assertChain(a, d, e, chain(a, d, e, Ret.NEW));
+		} finally {
+			UJMPSettings.getInstance().setNumberOfThreads(threads);
+			FusedEntrywiseCalculation.PARALLELTHRESHOLD = threshold;
+		}
+	}
+
+	@Test
+	public void testNotApplicable() {
+		Matrix a = DenseMatrix.Factory.randn(5, 4);
+		assertTrue(FusedEntrywiseCalculation.isApplicable(new PlusMatrix(a, a)));
+		Matrix sparse = SparseMatrix.Factory.zeros(5, 4);
+		sparse.setAsDouble(1.0, 2, 3);
+		assertTrue(!FusedEntrywiseCalculation.isApplicable(new PlusMatrix(a, sparse)));
+		Matrix result = a.plus(Ret.LINK, false, sparse).exp(Ret.NEW);
+		assertEquals(Math.exp(a.getAsDouble(2, 3) + 1.0), result.getAsDouble(2, 3), TOLERANCE);
+	}
+
+}
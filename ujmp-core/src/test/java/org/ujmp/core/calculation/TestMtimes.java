@@ -25,9 +25,13 @@ package org.ujmp.core.calculation;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Random;
+
 import org.junit.Test;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.impl.ArrayDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.RowMajorGemm;
 
 public class TestMtimes {
 
@@ -66,4 +70,56 @@ public class TestMtimes {
 		assertEquals(c_correct, c1);
 	}
 
+	@Test
+	public void testRowMajorGemm() {
+		Random random = new Random(3);
+		double[][] a = new double[231][617];
+		double[][] b = new double[617][559];
+		for (double[] row : a) {
+			for (int c = 0; c < row.length; c++) {
+				row[c] = random.nextDouble() - 0.5;
+			}
+		}
+		for (double[] row : b) {
+			for (int c = 0; c < row.length; c++) {
+				row[c] = random.nextDouble() - 0.5;
+			}
+		}
+
+		double[][] c1 = new double[231][559];
+		RowMajorGemm.gemm(1, a, b, c1);
+
+		for (int r = 0; r < 231; r += 23) {
+			for (int c = 0; c < 559; c += 31) {
+				double sum = 0.0;
+				for (int k = 0; k < 617; k++) {
+					sum += a[r][k] * b[k][c];
+				}
+				assertEquals(sum, c1[r][c], 1e-10);
+			}
+		}
+
+		for (int threads = 2; threads <= 9; threads++) {
+			double[][] c2 = new double[231][559];
+			c2[5][7] = 1.0;
+			RowMajorGemm.gemm(threads, a, b, c2);
+			for (int r = 0; r < 231; r++) {
+				for (int c = 0; c < 559; c++) {
+					assertEquals(c1[r][c], c2[r][c], 0.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testArrayDenseDoubleMatrix2D() {
+		Matrix a = new ArrayDenseDoubleMatrix2D(Matrix.Factory.randn(150, 120));
+		Matrix b = new ArrayDenseDoubleMatrix2D(Matrix.Factory.randn(120, 110));
+
+		Matrix c_correct = a.mtimes(Ret.NEW, true, b);
+		Matrix c1 = a.mtimes(b);
+
+		assertEquals(0.0, c_correct.minus(c1).getAbsoluteValueSum(), 1e-9);
+	}
+
 }
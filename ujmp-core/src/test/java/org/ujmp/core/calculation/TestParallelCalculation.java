@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.entrywise.basic.Exp;
+import org.ujmp.core.doublematrix.impl.ArrayDenseDoubleMatrix2D;
+import org.ujmp.core.enums.ValueType;
+import org.ujmp.core.objectmatrix.calculation.Tril;
+import org.ujmp.core.stringmatrix.calculation.UpperCase;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestParallelCalculation {
+
+	private static final double TOLERANCE = 1e-12;
+
+	private static class ThreadRecorder extends AbstractDoubleCalculation {
+		private static final long serialVersionUID = 1L;
+
+		final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+		public ThreadRecorder(Matrix m) {
+			super(m);
+		}
+
+		public double getDouble(long... coordinates) {
+			threads.add(Thread.currentThread());
+			return getSource().getAsDouble(coordinates) + 1.0;
+		}
+	}
+
+	private static class ThreadSafeRecorder extends ThreadRecorder implements
+			CanUseMultipleThreads {
+		private static final long serialVersionUID = 1L;
+
+		// counted down by every thread when it computes its first entry
+		private final CountDownLatch joined;
+
+		public ThreadSafeRecorder(Matrix m, int threads) {
+			super(m);
+			joined = new CountDownLatch(threads);
+		}
+
+		public double getDouble(long... coordinates) {
+			if (threads.add(Thread.currentThread())) {
+				joined.countDown();
+			}
+			// the caller must not finish alone before the helpers have joined
+			try {
+				if (!joined.await(10, TimeUnit.SECONDS)) {
+					while (joined.getCount() > 0) {
+						joined.countDown();
+					}
+				}
+			} catch (InterruptedException e) {
+			}
+			return super.getDouble(coordinates);
+		}
+	}
+
+	@Test
+	public void testThreadSafety() {
+		Matrix m = DenseMatrix.Factory.zeros(2, 2);
+		assertTrue(new Exp(m).isThreadSafe());
+		assertTrue(new UpperCase(m).isThreadSafe());
+		assertFalse(new ThreadRecorder(m).isThreadSafe());
+	}
+
+	@Test
+	public void testThreadCount() {
+		final int threshold = AbstractCalculation.PARALLELTHRESHOLD;
+		final int maxThreads = UJMPSettings.getInstance().getMaxNumberOfThreads();
+		try {
+			AbstractCalculation.PARALLELTHRESHOLD = 100;
+			UJMPSettings.getInstance().setMaxNumberOfThreads(3);
+			Matrix m = DenseMatrix.Factory.randn(50, 40);
+
+			ThreadSafeRecorder parallel = new ThreadSafeRecorder(m, 2);
+			parallel.useThreads(3);
+			assertEquals(3, parallel.getThreadCount());
+			assertEquals(m.plus(1.0), parallel.calcNew());
+			assertTrue(parallel.threads.size() > 1);
+			assertTrue(parallel.threads.size() <= 3);
+
+			ThreadRecorder serial = new ThreadRecorder(m);
+			serial.useThreads(3);
+			assertEquals(m.plus(1.0), serial.calcNew());
+			assertEquals(1, serial.threads.size());
+
+			ThreadSafeRecorder single = new ThreadSafeRecorder(m, 1);
+			single.useThreads(1);
+			single.calcNew();
+			assertEquals(1, single.threads.size());
+
+			// a linked source which is not thread-safe keeps it serial
+			ThreadRecorder linked = new ThreadRecorder(m);
+			ThreadSafeRecorder outer = new ThreadSafeRecorder(linked.calc(Ret.LINK), 1);
+			outer.useThreads(3);
+			assertEquals(m.plus(1.0).plus(1.0), outer.calcNew());
+			assertEquals(1, linked.threads.size());
+			assertEquals(1, outer.threads.size());
+		} finally {
+			AbstractCalculation.PARALLELTHRESHOLD = threshold;
+			UJMPSettings.getInstance().setMaxNumberOfThreads(maxThreads);
+		}
+	}
+
+	@Test
+	public void testParallelMaterialization() {
+		final int threshold = AbstractCalculation.PARALLELTHRESHOLD;
+		try {
+			AbstractCalculation.PARALLELTHRESHOLD = 10;
+
+			// sparse sources are not fused and are computed by one thread
+			Matrix sparse = SparseMatrix.Factory.zeros(37, 23);
+			sparse.setAsDouble(2.0, 3, 4);
+			sparse.setAsDouble(-1.0, 36, 22);
+			Matrix exp = new Exp(sparse).useThreads(4).calcNew();
+			for (int r = 0; r < 37; r++) {
+				for (int c = 0; c < 23; c++) {
+					assertEquals(Math.exp(sparse.getAsDouble(r, c)), exp.getAsDouble(r, c),
+							TOLERANCE);
+				}
+			}
+
+			// row-major targets are split into rows
+			Matrix dense = DenseMatrix.Factory.randn(41, 3);
+			Matrix array = new ArrayDenseDoubleMatrix2D(dense);
+			new Exp(array).useThreads(4).calcOrig();
+			assertEquals(dense.exp(Ret.NEW), array);
+
+			Matrix strings = Matrix.Factory.zeros(ValueType.STRING, 20, 30);
+			for (int r = 0; r < 20; r++) {
+				for (int c = 0; c < 30; c++) {
+					strings.setAsString("r" + r + "c" + c, r, c);
+				}
+			}
+			Matrix upper = new UpperCase(strings).useThreads(4).calcNew();
+			assertEquals("R7C13", upper.getAsString(7, 13));
+			assertEquals("R19C29", upper.getAsString(19, 29));
+
+			Matrix objects = DenseMatrix.Factory.randn(30, 30);
+			Matrix expected = objects.tril(Ret.NEW, 0);
+			new Tril(objects, 0).useThreads(4).calcOrig();
+			assertEquals(expected, objects);
+		} finally {
+			AbstractCalculation.PARALLELTHRESHOLD = threshold;
+		}
+	}
+
+}
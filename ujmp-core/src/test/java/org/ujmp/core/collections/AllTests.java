@@ -29,6 +29,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ TestArrayIndexList.class, TestTextMap.class, TestSortedListSet.class,
 		TestSoftHashMapList.class, TestSoftHashMap.class, TestSerializedObjectMap.class,
-		TestRingBufferList.class, TestLazyMap.class, TestCachedMap.class, TestHashMapList.class })
+		TestRingBufferList.class, TestLazyMap.class, TestCachedMap.class, TestHashMapList.class,
+		TestLongKeyHashMap.class, TestCompressedBitmap.class })
 public class AllTests {
 }
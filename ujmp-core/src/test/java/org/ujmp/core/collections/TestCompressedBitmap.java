@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Test;
+import org.ujmp.core.collections.set.CompressedBitmap;
+import org.ujmp.core.util.SerializationUtil;
+
+public class TestCompressedBitmap {
+
+	private static int[] toArray(SortedSet<Integer> set) {
+		int[] values = new int[set.size()];
+		int i = 0;
+		for (Integer v : set) {
+			values[i++] = v;
+		}
+		return values;
+	}
+
+	private static void fill(Random random, CompressedBitmap bitmap, SortedSet<Integer> set,
+			int count) {
+		for (int i = 0; i < count; i++) {
+			// two dense groups and values spread over many groups
+			int value = random.nextBoolean() ? random.nextInt(20000) : random
+					.nextInt(Integer.MAX_VALUE);
+			bitmap.add(value);
+			set.add(value);
+		}
+	}
+
+	@Test
+	public void testRandomOperations() throws Exception {
+		Random random = new Random(5);
+		CompressedBitmap bitmap = new CompressedBitmap();
+		SortedSet<Integer> expected = new TreeSet<Integer>();
+		fill(random, bitmap, expected, 20000);
+		assertEquals(expected.size(), bitmap.cardinality());
+		assertArrayEquals(toArray(expected), bitmap.toArray());
+
+		for (int i = 0; i < 15000; i++) {
+			int value = random.nextInt(20000);
+			assertEquals(expected.remove(value), bitmap.remove(value));
+			assertEquals(expected.contains(value + 1), bitmap.contains(value + 1));
+		}
+		assertEquals(expected.size(), bitmap.cardinality());
+		assertArrayEquals(toArray(expected), bitmap.toArray());
+		assertEquals(bitmap, SerializationUtil.deserialize(SerializationUtil.serialize(bitmap)));
+	}
+
+	@Test
+	public void testSetOperations() throws Exception {
+		Random random = new Random(7);
+		for (int n : new int[] { 100, 9000, 30000 }) {
+			CompressedBitmap a = new CompressedBitmap();
+			CompressedBitmap b = new CompressedBitmap();
+			SortedSet<Integer> setA = new TreeSet<Integer>();
+			SortedSet<Integer> setB = new TreeSet<Integer>();
+			fill(random, a, setA, n);
+			fill(random, b, setB, n / 3);
+
+			SortedSet<Integer> union = new TreeSet<Integer>(setA);
+			union.addAll(setB);
+			SortedSet<Integer> intersection = new TreeSet<Integer>(setA);
+			intersection.retainAll(setB);
+
+			assertArrayEquals(toArray(union), CompressedBitmap.or(a, b).toArray());
+			assertArrayEquals(toArray(union), CompressedBitmap.or(b, a).toArray());
+			assertArrayEquals(toArray(intersection), CompressedBitmap.and(a, b).toArray());
+			assertArrayEquals(toArray(intersection), CompressedBitmap.and(b, a).toArray());
+			assertEquals(intersection.size(), CompressedBitmap.andCardinality(a, b));
+			assertEquals(intersection.size(), CompressedBitmap.andCardinality(b, a));
+
+			// operands are not modified
+			assertArrayEquals(toArray(setA), a.toArray());
+			assertArrayEquals(toArray(setB), b.toArray());
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.collections.map.LongDoubleHashMap;
+import org.ujmp.core.collections.map.LongObjectHashMap;
+import org.ujmp.core.doublematrix.impl.DefaultSparseDoubleMatrix;
+import org.ujmp.core.objectmatrix.impl.DefaultSparseObjectMatrix;
+import org.ujmp.core.objectmatrix.impl.VolatileSparseObjectMatrix;
+import org.ujmp.core.util.SerializationUtil;
+
+public class TestLongKeyHashMap {
+
+	@Test
+	public void testRandomOperations() throws Exception {
+		Random random = new Random(3);
+		LongObjectHashMap<String> objects = new LongObjectHashMap<String>();
+		LongDoubleHashMap doubles = new LongDoubleHashMap();
+		Map<Long, String> expected = new HashMap<Long, String>();
+		for (int i = 0; i < 20000; i++) {
+			// few distinct keys, so that removals hit long probe sequences
+			long key = random.nextInt(500) * 1024L;
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), objects.remove(key));
+				doubles.remove(key);
+			} else {
+				assertEquals(expected.put(key, "v" + i), objects.put(key, "v" + i));
+				doubles.put(key, i);
+			}
+			assertEquals(expected.size(), objects.size());
+			assertEquals(expected.size(), doubles.size());
+		}
+		for (long key = 0; key < 500 * 1024L; key += 1024) {
+			assertEquals(expected.get(key), objects.get(key));
+			assertEquals(expected.containsKey(key), doubles.containsKey(key));
+			if (expected.containsKey(key)) {
+				assertEquals(Double.parseDouble(expected.get(key).substring(1)),
+						doubles.get(key), 0.0);
+			} else {
+				assertEquals(0.0, doubles.get(key), 0.0);
+			}
+		}
+
+		long[] keys = new long[expected.size()];
+		int i = 0;
+		for (long key : expected.keySet()) {
+			keys[i++] = key;
+		}
+		Arrays.sort(keys);
+		assertArrayEquals(keys, objects.keys(true));
+		assertArrayEquals(keys, doubles.keys(true));
+
+		objects.clear();
+		assertEquals(0, objects.size());
+		assertNull(objects.get(keys[0]));
+	}
+
+	@Test
+	public void testSparseMatrixStore() throws Exception {
+		DefaultSparseDoubleMatrix m = new DefaultSparseDoubleMatrix(1000000, 1000000);
+		m.setAsDouble(2.0, 999999, 3);
+		m.setAsDouble(1.0, 5, 999999);
+		m.setAsDouble(3.0, 5, 7);
+		m.setAsDouble(0.0, 5, 7);
+		m.setAsDouble(4.0, 1000000, 0);
+		assertEquals(2, m.getValueCount());
+		assertEquals(2.0, m.getAsDouble(999999, 3), 0.0);
+		assertEquals(0.0, m.getAsDouble(5, 7), 0.0);
+		assertEquals(Double.valueOf(1.0), m.getObject(5, 999999));
+
+		Iterable<long[]> coordinates = m.availableCoordinates(true);
+		Iterator<long[]> it = coordinates.iterator();
+		assertArrayEquals(new long[] { 5, 999999 }, it.next());
+		assertArrayEquals(new long[] { 999999, 3 }, it.next());
+
+		Matrix copy = (Matrix) SerializationUtil.deserialize(SerializationUtil.serialize(m));
+		assertEquals(m, copy);
+
+		DefaultSparseObjectMatrix o = new DefaultSparseObjectMatrix(3, 4, 5);
+		o.setObject("a", 2, 3, 4);
+		o.setObject("b", 0, 0, 0);
+		assertEquals("a", o.getObject(2, 3, 4));
+		assertTrue(o.containsCoordinates(0, 0, 0));
+		o.setSize(3, 4, 6);
+		assertEquals("a", o.getObject(2, 3, 4));
+		assertEquals("b", o.getObject(0, 0, 0));
+		assertEquals(2, o.getValueCount());
+	}
+
+	@Test
+	public void testSparseMatrixResize() throws Exception {
+		// grows one cell at a time, like the dimension meta data
+		DefaultSparseObjectMatrix o = new DefaultSparseObjectMatrix(1, 0);
+		for (int i = 0; i < 20000; i++) {
+			o.setSize(1, i + 1);
+			o.setObject("l" + i, 0, i);
+		}
+		assertEquals(20000, o.getValueCount());
+		assertEquals("l0", o.getObject(0, 0));
+		assertEquals("l19999", o.getObject(0, 19999));
+
+		o.setSize(1, 10);
+		assertEquals(10, o.getValueCount());
+		assertEquals("l9", o.getObject(0, 9));
+		o.setSize(1, 20);
+		assertNull(o.getObject(0, 15));
+
+		o.setSize(1, 10, 2);
+		assertEquals(10, o.getValueCount());
+		assertEquals("l3", o.getObject(0, 3, 0));
+		o.setObject("x", 0, 3, 1);
+		o.setSize(1, 10);
+		assertEquals(10, o.getValueCount());
+		assertEquals("l3", o.getObject(0, 3));
+	}
+
+	@Test
+	public void testVolatileSparseMatrixSerialize() throws Exception {
+		VolatileSparseObjectMatrix m = new VolatileSparseObjectMatrix(100, 200);
+		m.setObject("a", 3, 4);
+		m.setObject("b", 99, 199);
+		VolatileSparseObjectMatrix copy = (VolatileSparseObjectMatrix) SerializationUtil
+				.deserialize(SerializationUtil.serialize(m));
+		assertEquals("a", copy.getObject(3, 4));
+		assertEquals("b", copy.getObject(99, 199));
+		assertNull(copy.getObject(4, 3));
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+
+package org.ujmp.core.doublematrix;
+
+import java.util.Random;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.util.UJMPSettings;
+
+/**
+ * Reproducible random matrices and helpers shared by the tests of the dense
+ * kernels and decompositions.
+ */
+public final class DenseFixture {
+
+	/** tolerance for comparing blocked and unblocked algorithms */
+	public static final double TOLERANCE = 1e-10;
+
+	private DenseFixture() {
+	}
+
+	/**
+	 * Returns a dense matrix with uniform random entries in [-0.5, 0.5).
+	 */
+	public static DenseDoubleMatrix2D rand(long seed, int rows, int cols) {
+		return fill(seed, DenseDoubleMatrix2D.Factory.zeros(rows, cols));
+	}
+
+	/**
+	 * Fills a matrix row by row with uniform random entries in [-0.5, 0.5).
+	 */
+	public static <M extends DenseDoubleMatrix2D> M fill(long seed, M m) {
+		final Random random = new Random(seed);
+		final int rows = (int) m.getRowCount();
+		final int cols = (int) m.getColumnCount();
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				m.setDouble(random.nextDouble() - 0.5, r, c);
+			}
+		}
+		return m;
+	}
+
+	public static double maxAbs(Matrix m) {
+		return m.abs(Ret.NEW).getMaxValue();
+	}
+
+	/**
+	 * Runs a test body with the given number of threads and restores the
+	 * previous setting afterwards.
+	 */
+	public static void withThreads(int threads, Runnable body) {
+		final int prevThreads = UJMPSettings.getInstance().getNumberOfThreads();
+		try {
+			UJMPSettings.getInstance().setNumberOfThreads(threads);
+			body.run();
+		} finally {
+			UJMPSettings.getInstance().setNumberOfThreads(prevThreads);
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.decomposition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.ujmp.core.doublematrix.DenseFixture.TOLERANCE;
+import static org.ujmp.core.doublematrix.DenseFixture.maxAbs;
+import static org.ujmp.core.doublematrix.DenseFixture.rand;
+import static org.ujmp.core.doublematrix.DenseFixture.withThreads;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Chol.BlockedCholMatrix;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Chol.CholMatrix;
+
+public class TestBlockedChol {
+
+	private static DenseDoubleMatrix2D randSPD(long seed, int n) {
+		DenseDoubleMatrix2D a = rand(seed, n, n);
+		DenseDoubleMatrix2D spd = DenseDoubleMatrix2D.Factory.zeros(n, n);
+		for (int r = 0; r < n; r++) {
+			for (int c = 0; c <= r; c++) {
+				double s = r == c ? n : 0.0;
+				for (int k = 0; k < n; k++) {
+					s += a.getDouble(r, k) * a.getDouble(c, k);
+				}
+				spd.setDouble(s, r, c);
+				spd.setDouble(s, c, r);
+			}
+		}
+		return spd;
+	}
+
+	private static void compare(final int threads, final int n) {
+		withThreads(threads, new Runnable() {
+			public void run() {
+				DenseDoubleMatrix2D a = randSPD(n, n);
+				DenseDoubleMatrix2D b = rand(n + 1, n, 5);
+
+				BlockedCholMatrix blocked = new BlockedCholMatrix(a);
+				CholMatrix unblocked = new CholMatrix(a);
+				assertTrue(blocked.isSPD());
+
+				Matrix l = blocked.getL();
+				assertEquals(0.0, maxAbs(l.minus(unblocked.getL())), TOLERANCE);
+				assertEquals(0.0, maxAbs(l.mtimes(l.transpose()).minus(a)), TOLERANCE * n);
+
+				Matrix x = blocked.solve(b);
+				assertEquals(0.0, maxAbs(x.minus(unblocked.solve(b))), TOLERANCE);
+
+				Matrix inv = blocked.inverse();
+				assertEquals(0.0, maxAbs(inv.minus(inv.transpose())), 0.0);
+				Matrix eye = DenseDoubleMatrix2D.Factory.eye(n, n);
+				assertEquals(0.0, maxAbs(a.mtimes(inv).minus(eye)), TOLERANCE);
+			}
+		});
+	}
+
+	@Test
+	public void testSmall() {
+		compare(1, 1);
+		compare(1, 10);
+		compare(4, 10);
+	}
+
+	@Test
+	public void testLarge() {
+		compare(1, 200);
+		compare(4, 200);
+		compare(4, 301);
+	}
+
+	@Test
+	public void testNotSPD() {
+		DenseDoubleMatrix2D a = randSPD(2, 150);
+		a.setDouble(a.getDouble(3, 5) + 1.0, 3, 5);
+		assertFalse(new BlockedCholMatrix(a).isSPD());
+
+		DenseDoubleMatrix2D b = randSPD(2, 150);
+		b.setDouble(-1.0, 100, 100);
+		assertFalse(new BlockedCholMatrix(b).isSPD());
+	}
+
+	@Test
+	public void testDispatch() {
+		DenseDoubleMatrix2D a = randSPD(7, 130);
+		assertTrue(BlockedCholMatrix.isApplicable(a));
+		assertFalse(BlockedCholMatrix.isApplicable(randSPD(7, 20)));
+
+		Matrix inv = a.invSPD();
+		assertEquals(0.0, maxAbs(a.mtimes(inv).minus(DenseDoubleMatrix2D.Factory.eye(130, 130))),
+				1e-8);
+		DenseDoubleMatrix2D b = rand(8, 130, 2);
+		assertEquals(0.0, maxAbs(a.mtimes(a.solveSPD(b)).minus(b)), 1e-8);
+	}
+
+}
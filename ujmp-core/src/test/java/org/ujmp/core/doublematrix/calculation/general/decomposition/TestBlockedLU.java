@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.decomposition;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.ujmp.core.doublematrix.DenseFixture.TOLERANCE;
+import static org.ujmp.core.doublematrix.DenseFixture.maxAbs;
+import static org.ujmp.core.doublematrix.DenseFixture.rand;
+import static org.ujmp.core.doublematrix.DenseFixture.withThreads;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.LU.BlockedLUMatrix;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.LU.LUMatrix;
+import org.ujmp.core.enums.ValueType;
+
+public class TestBlockedLU {
+
+	private static void compare(final int threads, final int rows, final int cols) {
+		withThreads(threads, new Runnable() {
+			public void run() {
+				DenseDoubleMatrix2D a = rand(rows * 31 + cols, rows, cols);
+
+				BlockedLUMatrix blocked = new BlockedLUMatrix(a);
+				LUMatrix unblocked = new LUMatrix(a);
+
+				// both use the same pivot sequence
+				assertArrayEquals(unblocked.getPivot(), blocked.getPivot());
+
+				Matrix l = blocked.getL();
+				Matrix u = blocked.getU();
+				assertEquals(rows, l.getRowCount());
+				assertEquals(Math.min(rows, cols), l.getColumnCount());
+				assertEquals(Math.min(rows, cols), u.getRowCount());
+				assertEquals(cols, u.getColumnCount());
+				assertEquals(0.0, maxAbs(l.minus(unblocked.getL())), TOLERANCE);
+				assertEquals(0.0, maxAbs(u.minus(unblocked.getU())), TOLERANCE);
+
+				// P * A = L * U
+				Matrix pa = blocked.getP().mtimes(a);
+				assertEquals(0.0, maxAbs(pa.minus(l.mtimes(u))), TOLERANCE * Math.max(rows, cols));
+
+				if (rows == cols) {
+					assertTrue(blocked.isNonsingular());
+					double det = unblocked.det();
+					assertEquals(det, blocked.det(), Math.abs(det) * TOLERANCE * rows);
+
+					DenseDoubleMatrix2D b = rand(rows, rows, 3);
+					Matrix x = blocked.solve(b);
+					assertEquals(0.0, maxAbs(a.mtimes(x).minus(b)), TOLERANCE * rows);
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testSquare() {
+		compare(1, 1, 1);
+		compare(1, 7, 7);
+		compare(1, 150, 150);
+		compare(4, 150, 150);
+	}
+
+	@Test
+	public void testRectangular() {
+		compare(1, 200, 130);
+		compare(1, 130, 200);
+		compare(4, 200, 130);
+		compare(4, 130, 200);
+	}
+
+	@Test
+	public void testSingular() {
+		DenseDoubleMatrix2D a = rand(3, 120, 120);
+		for (int r = 0; r < 120; r++) {
+			a.setDouble(0.0, r, 70);
+		}
+		BlockedLUMatrix lu = new BlockedLUMatrix(a);
+		assertFalse(lu.isNonsingular());
+		assertEquals(0.0, lu.det(), 0.0);
+		assertTrue(a.isSingular());
+	}
+
+	@Test
+	public void testDispatch() {
+		DenseDoubleMatrix2D a = rand(5, 120, 120);
+		assertTrue(BlockedLUMatrix.isApplicable(a));
+		assertFalse(BlockedLUMatrix.isApplicable(rand(5, 20, 20)));
+		assertFalse(BlockedLUMatrix.isApplicable(Matrix.Factory.sparse(ValueType.DOUBLE, 120, 120)));
+
+		assertEquals(new LUMatrix(a).det(), a.det(), Math.abs(a.det()) * 1e-8);
+		assertEquals(Math.abs(a.det()), a.pdet(), Math.abs(a.det()) * 1e-8);
+		Matrix inv = a.inv();
+		assertEquals(0.0, maxAbs(a.mtimes(inv).minus(DenseDoubleMatrix2D.Factory.eye(120, 120))),
+				1e-8);
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.decomposition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.ujmp.core.doublematrix.DenseFixture.TOLERANCE;
+import static org.ujmp.core.doublematrix.DenseFixture.maxAbs;
+import static org.ujmp.core.doublematrix.DenseFixture.rand;
+import static org.ujmp.core.doublematrix.DenseFixture.withThreads;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.QR.BlockedQRMatrix;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.QR.QRMatrix;
+
+public class TestBlockedQR {
+
+	private static void compare(final int threads, final int rows, final int cols) {
+		withThreads(threads, new Runnable() {
+			public void run() {
+				DenseDoubleMatrix2D a = rand(rows * 17 + cols, rows, cols);
+				DenseDoubleMatrix2D b = rand(rows, rows, 3);
+
+				BlockedQRMatrix blocked = new BlockedQRMatrix(a);
+				QRMatrix unblocked = new QRMatrix(a);
+				assertTrue(blocked.isFullRank());
+
+				// same signs as the unblocked version
+				Matrix q = blocked.getQ();
+				Matrix r = blocked.getR();
+				assertEquals(0.0, maxAbs(q.minus(unblocked.getQ())), TOLERANCE);
+				assertEquals(0.0, maxAbs(r.minus(unblocked.getR())), TOLERANCE * rows);
+				assertEquals(0.0, maxAbs(q.mtimes(r).minus(a)), TOLERANCE * rows);
+
+				// full Q is orthogonal and starts with the thin Q
+				Matrix qFull = blocked.getQ(false);
+				assertEquals(rows, qFull.getColumnCount());
+				assertEquals(0.0, maxAbs(qFull.transpose().mtimes(qFull).minus(
+						DenseDoubleMatrix2D.Factory.eye(rows, rows))), TOLERANCE * rows);
+				Matrix qThin = qFull.subMatrix(Ret.NEW, 0, 0, rows - 1, cols - 1);
+				assertEquals(0.0, maxAbs(qThin.minus(q)), TOLERANCE);
+
+				Matrix qtb = blocked.applyQt(b);
+				assertEquals(0.0, maxAbs(qtb.minus(qFull.transpose().mtimes(b))), TOLERANCE * rows);
+
+				Matrix x = blocked.solve(b);
+				assertEquals(0.0, maxAbs(x.minus(unblocked.solve(b))), TOLERANCE * rows);
+
+				Matrix pinv = blocked.pinv();
+				assertEquals(0.0, maxAbs(pinv.mtimes(b).minus(x)), TOLERANCE * rows);
+			}
+		});
+	}
+
+	@Test
+	public void testSquare() {
+		compare(1, 1, 1);
+		compare(1, 40, 40);
+		compare(4, 120, 120);
+	}
+
+	@Test
+	public void testTall() {
+		compare(1, 150, 70);
+		compare(4, 150, 70);
+		compare(1, 300, 5);
+	}
+
+	@Test
+	public void testRankDeficient() {
+		DenseDoubleMatrix2D a = rand(3, 150, 80);
+		for (int r = 0; r < 150; r++) {
+			a.setDouble(a.getDouble(r, 3), r, 50);
+		}
+		BlockedQRMatrix qr = new BlockedQRMatrix(a);
+		assertTrue(qr.getDiagonalRatio() < Pinv.MINDIAGONALRATIO);
+
+		// Pinv falls back to the SVD
+		try {
+			Pinv.USEQR = true;
+			Matrix pinv = a.pinv();
+			assertEquals(0.0, maxAbs(a.mtimes(pinv).mtimes(a).minus(a)), 1e-8);
+		} finally {
+			Pinv.USEQR = false;
+		}
+	}
+
+	@Test
+	public void testKahan() {
+		// nearly rank deficient, but the diagonal of R does not show it
+		int n = 120;
+		double c = 0.4;
+		double s = Math.sqrt(1.0 - c * c);
+		DenseDoubleMatrix2D a = DenseDoubleMatrix2D.Factory.zeros(n, n);
+		for (int i = 0; i < n; i++) {
+			double si = Math.pow(s, i);
+			a.setDouble(si, i, i);
+			for (int j = i + 1; j < n; j++) {
+				a.setDouble(-c * si, i, j);
+			}
+		}
+		assertTrue(new BlockedQRMatrix(a).getDiagonalRatio() > Pinv.MINDIAGONALRATIO);
+
+		Matrix pinv = a.pinv();
+		assertEquals(0.0, maxAbs(a.mtimes(pinv).mtimes(a).minus(a)), 1e-8);
+	}
+
+	@Test
+	public void testDispatch() {
+		DenseDoubleMatrix2D a = rand(5, 200, 120);
+		assertTrue(BlockedQRMatrix.isApplicable(a));
+		assertFalse(BlockedQRMatrix.isApplicable(rand(5, 20, 20)));
+		assertFalse(BlockedQRMatrix.isApplicable(rand(5, 120, 200)));
+
+		Matrix pinv = a.pinv();
+		assertEquals(0.0, maxAbs(pinv.mtimes(a).minus(DenseDoubleMatrix2D.Factory.eye(120, 120))),
+				1e-8);
+
+		DenseDoubleMatrix2D b = rand(6, 200, 2);
+		Matrix x = a.solve(b);
+		assertEquals(0.0, maxAbs(x.minus(new QRMatrix(a).solve(b))), 1e-8);
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.decomposition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.ujmp.core.doublematrix.DenseFixture.maxAbs;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.SVD.RandomizedSVDMatrix;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.SVD.SVDMatrix;
+
+public class TestRandomizedSVD {
+
+	private static final double TOLERANCE = 1e-8;
+
+	// product of random m x r and r x n factors, which has rank r
+	private static DenseDoubleMatrix2D lowRank(long seed, int m, int n, int r) {
+		Random random = new Random(seed);
+		double[][] a = new double[m][r];
+		double[][] b = new double[r][n];
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < r; j++) {
+				a[i][j] = random.nextGaussian();
+			}
+		}
+		for (int i = 0; i < r; i++) {
+			for (int j = 0; j < n; j++) {
+				b[i][j] = random.nextGaussian();
+			}
+		}
+		DenseDoubleMatrix2D x = DenseDoubleMatrix2D.Factory.zeros(m, n);
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				double s = 0.0;
+				for (int p = 0; p < r; p++) {
+					s += a[i][p] * b[p][j];
+				}
+				x.setDouble(s, i, j);
+			}
+		}
+		return x;
+	}
+
+	private static void check(Matrix a, int k, int rank) {
+		int m = (int) a.getRowCount();
+		int n = (int) a.getColumnCount();
+		RandomizedSVDMatrix svd = new RandomizedSVDMatrix(a, k);
+		Matrix u = svd.getU();
+		Matrix v = svd.getV();
+		assertEquals(m, u.getRowCount());
+		assertEquals(k, u.getColumnCount());
+		assertEquals(n, v.getRowCount());
+		assertEquals(k, v.getColumnCount());
+		assertEquals(0.0, maxAbs(u.transpose().mtimes(u).minus(
+				DenseDoubleMatrix2D.Factory.eye(k, k))), TOLERANCE);
+		assertEquals(0.0, maxAbs(v.transpose().mtimes(v).minus(
+				DenseDoubleMatrix2D.Factory.eye(k, k))), TOLERANCE);
+
+		double[] expected = new SVDMatrix(a).getSingularValues();
+		double[] s = svd.getSingularValues();
+		for (int i = 0; i < Math.min(k, rank); i++) {
+			assertEquals(expected[i], s[i], TOLERANCE * expected[0]);
+		}
+		if (k >= rank) {
+			Matrix usv = u.mtimes(svd.getS()).mtimes(v.transpose());
+			assertEquals(0.0, maxAbs(usv.minus(a)), TOLERANCE * expected[0]);
+		}
+	}
+
+	@Test
+	public void testDense() {
+		check(lowRank(1, 150, 120, 8), 10, 8);
+		check(lowRank(2, 80, 200, 5), 5, 5);
+		check(lowRank(3, 60, 40, 40), 40, 40);
+	}
+
+	@Test
+	public void testSparse() {
+		Random random = new Random(4);
+		SparseMatrix a = SparseMatrix.Factory.zeros(300, 200);
+		for (int i = 0; i < 200; i++) {
+			a.setAsDouble(100.0 * Math.pow(0.5, i), i, i);
+		}
+		for (int i = 0; i < 100; i++) {
+			int r = random.nextInt(300);
+			int c = 50 + random.nextInt(150);
+			a.setAsDouble(0.001 * random.nextGaussian(), r, c);
+		}
+		RandomizedSVDMatrix svd = new RandomizedSVDMatrix(a, 3);
+		double[] expected = new SVDMatrix(Matrix.Factory.importFromArray(a.toDoubleArray()))
+				.getSingularValues();
+		for (int i = 0; i < 3; i++) {
+			assertEquals(expected[i], svd.getSingularValues()[i], 1e-6 * expected[0]);
+		}
+		assertTrue(a.isSparse());
+	}
+
+	@Test
+	public void testPinvPrincomp() {
+		DenseDoubleMatrix2D a = lowRank(5, 120, 30, 30);
+		assertEquals(0.0, maxAbs(a.pinv(30).minus(a.pinv())), TOLERANCE);
+
+		DenseDoubleMatrix2D b = lowRank(6, 120, 30, 4);
+		Matrix pca = b.princomp(4);
+		assertEquals(120, pca.getRowCount());
+		assertEquals(4, pca.getColumnCount());
+		Matrix full = b.princomp();
+		for (int c = 0; c < 4; c++) {
+			for (int r = 0; r < 120; r++) {
+				assertEquals(Math.abs(full.getAsDouble(r, c)), Math.abs(pca.getAsDouble(r, c)),
+						1e-6 * Math.abs(full.getAsDouble(0, 0)) + 1e-6);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.decomposition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.ujmp.core.doublematrix.DenseFixture.TOLERANCE;
+import static org.ujmp.core.doublematrix.DenseFixture.maxAbs;
+import static org.ujmp.core.doublematrix.DenseFixture.withThreads;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Eig.EigMatrix;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Eig.SymmetricEigMatrix;
+
+public class TestSymmetricEig {
+
+	private static DenseDoubleMatrix2D randSymm(long seed, int n) {
+		Random random = new Random(seed);
+		DenseDoubleMatrix2D m = DenseDoubleMatrix2D.Factory.zeros(n, n);
+		for (int r = 0; r < n; r++) {
+			for (int c = 0; c <= r; c++) {
+				double v = random.nextDouble() - 0.5;
+				m.setDouble(v, r, c);
+				m.setDouble(v, c, r);
+			}
+		}
+		return m;
+	}
+
+	// 2*I + u*u' has the eigenvalue 2 with multiplicity n-1
+	private static DenseDoubleMatrix2D lowRank(long seed, int n) {
+		Random random = new Random(seed);
+		double[] u = new double[n];
+		for (int i = 0; i < n; i++) {
+			u[i] = random.nextDouble();
+		}
+		DenseDoubleMatrix2D m = DenseDoubleMatrix2D.Factory.zeros(n, n);
+		for (int r = 0; r < n; r++) {
+			for (int c = 0; c < n; c++) {
+				m.setDouble((r == c ? 2.0 : 0.0) + u[r] * u[c], r, c);
+			}
+		}
+		return m;
+	}
+
+	private static void check(final int threads, final DenseDoubleMatrix2D a) {
+		withThreads(threads, new Runnable() {
+			public void run() {
+				int n = (int) a.getRowCount();
+				SymmetricEigMatrix eig = new SymmetricEigMatrix(a);
+				double[] expected = new EigMatrix(a).getRealEigenvalues();
+				double[] values = eig.getRealEigenvalues();
+				double scale = Math.max(1.0, maxAbs(a));
+				for (int i = 0; i < n; i++) {
+					assertEquals(expected[i], values[i], TOLERANCE * n * scale);
+				}
+
+				Matrix v = eig.getV();
+				Matrix d = eig.getD();
+				assertEquals(0.0, maxAbs(v.transpose().mtimes(v).minus(
+						DenseDoubleMatrix2D.Factory.eye(n, n))), TOLERANCE * n);
+				assertEquals(0.0, maxAbs(a.mtimes(v).minus(v.mtimes(d))), TOLERANCE * n * scale);
+
+				double[] only = new SymmetricEigMatrix(a, false).getRealEigenvalues();
+				for (int i = 0; i < n; i++) {
+					assertEquals(expected[i], only[i], TOLERANCE * n * scale);
+				}
+
+				int k = Math.min(n, 5);
+				SymmetricEigMatrix top = new SymmetricEigMatrix(a, k);
+				Matrix vk = top.getV();
+				assertEquals(k, vk.getColumnCount());
+				for (int i = 0; i < k; i++) {
+					assertEquals(expected[n - 1 - i], top.getRealEigenvalues()[i], TOLERANCE * n
+							* scale);
+				}
+				assertEquals(0.0, maxAbs(vk.transpose().mtimes(vk).minus(
+						DenseDoubleMatrix2D.Factory.eye(k, k))), 1e-8);
+				assertEquals(0.0, maxAbs(a.mtimes(vk).minus(vk.mtimes(top.getD()))), 1e-8 * scale);
+			}
+		});
+	}
+
+	@Test
+	public void testSmall() {
+		check(1, randSymm(1, 1));
+		check(1, randSymm(2, 10));
+		check(4, randSymm(3, 30));
+	}
+
+	@Test
+	public void testLarge() {
+		check(1, randSymm(4, 200));
+		check(4, randSymm(5, 301));
+	}
+
+	@Test
+	public void testDeflation() {
+		check(1, lowRank(6, 150));
+		check(4, lowRank(7, 300));
+		check(4, DenseDoubleMatrix2D.Factory.eye(120, 120));
+	}
+
+	@Test
+	public void testDispatch() {
+		DenseDoubleMatrix2D a = randSymm(8, 130);
+		assertTrue(SymmetricEigMatrix.isApplicable(a));
+		assertFalse(SymmetricEigMatrix.isApplicable(randSymm(8, 20)));
+		a.setDouble(a.getDouble(3, 5) + 1.0, 3, 5);
+		assertFalse(SymmetricEigMatrix.isApplicable(a));
+
+		DenseDoubleMatrix2D b = randSymm(9, 130);
+		Matrix[] vd = b.eigSymm();
+		assertEquals(0.0, maxAbs(b.mtimes(vd[0]).minus(vd[0].mtimes(vd[1]))), 1e-8);
+		Matrix values = b.eigValuesSymm();
+		assertEquals(130, values.getRowCount());
+		assertEquals(0.0, maxAbs(values.diag(Ret.NEW).minus(vd[1])), 1e-8);
+		Matrix[] top = b.eigSymm(3);
+		assertEquals(vd[1].getAsDouble(129, 129), top[1].getAsDouble(0, 0), 1e-8);
+	}
+
+	@Test
+	public void testPrincompGramMatrix() {
+		DenseDoubleMatrix2D x = DenseDoubleMatrix2D.Factory.randn(300, 120);
+		Matrix svd = x.princomp();
+		try {
+			Princomp.USEGRAMMATRIX = true;
+			Matrix gram = x.princomp();
+			for (int c = 0; c < 120; c++) {
+				for (int r = 0; r < 300; r++) {
+					assertEquals(Math.abs(svd.getAsDouble(r, c)), Math.abs(gram.getAsDouble(r, c)),
+							1e-8);
+				}
+			}
+		} finally {
+			Princomp.USEGRAMMATRIX = false;
+		}
+	}
+
+}
@@ -28,6 +28,7 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ TestBlockDenseDouble2DMatrix.class, TestBlockMultiply.class,
-		TestBlockMultiply.class })
+		TestBlockMultiply.class, TestPackedGemm.class, TestStrassenMultiply.class,
+		TestSparseDoubleMatrix2DBuilder.class })
 public class AllTests {
 }
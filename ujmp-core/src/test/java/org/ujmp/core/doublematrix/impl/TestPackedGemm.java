@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestPackedGemm {
+
+	private static final double TOLERANCE = 1e-9;
+
+	private static double[] rand(Random random, int length) {
+		double[] values = new double[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = random.nextDouble() - 0.5;
+		}
+		return values;
+	}
+
+	private static void compare(int threads, boolean transA, boolean transB, int m, int n, int k,
+			double alpha, double beta) {
+		Random random = new Random(m * 31 + n * 17 + k);
+		int lda = (transA ? k : m) + 3;
+		int ldb = (transB ? n : k) + 1;
+		int ldc = m + 2;
+		double[] a = rand(random, lda * (transA ? m : k) + 5);
+		double[] b = rand(random, ldb * (transB ? k : n) + 7);
+		double[] c = rand(random, ldc * n + 2);
+		double[] expected = c.clone();
+
+		for (int j = 0; j < n; j++) {
+			for (int i = 0; i < m; i++) {
+				double sum = 0.0;
+				for (int p = 0; p < k; p++) {
+					double av = transA ? a[5 + p + i * lda] : a[5 + i + p * lda];
+					double bv = transB ? b[7 + j + p * ldb] : b[7 + p + j * ldb];
+					sum += av * bv;
+				}
+				int index = 2 + i + j * ldc;
+				expected[index] = alpha * sum + (beta == 0.0 ? 0.0 : beta * expected[index]);
+			}
+		}
+
+		PackedGemm.gemm(threads, transA, transB, m, n, k, alpha, a, 5, lda, b, 7, ldb, beta, c, 2,
+				ldc);
+
+		for (int i = 0; i < c.length; i++) {
+			assertEquals("index " + i, expected[i], c[i], TOLERANCE);
+		}
+	}
+
+	@Test
+	public void testSmallSizes() {
+		for (int m = 1; m < 10; m++) {
+			for (int n = 1; n < 10; n++) {
+				for (int k = 1; k < 10; k += 2) {
+					compare(1, false, false, m, n, k, 1.0, 0.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTransposed() {
+		compare(1, true, false, 37, 21, 45, 1.0, 0.0);
+		compare(1, false, true, 37, 21, 45, 1.0, 0.0);
+		compare(1, true, true, 37, 21, 45, 1.0, 0.0);
+	}
+
+	@Test
+	public void testAlphaBeta() {
+		compare(1, false, false, 23, 19, 31, 2.5, 0.5);
+		compare(1, true, true, 23, 19, 31, -1.0, 1.0);
+		compare(1, false, false, 23, 19, 0, 2.0, 3.0);
+	}
+
+	@Test
+	public void testLargerThanPanels() {
+		compare(1, false, false, PackedGemm.MC + 13, 9, PackedGemm.KC + 7, 1.0, 1.0);
+	}
+
+	@Test
+	public void testMultiThreaded() {
+		compare(4, false, false, 157, 143, 131, 1.0, 0.0);
+		compare(3, true, false, 203, 61, 77, 0.5, 2.0);
+		compare(7, false, true, 65, 301, 90, 1.0, 0.0);
+	}
+
+	@Test
+	public void testDeterministic() {
+		Random random = new Random(1);
+		int m = 150, n = 170, k = 300;
+		double[] a = rand(random, m * k);
+		double[] b = rand(random, k * n);
+		double[] c1 = new double[m * n];
+		double[] c2 = new double[m * n];
+		PackedGemm.gemm(1, false, false, m, n, k, 1.0, a, 0, m, b, 0, k, 0.0, c1, 0, m);
+		PackedGemm.gemm(5, false, false, m, n, k, 1.0, a, 0, m, b, 0, k, 0.0, c2, 0, m);
+		for (int i = 0; i < c1.length; i++) {
+			assertEquals(c1[i], c2[i], 0.0);
+		}
+	}
+
+	@Test
+	public void testMtimes() {
+		boolean usePackedGemm = UJMPSettings.getInstance().isUsePackedGemm();
+		boolean useJBlas = UJMPSettings.getInstance().isUseJBlas();
+		try {
+			UJMPSettings.getInstance().setUseJBlas(false);
+			Matrix a = DenseMatrix.Factory.rand(211, 105);
+			Matrix b = DenseMatrix.Factory.rand(105, 130);
+			UJMPSettings.getInstance().setUsePackedGemm(false);
+			Matrix expected = a.mtimes(b);
+			UJMPSettings.getInstance().setUsePackedGemm(true);
+			Matrix result = a.mtimes(b);
+			assertEquals(0.0, expected.minus(result).getAbsoluteValueSum(), TOLERANCE);
+		} finally {
+			UJMPSettings.getInstance().setUsePackedGemm(usePackedGemm);
+			UJMPSettings.getInstance().setUseJBlas(useJBlas);
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.ujmp.core.Coordinates;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.doublematrix.impl.SparseDoubleMatrix2DBuilder.Combine;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestSparseDoubleMatrix2DBuilder {
+
+	private static void compare(int threads, Combine combine, int rows, int columns, int entries) {
+		int previousThreads = UJMPSettings.getInstance().getNumberOfThreads();
+		try {
+			UJMPSettings.getInstance().setNumberOfThreads(threads);
+			Random random = new Random(rows * 31 + entries);
+			SparseDoubleMatrix2DBuilder builder = SparseMatrix.Factory.builder(rows, columns)
+					.setCombine(combine);
+			Map<Coordinates, Double> expected = new HashMap<Coordinates, Double>();
+			for (int i = 0; i < entries; i++) {
+				int row = random.nextInt(rows);
+				int column = random.nextInt(columns);
+				double value = random.nextInt(5) - 2;
+				builder.add(value, row, column);
+				Coordinates c = Coordinates.wrap(row, column);
+				Double previous = expected.get(c);
+				expected.put(c, previous == null ? value : combine.combine(previous, value));
+			}
+			assertEquals(entries, builder.size());
+
+			CompressedRowSparseDoubleMatrix2D csr = builder.csr();
+			CompressedColumnSparseDoubleMatrix2D csc = builder.csc();
+			int nonZeros = 0;
+			for (Coordinates c : expected.keySet()) {
+				double value = expected.get(c);
+				long[] rc = c.getLongCoordinates();
+				assertEquals(value, csr.getAsDouble(rc), 0.0);
+				assertEquals(value, csc.getAsDouble(rc), 0.0);
+				if (value != 0.0) {
+					nonZeros++;
+				}
+			}
+			assertEquals(nonZeros, csr.getNonZeroCount());
+			assertEquals(nonZeros, csc.getNonZeroCount());
+		} finally {
+			UJMPSettings.getInstance().setNumberOfThreads(previousThreads);
+		}
+	}
+
+	@Test
+	public void testSmall() throws Exception {
+		for (Combine combine : Combine.values()) {
+			compare(1, combine, 7, 5, 60);
+			compare(1, combine, 1, 1, 3);
+			compare(1, combine, 3, 4, 0);
+		}
+	}
+
+	@Test
+	public void testParallel() throws Exception {
+		for (Combine combine : Combine.values()) {
+			compare(4, combine, 3000, 200, 400000);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOutside() throws Exception {
+		new SparseDoubleMatrix2DBuilder(3, 3).add(1.0, 3, 0);
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import static org.junit.Assert.assertTrue;
+import static org.ujmp.core.doublematrix.DenseFixture.fill;
+import static org.ujmp.core.doublematrix.DenseFixture.maxAbs;
+import static org.ujmp.core.doublematrix.DenseFixture.withThreads;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Mtimes;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.BlockMatrixLayout.BlockOrder;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestStrassenMultiply {
+
+	private static final double EPSILON = Math.ulp(1.0);
+
+	/**
+	 * Compares Strassen-Winograd with the classic block multiplication, using
+	 * the error bound [(n0^2 + 6 n0) 18^l] u |A| |B| for l levels of
+	 * recursion with sub-products of size n0 (Higham, Accuracy and Stability
+	 * of Numerical Algorithms, Theorem 23.3).
+	 */
+	private static void compare(final int threads, final int m, final int k, final int n,
+			final int blockStripe, int cutoff, final int levels) {
+		int threshold = StrassenMultiply.THRESHOLD;
+		int prevCutoff = StrassenMultiply.CUTOFF;
+		boolean useStrassen = UJMPSettings.getInstance().isUseStrassenMultiply();
+		try {
+			StrassenMultiply.THRESHOLD = Math.min(m, Math.min(k, n));
+			StrassenMultiply.CUTOFF = cutoff;
+			withThreads(threads, new Runnable() {
+				public void run() {
+					BlockDenseDoubleMatrix2D a = fill(m, new BlockDenseDoubleMatrix2D(m, k,
+							blockStripe, BlockOrder.ROWMAJOR));
+					BlockDenseDoubleMatrix2D b = fill(n, new BlockDenseDoubleMatrix2D(k, n,
+							blockStripe, BlockOrder.COLUMNMAJOR));
+
+					UJMPSettings.getInstance().setUseStrassenMultiply(false);
+					DenseDoubleMatrix2D classic = DenseDoubleMatrix2D.Factory.zeros(m, n);
+					Mtimes.DENSEDOUBLEMATRIX2D_BLOCK.calc(a, b, classic);
+
+					UJMPSettings.getInstance().setUseStrassenMultiply(true);
+					Matrix strassen = a.mtimes(b);
+					assertTrue(strassen instanceof BlockDenseDoubleMatrix2D);
+
+					BlockDenseDoubleMatrix2D direct = new BlockDenseDoubleMatrix2D(m, n,
+							blockStripe, BlockOrder.COLUMNMAJOR);
+					StrassenMultiply.multiply(threads, a, b, direct);
+
+					double n0 = Math.ceil((double) k / (1 << levels));
+					double bound = (n0 * n0 + 6 * n0) * Math.pow(18, levels) * EPSILON
+							* maxAbs(a) * maxAbs(b);
+					double error = maxAbs(strassen.minus(classic));
+					assertTrue("error " + error + " > " + bound, error <= bound);
+					error = maxAbs(direct.minus(classic));
+					assertTrue("error " + error + " > " + bound, error <= bound);
+				}
+			});
+		} finally {
+			StrassenMultiply.THRESHOLD = threshold;
+			StrassenMultiply.CUTOFF = prevCutoff;
+			UJMPSettings.getInstance().setUseStrassenMultiply(useStrassen);
+		}
+	}
+
+	@Test
+	public void testSquare() {
+		compare(1, 256, 256, 256, 16, 32, 3);
+	}
+
+	@Test
+	public void testSquareMultiThreaded() {
+		compare(4, 256, 256, 256, 16, 32, 3);
+	}
+
+	@Test
+	public void testPadded() {
+		compare(1, 150, 130, 170, 16, 32, 2);
+		compare(3, 150, 130, 170, 16, 32, 2);
+	}
+
+	@Test
+	public void testBelowCutoff() {
+		compare(2, 40, 50, 60, 16, 64, 0);
+	}
+
+}
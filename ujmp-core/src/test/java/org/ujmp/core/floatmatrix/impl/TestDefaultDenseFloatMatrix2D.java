@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.floatmatrix.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestDefaultDenseFloatMatrix2D {
+
+	private static final double TOLERANCE = 1e-3;
+
+	private static DefaultDenseFloatMatrix2D rand(long seed, int rows, int cols) {
+		Random random = new Random(seed);
+		DefaultDenseFloatMatrix2D m = new DefaultDenseFloatMatrix2D(rows, cols);
+		for (int c = 0; c < cols; c++) {
+			for (int r = 0; r < rows; r++) {
+				m.setFloat(random.nextFloat() - 0.5f, r, c);
+			}
+		}
+		return m;
+	}
+
+	private static DefaultDenseFloatMatrix2D spd(long seed, int n) {
+		DefaultDenseFloatMatrix2D a = rand(seed, n, n);
+		return (DefaultDenseFloatMatrix2D) a.transpose().mtimes(a)
+				.plus(eye(n).times(n));
+	}
+
+	private static DefaultDenseFloatMatrix2D eye(int n) {
+		DefaultDenseFloatMatrix2D m = new DefaultDenseFloatMatrix2D(n, n);
+		for (int i = 0; i < n; i++) {
+			m.setFloat(1.0f, i, i);
+		}
+		return m;
+	}
+
+	private static Matrix toDouble(Matrix m) {
+		return DenseMatrix.Factory.importFromArray(m.toDoubleArray());
+	}
+
+	private static void assertClose(Matrix expected, Matrix actual) {
+		assertEquals(expected.getRowCount(), actual.getRowCount());
+		assertEquals(expected.getColumnCount(), actual.getColumnCount());
+		double scale = Math.max(1.0, expected.abs(Ret.NEW).getMaxValue());
+		double error = toDouble(expected).minus(toDouble(actual)).abs(Ret.NEW).getMaxValue();
+		assertTrue("error " + error, error <= TOLERANCE * scale);
+	}
+
+	@Test
+	public void testMtimes() {
+		int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		try {
+			for (int t = 1; t <= 4; t *= 2) {
+				UJMPSettings.getInstance().setNumberOfThreads(t);
+				int[][] sizes = { { 1, 1, 1 }, { 7, 3, 5 }, { 37, 53, 29 }, { 130, 70, 150 },
+						{ 65, 600, 9 } };
+				for (int[] s : sizes) {
+					DefaultDenseFloatMatrix2D a = rand(s[0], s[0], s[1]);
+					DefaultDenseFloatMatrix2D b = rand(s[2], s[1], s[2]);
+					Matrix c = a.mtimes(b);
+					assertTrue(c instanceof DefaultDenseFloatMatrix2D);
+					assertClose(toDouble(a).mtimes(toDouble(b)), c);
+				}
+			}
+		} finally {
+			UJMPSettings.getInstance().setNumberOfThreads(threads);
+		}
+	}
+
+	@Test
+	public void testEntrywise() {
+		DefaultDenseFloatMatrix2D a = rand(1, 120, 110);
+		DefaultDenseFloatMatrix2D b = rand(2, 120, 110);
+		Matrix da = toDouble(a);
+		Matrix db = toDouble(b);
+		assertTrue(a.plus(b) instanceof DefaultDenseFloatMatrix2D);
+		assertTrue(a.times(2.0) instanceof DefaultDenseFloatMatrix2D);
+		assertClose(da.plus(db), a.plus(b));
+		assertClose(da.minus(db), a.minus(b));
+		assertClose(da.times(db), a.times(b));
+		assertClose(da.plus(1.5), a.plus(1.5));
+		assertClose(da.minus(1.5), a.minus(1.5));
+		assertClose(da.times(3.0), a.times(3.0));
+		assertClose(da.divide(4.0), a.divide(4.0));
+
+		// the scalar is not rounded to float before the operation
+		Matrix p = a.times(0.1);
+		Matrix q = a.divide(0.1);
+		for (int r = 0; r < 120; r++) {
+			for (int c = 0; c < 110; c++) {
+				assertEquals((float) (a.getFloat(r, c) * 0.1), p.getAsFloat(r, c), 0.0f);
+				assertEquals((float) (a.getFloat(r, c) / 0.1), q.getAsFloat(r, c), 0.0f);
+			}
+		}
+	}
+
+	@Test
+	public void testReductions() {
+		DefaultDenseFloatMatrix2D a = rand(3, 31, 17);
+		Matrix da = toDouble(a);
+		assertEquals(da.getValueSum(), a.getValueSum(), 1e-9);
+		assertEquals(da.getAbsoluteValueSum(), a.getAbsoluteValueSum(), 1e-9);
+		assertEquals(da.getMeanValue(), a.getMeanValue(), 1e-9);
+		assertEquals(da.getMinValue(), a.getMinValue(), 0.0);
+		assertEquals(da.getMaxValue(), a.getMaxValue(), 0.0);
+		assertEquals(da.norm1(), a.norm1(), 1e-9);
+		assertEquals(da.normInf(), a.normInf(), 1e-9);
+		assertEquals(da.normF(), a.normF(), 1e-9);
+	}
+
+	@Test
+	public void testLU() {
+		for (int n : new int[] { 1, 5, 70, 150 }) {
+			DefaultDenseFloatMatrix2D a = rand(n, n, n);
+			Matrix[] lup = a.lu();
+			assertClose(lup[2].mtimes(a), lup[0].mtimes(lup[1]));
+			assertEquals(toDouble(a).det(), a.det(), Math.abs(toDouble(a).det()) * 1e-2);
+			assertClose(eye(n), a.inv().mtimes(a));
+			DefaultDenseFloatMatrix2D b = rand(n + 1, n, 3);
+			assertClose(b, a.mtimes(a.solve(b)));
+		}
+		DefaultDenseFloatMatrix2D wide = rand(4, 80, 130);
+		Matrix[] lup = wide.lu();
+		assertClose(lup[2].mtimes(wide), lup[0].mtimes(lup[1]));
+	}
+
+	@Test
+	public void testChol() {
+		for (int n : new int[] { 1, 6, 70, 150 }) {
+			DefaultDenseFloatMatrix2D a = spd(n, n);
+			Matrix l = a.chol();
+			assertClose(a, l.mtimes(l.transpose()));
+			if (n > 1) {
+				assertEquals(0.0, l.getAsDouble(0, n - 1), 0.0);
+			}
+			assertClose(eye(n), a.invSPD().mtimes(a));
+			DefaultDenseFloatMatrix2D b = rand(n + 1, n, 4);
+			assertClose(b, a.mtimes(a.solveSPD(b)));
+		}
+	}
+
+	@Test
+	public void testQR() {
+		DefaultDenseFloatMatrix2D a = rand(5, 140, 90);
+		Matrix[] qr = a.qr();
+		assertClose(a, qr[0].mtimes(qr[1]));
+		assertClose(eye(90), qr[0].transpose().mtimes(qr[0]));
+
+		DefaultDenseFloatMatrix2D b = rand(6, 140, 2);
+		assertClose(toDouble(a).solve(toDouble(b)), a.solve(b));
+	}
+
+}
@@ -26,6 +26,7 @@ package org.ujmp.core.implementations;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.Closeable;
 import java.io.File;
@@ -41,10 +42,12 @@ import org.ujmp.core.Matrix;
 import org.ujmp.core.benchmark.BenchmarkUtil;
 import org.ujmp.core.calculation.Calculation.Ret;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.SparseDoubleMatrix;
 import org.ujmp.core.doublematrix.impl.ArrayDenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrixMultiD;
 import org.ujmp.core.doublematrix.stub.AbstractDoubleMatrix;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
 import org.ujmp.core.interfaces.Erasable;
 import org.ujmp.core.util.MathUtil;
 import org.ujmp.core.util.SerializationUtil;
@@ -205,7 +208,7 @@ public abstract class AbstractMatrixTest {
 			m1.setAsDouble(4.0, 4, 4);
 			m2.setAsDouble(7.0, 0, 0);
 			m2.setAsDouble(6.0, 1, 1);
-			m2.setAsDouble(1.0, 3, 4);
+			m2.setAsDouble(1.0, 3, 3);
 			m2.setAsDouble(2.0, 4, 1);
 			m2.setAsDouble(3.0, 3, 2);
 			m2.setAsDouble(4.0, 2, 3);
@@ -267,6 +270,112 @@ public abstract class AbstractMatrixTest {
 		}
 	}
 
+	@Test
+	public final void testSparseEntrywise() throws Exception {
+		Matrix m = createMatrix(2, 2);
+		if (isTestSparse() && m.isSparse()) {
+			m = createMatrix(800000, 900000);
+			m.setAsDouble(-4.0, 3, 4);
+			m.setAsDouble(0.4, 334534, 4454);
+			m.setAsDouble(9.0, 799999, 899999);
+
+			Matrix abs = m.abs(Ret.NEW);
+			assertTrue(abs.isSparse());
+			if (m instanceof SparseDoubleMatrix) {
+				assertEquals(m.getClass(), abs.getClass());
+			}
+			assertEquals(4.0, abs.getAsDouble(3, 4), TOLERANCE);
+			assertEquals(0.0, abs.getAsDouble(3, 5), TOLERANCE);
+
+			Matrix times = m.times(Ret.NEW, false, -2.0);
+			assertEquals(8.0, times.getAsDouble(3, 4), TOLERANCE);
+			assertEquals(-18.0, times.getAsDouble(799999, 899999), TOLERANCE);
+			assertEquals(-0.2, m.divide(Ret.NEW, false, -2.0).getAsDouble(334534, 4454),
+					TOLERANCE);
+			assertEquals(3.0, m.sqrt(Ret.NEW).getAsDouble(799999, 899999), TOLERANCE);
+			assertEquals(Math.tanh(-4.0), m.tanh(Ret.NEW).getAsDouble(3, 4), TOLERANCE);
+
+			Matrix rounded = m.round(Ret.NEW);
+			assertEquals(0.0, rounded.getAsDouble(334534, 4454), TOLERANCE);
+			assertEquals(9.0, rounded.getAsDouble(799999, 899999), TOLERANCE);
+			assertEquals(2, countAvailableCoordinates(rounded));
+
+			m.round(Ret.ORIG);
+			assertEquals(-4.0, m.getAsDouble(3, 4), TOLERANCE);
+			assertEquals(0.0, m.getAsDouble(334534, 4454), TOLERANCE);
+			assertEquals(9.0, m.getAsDouble(799999, 899999), TOLERANCE);
+			assertEquals(2, countAvailableCoordinates(m));
+
+			try {
+				m.exp(Ret.NEW);
+				fail("exp does not preserve zeros");
+			} catch (RuntimeException e) {
+			}
+		}
+	}
+
+	@Test
+	public final void testSparseReductions() throws Exception {
+		Matrix m = createMatrix(2, 2);
+		if (isTestSparse() && m instanceof SparseDoubleMatrix) {
+			m = createMatrix(6, 4);
+			double[][] values = { { 1, 0, -2, 0 }, { -3, 0, 0, 5 }, { 2, -1, 4, -1 },
+					{ Double.NaN, 0, 0, 0 }, { 5, -2, 0, 5 }, { 1, 0, Double.NaN, 0 } };
+			Matrix dense = DenseDoubleMatrix2D.Factory.zeros(6, 4);
+			for (int r = 0; r < 6; r++) {
+				for (int c = 0; c < 4; c++) {
+					m.setAsDouble(values[r][c], r, c);
+					dense.setAsDouble(values[r][c], r, c);
+				}
+			}
+			int[] dimensions = { Matrix.ROW, Matrix.COLUMN, Matrix.ALL };
+			for (int d : dimensions) {
+				for (int i = 0; i < 2; i++) {
+					boolean ignoreNaN = i == 0;
+					assertReduced(dense.sum(Ret.NEW, d, ignoreNaN), m.sum(Ret.NEW, d, ignoreNaN));
+					assertReduced(dense.mean(Ret.NEW, d, ignoreNaN), m.mean(Ret.NEW, d, ignoreNaN));
+					assertReduced(dense.var(Ret.NEW, d, ignoreNaN, true),
+							m.var(Ret.NEW, d, ignoreNaN, true));
+					assertReduced(dense.std(Ret.NEW, d, ignoreNaN, false),
+							m.std(Ret.NEW, d, ignoreNaN, false));
+					assertReduced(dense.prod(Ret.NEW, d, ignoreNaN), m.prod(Ret.NEW, d, ignoreNaN));
+				}
+				assertReduced(dense.max(Ret.NEW, d), m.max(Ret.NEW, d));
+				assertReduced(dense.min(Ret.NEW, d), m.min(Ret.NEW, d));
+				assertReduced(dense.countMissing(Ret.NEW, d), m.countMissing(Ret.NEW, d));
+				if (d != Matrix.ALL) {
+					assertReduced(dense.indexOfMax(Ret.NEW, d), m.indexOfMax(Ret.NEW, d));
+					assertReduced(dense.indexOfMin(Ret.NEW, d), m.indexOfMin(Ret.NEW, d));
+				}
+			}
+
+			m = createMatrix(800000, 900000);
+			m.setAsDouble(4.0, 3, 4);
+			m.setAsDouble(-2.0, 799999, 4);
+			Matrix mean = m.mean(Ret.NEW, Matrix.ROW, false);
+			assertEquals(2.0 / 800000, mean.getAsDouble(0, 4), TOLERANCE);
+			assertEquals(0.0, mean.getAsDouble(0, 5), TOLERANCE);
+			assertEquals(799999, m.indexOfMin(Ret.NEW, Matrix.ROW).getAsDouble(0, 4), 0.0);
+			assertEquals(-2.0, m.min(Ret.NEW, Matrix.ALL).getAsDouble(0, 0), TOLERANCE);
+		}
+	}
+
+	private void assertReduced(Matrix expected, Matrix actual) {
+		assertEquals(getLabel(), expected.getRowCount(), actual.getRowCount());
+		assertEquals(getLabel(), expected.getColumnCount(), actual.getColumnCount());
+		for (long[] c : expected.allCoordinates()) {
+			assertEquals(getLabel(), expected.getAsDouble(c), actual.getAsDouble(c), TOLERANCE);
+		}
+	}
+
+	private static int countAvailableCoordinates(Matrix m) {
+		int count = 0;
+		for (Iterator<long[]> it = m.availableCoordinates().iterator(); it.hasNext(); it.next()) {
+			count++;
+		}
+		return count;
+	}
+
 	@Test
 	public final void testExtractAnnotation() throws Exception {
 		Matrix m1 = DenseDoubleMatrix2D.Factory.randn(5, 5);
@@ -329,6 +438,101 @@ public abstract class AbstractMatrixTest {
 		}
 	}
 
+	@Test
+	public final void testForEachDouble() throws Exception {
+		Matrix m = createMatrixWithAnnotation(7, 5);
+		m.setAsDouble(1.0, 0, 0);
+		m.setAsDouble(4.0, 2, 3);
+		m.setAsDouble(-3.0, 3, 2);
+		m.setAsDouble(2.0, 6, 4);
+
+		final Matrix values = DenseDoubleMatrix2D.Factory.zeros(7, 5);
+		final Matrix counts = DenseDoubleMatrix2D.Factory.zeros(7, 5);
+		m.forEachDouble(new DoubleCellVisitor() {
+			public void visit(long row, long column, double value) {
+				values.setAsDouble(value, row, column);
+				counts.setAsDouble(counts.getAsDouble(row, column) + 1.0, row, column);
+			}
+		});
+		for (int r = 0; r < 7; r++) {
+			for (int c = 0; c < 5; c++) {
+				assertEquals(getLabel(), 1.0, counts.getAsDouble(r, c), 0.0);
+				assertEquals(getLabel(), m.getAsDouble(r, c), values.getAsDouble(r, c), TOLERANCE);
+			}
+		}
+
+		final List<Coordinates> nonZero = new ArrayList<Coordinates>();
+		m.forEachNonZero(new DoubleCellVisitor() {
+			public void visit(long row, long column, double value) {
+				assertTrue(value != 0.0);
+				nonZero.add(Coordinates.wrap(row, column));
+			}
+		}, 2, 7);
+		assertEquals(getLabel(), 3, nonZero.size());
+		assertTrue(getLabel(), nonZero.contains(Coordinates.wrap(2, 3)));
+		assertTrue(getLabel(), nonZero.contains(Coordinates.wrap(3, 2)));
+		assertTrue(getLabel(), nonZero.contains(Coordinates.wrap(6, 4)));
+
+		if (m instanceof Erasable) {
+			((Erasable) m).erase();
+		}
+	}
+
+	@Test
+	public final void testDoubleBlock() throws Exception {
+		Matrix m = createMatrixWithAnnotation(7, 5);
+		for (int r = 0; r < 7; r++) {
+			for (int c = 0; c < 5; c++) {
+				m.setAsDouble(r * 10 + c + 1, r, c);
+			}
+		}
+
+		final double[] block = new double[2 + 4 * 6];
+		m.getDoubleBlock(2, 1, 4, 3, block, 2, 6);
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 3; j++) {
+				assertEquals(getLabel(), (i + 2) * 10 + j + 2, block[2 + i * 6 + j], TOLERANCE);
+			}
+		}
+		assertEquals(getLabel(), 0.0, block[0], 0.0);
+		assertEquals(getLabel(), 0.0, block[5], 0.0);
+
+		try {
+			// must not continue in the next column
+			m.getDoubleBlock(6, 0, 2, 1, new double[2], 0, 1);
+			fail(getLabel() + ": region outside of the matrix was accepted");
+		} catch (IllegalArgumentException e) {
+		}
+
+		if (!m.isReadOnly()) {
+			try {
+				m.setDoubleBlock(6, 4, 1, 2, new double[2], 0, 2);
+				fail(getLabel() + ": region outside of the matrix was accepted");
+			} catch (IllegalArgumentException e) {
+			}
+
+			m.setDoubleBlock(3, 2, 2, 3, new double[] { -1, -2, -3, 0, -4, -5, -6 }, 0, 4);
+			assertEquals(getLabel(), -1.0, m.getAsDouble(3, 2), TOLERANCE);
+			assertEquals(getLabel(), -3.0, m.getAsDouble(3, 4), TOLERANCE);
+			assertEquals(getLabel(), -4.0, m.getAsDouble(4, 2), TOLERANCE);
+			assertEquals(getLabel(), -6.0, m.getAsDouble(4, 4), TOLERANCE);
+			assertEquals(getLabel(), 32.0, m.getAsDouble(3, 1), TOLERANCE);
+			assertEquals(getLabel(), 53.0, m.getAsDouble(5, 2), TOLERANCE);
+
+			final double[] all = new double[35];
+			m.getDoubleBlock(0, 0, 7, 5, all, 0, 5);
+			for (int r = 0; r < 7; r++) {
+				for (int c = 0; c < 5; c++) {
+					assertEquals(getLabel(), m.getAsDouble(r, c), all[r * 5 + c], TOLERANCE);
+				}
+			}
+		}
+
+		if (m instanceof Erasable) {
+			((Erasable) m).erase();
+		}
+	}
+
 	@Test
 	public final void testAvailableCoordinateIterator2D() throws Exception {
 		Matrix m = getTestMatrix();
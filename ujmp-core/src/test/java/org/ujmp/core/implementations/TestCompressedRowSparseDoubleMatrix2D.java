@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.implementations;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.impl.CompressedColumnSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.CompressedRowSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.SparseGemm;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.matrices.MatrixLibraries;
+
+public class TestCompressedRowSparseDoubleMatrix2D extends AbstractMatrixTest {
+
+	public Matrix createMatrix(long... size) {
+		return new CompressedRowSparseDoubleMatrix2D(size[Matrix.ROW], size[Matrix.COLUMN]);
+	}
+
+	public Matrix createMatrix(Matrix source) {
+		return new CompressedRowSparseDoubleMatrix2D(source);
+	}
+
+	public boolean isTestLarge() {
+		return false;
+	}
+
+	@Override
+	public int getMatrixLibraryId() {
+		return MatrixLibraries.UJMP;
+	}
+
+	@Override
+	public boolean isTestSparse() {
+		return true;
+	}
+
+	private static CompressedRowSparseDoubleMatrix2D createSparse(int rows, int columns) {
+		Matrix m = DenseMatrix.Factory.rand(rows, columns);
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				if ((r * 7 + c * 3) % 5 != 0) {
+					m.setAsDouble(0.0, r, c);
+				}
+			}
+		}
+		return new CompressedRowSparseDoubleMatrix2D(m);
+	}
+
+	@Test
+	public void testCompressedKernels() throws Exception {
+		CompressedRowSparseDoubleMatrix2D a = createSparse(57, 43);
+		CompressedColumnSparseDoubleMatrix2D csc = new CompressedColumnSparseDoubleMatrix2D(a);
+		Matrix dense = DenseMatrix.Factory.zeros(57, 43).plus(a);
+		Matrix b = DenseMatrix.Factory.randn(43, 9);
+		Matrix c = DenseMatrix.Factory.randn(57, 5);
+
+		assertEquals(0.0, dense.mtimes(b).minus(a.mtimes(b)).getRMS(), TOLERANCE);
+		assertEquals(0.0, dense.mtimes(b).minus(csc.mtimes(b)).getRMS(), TOLERANCE);
+		assertEquals(0.0, dense.transpose().mtimes(c).minus(a.transposeMtimes(c)).getRMS(),
+				TOLERANCE);
+		assertEquals(0.0, dense.transpose().mtimes(c).minus(csc.transposeMtimes(c)).getRMS(),
+				TOLERANCE);
+
+		double[] x = b.selectColumns(Ret.NEW, 0).transpose().toDoubleArray()[0];
+		assertArrayEquals(dense.mtimes(b.selectColumns(Ret.NEW, 0)).transpose().toDoubleArray()[0],
+				a.mtimesVector(x), TOLERANCE);
+		double[] z = c.selectColumns(Ret.NEW, 0).transpose().toDoubleArray()[0];
+		assertArrayEquals(dense.transpose().mtimes(c.selectColumns(Ret.NEW, 0)).transpose()
+				.toDoubleArray()[0], csc.transposeMtimesVector(z), TOLERANCE);
+
+		assertEquals(dense.transpose(), a.transpose());
+		assertEquals(dense.selectRows(Ret.NEW, 3, 1, 50), a.selectRows(Ret.NEW, 3, 1, 50));
+		assertEquals(dense.selectColumns(Ret.NEW, 42, 0, 7), a.selectColumns(Ret.NEW, 42, 0, 7));
+		assertEquals(dense.selectColumns(Ret.NEW, 42, 0, 7),
+				csc.selectColumns(Ret.NEW, 42, 0, 7));
+	}
+
+	@Test
+	public void testSharedTranspose() throws Exception {
+		CompressedRowSparseDoubleMatrix2D a = createSparse(57, 43);
+		Matrix copy = DenseMatrix.Factory.zeros(57, 43).plus(a);
+		Matrix t = a.transpose();
+		assertTrue(t instanceof CompressedColumnSparseDoubleMatrix2D);
+		assertEquals(copy.transpose(), t);
+
+		// changes are not visible in the other matrix
+		a.setAsDouble(7.0, 2, 3);
+		t.setAsDouble(-1.0, 5, 6);
+		assertEquals(copy.getAsDouble(3, 2), t.getAsDouble(2, 3), 0.0);
+		assertEquals(copy.getAsDouble(6, 5), a.getAsDouble(6, 5), 0.0);
+		assertEquals(7.0, a.getAsDouble(2, 3), 0.0);
+		assertEquals(-1.0, t.getAsDouble(5, 6), 0.0);
+		t.clear();
+		assertEquals(7.0, a.getAsDouble(2, 3), 0.0);
+		assertEquals(0.0, t.getAsDouble(5, 6), 0.0);
+	}
+
+	@Test
+	public void testSetOutside() throws Exception {
+		Matrix a = createSparse(5, 4);
+		assertEquals(0.0, a.getAsDouble(5, 0), 0.0);
+		try {
+			a.setAsDouble(1.0, 5, 0);
+			fail("coordinates outside the matrix");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			a.setAsDouble(1.0, 0, -1);
+			fail("coordinates outside the matrix");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	private static Matrix toSparse(Matrix m) {
+		Matrix sparse = SparseMatrix.Factory.zeros(m.getRowCount(), m.getColumnCount());
+		for (long[] c : m.availableCoordinates()) {
+			sparse.setAsDouble(m.getAsDouble(c), c);
+		}
+		return sparse;
+	}
+
+	private static void assertProducts(Matrix a, Matrix b) {
+		Matrix dense = DenseMatrix.Factory.zeros(a.getRowCount(), a.getColumnCount()).plus(a);
+		Matrix expected = dense.mtimes(DenseMatrix.Factory.zeros(b.getRowCount(),
+				b.getColumnCount()).plus(b));
+		Matrix csr = new CompressedRowSparseDoubleMatrix2D(a).mtimes(b);
+		Matrix csc = new CompressedColumnSparseDoubleMatrix2D(a).mtimes(b);
+		Matrix generic = toSparse(a).mtimes(Ret.NEW, false, toSparse(b));
+		assertTrue(csr instanceof CompressedRowSparseDoubleMatrix2D);
+		assertTrue(csc instanceof CompressedColumnSparseDoubleMatrix2D);
+		assertEquals(0.0, expected.minus(csr).getRMS(), TOLERANCE);
+		assertEquals(0.0, expected.minus(csc).getRMS(), TOLERANCE);
+		assertEquals(0.0, expected.minus(generic).getRMS(), TOLERANCE);
+		Matrix cooccurrence = dense.transpose().mtimes(dense);
+		assertEquals(0.0, cooccurrence.minus(
+				new CompressedRowSparseDoubleMatrix2D(a).transposeMtimes(a)).getRMS(), TOLERANCE);
+		assertEquals(0.0, cooccurrence.minus(
+				new CompressedColumnSparseDoubleMatrix2D(a).transposeMtimes(a)).getRMS(),
+				TOLERANCE);
+	}
+
+	@Test
+	public void testSparseGemm() throws Exception {
+		int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		int denseColumns = SparseGemm.DENSECOLUMNS;
+		try {
+			UJMPSettings.getInstance().setNumberOfThreads(4);
+			assertProducts(createSparse(13, 7), createSparse(7, 11));
+			assertProducts(createSparse(300, 250), createSparse(250, 280));
+			SparseGemm.DENSECOLUMNS = 0;
+			assertProducts(createSparse(300, 250), createSparse(250, 280));
+		} finally {
+			SparseGemm.DENSECOLUMNS = denseColumns;
+			UJMPSettings.getInstance().setNumberOfThreads(threads);
+		}
+	}
+
+	@Test
+	public void testSparseDenseMtimes() throws Exception {
+		int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		try {
+			UJMPSettings.getInstance().setNumberOfThreads(4);
+			Matrix s = toSparse(createSparse(300, 250));
+			Matrix dense = DenseMatrix.Factory.zeros(300, 250).plus(s);
+			Matrix b = DenseMatrix.Factory.randn(250, 40);
+			Matrix a = DenseMatrix.Factory.randn(60, 300);
+
+			Matrix right = DenseMatrix.Factory.zeros(300, 40);
+			Matrix.mtimes.calc(s, b, right);
+			assertEquals(0.0, dense.mtimes(b).minus(right).getRMS(), TOLERANCE);
+			Matrix left = DenseMatrix.Factory.zeros(60, 250);
+			Matrix.mtimes.calc(a, s, left);
+			assertEquals(0.0, a.mtimes(dense).minus(left).getRMS(), TOLERANCE);
+
+			Matrix t = toSparse(createSparse(250, 70));
+			Matrix product = s.mtimes(t);
+			assertTrue(product instanceof CompressedRowSparseDoubleMatrix2D);
+			assertEquals(0.0, dense.mtimes(DenseMatrix.Factory.zeros(250, 70).plus(t))
+					.minus(product).getRMS(), TOLERANCE);
+		} finally {
+			UJMPSettings.getInstance().setNumberOfThreads(threads);
+		}
+	}
+
+}
@@ -23,8 +23,19 @@
 
 package org.ujmp.core.implementations;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.junit.Test;
 import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
 import org.ujmp.core.doublematrix.impl.DefaultSparseRowDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultSparseRowDoubleMatrix2D.RowReducer;
+import org.ujmp.core.doublematrix.impl.DefaultSparseRowDoubleMatrix2D.RowVisitor;
+import org.ujmp.core.util.UJMPSettings;
 import org.ujmp.core.util.matrices.MatrixLibraries;
 
 public class TestDefaultSparseRowDoubleMatrix2D extends AbstractMatrixTest {
@@ -51,4 +62,88 @@ public class TestDefaultSparseRowDoubleMatrix2D extends AbstractMatrixTest {
 		return true;
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testRowOperations() throws Exception {
+		int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		try {
+			UJMPSettings.getInstance().setNumberOfThreads(4);
+			Random random = new Random(7);
+			final DefaultSparseRowDoubleMatrix2D m = new DefaultSparseRowDoubleMatrix2D(500, 40);
+			for (int i = 0; i < 3000; i++) {
+				m.setAsDouble(random.nextInt(9) - 4, random.nextInt(500), random.nextInt(40));
+			}
+
+			// row-major order, arrays can be kept
+			long[] previous = null;
+			int count = 0;
+			for (long[] c : m.availableCoordinates()) {
+				if (previous != null) {
+					assertEquals(true, previous[0] < c[0]
+							|| (previous[0] == c[0] && previous[1] < c[1]));
+				}
+				previous = c;
+				count++;
+			}
+			int nonZeros = 0;
+			for (int r = 0; r < 500; r++) {
+				for (int c = 0; c < 40; c++) {
+					nonZeros += m.getAsDouble(r, c) != 0.0 ? 1 : 0;
+				}
+			}
+			assertEquals(nonZeros, count);
+
+			final double[] rowSums = new double[500];
+			m.forEachRow(true, new RowVisitor() {
+				public void visitRow(long row, long[] columns, double[] values, int count) {
+					for (int i = 0; i < count; i++) {
+						rowSums[(int) row] += values[i];
+					}
+				}
+			});
+			assertArrayEquals(m.sum(Ret.NEW, Matrix.COLUMN, true).transpose().toDoubleArray()[0],
+					rowSums, TOLERANCE);
+
+			Double total = m.reduceRows(true, new RowReducer<Double>() {
+				public Double map(long row, long[] columns, double[] values, int count) {
+					double sum = 0.0;
+					for (int i = 0; i < count; i++) {
+						sum += values[i] * values[i];
+					}
+					return sum;
+				}
+
+				public Double reduce(Double result1, Double result2) {
+					return result1 + result2;
+				}
+			});
+			assertEquals(m.normF() * m.normF(), total, TOLERANCE);
+
+			assertEquals(m.selectRows(Ret.NEW, 3).mtimes(m.selectRows(Ret.NEW, 7).transpose())
+					.getAsDouble(0, 0), m.rowDot(3, 7), TOLERANCE);
+
+			m.normalizeRows(true);
+			for (int r = 0; r < 500; r++) {
+				double norm = m.rowDot(r, r);
+				assertEquals(true, Math.abs(norm - 1.0) < TOLERANCE || norm == 0.0);
+			}
+		} finally {
+			UJMPSettings.getInstance().setNumberOfThreads(threads);
+		}
+	}
+
+	@Test
+	public void testRowsOutside() throws Exception {
+		DefaultSparseRowDoubleMatrix2D m = new DefaultSparseRowDoubleMatrix2D(4, 3);
+		m.setAsDouble(2.0, 1, 2);
+		assertEquals(0.0, m.getAsDouble(4, 0), 0.0);
+		assertEquals(0.0, m.getAsDouble(-1, 0), 0.0);
+		assertNull(m.getRow(4));
+		assertNull(m.getRow(-1));
+		assertNull(m.getRow(0));
+		assertEquals(2.0, m.getRow(1).getAsDouble(0, 2), 0.0);
+		assertEquals(4.0, m.rowDot(1, 1), 0.0);
+		assertEquals(0.0, m.rowDot(1, 4), 0.0);
+		assertEquals(0.0, m.rowDot(-1, 1), 0.0);
+	}
+
+}
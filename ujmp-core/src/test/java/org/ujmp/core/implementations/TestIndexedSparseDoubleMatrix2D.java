@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.implementations;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.impl.IndexedSparseDoubleMatrix2D;
+import org.ujmp.core.util.matrices.MatrixLibraries;
+
+public class TestIndexedSparseDoubleMatrix2D extends AbstractMatrixTest {
+
+	public Matrix createMatrix(long... size) {
+		return new IndexedSparseDoubleMatrix2D(size[Matrix.ROW], size[Matrix.COLUMN]);
+	}
+
+	public Matrix createMatrix(Matrix source) {
+		return new IndexedSparseDoubleMatrix2D(source);
+	}
+
+	public boolean isTestLarge() {
+		return false;
+	}
+
+	@Override
+	public int getMatrixLibraryId() {
+		return MatrixLibraries.UJMP;
+	}
+
+	@Override
+	public boolean isTestSparse() {
+		return true;
+	}
+
+	@Test
+	public void testBulkInsert() throws Exception {
+		Random random = new Random(3);
+		IndexedSparseDoubleMatrix2D m = new IndexedSparseDoubleMatrix2D(300, 200);
+		double[][] expected = new double[300][200];
+		for (int i = 0; i < 500; i++) {
+			int r = random.nextInt(300);
+			int c = random.nextInt(200);
+			double value = random.nextInt(5) - 2;
+			m.setDouble(value, r, c);
+			expected[r][c] = value;
+		}
+
+		for (int round = 0; round < 3; round++) {
+			int n = 2000;
+			double[] values = new double[n];
+			long[] rows = new long[n];
+			long[] columns = new long[n];
+			for (int i = 0; i < n; i++) {
+				values[i] = random.nextInt(5) - 2;
+				rows[i] = random.nextInt(300);
+				columns[i] = random.nextInt(200);
+				// later duplicates win
+				expected[(int) rows[i]][(int) columns[i]] = values[i];
+			}
+			m.setDoubles(values, rows, columns);
+		}
+		m.setDoubles(new double[] { 1.0 }, new long[] { 300 }, new long[] { 0 });
+
+		int nonZeros = 0;
+		for (int r = 0; r < 300; r++) {
+			for (int c = 0; c < 200; c++) {
+				assertEquals(expected[r][c], m.getDouble(r, c), 0.0);
+				nonZeros += expected[r][c] != 0.0 ? 1 : 0;
+			}
+		}
+		assertEquals(nonZeros, m.getNonZeroCount());
+
+		long previous = -1;
+		int count = 0;
+		for (long[] c : m.availableCoordinates()) {
+			long key = c[Matrix.ROW] * 200 + c[Matrix.COLUMN];
+			assertEquals(true, key > previous);
+			assertEquals(true, m.containsCoordinates(c));
+			previous = key;
+			count++;
+		}
+		assertEquals(nonZeros, count);
+
+		m.trimToSize();
+		m.setDouble(5.0, 0, 0);
+		assertEquals(5.0, m.getDouble(0, 0), 0.0);
+		assertEquals(0.0, m.getDouble(-1, 0), 0.0);
+	}
+
+}
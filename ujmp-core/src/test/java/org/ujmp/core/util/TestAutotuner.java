@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+
+public class TestAutotuner {
+
+	@Test
+	public void testBucket() {
+		assertEquals("0x1x10", Autotuner.getBucket(1, 3, 1500));
+		assertEquals(Autotuner.getBucket(512, 512), Autotuner.getBucket(1000, 600));
+	}
+
+	@Test
+	public void testSelectAndPersist() throws Exception {
+		File file = File.createTempFile("ujmp-autotuner", ".properties");
+		file.delete();
+		try {
+			final String fast = "fast";
+			final String slow = "slow";
+			Map<String, String> candidates = new LinkedHashMap<String, String>();
+			candidates.put(slow, slow);
+			candidates.put(fast, fast);
+			Autotuner.Experiment<String> experiment = new Autotuner.Experiment<String>() {
+				public Matrix[] createArguments(long[] size) {
+					return new Matrix[0];
+				}
+
+				public void run(String candidate, Matrix[] arguments) {
+					if (candidate == slow) {
+						try {
+							Thread.sleep(5);
+						} catch (InterruptedException e) {
+						}
+					}
+				}
+			};
+
+			Autotuner autotuner = new Autotuner(file);
+			assertNull(autotuner.getChoice("test", 10, 10));
+			assertSame(fast, autotuner.select("test", new long[] { 10, 10 }, candidates, experiment));
+			assertEquals(fast, autotuner.getChoice("test", 12, 14));
+
+			// the choice is read back from the profile
+			Autotuner reloaded = new Autotuner(file);
+			assertEquals(fast, reloaded.getChoice("test", 10, 10));
+			reloaded.setChoice("test", slow, 10, 10);
+			assertSame(slow, reloaded.select("test", new long[] { 10, 10 }, candidates, experiment));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testMergeProfiles() throws Exception {
+		File file = File.createTempFile("ujmp-autotuner", ".properties");
+		file.delete();
+		try {
+			// two instances stand for two JVMs which share the profile
+			Autotuner first = new Autotuner(file);
+			Autotuner second = new Autotuner(file);
+			first.setChoice("a", "x", 10, 10);
+			second.setChoice("b", "y", 10, 10);
+			first.setChoice("a", "z", 10, 10);
+
+			Autotuner reloaded = new Autotuner(file);
+			assertEquals("z", reloaded.getChoice("a", 10, 10));
+			assertEquals("y", reloaded.getChoice("b", 10, 10));
+
+			reloaded.clear();
+			assertNull(new Autotuner(file).getChoice("b", 10, 10));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testSelectDoesNotWait() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Map<String, String> candidates = new LinkedHashMap<String, String>();
+		candidates.put("first", "first");
+		candidates.put("second", "second");
+		final Autotuner.Experiment<String> experiment = new Autotuner.Experiment<String>() {
+			public Matrix[] createArguments(long[] size) {
+				return new Matrix[0];
+			}
+
+			public void run(String candidate, Matrix[] arguments) {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+				}
+			}
+		};
+		final Autotuner autotuner = new Autotuner(null);
+		Thread tuner = new Thread() {
+			public void run() {
+				autotuner.select("test", new long[] { 10, 10 }, candidates, experiment);
+			}
+		};
+		tuner.start();
+		try {
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			// the bucket is being measured, the default is returned at once
+			assertEquals("first",
+					autotuner.select("test", new long[] { 10, 10 }, candidates, experiment));
+		} finally {
+			release.countDown();
+			tuner.join();
+		}
+		assertNotNull(autotuner.getChoice("test", 10, 10));
+	}
+
+}
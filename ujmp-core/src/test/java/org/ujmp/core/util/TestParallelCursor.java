@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.doublematrix.impl.ArrayDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.BlockDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.CompressedColumnSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.CompressedRowSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultSparseRowDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.IndexedSparseDoubleMatrix2D;
+import org.ujmp.core.interfaces.DoubleCellVisitor;
+import org.ujmp.core.util.concurrent.ParallelCursor;
+
+public class TestParallelCursor {
+
+	private static Matrix[] formats(Matrix m) {
+		return new Matrix[] { new DefaultDenseDoubleMatrix2D(m), new ArrayDenseDoubleMatrix2D(m),
+				new BlockDenseDoubleMatrix2D(m, 16), new CompressedRowSparseDoubleMatrix2D(m),
+				new CompressedColumnSparseDoubleMatrix2D(m), new DefaultSparseRowDoubleMatrix2D(m),
+				new IndexedSparseDoubleMatrix2D(m) };
+	}
+
+	private static Matrix sparseSource() {
+		Matrix m = SparseMatrix.Factory.zeros(67, 45);
+		for (int i = 0; i < 300; i++) {
+			m.setAsDouble(i + 1.0, (i * 7) % 67, (i * 13) % 45);
+		}
+		return m;
+	}
+
+	@Test
+	public void testParallelVisit() {
+		final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		final int threshold = ParallelCursor.PARALLELTHRESHOLD;
+		try {
+			final Matrix source = sparseSource();
+			// the block matrix resets the number of threads when created
+			final Matrix[] formats = formats(source);
+			UJMPSettings.getInstance().setNumberOfThreads(4);
+			ParallelCursor.PARALLELTHRESHOLD = 100;
+			for (Matrix m : formats) {
+				assertEquals(5, ParallelCursor.split(m).length);
+				final double[] values = new double[67 * 45];
+				final AtomicInteger all = new AtomicInteger();
+				ParallelCursor.forEachDouble(m, new DoubleCellVisitor() {
+					public void visit(long row, long column, double value) {
+						values[(int) (column * 67 + row)] = value;
+						all.incrementAndGet();
+					}
+				});
+				assertEquals(67 * 45, all.get());
+				assertEquals(source, new DefaultDenseDoubleMatrix2D(values, 67, 45));
+
+				final AtomicInteger nonZero = new AtomicInteger();
+				ParallelCursor.forEachNonZero(m, new DoubleCellVisitor() {
+					public void visit(long row, long column, double value) {
+						assertEquals(source.getAsDouble(row, column), value, 0.0);
+						nonZero.incrementAndGet();
+					}
+				});
+				assertEquals(source.getValueCount() - countZeros(source), nonZero.get());
+			}
+		} finally {
+			UJMPSettings.getInstance().setNumberOfThreads(threads);
+			ParallelCursor.PARALLELTHRESHOLD = threshold;
+		}
+	}
+
+	@Test
+	public void testConversions() {
+		final Matrix dense = DenseMatrix.Factory.randn(23, 31);
+		dense.setAsDouble(0.0, 4, 5);
+		for (Matrix source : new Matrix[] { dense, sparseSource() }) {
+			for (Matrix from : formats(source)) {
+				for (Matrix to : formats(from)) {
+					assertEquals(from.getClass().getSimpleName() + " to "
+							+ to.getClass().getSimpleName(), source, to);
+				}
+				assertEquals(source, from.clone());
+			}
+		}
+	}
+
+	private static long countZeros(Matrix m) {
+		long zeros = 0;
+		for (int r = 0; r < m.getRowCount(); r++) {
+			for (int c = 0; c < m.getColumnCount(); c++) {
+				if (m.getAsDouble(r, c) == 0.0) {
+					zeros++;
+				}
+			}
+		}
+		return zeros;
+	}
+
+}
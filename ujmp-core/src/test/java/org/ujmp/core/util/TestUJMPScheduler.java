@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.ujmp.core.task.AbstractTask;
+import org.ujmp.core.util.concurrent.PFor;
+import org.ujmp.core.util.concurrent.PForEquidistant;
+import org.ujmp.core.util.concurrent.RangeTask;
+import org.ujmp.core.util.concurrent.UJMPScheduler;
+
+public class TestUJMPScheduler {
+
+	@Test
+	public void testParallelFor() {
+		final AtomicLong sum = new AtomicLong();
+		final int[] counts = new int[1000];
+		UJMPScheduler.parallelFor(0, counts.length, 4, new RangeTask() {
+			public void run(int start, int end) {
+				for (int i = start; i < end; i++) {
+					counts[i]++;
+					sum.addAndGet(i);
+				}
+			}
+		});
+		for (int i = 0; i < counts.length; i++) {
+			assertEquals(1, counts[i]);
+		}
+		assertEquals(999 * 1000 / 2, sum.get());
+
+		final int[] steps = new int[37];
+		new PForEquidistant(4, 3, 36, new Object[0]) {
+			public void step(int i) {
+				steps[i]++;
+			}
+		};
+		for (int i = 0; i < steps.length; i++) {
+			assertEquals(i < 3 ? 0 : 1, steps[i]);
+		}
+	}
+
+	// blocks every chunk until the given number of threads have arrived, so the
+	// caller cannot finish the loop alone before a helper joins
+	private static void awaitThreads(Set<Thread> threads, CountDownLatch joined) {
+		if (threads.add(Thread.currentThread())) {
+			joined.countDown();
+		}
+		try {
+			if (!joined.await(10, TimeUnit.SECONDS)) {
+				// do not wait again for each further chunk, the test fails anyway
+				while (joined.getCount() > 0) {
+					joined.countDown();
+				}
+			}
+		} catch (InterruptedException e) {
+		}
+	}
+
+	@Test
+	public void testEquidistantOrder() {
+		// every step is executed exactly once for all combinations of lengths
+		for (int threads = 2; threads <= 5; threads++) {
+			for (int count = 0; count <= 23; count++) {
+				final int[] steps = new int[count + 3];
+				new PForEquidistant(threads, 3, count + 2, new Object[0]) {
+					public void step(int i) {
+						synchronized (steps) {
+							steps[i]++;
+						}
+					}
+				};
+				for (int i = 0; i < steps.length; i++) {
+					assertEquals(i < 3 ? 0 : 1, steps[i]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNestedLoops() {
+		// more nested loops than threads in the pool must not block
+		final AtomicInteger count = new AtomicInteger();
+		new PFor(8, 0, 7) {
+			public void step(int i) {
+				new PFor(8, 0, 7) {
+					public void step(int j) {
+						new PFor(8, 0, 9) {
+							public void step(int k) {
+								count.incrementAndGet();
+							}
+						};
+					}
+				};
+			}
+		};
+		assertEquals(8 * 8 * 10, count.get());
+	}
+
+	@Test
+	public void testException() {
+		try {
+			new PFor(4, 0, 99) {
+				public void step(int i) {
+					if (i == 42) {
+						throw new IllegalStateException("step " + i);
+					}
+				}
+			};
+			fail("exception was not propagated");
+		} catch (IllegalStateException e) {
+			assertEquals("step 42", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testBackgroundTask() throws Exception {
+		final int maxThreads = UJMPSettings.getInstance().getMaxNumberOfThreads();
+		final CountDownLatch release = new CountDownLatch(1);
+		final Future<Object> task = new AbstractTask<Object>() {
+			public Object call() throws Exception {
+				release.await();
+				return null;
+			}
+		}.executeInBackground();
+		try {
+			// the only thread of the pool must stay free for the loop
+			UJMPSettings.getInstance().setMaxNumberOfThreads(1);
+			final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+			final CountDownLatch joined = new CountDownLatch(2);
+			UJMPScheduler.parallelFor(0, 200, 2, new RangeTask() {
+				public void run(int start, int end) {
+					awaitThreads(threads, joined);
+				}
+			});
+			assertEquals(2, threads.size());
+		} finally {
+			release.countDown();
+			task.get();
+			UJMPSettings.getInstance().setMaxNumberOfThreads(maxThreads);
+		}
+	}
+
+	@Test
+	public void testThreadBudget() {
+		final int old = UJMPScheduler.setThreadBudget(2);
+		try {
+			assertEquals(2, UJMPSettings.getInstance().getNumberOfThreads());
+			final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+			final Set<Integer> budgets = Collections.synchronizedSet(new HashSet<Integer>());
+			final CountDownLatch joined = new CountDownLatch(2);
+			UJMPScheduler.parallelFor(0, 200, 8, new RangeTask() {
+				public void run(int start, int end) {
+					budgets.add(UJMPSettings.getInstance().getNumberOfThreads());
+					awaitThreads(threads, joined);
+				}
+			});
+			assertEquals(2, threads.size());
+			assertEquals(Collections.singleton(2), budgets);
+		} finally {
+			UJMPScheduler.setThreadBudget(old);
+		}
+		assertEquals(old, UJMPScheduler.getThreadBudget());
+	}
+
+}